@@ -0,0 +1,11 @@
+-- One-off migration for databases whose Saving accounts were created before the application
+-- wrote accounts.interest_rate. Those rows kept the column default of 0.00 while the application
+-- paid them the 2% it hard-coded at the time; interest accrual skips 0% accounts.
+--
+-- Run it once, while upgrading and before any Saving account is opened at 0% on purpose:
+--   mysql -u your_username -p < migrations/001_saving_interest_rate.sql
+-- Do not rerun it afterwards, it would raise those deliberate 0% accounts to 2%.
+
+USE mybankuml;
+
+UPDATE accounts SET interest_rate = 2.00 WHERE account_type = 'Saving' AND interest_rate = 0.00;
@@ -55,7 +55,7 @@ CREATE TABLE IF NOT EXISTS accounts (
     customer_id VARCHAR(50) NOT NULL,
     account_type ENUM('Checking', 'Saving', 'Card', 'Check') NOT NULL,
     balance DECIMAL(15, 2) DEFAULT 0.00,
-    interest_rate DECIMAL(5, 2) DEFAULT 0.00,
+    interest_rate DECIMAL(5, 2) DEFAULT 0.00, -- annual, in percent
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     FOREIGN KEY (customer_id) REFERENCES users(user_id) ON DELETE CASCADE,
     INDEX idx_customer (customer_id),
@@ -143,6 +143,7 @@ CREATE TABLE IF NOT EXISTS statements (
     month INT NOT NULL,
     start_balance DECIMAL(15, 2) DEFAULT 0.00,
     end_balance DECIMAL(15, 2) DEFAULT 0.00,
+    transaction_count INT DEFAULT 0,
     bank_id VARCHAR(50),
     branch_id VARCHAR(50),
     date_issued TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
@@ -176,8 +177,136 @@ CREATE TABLE IF NOT EXISTS audit_log (
     INDEX idx_action (action_type)
 );
 
+-- Notification outbox: customer messages written in the same transaction as the transfer
+-- and delivered in per-channel batches by a background dispatcher
+CREATE TABLE IF NOT EXISTS notification_outbox (
+    notification_id VARCHAR(50) PRIMARY KEY,
+    channel ENUM('SMS', 'Email') NOT NULL,
+    destination VARCHAR(100) NOT NULL,
+    transaction_id VARCHAR(50),
+    reference_number VARCHAR(50),
+    message TEXT NOT NULL,
+    status ENUM('Pending', 'Sent', 'Failed') DEFAULT 'Pending',
+    attempts INT DEFAULT 0,
+    next_attempt_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    last_error VARCHAR(255),
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    sent_at TIMESTAMP NULL,
+    FOREIGN KEY (transaction_id) REFERENCES transactions(transaction_id) ON DELETE SET NULL,
+    INDEX idx_due (status, channel, next_attempt_at)
+);
+
+-- Idempotency keys for the money-moving endpoints: the key is inserted in the same
+-- transaction as the transfer, with the response a retry of that key gets back
+CREATE TABLE IF NOT EXISTS idempotency_keys (
+    customer_id VARCHAR(50) NOT NULL,
+    idempotency_key VARCHAR(100) NOT NULL,
+    endpoint VARCHAR(100) NOT NULL,
+    request_fingerprint CHAR(64) NOT NULL,
+    response_body TEXT NOT NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (customer_id, idempotency_key),
+    FOREIGN KEY (customer_id) REFERENCES users(user_id) ON DELETE CASCADE,
+    INDEX idx_created (created_at)
+);
+
+-- Double-entry ledger: each balance change is a posting of append-only rows sharing a
+-- posting_id and summing to zero. amount is signed (positive increases the account's
+-- balance); GL-* account IDs are the bank's side of money entering or leaving it
+CREATE TABLE IF NOT EXISTS ledger_entries (
+    entry_sequence BIGINT PRIMARY KEY,
+    posting_id VARCHAR(50) NOT NULL,
+    account_id VARCHAR(50) NOT NULL,
+    amount DECIMAL(15, 2) NOT NULL,
+    posting_type VARCHAR(30) NOT NULL,
+    reference_id VARCHAR(50),
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    INDEX idx_account_sequence (account_id, entry_sequence)
+);
+
+-- Account balance as of entry_sequence; the current balance is the latest snapshot plus
+-- the account's entries after it
+CREATE TABLE IF NOT EXISTS ledger_snapshots (
+    account_id VARCHAR(50) NOT NULL,
+    entry_sequence BIGINT NOT NULL,
+    balance DECIMAL(15, 2) NOT NULL,
+    taken_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (account_id, entry_sequence)
+);
+
+-- Closing balance of each day an account moved, with the day's net movement (opening ledger
+-- entries excluded); the balance at the end of any day is the latest row on or before it
+CREATE TABLE IF NOT EXISTS account_daily_balances (
+    account_id VARCHAR(50) NOT NULL,
+    balance_date DATE NOT NULL,
+    closing_balance DECIMAL(15, 2) NOT NULL,
+    net_change DECIMAL(15, 2) NOT NULL DEFAULT 0.00,
+    entry_count INT NOT NULL DEFAULT 0,
+    PRIMARY KEY (account_id, balance_date)
+);
+
+-- Interest a Saving account has accrued but not yet been credited (less than a cent), and the
+-- last day it accrued for; written in the same commit as the account's interest credit
+CREATE TABLE IF NOT EXISTS interest_accruals (
+    account_id VARCHAR(50) PRIMARY KEY,
+    accrued DECIMAL(20, 10) NOT NULL DEFAULT 0,
+    last_accrued_on DATE NOT NULL
+);
+
+-- Scan position and totals of each day's interest accrual run, so a restart resumes it
+CREATE TABLE IF NOT EXISTS interest_accrual_runs (
+    run_date DATE PRIMARY KEY,
+    last_account_id VARCHAR(50) NOT NULL,
+    accounts_accrued BIGINT NOT NULL DEFAULT 0,
+    interest_credited DECIMAL(15, 2) NOT NULL DEFAULT 0.00,
+    completed_at TIMESTAMP NULL,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Debits per account for one day (bucket 'D') and one month ('M'), behind the daily amount and
+-- monthly withdrawal limits; written behind from the in-memory counters and loaded on startup
+CREATE TABLE IF NOT EXISTS account_debit_counters (
+    account_id VARCHAR(50) NOT NULL,
+    bucket CHAR(1) NOT NULL,
+    bucket_start DATE NOT NULL,
+    debits INT NOT NULL DEFAULT 0,
+    amount DECIMAL(15, 2) NOT NULL DEFAULT 0.00,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (account_id, bucket, bucket_start)
+);
+
+-- Customer ranges a month-end statement run has finished; committed with the range's
+-- statements so a rerun of the same job_id skips them
+CREATE TABLE IF NOT EXISTS statement_job_partitions (
+    job_id VARCHAR(50) NOT NULL,
+    first_customer_id VARCHAR(50) NOT NULL,
+    last_customer_id VARCHAR(50) NOT NULL,
+    statements INT NOT NULL,
+    completed_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (job_id, first_customer_id)
+);
+
 -- Create indexes for performance
 CREATE INDEX idx_transactions_date ON transactions(initiated_at);
 CREATE INDEX idx_accounts_balance ON accounts(balance);
 CREATE INDEX idx_users_active ON users(is_active);
 
+-- Composite indexes for keyset (cursor) pagination of transaction history.
+-- Each one covers a filter column plus the (initiated_at, transaction_id) sort key,
+-- so fetching page N is the same index range seek as fetching page 1.
+CREATE INDEX idx_tx_customer_keyset ON transactions(customer_id, initiated_at, transaction_id);
+CREATE INDEX idx_tx_source_keyset ON transactions(source_account_id, initiated_at, transaction_id);
+CREATE INDEX idx_tx_destination_keyset ON transactions(destination_account_id, initiated_at, transaction_id);
+CREATE INDEX idx_tx_keyset ON transactions(initiated_at, transaction_id);
+
+-- statements.transaction_count (month-end statement job) for databases created before it was
+-- added above. MySQL has no ADD COLUMN IF NOT EXISTS, so the ALTER only runs when the column is
+-- missing and this block can be rerun safely
+SET @add_transaction_count = (SELECT IF(COUNT(*) = 0,
+        'ALTER TABLE statements ADD COLUMN transaction_count INT DEFAULT 0 AFTER end_balance',
+        'DO 0')
+    FROM information_schema.columns
+    WHERE table_schema = DATABASE() AND table_name = 'statements' AND column_name = 'transaction_count');
+PREPARE add_transaction_count FROM @add_transaction_count;
+EXECUTE add_transaction_count;
+DEALLOCATE PREPARE add_transaction_count;
@@ -0,0 +1,105 @@
+package bank;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link AccountLockManager}'s 1024 stripes against a single global lock (the same manager with
+ * one stripe, so only the striping differs), around a short two-account balance update. Each
+ * thread transfers between its own pair of accounts (disjoint) or from one shared account
+ * (hot). Compare the 4-thread scores with the 1-thread baseline: disjoint transfers should
+ * scale with the stripes and serialize with the global lock, hot ones serialize either way.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AccountLockBenchmark {
+    private static final int ACCOUNTS = 1024;
+    // Stand-in for the work done while holding the locks (funds check, balance and history updates)
+    private static final long CRITICAL_SECTION_TOKENS = 100;
+
+    @State(Scope.Benchmark)
+    public static class Locks {
+        final AccountLockManager striped = new AccountLockManager(1024);
+        final AccountLockManager global = new AccountLockManager(1);
+        final long[] balances = new long[ACCOUNTS];
+        final String[] accountIDs = new String[ACCOUNTS];
+        final AtomicInteger nextThread = new AtomicInteger();
+
+        @Setup
+        public void setUp() {
+            for (int i = 0; i < ACCOUNTS; i++) {
+                accountIDs[i] = "bench-account-" + i;
+                balances[i] = 1_000_000_000L;
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Accounts {
+        int source;
+        int destination;
+        int hotDestination;
+
+        @Setup
+        public void setUp(Locks locks) {
+            int thread = locks.nextThread.getAndIncrement();
+            source = (2 * thread + 1) % ACCOUNTS;
+            destination = (2 * thread + 2) % ACCOUNTS;
+            hotDestination = source;
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void stripedDisjointBaseline(Locks locks, Accounts accounts) {
+        transfer(locks.striped, locks, accounts.source, accounts.destination);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void stripedDisjoint(Locks locks, Accounts accounts) {
+        transfer(locks.striped, locks, accounts.source, accounts.destination);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void globalDisjoint(Locks locks, Accounts accounts) {
+        transfer(locks.global, locks, accounts.source, accounts.destination);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void stripedHotAccount(Locks locks, Accounts accounts) {
+        transfer(locks.striped, locks, 0, accounts.hotDestination);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void globalHotAccount(Locks locks, Accounts accounts) {
+        transfer(locks.global, locks, 0, accounts.hotDestination);
+    }
+
+    private static void transfer(AccountLockManager manager, Locks locks, int source, int destination) {
+        try (AccountLockManager.Lease ignored = manager.lock(locks.accountIDs[source], locks.accountIDs[destination])) {
+            locks.balances[source]--;
+            locks.balances[destination]++;
+            Blackhole.consumeCPU(CRITICAL_SECTION_TOKENS);
+        }
+    }
+}
@@ -0,0 +1,493 @@
+package bank;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * End-to-end load harness. Boots BankApplication in this JVM against an in-memory H2 database
+ * in MySQL mode (created from database/schema.sql and seeded with customers, accounts and a
+ * banker), then drives a weighted mix of login, account listing, transfer, e-transfer, loan
+ * request and banker search traffic from a fixed number of closed-loop clients, and reports
+ * throughput and latency percentiles per endpoint. Results are also written as JSON, together
+ * with the server's own /api/admin/metrics, for comparing runs.
+ *
+ * modes=platform,virtual runs the same load twice, once on Tomcat's platform thread pool and
+ * once with spring.threads.virtual.enabled, and prints a side-by-side summary. Clients run on
+ * virtual threads, so thousands of concurrent clients are cheap to simulate.
+ *
+ * Usage (all arguments optional, key=value):
+ *   mvn -Pbench test-compile exec:exec@load -Dload.args="threads=32 seconds=60"
+ *   mvn -Pbench test-compile exec:exec@load -Dload.args="threads=2000 modes=platform,virtual"
+ *
+ * ledger=true posts balance changes to the double-entry ledger instead of the guarded in-place update.
+ *
+ *   threads=16 seconds=30 warmup=10 customers=500 pool=20 modes=platform ledger=false log=WARN
+ *   out=target/load-result.json mix=login:15,accounts:30,transfer:20,etransfer:10,loan:5,search:20
+ */
+public class LoadHarness {
+    private static final String DB_URL =
+            "jdbc:h2:mem:mybankuml;MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=YEAR,MONTH,VALUE;" +
+            "IGNORE_UNKNOWN_SETTINGS=TRUE;DB_CLOSE_DELAY=-1";
+    private static final String PASSWORD = "load-test";
+    private static final double OPENING_BALANCE = 1_000_000_000.0;
+    private static final String[] FIRST_NAMES = {"Alice", "Bruno", "Chloe", "Dmitri", "Emma", "Farid", "Gabriel",
+        "Hana", "Isaac", "Julie", "Karim", "Lea", "Marc", "Nadia", "Olivier", "Priya", "Quentin", "Rosa",
+        "Samuel", "Tara"};
+    private static final String[] LAST_NAMES = {"Tremblay", "Gagnon", "Roy", "Cote", "Bouchard", "Gauthier",
+        "Morin", "Lavoie", "Fortin", "Gagne", "Ouellet", "Pelletier", "Belanger", "Levesque", "Bergeron"};
+    // Inline "INDEX name (" clauses; H2 index names are per schema, MySQL's are per table
+    private static final Pattern INLINE_INDEX = Pattern.compile("\\bINDEX\\s+(\\w+)\\s*\\(");
+    private static final Pattern CREATE_TABLE = Pattern.compile("CREATE TABLE IF NOT EXISTS (\\w+)");
+    private static final Pattern MYSQL_ONLY = Pattern.compile("\\s*(SET @|PREPARE |EXECUTE |DEALLOCATE )");
+
+    public static void main(String[] args) {
+        // Exit explicitly: the embedded server and client pools keep the JVM alive otherwise
+        try {
+            run(parseOptions(args));
+        } catch (Exception e) {
+            e.printStackTrace();
+            System.exit(1);
+        }
+        System.exit(0);
+    }
+
+    private static void run(Map<String, String> options) throws Exception {
+        int threads = Integer.parseInt(options.getOrDefault("threads", "16"));
+        int seconds = Integer.parseInt(options.getOrDefault("seconds", "30"));
+        int warmup = Integer.parseInt(options.getOrDefault("warmup", "10"));
+        int customers = Integer.parseInt(options.getOrDefault("customers", "500"));
+        int poolSize = Integer.parseInt(options.getOrDefault("pool", "20"));
+        List<String> modes = List.of(options.getOrDefault("modes", "platform").split(","));
+        boolean ledger = Boolean.parseBoolean(options.getOrDefault("ledger", "false"));
+        String logLevel = options.getOrDefault("log", "WARN");
+        Path out = Path.of(options.getOrDefault("out", "target/load-result.json"));
+        Map<Operation, Integer> mix = parseMix(options.getOrDefault("mix",
+                "login:15,accounts:30,transfer:20,etransfer:10,loan:5,search:20"));
+
+        System.out.println("=== Load harness: " + threads + " client(s), " + seconds + " s (+" + warmup
+            + " s warm-up), " + customers + " customer(s) ===");
+        System.out.println("Mix: " + mix);
+
+        Map<String, Map<Operation, LatencyRecorder>> results = new LinkedHashMap<>();
+        Map<String, String> serverMetrics = new LinkedHashMap<>();
+        try (Connection keepAlive = DriverManager.getConnection(DB_URL, "sa", "")) {
+            createSchema(keepAlive, Path.of("database", "schema.sql"));
+            seed(keepAlive, customers);
+
+            for (String mode : modes) {
+                boolean virtual = "virtual".equalsIgnoreCase(mode.trim());
+                ConfigurableApplicationContext context = startApplication(logLevel, poolSize, virtual, ledger);
+                try {
+                    String baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+                    LoadHarness harness = new LoadHarness(baseUrl, customers, mix, threads);
+                    System.out.println();
+                    System.out.println("--- " + (virtual ? "virtual" : "platform") + " threads ---");
+                    if (warmup > 0) {
+                        System.out.println("Warming up...");
+                        harness.run(warmup);
+                    }
+                    System.out.println("Measuring...");
+                    Map<Operation, LatencyRecorder> run = harness.run(seconds);
+                    printReport(run, seconds);
+                    results.put(virtual ? "virtual" : "platform", run);
+                    serverMetrics.put(virtual ? "virtual" : "platform", harness.get("/api/admin/metrics"));
+                } finally {
+                    context.close();
+                }
+            }
+        }
+        if (results.size() > 1) {
+            printComparison(results, seconds);
+        }
+        writeReport(out, options, results, seconds, serverMetrics);
+        System.out.println("Results written to " + out.toAbsolutePath());
+    }
+
+    enum Operation {
+        LOGIN("login", "POST /api/auth/login"),
+        ACCOUNTS("accounts", "GET /api/accounts/{customerID}"),
+        TRANSFER("transfer", "POST /api/transactions/transfer"),
+        ETRANSFER("etransfer", "POST /api/transactions/etransfer"),
+        LOAN("loan", "POST /api/loans/request"),
+        SEARCH("search", "GET /api/banker/users/search");
+
+        final String key;
+        final String endpoint;
+
+        Operation(String key, String endpoint) {
+            this.key = key;
+            this.endpoint = endpoint;
+        }
+
+        static Operation forKey(String key) {
+            for (Operation operation : values()) {
+                if (operation.key.equalsIgnoreCase(key)) {
+                    return operation;
+                }
+            }
+            throw new IllegalArgumentException("Unknown operation in mix: " + key);
+        }
+    }
+
+    private final String baseUrl;
+    private final int customers;
+    private final Operation[] operations;
+    private final int[] cumulativeWeights;
+    private final int threads;
+    private final HttpClient client;
+
+    LoadHarness(String baseUrl, int customers, Map<Operation, Integer> mix, int threads) {
+        this.baseUrl = baseUrl;
+        this.customers = customers;
+        this.threads = threads;
+        this.operations = mix.keySet().toArray(new Operation[0]);
+        this.cumulativeWeights = new int[operations.length];
+        int total = 0;
+        for (int i = 0; i < operations.length; i++) {
+            total += mix.get(operations[i]);
+            cumulativeWeights[i] = total;
+        }
+        this.client = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .build();
+    }
+
+    /**
+     * Runs every client for {@code seconds} and returns client-side latencies per operation.
+     */
+    Map<Operation, LatencyRecorder> run(int seconds) throws Exception {
+        Map<Operation, LatencyRecorder> recorders = new LinkedHashMap<>();
+        for (Operation operation : operations) {
+            recorders.put(operation, new LatencyRecorder(operation.endpoint));
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(pool.submit(() -> {
+                    while (System.nanoTime() < deadline) {
+                        Operation operation = pickOperation();
+                        HttpRequest request = buildRequest(operation);
+                        LatencyRecorder recorder = recorders.get(operation);
+                        long start = System.nanoTime();
+                        try {
+                            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                            recorder.record(System.nanoTime() - start, response.statusCode());
+                        } catch (IOException e) {
+                            recorder.record(System.nanoTime() - start);
+                            recorder.recordFailure();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+        return recorders;
+    }
+
+    private Operation pickOperation() {
+        int roll = ThreadLocalRandom.current().nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (roll < cumulativeWeights[i]) {
+                return operations[i];
+            }
+        }
+        return operations[operations.length - 1];
+    }
+
+    private HttpRequest buildRequest(Operation operation) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int customer = random.nextInt(customers);
+        String customerID = customerID(customer);
+        switch (operation) {
+            case LOGIN:
+                return post("/api/auth/login",
+                    "{\"username\":\"" + customerID + "\",\"password\":\"" + PASSWORD + "\"}");
+            case ACCOUNTS:
+                return HttpRequest.newBuilder(URI.create(baseUrl + "/api/accounts/" + customerID)).GET().build();
+            case TRANSFER: {
+                boolean forward = random.nextBoolean();
+                return post("/api/transactions/transfer",
+                    "{\"customerID\":\"" + customerID + "\",\"sourceAccountID\":\"" + accountID(customer, forward ? 1 : 2)
+                        + "\",\"destinationAccountID\":\"" + accountID(customer, forward ? 2 : 1) + "\",\"amount\":0.01}");
+            }
+            case ETRANSFER: {
+                int recipient = (customer + 1 + random.nextInt(customers - 1)) % customers;
+                return post("/api/transactions/etransfer",
+                    "{\"customerID\":\"" + customerID + "\",\"sourceAccountID\":\"" + accountID(customer, 1)
+                        + "\",\"recipientName\":\"" + customerName(recipient) + "\",\"recipientEmail\":\"" + email(recipient)
+                        + "\",\"amount\":0.01,\"notificationMethod\":\"Email\"}");
+            }
+            case LOAN:
+                return post("/api/loans/request",
+                    "{\"customerID\":\"" + customerID + "\",\"amount\":5000,\"purpose\":\"Load test\","
+                        + "\"proofOfIncome\":\"Pay stub\"}");
+            case SEARCH: {
+                // Mostly selective name prefixes, sometimes an account number
+                String query = random.nextInt(4) == 0
+                    ? "accountNumber=" + accountID(customer, 1)
+                    : "name=" + URLEncoder.encode(namePrefix(LAST_NAMES[random.nextInt(LAST_NAMES.length)]), StandardCharsets.UTF_8);
+                return HttpRequest.newBuilder(URI.create(baseUrl + "/api/banker/users/search?" + query + "&limit=20"))
+                    .GET().build();
+            }
+            default:
+                throw new IllegalStateException("Unhandled operation " + operation);
+        }
+    }
+
+    private static String namePrefix(String name) {
+        return name.substring(0, Math.min(4, name.length()));
+    }
+
+    private HttpRequest post(String path, String json) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString(json))
+            .build();
+    }
+
+    String get(String path) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path)).GET().build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString()).body();
+    }
+
+    private static ConfigurableApplicationContext startApplication(String logLevel, int poolSize, boolean virtualThreads,
+                                                                   boolean ledger) {
+        Map<String, Object> properties = new LinkedHashMap<>();
+        properties.put("server.port", "0");
+        properties.put("spring.main.banner-mode", "off");
+        properties.put("spring.datasource.url", DB_URL);
+        properties.put("spring.datasource.driver-class-name", "org.h2.Driver");
+        properties.put("spring.datasource.username", "sa");
+        properties.put("spring.datasource.password", "");
+        properties.put("spring.datasource.hikari.maximum-pool-size", String.valueOf(poolSize));
+        properties.put("spring.threads.virtual.enabled", String.valueOf(virtualThreads));
+        properties.put("spring.sql.init.mode", "never");
+        properties.put("logging.level.bank", logLevel);
+        properties.put("bank.notifications.directory", "target/notifications");
+        properties.put("bank.ledger.enabled", String.valueOf(ledger));
+        properties.put("logging.level.root", "WARN");
+        // As command-line arguments, so they take precedence over application.properties
+        String[] args = properties.entrySet().stream()
+            .map(entry -> "--" + entry.getKey() + "=" + entry.getValue())
+            .toArray(String[]::new);
+        return new SpringApplicationBuilder(BankApplication.class).run(args);
+    }
+
+    /**
+     * Runs database/schema.sql with the MySQL-only statements dropped and inline index names
+     * prefixed with their table.
+     */
+    static void createSchema(Connection conn, Path schema) throws IOException, SQLException {
+        StringBuilder sql = new StringBuilder();
+        for (String line : Files.readAllLines(schema)) {
+            String trimmed = line.trim();
+            if (trimmed.startsWith("--") || trimmed.startsWith("CREATE DATABASE") || trimmed.startsWith("USE ")) {
+                continue;
+            }
+            sql.append(line).append('\n');
+        }
+        try (Statement stmt = conn.createStatement()) {
+            for (String statement : sql.toString().split(";")) {
+                // The guarded ALTERs run as server-side prepared statements, which H2 doesn't have;
+                // their columns are already in the CREATE TABLEs
+                if (statement.isBlank() || MYSQL_ONLY.matcher(statement).lookingAt()) {
+                    continue;
+                }
+                Matcher table = CREATE_TABLE.matcher(statement);
+                if (table.find()) {
+                    statement = INLINE_INDEX.matcher(statement).replaceAll("INDEX " + table.group(1) + "_$1 (");
+                }
+                stmt.execute(statement);
+            }
+        }
+    }
+
+    /**
+     * Customers each get two well-funded checking accounts; one banker runs the searches.
+     */
+    static void seed(Connection conn, int customers) throws SQLException {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        conn.setAutoCommit(false);
+        try (PreparedStatement users = conn.prepareStatement(
+                 "INSERT INTO users (user_id, user_password, user_name, user_email, user_phone, user_role, created_at, is_active) " +
+                 "VALUES (?, ?, ?, ?, ?, ?, ?, TRUE)");
+             PreparedStatement accounts = conn.prepareStatement(
+                 "INSERT INTO accounts (account_id, customer_id, account_type, balance, created_at) VALUES (?, ?, 'Checking', ?, ?)")) {
+            for (int i = 0; i < customers; i++) {
+                users.setString(1, customerID(i));
+                users.setString(2, PASSWORD);
+                users.setString(3, customerName(i));
+                users.setString(4, email(i));
+                users.setString(5, String.format("514-555-%04d", i % 10000));
+                users.setString(6, "customer");
+                users.setTimestamp(7, now);
+                users.addBatch();
+                for (int n = 1; n <= 2; n++) {
+                    accounts.setString(1, accountID(i, n));
+                    accounts.setString(2, customerID(i));
+                    accounts.setDouble(3, OPENING_BALANCE);
+                    accounts.setTimestamp(4, now);
+                    accounts.addBatch();
+                }
+            }
+            users.setString(1, "LT-BANKER");
+            users.setString(2, PASSWORD);
+            users.setString(3, "Load Test Banker");
+            users.setString(4, "banker@loadtest.example");
+            users.setString(5, null);
+            users.setString(6, "banker");
+            users.setTimestamp(7, now);
+            users.addBatch();
+            users.executeBatch();
+            accounts.executeBatch();
+        }
+        conn.commit();
+        conn.setAutoCommit(true);
+    }
+
+    private static String customerID(int i) {
+        return String.format("LT-C%06d", i);
+    }
+
+    private static String accountID(int customer, int n) {
+        return String.format("LT-A%06d-%d", customer, n);
+    }
+
+    private static String customerName(int i) {
+        return FIRST_NAMES[i % FIRST_NAMES.length] + " " + LAST_NAMES[(i / FIRST_NAMES.length) % LAST_NAMES.length];
+    }
+
+    private static String email(int i) {
+        return "customer" + i + "@loadtest.example";
+    }
+
+    private static void printReport(Map<Operation, LatencyRecorder> results, int seconds) {
+        System.out.println();
+        System.out.printf(Locale.ROOT, "%-34s %9s %7s %9s %9s %9s %9s %9s%n",
+            "Endpoint", "Requests", "Errors", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms");
+        long totalRequests = 0;
+        for (LatencyRecorder recorder : results.values()) {
+            LatencyRecorder.Snapshot snapshot = recorder.totalSnapshot();
+            totalRequests += recorder.getCount();
+            System.out.printf(Locale.ROOT, "%-34s %9d %7d %9.1f %9.2f %9.2f %9.2f %9.2f%n",
+                recorder.getName(), recorder.getCount(), recorder.getFailures(), recorder.getCount() / (double) seconds,
+                snapshot.quantileMillis(0.50), snapshot.quantileMillis(0.90),
+                snapshot.quantileMillis(0.99), snapshot.quantileMillis(0.999));
+        }
+        System.out.printf(Locale.ROOT, "%-34s %9d %7s %9.1f%n", "Total", totalRequests, "", totalRequests / (double) seconds);
+    }
+
+    private static void printComparison(Map<String, Map<Operation, LatencyRecorder>> results, int seconds) {
+        System.out.println();
+        System.out.println("=== Thread mode comparison (all endpoints) ===");
+        System.out.printf(Locale.ROOT, "%-10s %9s %7s %9s %9s %9s %9s%n",
+            "Mode", "Requests", "Errors", "req/s", "p50 ms", "p99 ms", "p99.9 ms");
+        results.forEach((mode, run) -> {
+            long[] merged = new long[LatencyHistogram.BUCKETS];
+            long requests = 0;
+            long errors = 0;
+            for (LatencyRecorder recorder : run.values()) {
+                recorder.addTotalTo(merged);
+                requests += recorder.getCount();
+                errors += recorder.getFailures();
+            }
+            System.out.printf(Locale.ROOT, "%-10s %9d %7d %9.1f %9.2f %9.2f %9.2f%n",
+                mode, requests, errors, requests / (double) seconds,
+                LatencyHistogram.valueAtQuantile(merged, requests, 0.50) / 1_000.0,
+                LatencyHistogram.valueAtQuantile(merged, requests, 0.99) / 1_000.0,
+                LatencyHistogram.valueAtQuantile(merged, requests, 0.999) / 1_000.0);
+        });
+    }
+
+    private static void writeReport(Path out, Map<String, String> options, Map<String, Map<Operation, LatencyRecorder>> results,
+                                    int seconds, Map<String, String> serverMetrics) throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("options", options);
+        report.put("seconds", seconds);
+        Map<String, Object> runs = new LinkedHashMap<>();
+        for (Map.Entry<String, Map<Operation, LatencyRecorder>> run : results.entrySet()) {
+            Map<String, Object> endpoints = new LinkedHashMap<>();
+            run.getValue().forEach((operation, recorder) -> {
+                Map<String, Object> entry = recorder.toMap();
+                entry.put("throughput", recorder.getCount() / (double) seconds);
+                endpoints.put(recorder.getName(), entry);
+            });
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("endpoints", endpoints);
+            entry.put("server", mapper.readTree(serverMetrics.get(run.getKey())));
+            runs.put(run.getKey(), entry);
+        }
+        report.put("runs", runs);
+        File parent = out.toAbsolutePath().getParent().toFile();
+        parent.mkdirs();
+        mapper.writerWithDefaultPrettyPrinter().writeValue(out.toFile(), report);
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : args) {
+            for (String token : arg.trim().split("\\s+")) {
+                int eq = token.indexOf('=');
+                if (eq > 0) {
+                    options.put(token.substring(0, eq), token.substring(eq + 1));
+                }
+            }
+        }
+        return options;
+    }
+
+    private static Map<Operation, Integer> parseMix(String mix) {
+        Map<Operation, Integer> weights = new LinkedHashMap<>();
+        for (String part : mix.split(",")) {
+            String[] pair = part.split(":");
+            int weight = Integer.parseInt(pair[1].trim());
+            if (weight > 0) {
+                weights.put(Operation.forKey(pair[0].trim()), weight);
+            }
+        }
+        if (weights.isEmpty()) {
+            throw new IllegalArgumentException("Mix has no operations with a positive weight");
+        }
+        return weights;
+    }
+}
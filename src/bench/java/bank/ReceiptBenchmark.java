@@ -0,0 +1,51 @@
+package bank;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Receipt construction (reference UUID and timestamp) and the text rendering the API returns.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ReceiptBenchmark {
+    private static final Money AMOUNT = Money.ofCents(4_200);
+
+    private TransferFunds transfer;
+    private Checking source;
+    private Checking destination;
+    private Receipt receipt;
+
+    @Setup
+    public void setUp() {
+        Customer customer = new Customer("bench-receipt", "secret", "Bench Receipt", "receipt@example.com", null);
+        source = new Checking("bench-source", customer, Money.ofCents(100_000));
+        destination = new Checking("bench-destination", customer, Money.ofCents(100_000));
+        transfer = new TransferFunds(source, destination, AMOUNT, customer);
+        receipt = new Receipt(transfer, source, destination, AMOUNT);
+    }
+
+    @Benchmark
+    public Receipt construct() {
+        return new Receipt(transfer, source, destination, AMOUNT);
+    }
+
+    @Benchmark
+    public String receiptDetails() {
+        return receipt.getReceiptDetails();
+    }
+}
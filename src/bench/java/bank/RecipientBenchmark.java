@@ -0,0 +1,63 @@
+package bank;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Recipient.validateContact regexes on typical input and on input that makes them backtrack.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RecipientBenchmark {
+    private final Recipient validEmail = new Recipient("r1", "Jane", "jane.payee@example.com", null, null);
+    private final Recipient validPhone = new Recipient("r2", "John", null, "514-555-0199", null);
+    private final Recipient validBoth = new Recipient("r3", "Jo", "jo@example.ca", "514.555.0123", null);
+    private final Recipient invalidEmail = new Recipient("r4", "Bad", "jane.payee@example", null, null);
+    // Dotted labels with no valid TLD: the domain part backtracks over every '.'
+    private final Recipient backtrackingEmail =
+            new Recipient("r5", "Slow", "user@" + "a.".repeat(64) + "1", null, null);
+    private final Recipient invalidPhone = new Recipient("r6", "Bad", null, "(514) 555-0199 ext 12", null);
+
+    @Benchmark
+    public boolean validEmail() {
+        return validEmail.validateContact();
+    }
+
+    @Benchmark
+    public boolean validPhone() {
+        return validPhone.validateContact();
+    }
+
+    @Benchmark
+    public boolean validEmailAndPhone() {
+        return validBoth.validateContact();
+    }
+
+    @Benchmark
+    public boolean invalidEmail() {
+        return invalidEmail.validateContact();
+    }
+
+    @Benchmark
+    public boolean backtrackingEmail() {
+        return backtrackingEmail.validateContact();
+    }
+
+    @Benchmark
+    public boolean invalidPhone() {
+        return invalidPhone.validateContact();
+    }
+}
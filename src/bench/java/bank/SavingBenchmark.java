@@ -0,0 +1,76 @@
+package bank;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Saving.canDebit, including the lookup of its monthly withdrawal quota in {@link DebitCounters},
+ * and the reservations a unit of work makes against that quota.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SavingBenchmark {
+    private static final int MONTHLY_WITHDRAWALS = 5;
+    private static final Money OPENING_BALANCE = Money.ofCents(10_000_000);
+    private static final Money WITHDRAWAL = Money.ofCents(25_000);
+    private static final BigDecimal RATE = new BigDecimal("1.50");
+
+    private Customer owner;
+    private Saving fresh;
+    private Saving exhausted;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        owner = new Customer("bench-saver", "secret", "Bench Saver", "saver@example.com", null);
+        fresh = new Saving("bench-saving", owner, OPENING_BALANCE, RATE);
+        exhausted = new Saving("bench-saving-used", owner, OPENING_BALANCE, RATE);
+        // Only committed units of work count against the quota; Account.debit just checks it
+        for (int i = 0; i < MONTHLY_WITHDRAWALS; i++) {
+            DebitCounters.getDefault().tryReserve(exhausted.getAccountID(), 1_000, exhausted.getDebitLimits());
+        }
+    }
+
+    @Benchmark
+    public boolean canDebit() {
+        return fresh.canDebit(WITHDRAWAL);
+    }
+
+    @Benchmark
+    public boolean canDebitQuotaReached() {
+        return exhausted.canDebit(WITHDRAWAL);
+    }
+
+    /**
+     * Reserves the whole monthly quota, is refused a sixth withdrawal, then releases the five
+     * again (as failed commits would), so every invocation starts from an unused quota.
+     */
+    @Benchmark
+    public boolean reserveMonthlyQuota() {
+        DebitCounters counters = DebitCounters.getDefault();
+        DebitCounters.Reservation[] reserved = new DebitCounters.Reservation[MONTHLY_WITHDRAWALS];
+        for (int i = 0; i < MONTHLY_WITHDRAWALS; i++) {
+            reserved[i] = counters.reserve(fresh.getAccountID(), WITHDRAWAL.getCents(), fresh.getDebitLimits());
+        }
+        boolean refused = !counters.tryReserve(fresh.getAccountID(), WITHDRAWAL.getCents(), fresh.getDebitLimits());
+        for (DebitCounters.Reservation reservation : reserved) {
+            counters.release(reservation);
+        }
+        return refused;
+    }
+}
@@ -0,0 +1,66 @@
+package bank;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Statement.generateStatement over three accounts whose history spans a year, so roughly one
+ * transaction in twelve falls in the statement month.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class StatementBenchmark {
+    private static final int YEAR = 2025;
+    private static final int MONTH = 6;
+
+    @Param({"1000", "100000"})
+    public int transactionCount;
+
+    private Customer customer;
+    private List<Account> accounts;
+
+    @Setup
+    public void setUp() {
+        customer = new Customer("bench-statement", "secret", "Bench Statement", "statement@example.com", null);
+        Checking checking = new Checking("bench-checking", customer, Money.ofCents(5_000_000));
+        Saving saving = new Saving("bench-saving", customer, Money.ofCents(2_500_000), new BigDecimal("1.50"));
+        Checking other = new Checking("bench-other", customer, Money.ofCents(500_000));
+        accounts = List.of(checking, saving, other);
+
+        LocalDateTime start = LocalDateTime.of(YEAR, 1, 1, 9, 0);
+        long minutesPerTransaction = 365L * 24 * 60 / transactionCount;
+        for (int i = 0; i < transactionCount; i++) {
+            Account from = accounts.get(i % accounts.size());
+            Account to = accounts.get((i + 1) % accounts.size());
+            TransferFunds transfer = new TransferFunds(from, to, Money.ofCents(1_000 + i % 100 * 100), customer);
+            transfer.setInitiatedAt(start.plusMinutes(i * minutesPerTransaction));
+            from.addTransaction(transfer);
+            to.addTransaction(transfer);
+        }
+    }
+
+    @Benchmark
+    public Statement generateStatement() {
+        Statement statement = new Statement(customer, accounts, YEAR, MONTH);
+        statement.generateStatement();
+        return statement;
+    }
+}
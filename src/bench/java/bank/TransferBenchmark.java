@@ -0,0 +1,72 @@
+package bank;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory transfer paths: ownership and funds checks, the account lock, balance updates and
+ * receipt generation. No database involved.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TransferBenchmark {
+    private static final Money AMOUNT = Money.ofCents(2_500);
+    private static final Money OPENING_BALANCE = Money.ofCents(100_000_000_000L);
+    // Completed transactions are appended to both accounts; trim so the lists stay small
+    private static final int MAX_HISTORY = 4096;
+
+    private Customer customer;
+    private Checking source;
+    private Checking destination;
+    private Recipient emailRecipient;
+    private Recipient phoneRecipient;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        customer = new Customer("bench-customer", "secret", "Bench Customer", "bench@example.com", "514-555-0100");
+        source = new Checking("bench-source", customer, OPENING_BALANCE);
+        destination = new Checking("bench-destination", customer, OPENING_BALANCE);
+        emailRecipient = new Recipient("r1", "Jane Payee", "jane.payee@example.com", null, customer);
+        phoneRecipient = new Recipient("r2", "John Payee", null, "514-555-0199", customer);
+    }
+
+    @Benchmark
+    public Receipt transferFunds() {
+        trimHistory();
+        return new TransferFunds(source, destination, AMOUNT, customer).execute();
+    }
+
+    @Benchmark
+    public Receipt eTransferToEmail() {
+        trimHistory();
+        return new ETransfer(source, emailRecipient, AMOUNT, customer, "Email").execute();
+    }
+
+    @Benchmark
+    public Receipt eTransferToPhone() {
+        trimHistory();
+        return new ETransfer(source, phoneRecipient, AMOUNT, customer, "SMS").execute();
+    }
+
+    private void trimHistory() {
+        if (source.transactions.size() > MAX_HISTORY) {
+            source.transactions.clear();
+            destination.transactions.clear();
+        }
+    }
+}
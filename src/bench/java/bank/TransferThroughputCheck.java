@@ -0,0 +1,123 @@
+package bank;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput check for POST /api/transactions/transfer against a running server.
+ * Moves a small amount back and forth between two accounts of one customer from several
+ * threads and reports requests/sec and latency percentiles.
+ *
+ * To compare logging on vs off, start the server twice and run this against each:
+ *   mvn spring-boot:run -Dspring-boot.run.arguments=--logging.level.bank=INFO
+ *   mvn spring-boot:run -Dspring-boot.run.arguments=--logging.level.bank=OFF
+ *
+ * Usage (built with the bench profile, only needs the JDK at run time):
+ *   mvn -Pbench test-compile
+ *   java -cp target/test-classes bank.TransferThroughputCheck [baseUrl] customerID accountA accountB [threads] [seconds]
+ */
+public class TransferThroughputCheck {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 4) {
+            System.out.println("Usage: TransferThroughputCheck baseUrl customerID accountA accountB [threads] [seconds]");
+            System.out.println("  e.g. http://localhost:8080 CUST001 ACC001 ACC002 16 30");
+            return;
+        }
+        String baseUrl = args[0];
+        String customerID = args[1];
+        String accountA = args[2];
+        String accountB = args[3];
+        int threads = args.length > 4 ? Integer.parseInt(args[4]) : 16;
+        int seconds = args.length > 5 ? Integer.parseInt(args[5]) : 30;
+
+        HttpClient client = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .executor(Executors.newFixedThreadPool(threads))
+            .build();
+        URI uri = URI.create(baseUrl + "/api/transactions/transfer");
+
+        System.out.println("=== Transfer throughput: " + threads + " thread(s), " + seconds + " s ===");
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<Worker>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            boolean forward = t % 2 == 0;
+            futures.add(pool.submit(() -> {
+                Worker worker = new Worker();
+                boolean direction = forward;
+                while (System.nanoTime() < deadline) {
+                    String from = direction ? accountA : accountB;
+                    String to = direction ? accountB : accountA;
+                    direction = !direction;
+                    String body = "{\"customerID\":\"" + customerID + "\",\"sourceAccountID\":\"" + from
+                        + "\",\"destinationAccountID\":\"" + to + "\",\"amount\":0.01}";
+                    HttpRequest request = HttpRequest.newBuilder(uri)
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(body))
+                        .build();
+                    long start = System.nanoTime();
+                    try {
+                        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                        worker.record(System.nanoTime() - start, response.statusCode() == 200);
+                    } catch (Exception e) {
+                        worker.record(System.nanoTime() - start, false);
+                    }
+                }
+                return worker;
+            }));
+        }
+
+        long ok = 0;
+        long failed = 0;
+        List<Long> latencies = new ArrayList<>();
+        for (Future<Worker> future : futures) {
+            Worker worker = future.get();
+            ok += worker.ok;
+            failed += worker.failed;
+            latencies.addAll(worker.latencies);
+        }
+        pool.shutdown();
+
+        long[] sorted = latencies.stream().mapToLong(Long::longValue).toArray();
+        Arrays.sort(sorted);
+        System.out.println("Requests: " + (ok + failed) + " (ok: " + ok + ", failed: " + failed + ")");
+        System.out.println("Throughput: " + String.format("%.1f", (ok + failed) / (double) seconds) + " req/s");
+        System.out.println("Latency p50: " + percentileMillis(sorted, 0.50) + " ms, p99: "
+            + percentileMillis(sorted, 0.99) + " ms, max: " + percentileMillis(sorted, 1.0) + " ms");
+        System.exit(0);
+    }
+
+    private static String percentileMillis(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return "n/a";
+        }
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(percentile * sorted.length) - 1);
+        return String.format("%.2f", sorted[Math.max(0, index)] / 1_000_000.0);
+    }
+
+    private static class Worker {
+        private final List<Long> latencies = new ArrayList<>();
+        private long ok;
+        private long failed;
+
+        void record(long nanos, boolean success) {
+            latencies.add(nanos);
+            if (success) {
+                ok++;
+            } else {
+                failed++;
+            }
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package bank;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Database.createUserFromResultSet over a scrollable H2 in-memory result set standing in for
+ * MySQL, so the numbers cover column reads and user construction rather than the network.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class UserMappingBenchmark {
+    private static final int ROWS = 100;
+    private static final String[] ROLES = {"customer", "customer", "customer", "banker", "bank_manager", "admin"};
+
+    private Connection conn;
+    private Statement stmt;
+    private ResultSet rows;
+
+    @Setup
+    public void setUp() throws SQLException {
+        conn = DriverManager.getConnection("jdbc:h2:mem:user_mapping;MODE=MySQL;DB_CLOSE_DELAY=-1");
+        try (Statement ddl = conn.createStatement()) {
+            ddl.execute("CREATE TABLE users (user_id VARCHAR(50) PRIMARY KEY, user_password VARCHAR(255) NOT NULL, " +
+                        "user_name VARCHAR(100) NOT NULL, user_email VARCHAR(100) NOT NULL, " +
+                        "user_phone VARCHAR(20), user_role VARCHAR(20) NOT NULL)");
+        }
+        try (PreparedStatement insert = conn.prepareStatement("INSERT INTO users VALUES (?, ?, ?, ?, ?, ?)")) {
+            for (int i = 0; i < ROWS; i++) {
+                insert.setString(1, "user-" + i);
+                insert.setString(2, "password-" + i);
+                insert.setString(3, "User Number " + i);
+                insert.setString(4, "user" + i + "@example.com");
+                insert.setString(5, "514-555-" + String.format("%04d", i));
+                insert.setString(6, ROLES[i % ROLES.length]);
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+        stmt = conn.createStatement(ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_READ_ONLY);
+        rows = stmt.executeQuery("SELECT * FROM users ORDER BY user_id");
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        rows.close();
+        stmt.close();
+        conn.close();
+    }
+
+    /**
+     * Maps all {@value #ROWS} rows; divide by ROWS for the per-row cost.
+     */
+    @Benchmark
+    public void mapRows(Blackhole blackhole) throws SQLException {
+        rows.beforeFirst();
+        while (rows.next()) {
+            blackhole.consume(Database.createUserFromResultSet(rows));
+        }
+    }
+}
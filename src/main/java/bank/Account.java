@@ -3,6 +3,7 @@ package bank;
 import lombok.Getter;
 import lombok.Setter;
 import java.util.ArrayList;
+import java.util.Currency;
 import java.util.List;
 
 @Getter
@@ -10,14 +11,16 @@ import java.util.List;
 public abstract class Account {
     protected String accountID;
     protected Customer accountOwner;
-    protected double accountBalance;
+    protected long balanceCents;
+    protected Currency currency;
     protected String customerID;
     protected List<Transaction> transactions;
 
-    public Account(String accountID, Customer owner, double initialBalance) {
+    public Account(String accountID, Customer owner, Money initialBalance) {
         this.accountID = accountID;
         this.accountOwner = owner;
-        this.accountBalance = initialBalance;
+        this.balanceCents = initialBalance.getCents();
+        this.currency = initialBalance.getCurrency();
         this.customerID = owner.getCustomerID();
         this.transactions = new ArrayList<>();
         if (owner != null) {
@@ -25,28 +28,57 @@ public abstract class Account {
         }
     }
 
-    public void credit(double amount) {
-        if (amount <= 0) {
+    public void credit(Money amount) {
+        if (!amount.isPositive()) {
             throw new IllegalArgumentException("Credit amount must be positive");
         }
-        this.accountBalance += amount;
+        requireAccountCurrency(amount);
+        this.balanceCents = Math.addExact(balanceCents, amount.getCents());
     }
 
-    public void debit(double amount) {
-        if (amount <= 0) {
+    /**
+     * Checks the debit against the balance and the account's limits, but doesn't count it
+     * towards them: only {@link UnitOfWork} commits do, so a domain transfer followed by its
+     * unit of work is counted once.
+     */
+    public void debit(Money amount) {
+        if (!amount.isPositive()) {
             throw new IllegalArgumentException("Debit amount must be positive");
         }
         if (!canDebit(amount)) {
             throw new IllegalStateException("Insufficient funds or limit exceeded");
         }
-        this.accountBalance -= amount;
+        this.balanceCents -= amount.getCents();
     }
 
-    public double getBalance() {
-        return accountBalance;
+    public Money getBalance() {
+        return Money.ofCents(balanceCents, currency);
     }
 
-    public abstract boolean canDebit(double amount);
+    /**
+     * Implementations compare {@code amount.getCents()} against {@link #balanceCents} and
+     * their limits in cents, so the check is plain long arithmetic.
+     */
+    public abstract boolean canDebit(Money amount);
+
+    /**
+     * Daily and monthly limits this account type puts on debits, enforced through
+     * {@link DebitCounters}; none by default.
+     */
+    public DebitCounters.Limits getDebitLimits() {
+        return DebitCounters.Limits.NONE;
+    }
+
+    // O(1) check of the in-memory counters, no database round trip
+    protected boolean withinDebitLimits(Money amount) {
+        return DebitCounters.getDefault().allows(accountID, amount.getCents(), getDebitLimits());
+    }
+
+    protected void requireAccountCurrency(Money amount) {
+        if (!currency.equals(amount.getCurrency())) {
+            throw new IllegalArgumentException("Account " + accountID + " holds " + currency + ", not " + amount.getCurrency());
+        }
+    }
 
     public void addTransaction(Transaction transaction) {
         if (transaction != null) {
@@ -0,0 +1,33 @@
+package bank;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Flat projection behind GET /api/accounts/details/{accountID}: the account row, a summary
+ * of its owner and one page of transactions. Built straight from SQL rows, without loading
+ * the Customer/Account object graph.
+ */
+@Getter
+public class AccountDetails {
+    private final String accountID;
+    private final String accountType;
+    // Replaced by the ledger's current balance when there is one
+    @Setter
+    private Money balance;
+    private final String customerID;
+    private final String ownerName;
+    private final String ownerEmail;
+    @Setter
+    private TransactionPage transactionPage;
+
+    public AccountDetails(String accountID, String accountType, Money balance,
+                          String customerID, String ownerName, String ownerEmail) {
+        this.accountID = accountID;
+        this.accountType = accountType;
+        this.balance = balance;
+        this.customerID = customerID;
+        this.ownerName = ownerName;
+        this.ownerEmail = ownerEmail;
+    }
+}
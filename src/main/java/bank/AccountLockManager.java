@@ -0,0 +1,163 @@
+package bank;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Striped locks keyed by account ID for serializing in-process balance changes.
+ * Each account hashes onto one of a fixed number of stripes, so transfers touching
+ * different accounts almost always take different locks and run in parallel, while
+ * memory stays bounded no matter how many accounts exist.
+ *
+ * Multi-account operations acquire their stripes in ascending stripe order, which rules
+ * out lock-ordering deadlocks between e.g. A->B and B->A transfers.
+ */
+public class AccountLockManager {
+    private static final int DEFAULT_STRIPES = 1024;
+    private static final AccountLockManager DEFAULT = new AccountLockManager(DEFAULT_STRIPES);
+
+    private final ReentrantLock[] stripes;
+    private final int mask;
+
+    // Contention metrics
+    private final LongAdder acquisitions = new LongAdder();
+    private final LongAdder contendedAcquisitions = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+
+    public AccountLockManager(int stripeCount) {
+        if (stripeCount <= 0) {
+            throw new IllegalArgumentException("Stripe count must be positive");
+        }
+        // Round up to a power of two so the stripe index is a mask, not a modulo
+        int size = 1;
+        while (size < stripeCount) {
+            size <<= 1;
+        }
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.mask = size - 1;
+    }
+
+    /**
+     * Shared instance used by the ledger and the balance history for their in-memory state.
+     */
+    public static AccountLockManager getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Locks every given account (null IDs are ignored) and returns a lease that releases
+     * them on close. Use with try-with-resources.
+     */
+    public Lease lock(String... accountIDs) {
+        int[] indexes = stripeIndexes(accountIDs);
+        int acquired = 0;
+        try {
+            for (int index : indexes) {
+                acquire(stripes[index]);
+                acquired++;
+            }
+        } catch (RuntimeException | Error e) {
+            release(indexes, acquired);
+            throw e;
+        }
+        return new Lease(indexes);
+    }
+
+    int stripeFor(String accountID) {
+        int h = accountID.hashCode();
+        // Spread high bits into the low bits used by the mask
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    private int[] stripeIndexes(String... accountIDs) {
+        int[] indexes = new int[accountIDs.length];
+        int count = 0;
+        for (String accountID : accountIDs) {
+            if (accountID != null) {
+                indexes[count++] = stripeFor(accountID);
+            }
+        }
+        Arrays.sort(indexes, 0, count);
+
+        // Drop duplicates: two accounts on one stripe (or a self-transfer) take the lock once
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if (distinct == 0 || indexes[distinct - 1] != indexes[i]) {
+                indexes[distinct++] = indexes[i];
+            }
+        }
+        return distinct == indexes.length ? indexes : Arrays.copyOf(indexes, distinct);
+    }
+
+    private void acquire(ReentrantLock lock) {
+        acquisitions.increment();
+        if (lock.tryLock()) {
+            return;
+        }
+        contendedAcquisitions.increment();
+        long start = System.nanoTime();
+        lock.lock();
+        waitNanos.add(System.nanoTime() - start);
+    }
+
+    private void release(int[] indexes, int count) {
+        for (int i = count - 1; i >= 0; i--) {
+            stripes[indexes[i]].unlock();
+        }
+    }
+
+    public int getStripeCount() {
+        return stripes.length;
+    }
+
+    public long getAcquisitions() {
+        return acquisitions.sum();
+    }
+
+    public long getContendedAcquisitions() {
+        return contendedAcquisitions.sum();
+    }
+
+    public long getTotalWaitNanos() {
+        return waitNanos.sum();
+    }
+
+    public Map<String, Object> getMetrics() {
+        long total = getAcquisitions();
+        long contended = getContendedAcquisitions();
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("stripes", getStripeCount());
+        metrics.put("acquisitions", total);
+        metrics.put("contendedAcquisitions", contended);
+        metrics.put("contentionRatio", total == 0 ? 0.0 : (double) contended / total);
+        metrics.put("totalWaitMillis", TimeUnit.NANOSECONDS.toMillis(getTotalWaitNanos()));
+        return metrics;
+    }
+
+    /**
+     * Held set of stripes; closing it unlocks them in reverse acquisition order.
+     */
+    public final class Lease implements AutoCloseable {
+        private final int[] indexes;
+        private boolean released;
+
+        private Lease(int[] indexes) {
+            this.indexes = indexes;
+        }
+
+        @Override
+        public void close() {
+            if (!released) {
+                released = true;
+                release(indexes, indexes.length);
+            }
+        }
+    }
+}
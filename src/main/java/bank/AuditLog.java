@@ -0,0 +1,259 @@
+package bank;
+
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Asynchronous writer for the audit_log table. Controllers enqueue events into a bounded
+ * queue and return; one background thread writes them as multi-row INSERTs, flushing when
+ * a batch is full or when the oldest queued event has waited the flush interval. A full
+ * queue pushes back on the caller for up to the offer timeout before the event is dropped
+ * and counted. Shutdown stops intake and drains everything already queued.
+ */
+public class AuditLog {
+    public static final String LOGIN = "LOGIN";
+    public static final String LOGIN_FAILED = "LOGIN_FAILED";
+    public static final String ROLE_CHANGE = "ROLE_CHANGE";
+    public static final String TRANSFER = "TRANSFER";
+    public static final String ETRANSFER = "ETRANSFER";
+    public static final String LOAN_APPROVED = "LOAN_APPROVED";
+    public static final String LOAN_REJECTED = "LOAN_REJECTED";
+
+    private static final LatencyRecorder FLUSH_TIMER = Metrics.db("auditLog.flush");
+    private static final String INSERT_SQL = "INSERT INTO audit_log (user_id, action_type, action_description, ip_address, timestamp) VALUES ";
+    private static final String ROW = "(?, ?, ?, ?, ?)";
+
+    private final Database database;
+    private final ArrayBlockingQueue<Event> queue;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final long offerTimeoutMillis;
+    private final String fullBatchSql;
+
+    private volatile boolean accepting;
+    private volatile boolean running;
+    private Thread writer;
+
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder backpressured = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    public record Event(String userID, String actionType, String description, String ipAddress, LocalDateTime at) {
+    }
+
+    public AuditLog(Database database, int capacity, int batchSize, long flushIntervalMillis, long offerTimeoutMillis) {
+        if (capacity <= 0 || batchSize <= 0) {
+            throw new IllegalArgumentException("capacity and batchSize must be positive");
+        }
+        this.database = database;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        this.offerTimeoutMillis = offerTimeoutMillis;
+        this.fullBatchSql = insertSql(batchSize);
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        accepting = true;
+        writer = new Thread(this::run, "audit-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Audits an action by {@code userID} (null when the user is unknown, e.g. a failed login
+     * for a nonexistent ID). The client address is taken from the current HTTP request, if any.
+     */
+    public void record(String userID, String actionType, String description) {
+        record(userID, actionType, description, currentClientAddress());
+    }
+
+    public void record(String userID, String actionType, String description, String ipAddress) {
+        if (!accepting) {
+            dropped.increment();
+            return;
+        }
+        Event event = new Event(userID, actionType, description, ipAddress, LocalDateTime.now());
+        if (!queue.offer(event)) {
+            // Full: hold the request briefly so a burst slows callers down instead of losing events
+            backpressured.increment();
+            try {
+                if (!queue.offer(event, offerTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                    dropped.increment();
+                    Log.warn("audit", "Audit queue full; dropped {} event for {}", actionType, userID);
+                    return;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                dropped.increment();
+                return;
+            }
+        }
+        enqueued.increment();
+    }
+
+    /**
+     * Stops accepting events and waits for the writer to flush everything already queued.
+     */
+    public synchronized void shutdown() {
+        accepting = false;
+        running = false;
+        if (writer != null) {
+            try {
+                writer.join(TimeUnit.SECONDS.toMillis(30));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            writer = null;
+        }
+        // Events offered while the writer was finishing
+        List<Event> rest = new ArrayList<>(batchSize);
+        while (queue.drainTo(rest, batchSize) > 0) {
+            flush(rest);
+            rest.clear();
+        }
+    }
+
+    private void run() {
+        List<Event> batch = new ArrayList<>(batchSize);
+        long deadline = 0;
+        try {
+            while (true) {
+                if (batch.isEmpty()) {
+                    Event first = queue.poll(flushIntervalNanos, TimeUnit.NANOSECONDS);
+                    if (first == null) {
+                        if (!running) {
+                            return; // stopped and drained
+                        }
+                        continue;
+                    }
+                    batch.add(first);
+                    deadline = System.nanoTime() + flushIntervalNanos;
+                }
+                queue.drainTo(batch, batchSize - batch.size());
+                if (batch.size() < batchSize && running) {
+                    long wait = deadline - System.nanoTime();
+                    if (wait > 0) {
+                        Event next = queue.poll(wait, TimeUnit.NANOSECONDS);
+                        if (next != null) {
+                            batch.add(next);
+                            continue;
+                        }
+                    }
+                }
+                flush(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            flush(batch);
+        }
+    }
+
+    private void flush(List<Event> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        long started = System.nanoTime();
+        String sql = batch.size() == batchSize ? fullBatchSql : insertSql(batch.size());
+        try (Connection conn = database.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            int index = 1;
+            for (Event event : batch) {
+                index = bind(stmt, index, event);
+            }
+            stmt.executeUpdate();
+            written.add(batch.size());
+            batches.increment();
+        } catch (SQLException e) {
+            FLUSH_TIMER.recordFailure();
+            Log.warn("audit", "Audit batch of {} failed ({}); writing rows one by one", batch.size(), e.getMessage());
+            writeIndividually(batch);
+        } finally {
+            FLUSH_TIMER.record(System.nanoTime() - started);
+        }
+    }
+
+    // Isolates the bad row(s) of a failed batch so the rest of it is still stored
+    private void writeIndividually(List<Event> batch) {
+        try (Connection conn = database.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(insertSql(1))) {
+            for (Event event : batch) {
+                try {
+                    bind(stmt, 1, event);
+                    stmt.executeUpdate();
+                    written.increment();
+                } catch (SQLException e) {
+                    failed.increment();
+                    Log.error("audit", "Audit event {} for {} not stored: {}", event.actionType(), event.userID(), e.getMessage());
+                }
+            }
+        } catch (SQLException e) {
+            failed.add(batch.size());
+            Log.error("audit", "{} audit event(s) not stored: {}", batch.size(), e.getMessage());
+        }
+    }
+
+    private static int bind(PreparedStatement stmt, int index, Event event) throws SQLException {
+        stmt.setString(index++, event.userID());
+        stmt.setString(index++, event.actionType());
+        stmt.setString(index++, event.description());
+        stmt.setString(index++, event.ipAddress());
+        stmt.setTimestamp(index++, Timestamp.valueOf(event.at()));
+        return index;
+    }
+
+    private static String insertSql(int rows) {
+        StringBuilder sql = new StringBuilder(INSERT_SQL.length() + rows * (ROW.length() + 2));
+        sql.append(INSERT_SQL);
+        for (int i = 0; i < rows; i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(ROW);
+        }
+        return sql.toString();
+    }
+
+    private static String currentClientAddress() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes instanceof ServletRequestAttributes servlet) {
+            return servlet.getRequest().getRemoteAddr();
+        }
+        return null;
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("running", running);
+        metrics.put("queued", queue.size());
+        metrics.put("capacity", queue.size() + queue.remainingCapacity());
+        metrics.put("enqueued", enqueued.sum());
+        metrics.put("written", written.sum());
+        metrics.put("batches", batches.sum());
+        metrics.put("backpressured", backpressured.sum());
+        metrics.put("dropped", dropped.sum());
+        metrics.put("failed", failed.sum());
+        return metrics;
+    }
+}
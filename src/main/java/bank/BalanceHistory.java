@@ -0,0 +1,337 @@
+package bank;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-account, per-day balances in account_daily_balances: the closing balance of every day an
+ * account moved, the day's net movement and its number of entries. Rows are upserted in the
+ * same commit as the balance changes (see {@link UnitOfWork}), so an account's balance at the end
+ * of any day is its latest row on or before that day, one primary-key seek, and a period's
+ * opening and closing balances are two of them. {@link #backfill} rebuilds the rows from the
+ * ledger for history written before the table existed.
+ */
+public class BalanceHistory {
+    private static final String LATEST_ON_OR_BEFORE_SQL = "SELECT closing_balance FROM account_daily_balances " +
+        "WHERE account_id = ? AND balance_date <= ? ORDER BY balance_date DESC LIMIT 1";
+    // Before an account's first row its balance is what that day started from
+    private static final String EARLIEST_AFTER_SQL = "SELECT closing_balance - net_change FROM account_daily_balances " +
+        "WHERE account_id = ? AND balance_date > ? ORDER BY balance_date LIMIT 1";
+    private static final String ACCOUNT_SQL = "SELECT balance, created_at FROM accounts WHERE account_id = ?";
+    private static final String RANGE_SQL = "SELECT balance_date, closing_balance, net_change, entry_count " +
+        "FROM account_daily_balances WHERE account_id = ? AND balance_date BETWEEN ? AND ? ORDER BY balance_date";
+    private static final String ACCOUNT_CHUNK_SQL =
+        "SELECT account_id FROM accounts WHERE account_id > ? ORDER BY account_id LIMIT ?";
+    private static final String CHUNK_ENTRIES_SQL = "SELECT account_id, amount, posting_type, created_at FROM ledger_entries " +
+        "WHERE account_id BETWEEN ? AND ? ORDER BY account_id, entry_sequence";
+
+    private static final LatencyRecorder LOOKUP_TIMER = Metrics.db("balanceHistory.lookup");
+    private static final LatencyRecorder BACKFILL_CHUNK_TIMER = Metrics.db("balanceHistory.backfillChunk");
+
+    private final Database database;
+    private final AtomicBoolean backfilling = new AtomicBoolean();
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder backfills = new LongAdder();
+    private final LongAdder backfilledAccounts = new LongAdder();
+    private final LongAdder backfilledRows = new LongAdder();
+
+    BalanceHistory(Database database) {
+        this.database = database;
+    }
+
+    /**
+     * One account_daily_balances row. {@code netChange} and {@code entries} leave out ledger
+     * opening entries, which restate a balance the account already had.
+     */
+    public record DailyBalance(String accountID, LocalDate date, Money closingBalance, Money netChange, int entries) {
+    }
+
+    /** Opening and closing balance of a period, summed over its accounts. */
+    public record Period(LocalDate from, LocalDate to, Money openingBalance, Money closingBalance) {
+    }
+
+    /**
+     * The daily rows for one posting. Caller knows each account's balance after it and holds
+     * the account until the rows commit, so the last writer of a day has its closing balance.
+     */
+    static List<DailyBalance> forEntries(List<Ledger.Entry> entries, Map<String, Money> balancesAfter) {
+        List<DailyBalance> rows = new ArrayList<>(entries.size());
+        for (Ledger.Entry entry : entries) {
+            Money after = balancesAfter.get(entry.accountID());
+            if (after == null) {
+                continue;
+            }
+            boolean opening = Ledger.OPENING_BALANCE.equals(entry.postingType());
+            rows.add(new DailyBalance(entry.accountID(), entry.createdAt().toLocalDate(), after,
+                opening ? Money.ZERO : entry.amount(), opening ? 0 : 1));
+        }
+        return rows;
+    }
+
+    /**
+     * Balance at the end of {@code date}.
+     */
+    public Money balanceAt(String accountID, LocalDate date) throws SQLException {
+        long started = System.nanoTime();
+        try (Connection conn = database.getConnection()) {
+            lookups.increment();
+            return balanceAt(conn, accountID, date);
+        } catch (SQLException | RuntimeException e) {
+            LOOKUP_TIMER.recordFailure();
+            throw e;
+        } finally {
+            LOOKUP_TIMER.record(System.nanoTime() - started);
+        }
+    }
+
+    private Money balanceAt(Connection conn, String accountID, LocalDate date) throws SQLException {
+        Money balance = firstBalance(conn, LATEST_ON_OR_BEFORE_SQL, accountID, date);
+        if (balance != null) {
+            return balance;
+        }
+        balance = firstBalance(conn, EARLIEST_AFTER_SQL, accountID, date);
+        // An account that never moved has had its stored balance since it was opened
+        try (PreparedStatement stmt = conn.prepareStatement(ACCOUNT_SQL)) {
+            stmt.setString(1, accountID);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    return Money.ZERO;
+                }
+                Timestamp createdAt = rs.getTimestamp("created_at");
+                if (createdAt != null && createdAt.toLocalDateTime().toLocalDate().isAfter(date)) {
+                    return Money.ZERO;
+                }
+                if (balance != null) {
+                    return balance;
+                }
+                BigDecimal stored = rs.getBigDecimal("balance");
+                return stored != null ? Money.of(stored) : Money.ZERO;
+            }
+        }
+    }
+
+    private static Money firstBalance(Connection conn, String sql, String accountID, LocalDate date) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, accountID);
+            stmt.setDate(2, Date.valueOf(date));
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? Money.of(rs.getBigDecimal(1)) : null;
+            }
+        }
+    }
+
+    /**
+     * The day the account was opened, or null if there is no such account.
+     */
+    public LocalDate openedOn(String accountID) throws SQLException {
+        try (Connection conn = database.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(ACCOUNT_SQL)) {
+            stmt.setString(1, accountID);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
+                }
+                Timestamp createdAt = rs.getTimestamp("created_at");
+                return createdAt != null ? createdAt.toLocalDateTime().toLocalDate() : LocalDate.MIN;
+            }
+        }
+    }
+
+    /**
+     * Total opening balance (end of the day before {@code from}) and closing balance (end of
+     * {@code to}) of the accounts.
+     */
+    public Period period(List<String> accountIDs, LocalDate from, LocalDate to) throws SQLException {
+        long started = System.nanoTime();
+        try (Connection conn = database.getConnection()) {
+            Money opening = Money.ZERO;
+            Money closing = Money.ZERO;
+            for (String accountID : accountIDs) {
+                opening = opening.plus(balanceAt(conn, accountID, from.minusDays(1)));
+                closing = closing.plus(balanceAt(conn, accountID, to));
+                lookups.add(2);
+            }
+            return new Period(from, to, opening, closing);
+        } catch (SQLException | RuntimeException e) {
+            LOOKUP_TIMER.recordFailure();
+            throw e;
+        } finally {
+            LOOKUP_TIMER.record(System.nanoTime() - started);
+        }
+    }
+
+    /**
+     * The account's days with activity between {@code from} and {@code to}, inclusive.
+     */
+    public List<DailyBalance> history(String accountID, LocalDate from, LocalDate to) throws SQLException {
+        long started = System.nanoTime();
+        try (Connection conn = database.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(RANGE_SQL)) {
+            stmt.setString(1, accountID);
+            stmt.setDate(2, Date.valueOf(from));
+            stmt.setDate(3, Date.valueOf(to));
+            List<DailyBalance> days = new ArrayList<>();
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    days.add(new DailyBalance(accountID, rs.getDate("balance_date").toLocalDate(),
+                        Money.of(rs.getBigDecimal("closing_balance")), Money.of(rs.getBigDecimal("net_change")),
+                        rs.getInt("entry_count")));
+                }
+            }
+            return days;
+        } catch (SQLException | RuntimeException e) {
+            LOOKUP_TIMER.recordFailure();
+            throw e;
+        } finally {
+            LOOKUP_TIMER.record(System.nanoTime() - started);
+        }
+    }
+
+    /**
+     * Claims the backfill for one run; false if one is already in progress.
+     */
+    public boolean tryStartBackfill() {
+        return backfilling.compareAndSet(false, true);
+    }
+
+    /**
+     * Recomputes every account's daily rows from its ledger entries, {@code chunkSize} accounts
+     * at a time. Each chunk holds the accounts' locks while it reads and writes, so postings to
+     * them wait for the chunk instead of racing it. The caller must have claimed the run with
+     * {@link #tryStartBackfill}. Returns the number of rows written.
+     */
+    public long backfill(int chunkSize) throws SQLException {
+        if (!backfilling.get()) {
+            throw new IllegalStateException("Backfill was not started");
+        }
+        int limit = Math.max(1, chunkSize);
+        long started = System.nanoTime();
+        long accounts = 0;
+        long rows = 0;
+        try {
+            String after = "";
+            while (true) {
+                List<String> chunk = accountChunk(after, limit);
+                if (chunk.isEmpty()) {
+                    break;
+                }
+                rows += backfillChunk(chunk);
+                accounts += chunk.size();
+                after = chunk.get(chunk.size() - 1);
+            }
+            backfills.increment();
+            Log.info("balances", "Backfilled {} daily balance row(s) for {} account(s) in {} ms",
+                rows, accounts, (System.nanoTime() - started) / 1_000_000);
+            return rows;
+        } catch (SQLException | RuntimeException e) {
+            Log.error("balances", "Daily balance backfill failed after {} account(s): {}", accounts, e.getMessage());
+            throw e;
+        } finally {
+            backfilling.set(false);
+        }
+    }
+
+    private List<String> accountChunk(String after, int limit) throws SQLException {
+        try (Connection conn = database.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(ACCOUNT_CHUNK_SQL)) {
+            stmt.setString(1, after);
+            stmt.setInt(2, limit);
+            List<String> chunk = new ArrayList<>(limit);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    chunk.add(rs.getString(1));
+                }
+            }
+            return chunk;
+        }
+    }
+
+    @SuppressWarnings("try")
+    private int backfillChunk(List<String> chunk) throws SQLException {
+        long started = System.nanoTime();
+        try (AccountLockManager.Lease lease = AccountLockManager.getDefault().lock(chunk.toArray(String[]::new));
+             Connection conn = database.getConnection()) {
+            // Entries arrive in sequence order per account; a day's row closes with its last one.
+            // GL accounts can sort inside the range and have no daily rows
+            Set<String> accounts = new HashSet<>(chunk);
+            Map<String, DailyBalance> days = new LinkedHashMap<>();
+            try (PreparedStatement stmt = conn.prepareStatement(CHUNK_ENTRIES_SQL)) {
+                stmt.setFetchSize(1000);
+                stmt.setString(1, chunk.get(0));
+                stmt.setString(2, chunk.get(chunk.size() - 1));
+                try (ResultSet rs = stmt.executeQuery()) {
+                    String accountID = null;
+                    Money balance = Money.ZERO;
+                    while (rs.next()) {
+                        String id = rs.getString("account_id");
+                        if (!accounts.contains(id)) {
+                            continue;
+                        }
+                        if (!id.equals(accountID)) {
+                            accountID = id;
+                            balance = Money.ZERO;
+                        }
+                        Money amount = Money.of(rs.getBigDecimal("amount"));
+                        boolean opening = Ledger.OPENING_BALANCE.equals(rs.getString("posting_type"));
+                        LocalDate date = rs.getTimestamp("created_at").toLocalDateTime().toLocalDate();
+                        balance = balance.plus(amount);
+                        Money closing = balance;
+                        days.merge(id + "|" + date, new DailyBalance(id, date, closing, opening ? Money.ZERO : amount, opening ? 0 : 1),
+                            (day, next) -> new DailyBalance(id, date, closing, day.netChange().plus(next.netChange()),
+                                day.entries() + next.entries()));
+                    }
+                }
+            }
+
+            if (!days.isEmpty()) {
+                boolean autoCommit = conn.getAutoCommit();
+                conn.setAutoCommit(false);
+                try (PreparedStatement stmt = conn.prepareStatement(Database.REPLACE_DAILY_BALANCE_SQL)) {
+                    for (DailyBalance day : days.values()) {
+                        Database.bindDailyBalance(stmt, day);
+                        stmt.addBatch();
+                    }
+                    stmt.executeBatch();
+                    conn.commit();
+                } catch (SQLException | RuntimeException e) {
+                    conn.rollback();
+                    throw e;
+                } finally {
+                    conn.setAutoCommit(autoCommit);
+                }
+            }
+            backfilledAccounts.add(chunk.size());
+            backfilledRows.add(days.size());
+            return days.size();
+        } catch (SQLException | RuntimeException e) {
+            BACKFILL_CHUNK_TIMER.recordFailure();
+            throw e;
+        } finally {
+            BACKFILL_CHUNK_TIMER.record(System.nanoTime() - started);
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("lookups", lookups.sum());
+        metrics.put("backfillRunning", backfilling.get());
+        metrics.put("backfills", backfills.sum());
+        metrics.put("backfilledAccounts", backfilledAccounts.sum());
+        metrics.put("backfilledRows", backfilledRows.sum());
+        return metrics;
+    }
+}
@@ -0,0 +1,134 @@
+package bank;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * DataSource wrapper that lets at most {@code limit} callers hold a connection at a time;
+ * everyone else waits in FIFO order on a semaphore and gives up after the pool's connection
+ * timeout. Used in virtual-thread mode, where thousands of request threads can reach the pool
+ * at once: only as many as there are pooled connections get into the JDBC driver, and the rest
+ * park cheaply instead of piling into the pool's hand-off queue. The permit is returned when
+ * the connection is closed.
+ */
+public class BoundedDataSource extends DelegatingDataSource {
+    private final Semaphore permits;
+    private final int limit;
+    private final long timeoutMillis;
+    private final LongAdder acquired = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+
+    public BoundedDataSource(DataSource target, int limit, long timeoutMillis) {
+        super(target);
+        if (limit <= 0) {
+            throw new IllegalArgumentException("limit must be positive");
+        }
+        this.permits = new Semaphore(limit, true);
+        this.limit = limit;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        acquire();
+        try {
+            return withPermit(getTargetDataSource().getConnection());
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        acquire();
+        try {
+            return withPermit(getTargetDataSource().getConnection(username, password));
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private void acquire() throws SQLException {
+        try {
+            if (!permits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                timeouts.increment();
+                throw new SQLTransientConnectionException("Timed out after " + timeoutMillis
+                    + " ms waiting for one of " + limit + " database permits");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database permit", e);
+        }
+        acquired.increment();
+    }
+
+    // Closing the returned connection (once) also releases the permit
+    private Connection withPermit(Connection target) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+            new Class<?>[] {Connection.class}, new PermitHandler(target));
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("limit", limit);
+        metrics.put("inUse", limit - permits.availablePermits());
+        metrics.put("waiting", permits.getQueueLength());
+        metrics.put("acquired", acquired.sum());
+        metrics.put("timeouts", timeouts.sum());
+        return metrics;
+    }
+
+    private final class PermitHandler implements InvocationHandler {
+        private final Connection target;
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        PermitHandler(Connection target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (closed.compareAndSet(false, true)) {
+                        try {
+                            target.close();
+                        } finally {
+                            permits.release();
+                        }
+                    }
+                    return null;
+                case "isClosed":
+                    return closed.get() || target.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Bounded[" + target + "]";
+                default:
+                    try {
+                        return method.invoke(target, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+            }
+        }
+    }
+}
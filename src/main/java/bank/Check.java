@@ -3,17 +3,18 @@ package bank;
 public class Check extends Account {
     private String checkAccountID;
 
-    public Check(String accountID, Customer owner, double initialBalance) {
+    public Check(String accountID, Customer owner, Money initialBalance) {
         super(accountID, owner, initialBalance);
         this.checkAccountID = accountID;
     }
 
     @Override
-    public boolean canDebit(double amount) {
-        if (amount <= 0) {
+    public boolean canDebit(Money amount) {
+        long cents = amount.getCents();
+        if (cents <= 0) {
             return false;
         }
-        return accountBalance >= amount;
+        return currency.equals(amount.getCurrency()) && balanceCents >= cents;
     }
 
     public void title() {
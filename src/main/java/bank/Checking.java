@@ -2,22 +2,26 @@ package bank;
 
 public class Checking extends Account {
     private String checkingAccountID;
-    private static final double MAX_TRANSACTION_LIMIT = 10000.0; // Daily limit
+    private static final long MAX_TRANSACTION_LIMIT_CENTS = 1_000_000L; // Daily limit, $10,000.00
+    private static final DebitCounters.Limits DAILY_LIMITS = new DebitCounters.Limits(0, MAX_TRANSACTION_LIMIT_CENTS, 0);
 
-    public Checking(String accountID, Customer owner, double initialBalance) {
+    public Checking(String accountID, Customer owner, Money initialBalance) {
         super(accountID, owner, initialBalance);
         this.checkingAccountID = accountID;
     }
 
     @Override
-    public boolean canDebit(double amount) {
-        if (amount <= 0) {
+    public boolean canDebit(Money amount) {
+        long cents = amount.getCents();
+        if (cents <= 0) {
             return false;
         }
-        if (amount > MAX_TRANSACTION_LIMIT) {
-            return false;
-        }
-        return accountBalance >= amount;
+        return currency.equals(amount.getCurrency()) && balanceCents >= cents && withinDebitLimits(amount);
+    }
+
+    @Override
+    public DebitCounters.Limits getDebitLimits() {
+        return DAILY_LIMITS;
     }
 
     public void pay() {
@@ -23,7 +23,7 @@ public class Customer extends User {
         return new ArrayList<>(ownedAccounts);
     }
 
-    public Receipt transferFunds(Account sourceAccount, Account destinationAccount, double amount) {
+    public Receipt transferFunds(Account sourceAccount, Account destinationAccount, Money amount) {
         if (!ownedAccounts.contains(sourceAccount) || !ownedAccounts.contains(destinationAccount)) {
             throw new IllegalArgumentException("Both accounts must belong to this customer");
         }
@@ -32,7 +32,7 @@ public class Customer extends User {
         return transfer.execute();
     }
 
-    public Receipt sendEtransfer(Account sourceAccount, Recipient recipient, double amount, String notificationMethod) {
+    public Receipt sendEtransfer(Account sourceAccount, Recipient recipient, Money amount, String notificationMethod) {
         if (!ownedAccounts.contains(sourceAccount)) {
             throw new IllegalArgumentException("Source account must belong to this customer");
         }
@@ -42,12 +42,16 @@ public class Customer extends User {
     }
 
     public Statement generateStatement(List<Account> accounts, int year, int month) {
+        return generateStatement(accounts, year, month, null);
+    }
+
+    public Statement generateStatement(List<Account> accounts, int year, int month, BalanceHistory history) {
         Statement statement = new Statement(this, accounts, year, month);
-        statement.generateStatement();
+        statement.generateStatement(history);
         return statement;
     }
 
-    public LoanRequest loanRequest(double amount, String purpose, String proofOfIncome) {
+    public LoanRequest loanRequest(Money amount, String purpose, String proofOfIncome) {
         LoanRequest request = new LoanRequest(this, amount, purpose, proofOfIncome);
         return request;
     }
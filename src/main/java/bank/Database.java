@@ -1,147 +1,375 @@
 package bank;
 
+import com.zaxxer.hikari.HikariDataSource;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.sql.*;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 public class Database {
-    private Connection connection;
-    private String url;
-    private String username;
-    private String password;
-    private String databaseName;
+    // Write statements shared by the single-row save methods and UnitOfWork batches
+    static final String SAVE_USER_SQL = "INSERT INTO users (user_id, user_password, user_name, user_email, user_phone, user_role, created_at, is_active) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE user_password=?, user_name=?, user_email=?, user_phone=?, user_role=?, is_active=?";
+
+    // The balance is only written when the account is created; after that it changes through
+    // UnitOfWork deltas or ledger postings, never by writing back an in-memory copy
+    static final String SAVE_ACCOUNT_SQL = "INSERT INTO accounts (account_id, customer_id, account_type, balance, interest_rate, created_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE account_type=?, interest_rate=?";
+
+    // Applies a signed delta in place; a debit only matches while the balance can cover it
+    static final String APPLY_BALANCE_DELTA_SQL = "UPDATE accounts SET balance = balance + ? " +
+            "WHERE account_id = ? AND (? >= 0 OR balance >= ?)";
+
+    static final String SAVE_TRANSACTION_SQL = "INSERT INTO transactions (transaction_id, customer_id, transaction_type, amount, " +
+            "source_account_id, destination_account_id, status, initiated_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    static final String SAVE_RECEIPT_SQL = "INSERT INTO receipts (reference_number, transaction_id, amount, initiator_id, " +
+            "source_account_id, destination_account_id, date_time_issued) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    static final String SAVE_LEDGER_ENTRY_SQL = "INSERT INTO ledger_entries (entry_sequence, posting_id, account_id, amount, " +
+            "posting_type, reference_id, created_at) VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    static final String SAVE_LEDGER_SNAPSHOT_SQL = "INSERT INTO ledger_snapshots (account_id, entry_sequence, balance, taken_at) " +
+            "VALUES (?, ?, ?, ?) ON DUPLICATE KEY UPDATE balance = ?, taken_at = ?";
+
+    // accounts.balance as a projection of the ledger, refreshed with each snapshot
+    static final String UPDATE_BALANCE_PROJECTION_SQL = "UPDATE accounts SET balance = ? WHERE account_id = ?";
+
+    // A posting's effect on the day: the closing balance is the latest, the rest accumulates
+    static final String UPSERT_DAILY_BALANCE_SQL = "INSERT INTO account_daily_balances (account_id, balance_date, " +
+            "closing_balance, net_change, entry_count) VALUES (?, ?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE closing_balance = ?, net_change = net_change + ?, entry_count = entry_count + ?";
+
+    static final String REPLACE_DAILY_BALANCE_SQL = "INSERT INTO account_daily_balances (account_id, balance_date, " +
+            "closing_balance, net_change, entry_count) VALUES (?, ?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE closing_balance = ?, net_change = ?, entry_count = ?";
+
+    static final String CURRENT_BALANCES_SQL = "SELECT account_id, balance FROM accounts WHERE account_id IN ";
+
+    // The remainder below a cent an account carries into its next accrual
+    static final String SAVE_INTEREST_ACCRUAL_SQL = "INSERT INTO interest_accruals (account_id, accrued, last_accrued_on) " +
+            "VALUES (?, ?, ?) ON DUPLICATE KEY UPDATE accrued = ?, last_accrued_on = ?";
+
+    static final String SAVE_INTEREST_RUN_SQL = "INSERT INTO interest_accrual_runs (run_date, last_account_id, " +
+            "accounts_accrued, interest_credited, completed_at, updated_at) VALUES (?, ?, ?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE last_account_id = ?, accounts_accrued = ?, interest_credited = ?, completed_at = ?, updated_at = ?";
+
+    // Debit counters are written as absolute values, so a repeated flush is harmless
+    static final String SAVE_DEBIT_COUNTER_SQL = "INSERT INTO account_debit_counters (account_id, bucket, bucket_start, " +
+            "debits, amount, updated_at) VALUES (?, ?, ?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE debits = ?, amount = ?, updated_at = ?";
+
+    // Month-end statements have IDs derived from customer and period; a rerun overwrites them
+    static final String SAVE_MONTH_END_STATEMENT_SQL = "INSERT INTO statements (statement_id, customer_id, year, month, " +
+            "start_balance, end_balance, transaction_count, date_issued) VALUES (?, ?, ?, ?, ?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE start_balance = ?, end_balance = ?, transaction_count = ?, date_issued = ?";
+
+    static final String SAVE_STATEMENT_ACCOUNT_SQL = "INSERT INTO statement_accounts (statement_id, account_id) " +
+            "VALUES (?, ?) ON DUPLICATE KEY UPDATE account_id = account_id";
+
+    static final String SAVE_STATEMENT_PARTITION_SQL = "INSERT INTO statement_job_partitions (job_id, first_customer_id, " +
+            "last_customer_id, statements, completed_at) VALUES (?, ?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE last_customer_id = ?, statements = ?, completed_at = ?";
+
+    static final String SAVE_LOAN_REQUEST_SQL = "INSERT INTO loan_requests (loan_id, customer_id, amount, purpose, proof_of_income, " +
+            "status, reviewed_by_id, date_submitted, last_updated) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE status=?, reviewed_by_id=?, last_updated=?";
+
+    // No upsert: a second insert of the same key must fail the whole unit of work
+    static final String SAVE_IDEMPOTENCY_KEY_SQL = "INSERT INTO idempotency_keys (customer_id, idempotency_key, endpoint, " +
+            "request_fingerprint, response_body, created_at) VALUES (?, ?, ?, ?, ?, ?)";
+
+    static final String SAVE_NOTIFICATION_SQL = "INSERT INTO notification_outbox (notification_id, channel, destination, " +
+            "transaction_id, reference_number, message, status, attempts, next_attempt_at, created_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, 'Pending', 0, ?, ?)";
+
+    // Rank 0 = ID match, rank 1 = email match; each branch is a plain equality on an indexed
+    // column (the utf8mb4 collation already compares emails case-insensitively)
+    private static final String FIND_USER_SQL =
+            "SELECT 0 AS match_rank, u.* FROM users u WHERE u.user_id = ? " +
+            "UNION ALL SELECT 1 AS match_rank, u.* FROM users u WHERE u.user_email = ? " +
+            "ORDER BY match_rank LIMIT 1";
+
+    private static final LatencyRecorder SAVE_USER_TIMER = Metrics.db("saveUser");
+    private static final LatencyRecorder GET_USER_TIMER = Metrics.db("getUser");
+    private static final LatencyRecorder SAVE_ACCOUNT_TIMER = Metrics.db("saveAccount");
+    private static final LatencyRecorder GET_ACCOUNT_TIMER = Metrics.db("getAccount");
+    private static final LatencyRecorder GET_ACCOUNTS_FOR_CUSTOMER_TIMER = Metrics.db("getAccountsForCustomer");
+    private static final LatencyRecorder SAVE_TRANSACTION_TIMER = Metrics.db("saveTransaction");
+    private static final LatencyRecorder GET_TRANSACTIONS_FOR_CUSTOMER_TIMER = Metrics.db("getTransactionsForCustomer");
+    private static final LatencyRecorder GET_ALL_TRANSACTIONS_TIMER = Metrics.db("getAllTransactions");
+    private static final LatencyRecorder GET_TRANSACTIONS_FOR_ACCOUNT_TIMER = Metrics.db("getTransactionsForAccount");
+    private static final LatencyRecorder GET_ACCOUNT_DETAILS_TIMER = Metrics.db("getAccountDetails");
+    private static final LatencyRecorder STREAM_TRANSACTIONS_TIMER = Metrics.db("streamTransactions");
+    private static final LatencyRecorder SAVE_RECEIPT_TIMER = Metrics.db("saveReceipt");
+    private static final LatencyRecorder SAVE_STATEMENT_TIMER = Metrics.db("saveStatement");
+    private static final LatencyRecorder SAVE_LOAN_REQUEST_TIMER = Metrics.db("saveLoanRequest");
+    private static final LatencyRecorder GET_LOAN_REQUEST_TIMER = Metrics.db("getLoanRequest");
+    private static final LatencyRecorder GET_PENDING_LOAN_REQUESTS_TIMER = Metrics.db("getPendingLoanRequests");
+    private static final LatencyRecorder GET_LOAN_REQUEST_COUNT_TIMER = Metrics.db("getLoanRequestCountForCustomer");
+    private static final LatencyRecorder SEARCH_USERS_TIMER = Metrics.db("searchUsers");
+    private static final LatencyRecorder GET_TOTAL_USER_COUNT_TIMER = Metrics.db("getTotalUserCount");
+    private static final LatencyRecorder GET_IDEMPOTENCY_RECORD_TIMER = Metrics.db("getIdempotencyRecord");
 
-    public Connection getConnection() {
-        return connection;
+    private static final int DEFAULT_USER_CACHE_SIZE = 10_000;
+    private static final long DEFAULT_USER_CACHE_TTL_SECONDS = 60;
+
+    private final DataSource dataSource;
+    private final boolean ownsDataSource;
+    private final UserCache userCache;
+    private final QueryDiagnostics diagnostics;
+    private final UserSearchIndex searchIndex = new UserSearchIndex();
+    // Only keeps the reference; it doesn't call back into a Database under construction
+    @SuppressWarnings("this-escape")
+    private final BalanceHistory balanceHistory = new BalanceHistory(this);
+    private volatile Runnable outboxListener = () -> { };
+    private volatile Ledger ledger;
+
+    public Database(DataSource dataSource) {
+        this(dataSource, new UserCache(DEFAULT_USER_CACHE_SIZE, DEFAULT_USER_CACHE_TTL_SECONDS),
+             QueryDiagnostics.disabled(dataSource));
+    }
+
+    public Database(DataSource dataSource, UserCache userCache, QueryDiagnostics diagnostics) {
+        this.dataSource = dataSource;
+        this.ownsDataSource = false;
+        this.userCache = userCache;
+        this.diagnostics = diagnostics;
     }
 
     public Database(String url, String username, String password, String databaseName) {
-        this.url = url;
-        this.username = username;
-        this.password = password;
-        this.databaseName = databaseName;
+        // Standalone tools get their own small pool; the web app injects the Spring-managed one
+        HikariDataSource pool = new HikariDataSource();
+        pool.setPoolName("MyBankUML-standalone");
+        pool.setJdbcUrl(url + "/" + databaseName + "?useSSL=false&serverTimezone=UTC&allowPublicKeyRetrieval=true");
+        pool.setUsername(username);
+        pool.setPassword(password);
+        pool.setMaximumPoolSize(4);
+        this.dataSource = pool;
+        this.ownsDataSource = true;
+        this.userCache = new UserCache(DEFAULT_USER_CACHE_SIZE, DEFAULT_USER_CACHE_TTL_SECONDS);
+        this.diagnostics = QueryDiagnostics.disabled(pool);
+    }
+
+    /**
+     * Borrows a connection from the pool. Callers must close it (try-with-resources)
+     * so it goes back to the pool.
+     */
+    public Connection getConnection() throws SQLException {
+        return dataSource.getConnection();
+    }
+
+    public DataSource getDataSource() {
+        return dataSource;
+    }
+
+    public UserCache getUserCache() {
+        return userCache;
+    }
+
+    public QueryDiagnostics getDiagnostics() {
+        return diagnostics;
+    }
+
+    public UserSearchIndex getSearchIndex() {
+        return searchIndex;
+    }
+
+    public BalanceHistory getBalanceHistory() {
+        return balanceHistory;
+    }
+
+    /**
+     * Called after every commit that wrote notification_outbox rows (the dispatcher's wake-up).
+     */
+    public void setOutboxListener(Runnable outboxListener) {
+        this.outboxListener = outboxListener;
+    }
+
+    void outboxWritten() {
+        outboxListener.run();
+    }
+
+    /**
+     * When set, balance changes are posted to this ledger instead of updating accounts.balance,
+     * and account reads take their balance from it.
+     */
+    public void setLedger(Ledger ledger) {
+        this.ledger = ledger;
+    }
+
+    public Ledger getLedger() {
+        return ledger;
     }
 
+    // The ledger's balance when there is one, else the stored column. Call without a connection held
+    private Money currentBalance(String accountID, Money stored) throws SQLException {
+        Ledger current = ledger;
+        return current != null ? current.balance(accountID, stored) : stored;
+    }
+
+    @SuppressWarnings("try")
     public boolean connect() {
-        try {
-            // Check if connection is already open and valid
-            if (connection != null && !connection.isClosed()) {
-                try {
-                    if (connection.isValid(2)) {
-                        return true;
-                    }
-                } catch (SQLException e) {
-                    // Connection is invalid, will reconnect
-                }
-            }
-            
-            // Close old connection if exists
-            if (connection != null) {
-                try {
-                    connection.close();
-                } catch (SQLException e) {
-                    // Ignore
-                }
-            }
-            
-            // Load MySQL JDBC driver
-            Class.forName("com.mysql.cj.jdbc.Driver");
-            
-            // Connect to database
-            String connectionUrl = url + "/" + databaseName + "?useSSL=false&serverTimezone=UTC&allowPublicKeyRetrieval=true";
-            System.out.println("Attempting to connect to: " + connectionUrl);
-            System.out.println("Username: " + username);
-            
-            connection = DriverManager.getConnection(connectionUrl, username, password);
-            System.out.println("✓ Database connection successful!");
+        // Borrowing (and immediately returning) a pooled connection proves MySQL is reachable.
+        // The pool validates and replaces broken connections, so one thread's failure can't
+        // take the connection away from everyone else.
+        try (Connection conn = dataSource.getConnection()) {
             return true;
-        } catch (ClassNotFoundException e) {
-            System.err.println("✗ MySQL JDBC Driver not found: " + e.getMessage());
-            e.printStackTrace();
-            return false;
         } catch (SQLException e) {
-            System.err.println("✗ Connection failed: " + e.getMessage());
-            System.err.println("  Error Code: " + e.getErrorCode());
-            System.err.println("  SQL State: " + e.getSQLState());
-            e.printStackTrace();
+            Log.error("db", "Connection failed: {}", e.getMessage());
+            Log.error("db", "  Error Code: {}", e.getErrorCode());
+            Log.error("db", "  SQL State: {}", e.getSQLState());
             return false;
         }
     }
 
     public void disconnect() {
+        diagnostics.shutdown();
+        // Only close pools we created ourselves; Spring shuts down the one it manages
+        if (ownsDataSource && dataSource instanceof HikariDataSource pool) {
+            pool.close();
+        }
+    }
+
+    /**
+     * Starts a unit of work whose writes are committed together in one JDBC transaction.
+     */
+    public UnitOfWork beginUnitOfWork() {
+        return new UnitOfWork(this);
+    }
+
+    @FunctionalInterface
+    private interface SqlCallable<T> {
+        T call() throws SQLException;
+    }
+
+    // Records the call's latency on the timer, and a failure when it throws
+    private static <T> T timed(LatencyRecorder timer, SqlCallable<T> call) throws SQLException {
+        long started = System.nanoTime();
         try {
-            if (connection != null && !connection.isClosed()) {
-                connection.close();
-            }
-        } catch (SQLException e) {
-            System.err.println("Error closing connection: " + e.getMessage());
+            return call.call();
+        } catch (SQLException | RuntimeException e) {
+            timer.recordFailure();
+            throw e;
+        } finally {
+            timer.record(System.nanoTime() - started);
         }
     }
 
     // User operations
     public void saveUser(User user) throws SQLException {
-        String sql = "INSERT INTO users (user_id, user_password, user_name, user_email, user_phone, user_role, created_at, is_active) " +
-                     "VALUES (?, ?, ?, ?, ?, ?, ?, ?) " +
-                     "ON DUPLICATE KEY UPDATE user_password=?, user_name=?, user_email=?, user_phone=?, user_role=?, is_active=?";
-        
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            stmt.setString(1, user.getUserID());
-            stmt.setString(2, user.getUserPassword());
-            stmt.setString(3, user.getUserName());
-            stmt.setString(4, user.getUserEmail());
-            stmt.setString(5, user.getUserPhone());
-            stmt.setString(6, user.getUserRole());
-            stmt.setTimestamp(7, Timestamp.valueOf(user.getCreatedAt()));
-            stmt.setBoolean(8, user.isActive());
-            stmt.setString(9, user.getUserPassword());
-            stmt.setString(10, user.getUserName());
-            stmt.setString(11, user.getUserEmail());
-            stmt.setString(12, user.getUserPhone());
-            stmt.setString(13, user.getUserRole());
-            stmt.setBoolean(14, user.isActive());
-            int rowsAffected = stmt.executeUpdate();
-            System.out.println("✓ User saved: " + user.getUserID() + " (rows affected: " + rowsAffected + ")");
+        try {
+            timed(SAVE_USER_TIMER, () -> {
+                try (Connection conn = dataSource.getConnection();
+                     PreparedStatement stmt = conn.prepareStatement(SAVE_USER_SQL)) {
+                    bindUser(stmt, user);
+                    int rowsAffected = stmt.executeUpdate();
+                    invalidateUser(user);
+                    searchIndex.putUser(user);
+                    Log.info("db", "User saved: {} (rows affected: {})", user.getUserID(), rowsAffected);
+                }
+                return null;
+            });
         } catch (SQLException e) {
-            System.err.println("✗ Error saving user: " + e.getMessage());
-            System.err.println("  Error Code: " + e.getErrorCode());
-            System.err.println("  SQL State: " + e.getSQLState());
-            e.printStackTrace();
+            Log.error("db", "Error saving user: {}", e.getMessage());
+            Log.error("db", "  Error Code: {}", e.getErrorCode());
+            Log.error("db", "  SQL State: {}", e.getSQLState(), e);
             throw e; // Re-throw so controller can handle it
         }
     }
 
+    /**
+     * Looks a user up by ID or email through the read-through user cache.
+     */
     public User getUser(String userID) {
-        // Try exact match first, then case-insensitive email match
-        String sql = "SELECT * FROM users WHERE user_id = ? OR LOWER(user_email) = LOWER(?)";
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            stmt.setString(1, userID);
-            stmt.setString(2, userID); // Also search by email (case-insensitive)
-            ResultSet rs = stmt.executeQuery();
-            if (rs.next()) {
-                // Create appropriate user type based on role
-                User foundUser = createUserFromResultSet(rs);
-                System.out.println("✓ Found user: " + foundUser.getUserName() + " (ID: " + foundUser.getUserID() + ", Email: " + foundUser.getUserEmail() + ")");
+        try {
+            return timed(GET_USER_TIMER, () -> {
+                UserCache.CachedUser row = cachedUserRow(userID);
+                if (row == null) {
+                    Log.info("db", "User not found: {}", userID);
+                    return null;
+                }
+                User foundUser = createUser(row);
+                Log.info("db", "Found user: {} (ID: {}, Email: {})", foundUser.getUserName(), foundUser.getUserID(), foundUser.getUserEmail());
                 return foundUser;
-            } else {
-                System.out.println("✗ User not found: " + userID);
-            }
-        } catch (SQLException e) {
-            System.err.println("Error getting user: " + e.getMessage());
-            e.printStackTrace();
+            });
+        } catch (Exception e) {
+            Log.error("db", "Error getting user: {}", e.getMessage(), e);
         }
         return null;
     }
 
-    private User createUserFromResultSet(ResultSet rs) throws SQLException {
-        String userID = rs.getString("user_id");
-        String password = rs.getString("user_password");
-        String userName = rs.getString("user_name");
-        String email = rs.getString("user_email");
-        String phone = rs.getString("user_phone");
-        String userRole = rs.getString("user_role");
+    // loadUserRow only throws SQLException; the cache's Loader signature allows any Exception
+    private UserCache.CachedUser cachedUserRow(String key) throws SQLException {
+        try {
+            return userCache.get(key, this::loadUserRow);
+        } catch (SQLException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new SQLException(e);
+        }
+    }
+
+    /**
+     * Drops a user from the cache so the next getUser reads the stored row.
+     */
+    public void invalidateUser(String userID) {
+        userCache.invalidate(userID, null);
+    }
+
+    void invalidateUser(User user) {
+        userCache.invalidate(user.getUserID(), user.getUserEmail());
+    }
+
+    private UserCache.CachedUser loadUserRow(String key) throws SQLException {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(FIND_USER_SQL)) {
+            stmt.setString(1, key);
+            stmt.setString(2, key);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? readUserRow(rs) : null;
+            }
+        }
+    }
+
+    private static UserCache.CachedUser readUserRow(ResultSet rs) throws SQLException {
+        return new UserCache.CachedUser(
+                rs.getString("user_id"),
+                rs.getString("user_password"),
+                rs.getString("user_name"),
+                rs.getString("user_email"),
+                rs.getString("user_phone"),
+                rs.getString("user_role"));
+    }
+
+    // Package-private for the result-set mapping benchmark
+    static User createUserFromResultSet(ResultSet rs) throws SQLException {
+        return createUser(readUserRow(rs));
+    }
+
+    private static User createUser(UserCache.CachedUser row) {
+        String userID = row.userID();
+        String password = row.userPassword();
+        String userName = row.userName();
+        String email = row.userEmail();
+        String phone = row.userPhone();
+        String userRole = row.userRole();
 
         // Note: Branch information is not yet wired from the DB, so we pass null for branch.
         // This still correctly identifies the concrete user type and enforces role capabilities.
@@ -166,106 +394,108 @@ public class Database {
 
     // Account operations
     public void saveAccount(Account account) {
-        String sql = "INSERT INTO accounts (account_id, customer_id, account_type, balance, created_at) " +
-                     "VALUES (?, ?, ?, ?, ?) " +
-                     "ON DUPLICATE KEY UPDATE balance=?, account_type=?";
-        
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            stmt.setString(1, account.getAccountID());
-            stmt.setString(2, account.getCustomerID());
-            stmt.setString(3, account.getClass().getSimpleName());
-            stmt.setDouble(4, account.getBalance());
-            stmt.setTimestamp(5, Timestamp.valueOf(LocalDateTime.now()));
-            stmt.setDouble(6, account.getBalance());
-            stmt.setString(7, account.getClass().getSimpleName());
-            int rowsAffected = stmt.executeUpdate();
-            System.out.println("💾 Saved account " + account.getAccountID() + " (balance: $" + account.getBalance() + ", rows affected: " + rowsAffected + ")");
+        try {
+            timed(SAVE_ACCOUNT_TIMER, () -> {
+                try (Connection conn = dataSource.getConnection();
+                     PreparedStatement stmt = conn.prepareStatement(SAVE_ACCOUNT_SQL)) {
+                    bindAccount(stmt, account);
+                    int rowsAffected = stmt.executeUpdate();
+                    searchIndex.putAccount(account.getAccountID(), account.getCustomerID());
+                    Log.info("db", "Saved account {} (balance: ${}, rows affected: {})", account.getAccountID(), account.getBalance(), rowsAffected);
+                }
+                return null;
+            });
         } catch (SQLException e) {
-            System.err.println("✗ Error saving account: " + e.getMessage());
-            e.printStackTrace();
+            Log.error("db", "Error saving account: {}", e.getMessage(), e);
         }
     }
 
     public Account getAccount(String accountID) {
-        String sql = "SELECT * FROM accounts WHERE account_id = ?";
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            stmt.setString(1, accountID);
-            ResultSet rs = stmt.executeQuery();
-            if (rs.next()) {
-                // Would need to reconstruct account with customer reference
-                // Simplified for now
+        try {
+            return timed(GET_ACCOUNT_TIMER, () -> {
+                String sql = "SELECT * FROM accounts WHERE account_id = ?";
+                try (Connection conn = dataSource.getConnection();
+                     PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    stmt.setString(1, accountID);
+                    ResultSet rs = stmt.executeQuery();
+                    if (rs.next()) {
+                        // Would need to reconstruct account with customer reference
+                        // Simplified for now
+                        return null;
+                    }
+                }
                 return null;
-            }
+            });
         } catch (SQLException e) {
-            System.err.println("Error getting account: " + e.getMessage());
+            Log.error("db", "Error getting account: {}", e.getMessage());
         }
         return null;
     }
 
     public List<Account> getAccountsForCustomer(String customerID, Customer customer) {
-        List<Account> accounts = new ArrayList<>();
-        String sql = "SELECT * FROM accounts WHERE customer_id = ?";
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            stmt.setString(1, customerID);
-            ResultSet rs = stmt.executeQuery();
-            while (rs.next()) {
-                String accountID = rs.getString("account_id");
-                String accountType = rs.getString("account_type");
-                double balance = rs.getDouble("balance");
-                
-                Account account;
-                if ("Checking".equalsIgnoreCase(accountType) || "Check".equalsIgnoreCase(accountType)) {
-                    account = new Checking(accountID, customer, balance);
-                } else if ("Saving".equalsIgnoreCase(accountType) || "Savings".equalsIgnoreCase(accountType)) {
-                    // Default interest rate - could be stored in DB if needed
-                    account = new Saving(accountID, customer, balance, 0.02);
-                } else {
-                    // Default to Checking if type unknown
-                    account = new Checking(accountID, customer, balance);
+        try {
+            return timed(GET_ACCOUNTS_FOR_CUSTOMER_TIMER, () -> {
+                List<Account> accounts = new ArrayList<>();
+                String sql = "SELECT * FROM accounts WHERE customer_id = ?";
+                try (Connection conn = dataSource.getConnection();
+                     PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    stmt.setString(1, customerID);
+                    ResultSet rs = stmt.executeQuery();
+                    while (rs.next()) {
+                        String accountID = rs.getString("account_id");
+                        String accountType = rs.getString("account_type");
+                        Money balance = readMoney(rs, "balance");
+
+                        Account account;
+                        if ("Checking".equalsIgnoreCase(accountType) || "Check".equalsIgnoreCase(accountType)) {
+                            account = new Checking(accountID, customer, balance);
+                        } else if ("Saving".equalsIgnoreCase(accountType) || "Savings".equalsIgnoreCase(accountType)) {
+                            BigDecimal interestRate = rs.getBigDecimal("interest_rate");
+                            account = new Saving(accountID, customer, balance,
+                                interestRate != null ? interestRate : BigDecimal.ZERO);
+                        } else {
+                            // Default to Checking if type unknown
+                            account = new Checking(accountID, customer, balance);
+                        }
+                        accounts.add(account);
+                    }
                 }
-                accounts.add(account);
-            }
+                for (Account account : accounts) {
+                    account.setBalanceCents(currentBalance(account.getAccountID(), account.getBalance()).getCents());
+                }
+                return accounts;
+            });
         } catch (SQLException e) {
-            System.err.println("Error getting accounts for customer: " + e.getMessage());
-            e.printStackTrace();
+            Log.error("db", "Error getting accounts for customer: {}", e.getMessage(), e);
         }
-        return accounts;
+        return new ArrayList<>();
     }
 
     // Transaction operations
     public void saveTransaction(Transaction transaction) {
-        String sql = "INSERT INTO transactions (transaction_id, customer_id, transaction_type, amount, " +
-                     "source_account_id, destination_account_id, status, initiated_at) " +
-                     "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
-        
-        System.out.println("========================================");
-        System.out.println("💾 Saving transaction to database");
-        System.out.println("  Transaction ID: " + transaction.getTransactionID());
-        System.out.println("  Customer ID: " + (transaction.getInitiatedBy() != null ? transaction.getInitiatedBy().getCustomerID() : "null"));
-        System.out.println("  Type: " + transaction.getClass().getSimpleName());
-        System.out.println("  Amount: $" + transaction.getTransactionAmount());
-        System.out.println("  Source Account: " + (transaction.getSourceAccount() != null ? transaction.getSourceAccount().getAccountID() : "null"));
-        System.out.println("  Destination Account: " + (transaction.getDestinationAccount() != null ? transaction.getDestinationAccount().getAccountID() : "null"));
-        System.out.println("  Status: " + transaction.getTransactionStatus());
-        
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            stmt.setString(1, transaction.getTransactionID());
-            String customerID = transaction.getInitiatedBy() != null ? transaction.getInitiatedBy().getCustomerID() : null;
-            stmt.setString(2, customerID);
-            stmt.setString(3, transaction.getClass().getSimpleName());
-            stmt.setDouble(4, transaction.getTransactionAmount());
-            stmt.setString(5, transaction.getSourceAccount() != null ? transaction.getSourceAccount().getAccountID() : null);
-            stmt.setString(6, transaction.getDestinationAccount() != null ? transaction.getDestinationAccount().getAccountID() : null);
-            stmt.setString(7, transaction.getTransactionStatus());
-            stmt.setTimestamp(8, Timestamp.valueOf(transaction.getInitiatedAt()));
-            int rowsAffected = stmt.executeUpdate();
-            System.out.println("✓ Transaction saved successfully (rows affected: " + rowsAffected + ")");
-            System.out.println("========================================");
+        try {
+            Log.info("db", "Saving transaction {} ({} of ${} by {}, {} -> {}, status {})",
+                transaction.getTransactionID(),
+                transaction.getClass().getSimpleName(),
+                transaction.getTransactionAmount(),
+                transaction.getInitiatedBy() != null ? transaction.getInitiatedBy().getCustomerID() : "null",
+                transaction.getSourceAccount() != null ? transaction.getSourceAccount().getAccountID() : "null",
+                transaction.getDestinationAccount() != null ? transaction.getDestinationAccount().getAccountID() : "null",
+                transaction.getTransactionStatus());
+
+            timed(SAVE_TRANSACTION_TIMER, () -> {
+                try (Connection conn = dataSource.getConnection();
+                     PreparedStatement stmt = conn.prepareStatement(SAVE_TRANSACTION_SQL)) {
+                    bindTransaction(stmt, transaction);
+                    int rowsAffected = stmt.executeUpdate();
+                    Log.info("db", "Transaction saved successfully (rows affected: {})", rowsAffected);
+                }
+                return null;
+            });
         } catch (SQLException e) {
-            System.err.println("✗ Error saving transaction: " + e.getMessage());
-            System.err.println("  SQL State: " + e.getSQLState());
-            System.err.println("  Error Code: " + e.getErrorCode());
-            e.printStackTrace();
+            Log.error("db", "Error saving transaction: {}", e.getMessage());
+            Log.error("db", "  SQL State: {}", e.getSQLState());
+            Log.error("db", "  Error Code: {}", e.getErrorCode(), e);
         }
     }
 
@@ -275,245 +505,366 @@ public class Database {
         return null;
     }
 
+    // Keyset predicate: rows strictly older than the cursor in (initiated_at, transaction_id) order.
+    // Written as a range on initiated_at plus a tie-break so MySQL can seek the composite index.
+    private static final String KEYSET_PREDICATE =
+            "initiated_at <= ? AND (initiated_at < ? OR transaction_id < ?)";
+    private static final String KEYSET_ORDER = " ORDER BY initiated_at DESC, transaction_id DESC LIMIT ?";
+
     public List<Map<String, Object>> getTransactionsForCustomer(String customerID) {
-        List<Map<String, Object>> transactions = new ArrayList<>();
-        
-        if (connection == null) {
-            System.err.println("✗ Database connection is null in getTransactionsForCustomer");
-            return transactions;
+        return getTransactionsForCustomer(customerID, null, TransactionPage.DEFAULT_PAGE_SIZE).getTransactions();
+    }
+
+    public TransactionPage getTransactionsForCustomer(String customerID, String cursor, int pageSize) {
+        try {
+            return timed(GET_TRANSACTIONS_FOR_CUSTOMER_TIMER, () -> {
+                TransactionPage.Cursor after = TransactionPage.decodeCursor(cursor);
+                String sql = "SELECT * FROM transactions WHERE customer_id = ?" +
+                             (after != null ? " AND " + KEYSET_PREDICATE : "") + KEYSET_ORDER;
+                Log.debug("db", "========================================");
+                Log.info("db", "Querying transactions for customer: {}", customerID);
+                Log.debug("db", "SQL: {}", sql);
+
+                try (Connection conn = dataSource.getConnection();
+                     PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    int index = 1;
+                    stmt.setString(index++, customerID);
+                    index = bindKeyset(stmt, index, after);
+                    stmt.setInt(index, pageSize + 1);
+                    TransactionPage page = readPage(stmt.executeQuery(), pageSize);
+                    int count = page.getTransactions().size();
+                    Log.info("db", "Retrieved {} transaction(s) for customer {}", count, customerID);
+                    Log.debug("db", "========================================");
+
+                    if (count == 0 && after == null) {
+                        diagnostics.onEmptyResult("transactionsForCustomer", customerID,
+                            probe -> countTransactions(probe, "customer_id = ?", customerID));
+                    }
+                    return page;
+                }
+            });
+        } catch (SQLException e) {
+            Log.error("db", "Error getting transactions for customer: {}", e.getMessage());
+            Log.error("db", "  SQL State: {}", e.getSQLState());
+            Log.error("db", "  Error Code: {}", e.getErrorCode(), e);
         }
-        
-        String sql = "SELECT * FROM transactions WHERE customer_id = ? ORDER BY initiated_at DESC LIMIT 100";
-        System.out.println("========================================");
-        System.out.println("🔍 Querying transactions for customer: " + customerID);
-        System.out.println("📋 SQL: " + sql);
-        
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            stmt.setString(1, customerID);
-            ResultSet rs = stmt.executeQuery();
-            int count = 0;
-            while (rs.next()) {
-                Map<String, Object> tx = new HashMap<>();
-                tx.put("transactionID", rs.getString("transaction_id"));
-                tx.put("customerID", rs.getString("customer_id"));
-                tx.put("transactionType", rs.getString("transaction_type"));
-                tx.put("amount", rs.getDouble("amount"));
-                tx.put("sourceAccountID", rs.getString("source_account_id"));
-                tx.put("destinationAccountID", rs.getString("destination_account_id"));
-                tx.put("status", rs.getString("status"));
-                Timestamp initiatedAt = rs.getTimestamp("initiated_at");
-                if (initiatedAt != null) {
-                    tx.put("initiatedAt", initiatedAt.toLocalDateTime().toString());
+        return new TransactionPage(new ArrayList<>(), null);
+    }
+
+    public List<Map<String, Object>> getAllTransactions(String customerIDFilter) {
+        return getAllTransactions(customerIDFilter, null, TransactionPage.MAX_PAGE_SIZE).getTransactions();
+    }
+
+    public TransactionPage getAllTransactions(String customerIDFilter, String cursor, int pageSize) {
+        try {
+            return timed(GET_ALL_TRANSACTIONS_TIMER, () -> {
+                TransactionPage.Cursor after = TransactionPage.decodeCursor(cursor);
+                boolean filtered = customerIDFilter != null && !customerIDFilter.trim().isEmpty();
+                List<String> conditions = new ArrayList<>();
+                if (filtered) {
+                    conditions.add("customer_id = ?");
                 }
-                transactions.add(tx);
-                count++;
-                
-                // Debug: print first transaction details
-                if (count == 1) {
-                    System.out.println("  First transaction found:");
-                    System.out.println("    ID: " + tx.get("transactionID"));
-                    System.out.println("    Type: " + tx.get("transactionType"));
-                    System.out.println("    Amount: $" + tx.get("amount"));
+                if (after != null) {
+                    conditions.add(KEYSET_PREDICATE);
                 }
-            }
-            System.out.println("✓ Retrieved " + count + " transaction(s) for customer " + customerID);
-            System.out.println("========================================");
-            
-            if (count == 0) {
-                // Debug: Check if there are any transactions at all for this customer
-                String checkSQL = "SELECT COUNT(*) as cnt FROM transactions WHERE customer_id = ?";
-                try (PreparedStatement checkStmt = connection.prepareStatement(checkSQL)) {
-                    checkStmt.setString(1, customerID);
-                    ResultSet checkRs = checkStmt.executeQuery();
-                    if (checkRs.next()) {
-                        int totalCount = checkRs.getInt("cnt");
-                        System.out.println("⚠️  Total transactions for customer " + customerID + ": " + totalCount);
+                String sql = "SELECT * FROM transactions" +
+                             (conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions)) + KEYSET_ORDER;
+
+                try (Connection conn = dataSource.getConnection();
+                     PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    int index = 1;
+                    if (filtered) {
+                        stmt.setString(index++, customerIDFilter.trim());
+                        Log.info("db", "Querying transactions for customer: {}", customerIDFilter.trim());
+                    } else {
+                        Log.info("db", "Querying all transactions");
                     }
+                    index = bindKeyset(stmt, index, after);
+                    stmt.setInt(index, pageSize + 1);
+
+                    Log.debug("db", "Executing SQL: {}", sql);
+                    TransactionPage page = readPage(stmt.executeQuery(), pageSize);
+                    Log.info("db", "Retrieved {} transaction(s) from database", page.getTransactions().size());
+                    return page;
                 }
-                
-                // Debug: Show sample customer IDs from transactions table
-                String sampleSQL = "SELECT DISTINCT customer_id FROM transactions LIMIT 10";
-                try (PreparedStatement sampleStmt = connection.prepareStatement(sampleSQL)) {
-                    ResultSet sampleRs = sampleStmt.executeQuery();
-                    System.out.println("📋 Sample customer IDs in transactions table:");
-                    while (sampleRs.next()) {
-                        System.out.println("  Customer ID: " + sampleRs.getString("customer_id"));
+            });
+        } catch (SQLException e) {
+            Log.error("db", "Error getting all transactions: {}", e.getMessage());
+            Log.error("db", "  SQL State: {}", e.getSQLState());
+            Log.error("db", "  Error Code: {}", e.getErrorCode(), e);
+        }
+        return new TransactionPage(new ArrayList<>(), null);
+    }
+
+    public List<Map<String, Object>> getTransactionsForAccount(String accountID) {
+        return getTransactionsForAccount(accountID, null, TransactionPage.DEFAULT_PAGE_SIZE).getTransactions();
+    }
+
+    public TransactionPage getTransactionsForAccount(String accountID, String cursor, int pageSize) {
+        try {
+            return timed(GET_TRANSACTIONS_FOR_ACCOUNT_TIMER, () -> {
+                TransactionPage.Cursor after = TransactionPage.decodeCursor(cursor);
+                Log.debug("db", "========================================");
+                Log.info("db", "Querying transactions for account: {}", accountID);
+
+                try (Connection conn = dataSource.getConnection()) {
+                    TransactionPage page = queryAccountTransactions(conn, accountID, after, pageSize);
+                    int count = page.getTransactions().size();
+                    Log.info("db", "Retrieved {} transaction(s) for account {}", count, accountID);
+                    Log.debug("db", "========================================");
+
+                    if (count == 0 && after == null) {
+                        diagnostics.onEmptyResult("transactionsForAccount", accountID, probe -> {
+                            Map<String, Object> findings = countTransactions(probe,
+                                "source_account_id = ? OR destination_account_id = ?", accountID, accountID);
+                            findings.put("accountExists", accountExists(probe, accountID));
+                            return findings;
+                        });
                     }
+                    return page;
                 }
-            }
+            });
         } catch (SQLException e) {
-            System.err.println("✗ Error getting transactions for customer: " + e.getMessage());
-            System.err.println("  SQL State: " + e.getSQLState());
-            System.err.println("  Error Code: " + e.getErrorCode());
-            e.printStackTrace();
+            Log.error("db", "Error getting transactions for account: {}", e.getMessage());
+            Log.error("db", "  SQL State: {}", e.getSQLState());
+            Log.error("db", "  Error Code: {}", e.getErrorCode(), e);
         }
-        return transactions;
+        return new TransactionPage(new ArrayList<>(), null);
     }
 
-    public List<Map<String, Object>> getAllTransactions(String customerIDFilter) {
-        List<Map<String, Object>> transactions = new ArrayList<>();
-        String sql;
-        PreparedStatement stmt = null;
-        ResultSet rs = null;
-        
-        try {
-            if (customerIDFilter != null && !customerIDFilter.trim().isEmpty()) {
-                sql = "SELECT * FROM transactions WHERE customer_id = ? ORDER BY initiated_at DESC LIMIT 500";
-                stmt = connection.prepareStatement(sql);
-                stmt.setString(1, customerIDFilter.trim());
-                System.out.println("🔍 Querying transactions for customer: " + customerIDFilter.trim());
-            } else {
-                sql = "SELECT * FROM transactions ORDER BY initiated_at DESC LIMIT 500";
-                stmt = connection.prepareStatement(sql);
-                System.out.println("🔍 Querying all transactions");
+    // Diagnostic probes: indexed lookups only, run off the request path by QueryDiagnostics
+    private static Map<String, Object> countTransactions(Connection conn, String where, String... params) throws SQLException {
+        Map<String, Object> findings = new HashMap<>();
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT COUNT(*) AS cnt FROM transactions WHERE " + where)) {
+            for (int i = 0; i < params.length; i++) {
+                stmt.setString(i + 1, params[i]);
             }
-            
-            System.out.println("📋 Executing SQL: " + sql);
-            rs = stmt.executeQuery();
-            
-            int count = 0;
-            while (rs.next()) {
-                Map<String, Object> tx = new HashMap<>();
-                tx.put("transactionID", rs.getString("transaction_id"));
-                tx.put("customerID", rs.getString("customer_id"));
-                tx.put("transactionType", rs.getString("transaction_type"));
-                tx.put("amount", rs.getDouble("amount"));
-                tx.put("sourceAccountID", rs.getString("source_account_id"));
-                tx.put("destinationAccountID", rs.getString("destination_account_id"));
-                tx.put("status", rs.getString("status"));
-                Timestamp initiatedAt = rs.getTimestamp("initiated_at");
-                if (initiatedAt != null) {
-                    tx.put("initiatedAt", initiatedAt.toLocalDateTime().toString());
-                }
-                transactions.add(tx);
-                count++;
+            try (ResultSet rs = stmt.executeQuery()) {
+                findings.put("matchingTransactions", rs.next() ? rs.getLong("cnt") : 0L);
             }
-            System.out.println("✓ Retrieved " + count + " transaction(s) from database");
-            
-        } catch (SQLException e) {
-            System.err.println("✗ Error getting all transactions: " + e.getMessage());
-            System.err.println("  SQL State: " + e.getSQLState());
-            System.err.println("  Error Code: " + e.getErrorCode());
-            e.printStackTrace();
-        } finally {
-            try {
-                if (rs != null) rs.close();
-                if (stmt != null) stmt.close();
-            } catch (SQLException e) {
-                System.err.println("Error closing resources: " + e.getMessage());
+        }
+        return findings;
+    }
+
+    private static boolean accountExists(Connection conn, String accountID) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT 1 FROM accounts WHERE account_id = ?")) {
+            stmt.setString(1, accountID);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next();
             }
         }
-        return transactions;
     }
 
-    public List<Map<String, Object>> getTransactionsForAccount(String accountID) {
-        List<Map<String, Object>> transactions = new ArrayList<>();
-        
-        if (connection == null) {
-            System.err.println("✗ Database connection is null in getTransactionsForAccount");
-            return transactions;
+    private static TransactionPage queryAccountTransactions(Connection conn, String accountID,
+                                                            TransactionPage.Cursor after, int pageSize) throws SQLException {
+        // One keyset branch per side instead of "source = ? OR destination = ?", so each branch
+        // seeks its own (account, initiated_at, transaction_id) index and stops after one page
+        String keyset = after != null ? " AND " + KEYSET_PREDICATE : "";
+        String sql = "(SELECT * FROM transactions WHERE source_account_id = ?" + keyset + KEYSET_ORDER + ") " +
+                     "UNION " +
+                     "(SELECT * FROM transactions WHERE destination_account_id = ?" + keyset + KEYSET_ORDER + ")" +
+                     KEYSET_ORDER;
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            int index = 1;
+            stmt.setString(index++, accountID);
+            index = bindKeyset(stmt, index, after);
+            stmt.setInt(index++, pageSize + 1);
+            stmt.setString(index++, accountID);
+            index = bindKeyset(stmt, index, after);
+            stmt.setInt(index++, pageSize + 1);
+            stmt.setInt(index, pageSize + 1);
+            return readPage(stmt.executeQuery(), pageSize);
         }
-        
-        String sql = "SELECT * FROM transactions WHERE source_account_id = ? OR destination_account_id = ? ORDER BY initiated_at DESC LIMIT 100";
-        System.out.println("========================================");
-        System.out.println("🔍 Querying transactions for account: " + accountID);
-        System.out.println("📋 SQL: " + sql);
-        
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            stmt.setString(1, accountID);
-            stmt.setString(2, accountID);
-            
-            ResultSet rs = stmt.executeQuery();
-            int count = 0;
-            while (rs.next()) {
-                Map<String, Object> tx = new HashMap<>();
-                tx.put("transactionID", rs.getString("transaction_id"));
-                tx.put("customerID", rs.getString("customer_id"));
-                tx.put("transactionType", rs.getString("transaction_type"));
-                tx.put("amount", rs.getDouble("amount"));
-                tx.put("sourceAccountID", rs.getString("source_account_id"));
-                tx.put("destinationAccountID", rs.getString("destination_account_id"));
-                tx.put("status", rs.getString("status"));
-                Timestamp initiatedAt = rs.getTimestamp("initiated_at");
-                if (initiatedAt != null) {
-                    tx.put("initiatedAt", initiatedAt.toLocalDateTime().toString());
-                }
-                transactions.add(tx);
-                count++;
-                
-                // Debug: print first transaction details
-                if (count == 1) {
-                    System.out.println("  First transaction found:");
-                    System.out.println("    ID: " + tx.get("transactionID"));
-                    System.out.println("    Source: " + tx.get("sourceAccountID"));
-                    System.out.println("    Destination: " + tx.get("destinationAccountID"));
+    }
+
+    /**
+     * Read path for the account details page: the account row joined with its owner, then the
+     * first (or requested) page of its transactions, over one borrowed connection. Returns
+     * null when the account doesn't exist or isn't owned by a customer.
+     */
+    public AccountDetails getAccountDetails(String accountID, String cursor, int pageSize) throws SQLException {
+        return timed(GET_ACCOUNT_DETAILS_TIMER, () -> {
+            TransactionPage.Cursor after = TransactionPage.decodeCursor(cursor);
+            String sql = "SELECT a.account_id, a.account_type, a.balance, a.customer_id, " +
+                         "u.user_name, u.user_email, u.user_role " +
+                         "FROM accounts a JOIN users u ON u.user_id = a.customer_id " +
+                         "WHERE a.account_id = ?";
+            AccountDetails details;
+            try (Connection conn = dataSource.getConnection()) {
+                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    stmt.setString(1, accountID);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        if (!rs.next() || !isCustomerRole(rs.getString("user_role"))) {
+                            return null;
+                        }
+                        details = new AccountDetails(
+                                rs.getString("account_id"),
+                                accountTypeName(rs.getString("account_type")),
+                                readMoney(rs, "balance"),
+                                rs.getString("customer_id"),
+                                rs.getString("user_name"),
+                                rs.getString("user_email"));
+                    }
                 }
+                details.setTransactionPage(queryAccountTransactions(conn, accountID, after, pageSize));
             }
-            System.out.println("✓ Retrieved " + count + " transaction(s) for account " + accountID);
-            System.out.println("========================================");
-            
-            if (count == 0) {
-                // Debug: Check if there are any transactions at all
-                String checkSQL = "SELECT COUNT(*) as cnt FROM transactions WHERE source_account_id = ? OR destination_account_id = ?";
-                try (PreparedStatement checkStmt = connection.prepareStatement(checkSQL)) {
-                    checkStmt.setString(1, accountID);
-                    checkStmt.setString(2, accountID);
-                    ResultSet checkRs = checkStmt.executeQuery();
-                    if (checkRs.next()) {
-                        int totalCount = checkRs.getInt("cnt");
-                        System.out.println("⚠️  Total transactions matching account " + accountID + ": " + totalCount);
-                    }
+            details.setBalance(currentBalance(accountID, details.getBalance()));
+            return details;
+        });
+    }
+
+    // Mirrors createUser: anything that isn't a staff role is loaded as a Customer
+    private static boolean isCustomerRole(String userRole) {
+        if (userRole == null) {
+            return true;
+        }
+        switch (userRole.toLowerCase()) {
+            case "admin":
+            case "banker":
+            case "bank_manager":
+                return false;
+            default:
+                return true;
+        }
+    }
+
+    // Mirrors getAccountsForCustomer: the concrete Account class name for a stored type
+    private static String accountTypeName(String accountType) {
+        if ("Saving".equalsIgnoreCase(accountType) || "Savings".equalsIgnoreCase(accountType)) {
+            return Saving.class.getSimpleName();
+        }
+        return Checking.class.getSimpleName();
+    }
+
+    /**
+     * Streams every matching transaction (oldest first) through {@code handler} one row at a
+     * time using a forward-only cursor, so memory stays flat regardless of the result size.
+     * Any of the filters may be null. Returns the number of rows handled.
+     */
+    public long streamTransactions(String customerID, Timestamp from, Timestamp to, RowHandler handler)
+            throws SQLException, IOException {
+        try {
+            return timed(STREAM_TRANSACTIONS_TIMER, () -> {
+                List<String> conditions = new ArrayList<>();
+                if (customerID != null && !customerID.trim().isEmpty()) {
+                    conditions.add("customer_id = ?");
                 }
-                
-                // Debug: Show sample account IDs from transactions table
-                String sampleSQL = "SELECT DISTINCT source_account_id, destination_account_id FROM transactions LIMIT 10";
-                try (PreparedStatement sampleStmt = connection.prepareStatement(sampleSQL)) {
-                    ResultSet sampleRs = sampleStmt.executeQuery();
-                    System.out.println("📋 Sample account IDs in transactions table:");
-                    while (sampleRs.next()) {
-                        System.out.println("  Source: " + sampleRs.getString("source_account_id") + 
-                                         ", Destination: " + sampleRs.getString("destination_account_id"));
-                    }
+                if (from != null) {
+                    conditions.add("initiated_at >= ?");
                 }
-                
-                // Debug: Show all account IDs
-                String allAccountsSQL = "SELECT account_id FROM accounts";
-                try (PreparedStatement allStmt = connection.prepareStatement(allAccountsSQL)) {
-                    ResultSet allRs = allStmt.executeQuery();
-                    System.out.println("📋 All account IDs in accounts table:");
-                    while (allRs.next()) {
-                        System.out.println("  Account ID: " + allRs.getString("account_id"));
+                if (to != null) {
+                    conditions.add("initiated_at < ?");
+                }
+                String sql = "SELECT transaction_id, customer_id, transaction_type, amount, source_account_id, " +
+                             "destination_account_id, status, initiated_at FROM transactions" +
+                             (conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions)) +
+                             " ORDER BY initiated_at, transaction_id";
+
+                try (Connection conn = dataSource.getConnection();
+                     PreparedStatement stmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                    stmt.setFetchSize(streamingFetchSize(conn));
+                    int index = 1;
+                    if (customerID != null && !customerID.trim().isEmpty()) {
+                        stmt.setString(index++, customerID.trim());
                     }
+                    if (from != null) {
+                        stmt.setTimestamp(index++, from);
+                    }
+                    if (to != null) {
+                        stmt.setTimestamp(index, to);
+                    }
+
+                    long rows = 0;
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            handler.handle(rs);
+                            rows++;
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    return rows;
                 }
+            });
+        } catch (UncheckedIOException e) {
+            // The handler's write failure, carried out of timed() unchecked
+            throw e.getCause();
+        }
+    }
+
+    // MySQL Connector/J only streams row-by-row with fetchSize = Integer.MIN_VALUE; other
+    // drivers honour a positive fetch size as the number of rows buffered per round trip
+    private static int streamingFetchSize(Connection conn) throws SQLException {
+        String product = conn.getMetaData().getDatabaseProductName();
+        return product != null && product.toLowerCase().contains("mysql") ? Integer.MIN_VALUE : 1000;
+    }
+
+    @FunctionalInterface
+    public interface RowHandler {
+        void handle(ResultSet rs) throws SQLException, IOException;
+    }
+
+    private static int bindKeyset(PreparedStatement stmt, int index, TransactionPage.Cursor after) throws SQLException {
+        if (after == null) {
+            return index;
+        }
+        stmt.setTimestamp(index++, after.initiatedAt());
+        stmt.setTimestamp(index++, after.initiatedAt());
+        stmt.setString(index++, after.transactionID());
+        return index;
+    }
+
+    // Reads up to pageSize rows; the extra (pageSize + 1)th row only signals that another page exists
+    private static TransactionPage readPage(ResultSet rs, int pageSize) throws SQLException {
+        List<Map<String, Object>> transactions = new ArrayList<>();
+        Timestamp lastInitiatedAt = null;
+        String lastTransactionID = null;
+        boolean hasMore = false;
+        while (rs.next()) {
+            if (transactions.size() == pageSize) {
+                hasMore = true;
+                break;
             }
-        } catch (SQLException e) {
-            System.err.println("✗ Error getting transactions for account: " + e.getMessage());
-            System.err.println("  SQL State: " + e.getSQLState());
-            System.err.println("  Error Code: " + e.getErrorCode());
-            e.printStackTrace();
+            lastInitiatedAt = rs.getTimestamp("initiated_at");
+            lastTransactionID = rs.getString("transaction_id");
+            transactions.add(mapTransactionRow(rs));
         }
-        return transactions;
+        String nextCursor = hasMore && lastInitiatedAt != null
+            ? TransactionPage.encodeCursor(lastInitiatedAt, lastTransactionID)
+            : null;
+        return new TransactionPage(transactions, nextCursor);
+    }
+
+    private static Map<String, Object> mapTransactionRow(ResultSet rs) throws SQLException {
+        Map<String, Object> tx = new HashMap<>();
+        tx.put("transactionID", rs.getString("transaction_id"));
+        tx.put("customerID", rs.getString("customer_id"));
+        tx.put("transactionType", rs.getString("transaction_type"));
+        tx.put("amount", readMoney(rs, "amount"));
+        tx.put("sourceAccountID", rs.getString("source_account_id"));
+        tx.put("destinationAccountID", rs.getString("destination_account_id"));
+        tx.put("status", rs.getString("status"));
+        Timestamp initiatedAt = rs.getTimestamp("initiated_at");
+        if (initiatedAt != null) {
+            tx.put("initiatedAt", initiatedAt.toLocalDateTime().toString());
+        }
+        return tx;
     }
 
     // Receipt operations
     public void saveReceipt(Receipt receipt) {
-        String sql = "INSERT INTO receipts (reference_number, transaction_id, amount, initiator_id, " +
-                     "source_account_id, destination_account_id, date_time_issued) " +
-                     "VALUES (?, ?, ?, ?, ?, ?, ?)";
-        
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            stmt.setString(1, receipt.getReferenceNumber());
-            stmt.setString(2, null); // transaction_id - can be null, will link later if needed
-            stmt.setDouble(3, receipt.getAmount());
-            stmt.setString(4, receipt.getInitiator() != null ? receipt.getInitiator().getUserID() : null);
-            stmt.setString(5, receipt.getSourceAccountNumber());
-            stmt.setString(6, receipt.getDestinationAccountNumber());
-            stmt.setTimestamp(7, Timestamp.valueOf(receipt.getDateTimeIssued()));
-            int rowsAffected = stmt.executeUpdate();
-            System.out.println("💾 Saved receipt " + receipt.getReferenceNumber() + " (rows affected: " + rowsAffected + ")");
+        try {
+            timed(SAVE_RECEIPT_TIMER, () -> {
+                try (Connection conn = dataSource.getConnection();
+                     PreparedStatement stmt = conn.prepareStatement(SAVE_RECEIPT_SQL)) {
+                    bindReceipt(stmt, receipt);
+                    int rowsAffected = stmt.executeUpdate();
+                    Log.info("db", "Saved receipt {} (rows affected: {})", receipt.getReferenceNumber(), rowsAffected);
+                }
+                return null;
+            });
         } catch (SQLException e) {
-            System.err.println("Error saving receipt: " + e.getMessage());
-            e.printStackTrace();
+            Log.error("db", "Error saving receipt: {}", e.getMessage(), e);
         }
     }
 
@@ -527,18 +878,23 @@ public class Database {
         String sql = "INSERT INTO statements (statement_id, customer_id, year, month, " +
                      "start_balance, end_balance, date_issued) " +
                      "VALUES (?, ?, ?, ?, ?, ?, ?)";
-        
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            stmt.setString(1, statement.getStatementID());
-            stmt.setString(2, statement.getCustomer().getCustomerID());
-            stmt.setInt(3, statement.getYear());
-            stmt.setInt(4, statement.getMonth());
-            stmt.setDouble(5, statement.getStartBalance());
-            stmt.setDouble(6, statement.getEndBalance());
-            stmt.setTimestamp(7, Timestamp.valueOf(statement.getDateIssued()));
-            stmt.executeUpdate();
+        try {
+            timed(SAVE_STATEMENT_TIMER, () -> {
+                try (Connection conn = dataSource.getConnection();
+                     PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    stmt.setString(1, statement.getStatementID());
+                    stmt.setString(2, statement.getCustomer().getCustomerID());
+                    stmt.setInt(3, statement.getYear());
+                    stmt.setInt(4, statement.getMonth());
+                    stmt.setBigDecimal(5, statement.getStartBalance().toBigDecimal());
+                    stmt.setBigDecimal(6, statement.getEndBalance().toBigDecimal());
+                    stmt.setTimestamp(7, Timestamp.valueOf(statement.getDateIssued()));
+                    stmt.executeUpdate();
+                }
+                return null;
+            });
         } catch (SQLException e) {
-            System.err.println("Error saving statement: " + e.getMessage());
+            Log.error("db", "Error saving statement: {}", e.getMessage());
         }
     }
 
@@ -549,135 +905,183 @@ public class Database {
 
     // Loan Request operations
     public void saveLoanRequest(LoanRequest loanRequest) {
-        String sql = "INSERT INTO loan_requests (loan_id, customer_id, amount, purpose, proof_of_income, " +
-                     "status, reviewed_by_id, date_submitted, last_updated) " +
-                     "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?) " +
-                     "ON DUPLICATE KEY UPDATE status=?, reviewed_by_id=?, last_updated=?";
-        
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            stmt.setString(1, loanRequest.getLoanID());
-            stmt.setString(2, loanRequest.getCustomer().getCustomerID());
-            stmt.setDouble(3, loanRequest.getAmount());
-            stmt.setString(4, loanRequest.getPurpose());
-            stmt.setString(5, loanRequest.getProofOfIncome());
-            stmt.setString(6, loanRequest.getStatus());
-            stmt.setString(7, loanRequest.getReviewedBy() != null ? loanRequest.getReviewedBy().getManagerID() : null);
-            stmt.setTimestamp(8, Timestamp.valueOf(loanRequest.getDateSubmitted()));
-            stmt.setTimestamp(9, Timestamp.valueOf(loanRequest.getLastUpdated()));
-            stmt.setString(10, loanRequest.getStatus());
-            stmt.setString(11, loanRequest.getReviewedBy() != null ? loanRequest.getReviewedBy().getManagerID() : null);
-            stmt.setTimestamp(12, Timestamp.valueOf(loanRequest.getLastUpdated()));
-            stmt.executeUpdate();
+        try {
+            timed(SAVE_LOAN_REQUEST_TIMER, () -> {
+                try (Connection conn = dataSource.getConnection();
+                     PreparedStatement stmt = conn.prepareStatement(SAVE_LOAN_REQUEST_SQL)) {
+                    bindLoanRequest(stmt, loanRequest);
+                    stmt.executeUpdate();
+                }
+                return null;
+            });
         } catch (SQLException e) {
-            System.err.println("Error saving loan request: " + e.getMessage());
+            Log.error("db", "Error saving loan request: {}", e.getMessage());
         }
     }
 
     public LoanRequest getLoanRequest(String loanID) {
-        String sql = "SELECT * FROM loan_requests WHERE loan_id = ?";
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            stmt.setString(1, loanID);
-            ResultSet rs = stmt.executeQuery();
-            if (rs.next()) {
-                String customerID = rs.getString("customer_id");
-                double amount = rs.getDouble("amount");
-                String purpose = rs.getString("purpose");
-                String proofOfIncome = rs.getString("proof_of_income");
-                String status = rs.getString("status");
-                String reviewedByID = rs.getString("reviewed_by_id");
-                Timestamp submittedTs = rs.getTimestamp("date_submitted");
-                Timestamp updatedTs = rs.getTimestamp("last_updated");
-
-                // Load customer
-                User user = getUser(customerID);
-                if (!(user instanceof Customer)) {
-                    System.err.println("LoanRequest customer is not a Customer: " + customerID);
-                    return null;
-                }
-                Customer customer = (Customer) user;
-
-                LoanRequest request = new LoanRequest(customer, amount, purpose, proofOfIncome);
-                request.setLoanID(loanID);
-                request.setStatus(status);
-
-                if (submittedTs != null) {
-                    request.setDateSubmitted(submittedTs.toLocalDateTime());
-                }
-                if (updatedTs != null) {
-                    request.setLastUpdated(updatedTs.toLocalDateTime());
+        try {
+            return timed(GET_LOAN_REQUEST_TIMER, () -> {
+                // Join the owning customer so the request is built from a single borrowed connection
+                String sql = "SELECT l.*, u.* FROM loan_requests l JOIN users u ON u.user_id = l.customer_id WHERE l.loan_id = ?";
+                LoanRequest request = null;
+                String reviewedByID = null;
+                try (Connection conn = dataSource.getConnection();
+                     PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    stmt.setString(1, loanID);
+                    ResultSet rs = stmt.executeQuery();
+                    if (rs.next()) {
+                        request = createLoanRequestFromResultSet(rs);
+                        if (request == null) {
+                            Log.error("db", "LoanRequest customer is not a Customer: {}", rs.getString("customer_id"));
+                            return null;
+                        }
+                        reviewedByID = rs.getString("reviewed_by_id");
+                    }
                 }
 
-                // Optionally load manager who reviewed the loan
-                if (reviewedByID != null) {
+                // Optionally load manager who reviewed the loan (after the first connection is back in the pool)
+                if (request != null && reviewedByID != null) {
                     User managerUser = getUser(reviewedByID);
                     if (managerUser instanceof BankManager) {
                         request.setReviewedBy((BankManager) managerUser);
                     }
                 }
-
                 return request;
-            }
+            });
         } catch (SQLException e) {
-            System.err.println("Error getting loan request: " + e.getMessage());
+            Log.error("db", "Error getting loan request: {}", e.getMessage());
         }
         return null;
     }
 
     public List<LoanRequest> getPendingLoanRequests() {
-        List<LoanRequest> requests = new ArrayList<>();
-        String sql = "SELECT * FROM loan_requests WHERE status = 'Pending'";
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            ResultSet rs = stmt.executeQuery();
-            while (rs.next()) {
-                String loanID = rs.getString("loan_id");
-                String customerID = rs.getString("customer_id");
-                double amount = rs.getDouble("amount");
-                String purpose = rs.getString("purpose");
-                String proofOfIncome = rs.getString("proof_of_income");
-                String status = rs.getString("status");
-                Timestamp submittedTs = rs.getTimestamp("date_submitted");
-                Timestamp updatedTs = rs.getTimestamp("last_updated");
-
-                // Load the customer for this loan
-                User user = getUser(customerID);
-                if (!(user instanceof Customer)) {
-                    continue;
+        try {
+            return timed(GET_PENDING_LOAN_REQUESTS_TIMER, () -> {
+                List<LoanRequest> requests = new ArrayList<>();
+                String sql = "SELECT l.*, u.* FROM loan_requests l JOIN users u ON u.user_id = l.customer_id WHERE l.status = 'Pending'";
+                try (Connection conn = dataSource.getConnection();
+                     PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    ResultSet rs = stmt.executeQuery();
+                    while (rs.next()) {
+                        LoanRequest request = createLoanRequestFromResultSet(rs);
+                        if (request != null) {
+                            requests.add(request);
+                        }
+                    }
                 }
-                Customer customer = (Customer) user;
+                return requests;
+            });
+        } catch (SQLException e) {
+            Log.error("db", "Error getting pending loan requests: {}", e.getMessage());
+        }
+        return new ArrayList<>();
+    }
 
-                LoanRequest request = new LoanRequest(customer, amount, purpose, proofOfIncome);
-                request.setLoanID(loanID);
-                request.setStatus(status);
-                if (submittedTs != null) {
-                    request.setDateSubmitted(submittedTs.toLocalDateTime());
-                }
-                if (updatedTs != null) {
-                    request.setLastUpdated(updatedTs.toLocalDateTime());
-                }
+    // Expects a loan_requests row joined with its customer's users row
+    private LoanRequest createLoanRequestFromResultSet(ResultSet rs) throws SQLException {
+        User user = createUserFromResultSet(rs);
+        if (!(user instanceof Customer)) {
+            return null;
+        }
+        Customer customer = (Customer) user;
 
-                requests.add(request);
-            }
-        } catch (SQLException e) {
-            System.err.println("Error getting pending loan requests: " + e.getMessage());
+        LoanRequest request = new LoanRequest(customer, readMoney(rs, "amount"), rs.getString("purpose"), rs.getString("proof_of_income"));
+        request.setLoanID(rs.getString("loan_id"));
+        request.setStatus(rs.getString("status"));
+
+        Timestamp submittedTs = rs.getTimestamp("date_submitted");
+        Timestamp updatedTs = rs.getTimestamp("last_updated");
+        if (submittedTs != null) {
+            request.setDateSubmitted(submittedTs.toLocalDateTime());
+        }
+        if (updatedTs != null) {
+            request.setLastUpdated(updatedTs.toLocalDateTime());
         }
-        return requests;
+        return request;
     }
 
     public int getLoanRequestCountForCustomer(String customerID) {
-        String sql = "SELECT COUNT(*) AS cnt FROM loan_requests WHERE customer_id = ?";
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            stmt.setString(1, customerID);
-            ResultSet rs = stmt.executeQuery();
-            if (rs.next()) {
-                return rs.getInt("cnt");
-            }
+        try {
+            return timed(GET_LOAN_REQUEST_COUNT_TIMER, () -> {
+                String sql = "SELECT COUNT(*) AS cnt FROM loan_requests WHERE customer_id = ?";
+                try (Connection conn = dataSource.getConnection();
+                     PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    stmt.setString(1, customerID);
+                    ResultSet rs = stmt.executeQuery();
+                    return rs.next() ? rs.getInt("cnt") : 0;
+                }
+            });
         } catch (SQLException e) {
-            System.err.println("Error getting loan request count: " + e.getMessage());
+            Log.error("db", "Error getting loan request count: {}", e.getMessage());
         }
         return 0;
     }
 
     public List<User> searchUsers(String name, String accountNumber, String phoneNumber, String userType) {
+        return searchUsers(name, accountNumber, phoneNumber, userType, UserSearchIndex.DEFAULT_LIMIT);
+    }
+
+    /**
+     * Ranked user search served from the in-memory UserSearchIndex (built on first use).
+     * Falls back to the SQL scan if the index can't be loaded.
+     */
+    public List<User> searchUsers(String name, String accountNumber, String phoneNumber, String userType, int limit) {
+        try {
+            return timed(SEARCH_USERS_TIMER, () -> {
+                if (!loadSearchIndex()) {
+                    Log.error("db", "User search index unavailable, falling back to SQL");
+                    return searchUsersInDatabase(name, accountNumber, phoneNumber, userType, limit);
+                }
+                List<User> users = new ArrayList<>();
+                for (UserCache.CachedUser row : searchIndex.search(name, accountNumber, phoneNumber, userType, limit)) {
+                    users.add(createUser(row));
+                }
+                Log.info("db", "Search returned {} user(s)", users.size());
+                return users;
+            });
+        } catch (SQLException e) {
+            // Neither path throws it: the SQL fallback logs its own failures and returns no users
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Builds the user search index if it isn't loaded yet; returns false if that failed.
+     */
+    public boolean loadSearchIndex() {
+        if (searchIndex.isLoaded()) {
+            return true;
+        }
+        try {
+            long start = System.nanoTime();
+            searchIndex.load(this::readSearchSnapshot);
+            Log.info("db", "User search index loaded in {} ms", (System.nanoTime() - start) / 1_000_000);
+            return true;
+        } catch (SQLException e) {
+            Log.error("db", "Error loading user search index: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    private void readSearchSnapshot(Consumer<UserCache.CachedUser> users, BiConsumer<String, String> accounts) throws SQLException {
+        try (Connection conn = dataSource.getConnection()) {
+            try (PreparedStatement stmt = conn.prepareStatement("SELECT * FROM users");
+                 ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    users.accept(readUserRow(rs));
+                }
+            }
+            try (PreparedStatement stmt = conn.prepareStatement("SELECT account_id, customer_id FROM accounts");
+                 ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    accounts.accept(rs.getString("account_id"), rs.getString("customer_id"));
+                }
+            }
+        }
+    }
+
+    private List<User> searchUsersInDatabase(String name, String accountNumber, String phoneNumber, String userType, int limit) {
         List<User> users = new ArrayList<>();
         
         // Build dynamic SQL query based on provided search criteria
@@ -732,14 +1136,16 @@ public class Database {
             }
         }
         
-        sqlBuilder.append("ORDER BY u.user_name");
+        sqlBuilder.append("ORDER BY u.user_name LIMIT ?");
+        params.add(limit);
         
         String sql = sqlBuilder.toString();
-        System.out.println("🔍 Search query: " + sql);
-        System.out.println("🔍 Search params: " + params);
-        System.out.println("🔍 Has criteria: " + hasAnyCriteria);
+        Log.debug("db", "Search query: {}", sql);
+        Log.debug("db", "Search params: {}", params);
+        Log.debug("db", "Has criteria: {}", hasAnyCriteria);
         
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
             // Set parameters
             for (int i = 0; i < params.size(); i++) {
                 stmt.setObject(i + 1, params.get(i));
@@ -751,29 +1157,270 @@ public class Database {
                 users.add(user);
             }
             
-            System.out.println("✓ Search returned " + users.size() + " user(s)");
+            Log.info("db", "Search returned {} user(s)", users.size());
         } catch (SQLException e) {
-            System.err.println("✗ Error searching users: " + e.getMessage());
-            System.err.println("  Error Code: " + e.getErrorCode());
-            System.err.println("  SQL State: " + e.getSQLState());
-            e.printStackTrace();
+            Log.error("db", "Error searching users: {}", e.getMessage());
+            Log.error("db", "  Error Code: {}", e.getErrorCode());
+            Log.error("db", "  SQL State: {}", e.getSQLState(), e);
         }
         
         return users;
     }
 
+    // Idempotency keys
+    public IdempotencyStore.Record getIdempotencyRecord(String customerID, String key) {
+        try {
+            return timed(GET_IDEMPOTENCY_RECORD_TIMER, () -> {
+                String sql = "SELECT endpoint, request_fingerprint, response_body, created_at FROM idempotency_keys " +
+                             "WHERE customer_id = ? AND idempotency_key = ?";
+                try (Connection conn = dataSource.getConnection();
+                     PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    stmt.setString(1, customerID);
+                    stmt.setString(2, key);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        if (rs.next()) {
+                            return new IdempotencyStore.Record(customerID, key, rs.getString("endpoint"),
+                                rs.getString("request_fingerprint"), rs.getString("response_body"),
+                                rs.getTimestamp("created_at").toLocalDateTime());
+                        }
+                    }
+                }
+                return null;
+            });
+        } catch (SQLException e) {
+            Log.error("db", "Error getting idempotency key: {}", e.getMessage());
+        }
+        return null;
+    }
+
     // Admin metrics
     public int getTotalUserCount() {
-        String sql = "SELECT COUNT(*) AS cnt FROM users";
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            ResultSet rs = stmt.executeQuery();
-            if (rs.next()) {
-                return rs.getInt("cnt");
-            }
+        try {
+            return timed(GET_TOTAL_USER_COUNT_TIMER, () -> {
+                String sql = "SELECT COUNT(*) AS cnt FROM users";
+                try (Connection conn = dataSource.getConnection();
+                     PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    ResultSet rs = stmt.executeQuery();
+                    return rs.next() ? rs.getInt("cnt") : 0;
+                }
+            });
         } catch (SQLException e) {
-            System.err.println("Error getting total user count: " + e.getMessage());
+            Log.error("db", "Error getting total user count: {}", e.getMessage());
         }
         return 0;
     }
-}
 
+    // Parameter binding shared by the single-row save methods and UnitOfWork batches
+    static void bindUser(PreparedStatement stmt, User user) throws SQLException {
+        stmt.setString(1, user.getUserID());
+        stmt.setString(2, user.getUserPassword());
+        stmt.setString(3, user.getUserName());
+        stmt.setString(4, user.getUserEmail());
+        stmt.setString(5, user.getUserPhone());
+        stmt.setString(6, user.getUserRole());
+        stmt.setTimestamp(7, Timestamp.valueOf(user.getCreatedAt()));
+        stmt.setBoolean(8, user.isActive());
+        stmt.setString(9, user.getUserPassword());
+        stmt.setString(10, user.getUserName());
+        stmt.setString(11, user.getUserEmail());
+        stmt.setString(12, user.getUserPhone());
+        stmt.setString(13, user.getUserRole());
+        stmt.setBoolean(14, user.isActive());
+    }
+
+    // DECIMAL(15,2) money columns; NULL reads as zero
+    static Money readMoney(ResultSet rs, String column) throws SQLException {
+        BigDecimal value = rs.getBigDecimal(column);
+        return value != null ? Money.of(value) : Money.ZERO;
+    }
+
+    static void bindAccount(PreparedStatement stmt, Account account) throws SQLException {
+        BigDecimal interestRate = interestRatePercent(account);
+        stmt.setString(1, account.getAccountID());
+        stmt.setString(2, account.getCustomerID());
+        stmt.setString(3, account.getClass().getSimpleName());
+        stmt.setBigDecimal(4, account.getBalance().toBigDecimal());
+        stmt.setBigDecimal(5, interestRate);
+        stmt.setTimestamp(6, Timestamp.valueOf(LocalDateTime.now()));
+        stmt.setString(7, account.getClass().getSimpleName());
+        stmt.setBigDecimal(8, interestRate);
+    }
+
+    // accounts.interest_rate is DECIMAL(5,2)
+    private static BigDecimal interestRatePercent(Account account) {
+        if (account instanceof Saving saving) {
+            return saving.getInterestRate().setScale(2, RoundingMode.HALF_EVEN);
+        }
+        return BigDecimal.ZERO.setScale(2);
+    }
+
+    static void bindInterestAccrual(PreparedStatement stmt, InterestAccrual.Accrual accrual) throws SQLException {
+        Date date = Date.valueOf(accrual.date());
+        stmt.setString(1, accrual.accountID());
+        stmt.setBigDecimal(2, accrual.carried());
+        stmt.setDate(3, date);
+        stmt.setBigDecimal(4, accrual.carried());
+        stmt.setDate(5, date);
+    }
+
+    static void bindInterestRun(PreparedStatement stmt, InterestAccrual.Checkpoint checkpoint) throws SQLException {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        Timestamp completedAt = checkpoint.completed() ? now : null;
+        stmt.setDate(1, Date.valueOf(checkpoint.runDate()));
+        stmt.setString(2, checkpoint.lastAccountID());
+        stmt.setLong(3, checkpoint.accounts());
+        stmt.setBigDecimal(4, checkpoint.credited().toBigDecimal());
+        stmt.setTimestamp(5, completedAt);
+        stmt.setTimestamp(6, now);
+        stmt.setString(7, checkpoint.lastAccountID());
+        stmt.setLong(8, checkpoint.accounts());
+        stmt.setBigDecimal(9, checkpoint.credited().toBigDecimal());
+        stmt.setTimestamp(10, completedAt);
+        stmt.setTimestamp(11, now);
+    }
+
+    static void bindDebitCounter(PreparedStatement stmt, String accountID, String bucket, LocalDate bucketStart,
+                                 int debits, Money amount) throws SQLException {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        stmt.setString(1, accountID);
+        stmt.setString(2, bucket);
+        stmt.setDate(3, Date.valueOf(bucketStart));
+        stmt.setInt(4, debits);
+        stmt.setBigDecimal(5, amount.toBigDecimal());
+        stmt.setTimestamp(6, now);
+        stmt.setInt(7, debits);
+        stmt.setBigDecimal(8, amount.toBigDecimal());
+        stmt.setTimestamp(9, now);
+    }
+
+    static void bindBalanceDelta(PreparedStatement stmt, String accountID, Money delta) throws SQLException {
+        stmt.setBigDecimal(1, delta.toBigDecimal());
+        stmt.setString(2, accountID);
+        stmt.setBigDecimal(3, delta.toBigDecimal());
+        stmt.setBigDecimal(4, delta.negate().toBigDecimal());
+    }
+
+    static void bindTransaction(PreparedStatement stmt, Transaction transaction) throws SQLException {
+        stmt.setString(1, transaction.getTransactionID());
+        String customerID = transaction.getInitiatedBy() != null ? transaction.getInitiatedBy().getCustomerID() : null;
+        stmt.setString(2, customerID);
+        stmt.setString(3, transaction.getClass().getSimpleName());
+        stmt.setBigDecimal(4, transaction.getTransactionAmount().toBigDecimal());
+        stmt.setString(5, transaction.getSourceAccount() != null ? transaction.getSourceAccount().getAccountID() : null);
+        stmt.setString(6, transaction.getDestinationAccount() != null ? transaction.getDestinationAccount().getAccountID() : null);
+        stmt.setString(7, transaction.getTransactionStatus());
+        stmt.setTimestamp(8, Timestamp.valueOf(transaction.getInitiatedAt()));
+    }
+
+    static void bindReceipt(PreparedStatement stmt, Receipt receipt) throws SQLException {
+        stmt.setString(1, receipt.getReferenceNumber());
+        stmt.setString(2, null); // transaction_id - can be null, will link later if needed
+        stmt.setBigDecimal(3, receipt.getAmount().toBigDecimal());
+        stmt.setString(4, receipt.getInitiator() != null ? receipt.getInitiator().getUserID() : null);
+        stmt.setString(5, receipt.getSourceAccountNumber());
+        stmt.setString(6, receipt.getDestinationAccountNumber());
+        stmt.setTimestamp(7, Timestamp.valueOf(receipt.getDateTimeIssued()));
+    }
+
+    static void bindLedgerEntry(PreparedStatement stmt, Ledger.Entry entry) throws SQLException {
+        stmt.setLong(1, entry.sequence());
+        stmt.setString(2, entry.postingID());
+        stmt.setString(3, entry.accountID());
+        stmt.setBigDecimal(4, entry.amount().toBigDecimal());
+        stmt.setString(5, entry.postingType());
+        stmt.setString(6, entry.referenceID());
+        stmt.setTimestamp(7, Timestamp.valueOf(entry.createdAt()));
+    }
+
+    static void bindDailyBalance(PreparedStatement stmt, BalanceHistory.DailyBalance day) throws SQLException {
+        stmt.setString(1, day.accountID());
+        stmt.setDate(2, Date.valueOf(day.date()));
+        stmt.setBigDecimal(3, day.closingBalance().toBigDecimal());
+        stmt.setBigDecimal(4, day.netChange().toBigDecimal());
+        stmt.setInt(5, day.entries());
+        stmt.setBigDecimal(6, day.closingBalance().toBigDecimal());
+        stmt.setBigDecimal(7, day.netChange().toBigDecimal());
+        stmt.setInt(8, day.entries());
+    }
+
+    static void bindMonthEndStatement(PreparedStatement stmt, StatementJob.MonthEndStatement statement) throws SQLException {
+        Timestamp issued = Timestamp.valueOf(statement.dateIssued());
+        stmt.setString(1, statement.statementID());
+        stmt.setString(2, statement.customerID());
+        stmt.setInt(3, statement.year());
+        stmt.setInt(4, statement.month());
+        stmt.setBigDecimal(5, statement.startBalance().toBigDecimal());
+        stmt.setBigDecimal(6, statement.endBalance().toBigDecimal());
+        stmt.setInt(7, statement.transactionCount());
+        stmt.setTimestamp(8, issued);
+        stmt.setBigDecimal(9, statement.startBalance().toBigDecimal());
+        stmt.setBigDecimal(10, statement.endBalance().toBigDecimal());
+        stmt.setInt(11, statement.transactionCount());
+        stmt.setTimestamp(12, issued);
+    }
+
+    static void bindStatementAccount(PreparedStatement stmt, String statementID, String accountID) throws SQLException {
+        stmt.setString(1, statementID);
+        stmt.setString(2, accountID);
+    }
+
+    static void bindStatementPartition(PreparedStatement stmt, String jobID, StatementJob.Partition partition,
+                                       int statements) throws SQLException {
+        Timestamp completedAt = Timestamp.valueOf(LocalDateTime.now());
+        stmt.setString(1, jobID);
+        stmt.setString(2, partition.firstCustomerID());
+        stmt.setString(3, partition.lastCustomerID());
+        stmt.setInt(4, statements);
+        stmt.setTimestamp(5, completedAt);
+        stmt.setString(6, partition.lastCustomerID());
+        stmt.setInt(7, statements);
+        stmt.setTimestamp(8, completedAt);
+    }
+
+    static void bindLedgerSnapshot(PreparedStatement stmt, String accountID, long sequence, Money balance,
+                                   LocalDateTime takenAt) throws SQLException {
+        Timestamp timestamp = Timestamp.valueOf(takenAt);
+        stmt.setString(1, accountID);
+        stmt.setLong(2, sequence);
+        stmt.setBigDecimal(3, balance.toBigDecimal());
+        stmt.setTimestamp(4, timestamp);
+        stmt.setBigDecimal(5, balance.toBigDecimal());
+        stmt.setTimestamp(6, timestamp);
+    }
+
+    static void bindLoanRequest(PreparedStatement stmt, LoanRequest loanRequest) throws SQLException {
+        stmt.setString(1, loanRequest.getLoanID());
+        stmt.setString(2, loanRequest.getCustomer().getCustomerID());
+        stmt.setBigDecimal(3, loanRequest.getAmount().toBigDecimal());
+        stmt.setString(4, loanRequest.getPurpose());
+        stmt.setString(5, loanRequest.getProofOfIncome());
+        stmt.setString(6, loanRequest.getStatus());
+        stmt.setString(7, loanRequest.getReviewedBy() != null ? loanRequest.getReviewedBy().getManagerID() : null);
+        stmt.setTimestamp(8, Timestamp.valueOf(loanRequest.getDateSubmitted()));
+        stmt.setTimestamp(9, Timestamp.valueOf(loanRequest.getLastUpdated()));
+        stmt.setString(10, loanRequest.getStatus());
+        stmt.setString(11, loanRequest.getReviewedBy() != null ? loanRequest.getReviewedBy().getManagerID() : null);
+        stmt.setTimestamp(12, Timestamp.valueOf(loanRequest.getLastUpdated()));
+    }
+
+    static void bindIdempotencyKey(PreparedStatement stmt, IdempotencyStore.Record record) throws SQLException {
+        stmt.setString(1, record.customerID());
+        stmt.setString(2, record.key());
+        stmt.setString(3, record.endpoint());
+        stmt.setString(4, record.fingerprint());
+        stmt.setString(5, record.responseBody());
+        stmt.setTimestamp(6, Timestamp.valueOf(record.createdAt()));
+    }
+
+    static void bindNotification(PreparedStatement stmt, Notification notification) throws SQLException {
+        Timestamp createdAt = Timestamp.valueOf(notification.getCreatedAt());
+        stmt.setString(1, notification.getNotificationID());
+        stmt.setString(2, notification.getChannel());
+        stmt.setString(3, notification.getDestination());
+        stmt.setString(4, notification.getTransactionID());
+        stmt.setString(5, notification.getReferenceNumber());
+        stmt.setString(6, notification.getMessage());
+        stmt.setTimestamp(7, createdAt);
+        stmt.setTimestamp(8, createdAt);
+    }
+}
@@ -1,5 +1,7 @@
 package bank;
 
+import java.math.BigDecimal;
+
 /**
  * Example class demonstrating how to connect to the MySQL database
  * and perform basic operations.
@@ -36,8 +38,8 @@ public class DatabaseConnectionExample {
                 System.out.println("✓ Customer saved to database");
                 
                 // Create accounts
-                Checking checking = new Checking("CHK001", customer, 1000.0);
-                Saving saving = new Saving("SAV001", customer, 5000.0, 0.02);
+                Checking checking = new Checking("CHK001", customer, Money.ofCents(100_000));
+                Saving saving = new Saving("SAV001", customer, Money.ofCents(500_000), new BigDecimal("2.00"));
                 
                 // Save accounts to database
                 db.saveAccount(checking);
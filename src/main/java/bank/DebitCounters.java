@@ -0,0 +1,361 @@
+package bank;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Per-account debit counts and amounts for the current day and month, behind the accounts'
+ * daily amount and monthly withdrawal limits. Each account's usage is one immutable
+ * {@link Usage} swapped by compare-and-set, so checking a limit is a map lookup and recording a
+ * debit never blocks. {@link UnitOfWork} reserves its debits here before committing and gives
+ * them back if the commit fails, so two concurrent debits cannot both pass the last free slot.
+ * A reservation remembers the day and month it was counted in, so giving it back after midnight
+ * only takes it off the buckets it is still in.
+ *
+ * Changed accounts are written behind to account_debit_counters by a background thread, and
+ * this month's counters are loaded back on startup. As with the ledger's positions, the
+ * in-memory counters are only complete while this process is the only one debiting accounts.
+ */
+public class DebitCounters {
+    private static final DebitCounters DEFAULT = new DebitCounters();
+    private static final String DAY = "D";
+    private static final String MONTH = "M";
+    private static final String LOAD_SQL = "SELECT account_id, bucket, debits, amount FROM account_debit_counters " +
+        "WHERE (bucket = 'D' AND bucket_start = ?) OR (bucket = 'M' AND bucket_start = ?)";
+    private static final LatencyRecorder FLUSH_TIMER = Metrics.db("debitCounters.flush");
+    private static final long RETRY_MILLIS = 5_000;
+
+    private final Supplier<LocalDate> today;
+    private final ConcurrentHashMap<String, AtomicReference<Usage>> accounts = new ConcurrentHashMap<>();
+    private final Set<String> dirty = ConcurrentHashMap.newKeySet();
+    private volatile Database database;
+    private volatile boolean loaded;
+    private volatile boolean running;
+    private Thread flusher;
+    private long flushIntervalMillis;
+
+    private final LongAdder reservations = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+    private final LongAdder releases = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder flushedRows = new LongAdder();
+    private final LongAdder flushFailures = new LongAdder();
+
+    public DebitCounters() {
+        this(LocalDate::now);
+    }
+
+    // Tests move the date to see usage roll over
+    DebitCounters(Supplier<LocalDate> today) {
+        this.today = today;
+    }
+
+    /**
+     * Shared instance used by the accounts' limit checks and the unit of work.
+     */
+    public static DebitCounters getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * An account type's limits; 0 means no limit.
+     */
+    public record Limits(long perDebitCents, long dailyCents, int monthlyDebits) {
+        public static final Limits NONE = new Limits(0, 0, 0);
+    }
+
+    /**
+     * An account's debits in one day and one month, identified by epoch day and by
+     * year * 12 + month - 1.
+     */
+    public record Usage(long day, int dayDebits, long dayCents, int month, int monthDebits, long monthCents) {
+        static Usage empty(LocalDate today) {
+            return new Usage(today.toEpochDay(), 0, 0, monthIndex(today), 0, 0);
+        }
+
+        // The same usage seen from today: buckets of an earlier day or month start over
+        Usage rollTo(LocalDate today) {
+            long currentDay = today.toEpochDay();
+            int currentMonth = monthIndex(today);
+            if (day == currentDay && month == currentMonth) {
+                return this;
+            }
+            return new Usage(currentDay, day == currentDay ? dayDebits : 0, day == currentDay ? dayCents : 0,
+                currentMonth, month == currentMonth ? monthDebits : 0, month == currentMonth ? monthCents : 0);
+        }
+
+        boolean allows(long cents, Limits limits) {
+            if (limits.perDebitCents() > 0 && cents > limits.perDebitCents()) {
+                return false;
+            }
+            if (limits.dailyCents() > 0 && dayCents + cents > limits.dailyCents()) {
+                return false;
+            }
+            return limits.monthlyDebits() <= 0 || monthDebits < limits.monthlyDebits();
+        }
+
+        Usage plus(int debits, long cents) {
+            return new Usage(day, Math.max(0, dayDebits + debits), Math.max(0, dayCents + cents),
+                month, Math.max(0, monthDebits + debits), Math.max(0, monthCents + cents));
+        }
+    }
+
+    /**
+     * A counted debit, with the day and month buckets it was counted in.
+     */
+    public record Reservation(String accountID, long cents, long day, int month) {
+    }
+
+    private static int monthIndex(LocalDate date) {
+        return date.getYear() * 12 + date.getMonthValue() - 1;
+    }
+
+    /**
+     * The account's usage today and this month.
+     */
+    public Usage usage(String accountID) {
+        LocalDate date = today.get();
+        AtomicReference<Usage> usage = accounts.get(accountID);
+        return usage != null ? usage.get().rollTo(date) : Usage.empty(date);
+    }
+
+    /**
+     * Whether a debit of {@code cents} fits the account's limits as of now.
+     */
+    public boolean allows(String accountID, long cents, Limits limits) {
+        return usage(accountID).allows(cents, limits);
+    }
+
+    /**
+     * Counts the debit if it fits the limits, atomically with the check.
+     */
+    public boolean tryReserve(String accountID, long cents, Limits limits) {
+        return reserve(accountID, cents, limits) != null;
+    }
+
+    /**
+     * Counts the debit if it fits the limits, atomically with the check, and returns what to
+     * {@link #release} if the debit doesn't commit; null if it doesn't fit.
+     */
+    public Reservation reserve(String accountID, long cents, Limits limits) {
+        AtomicReference<Usage> usage = accounts.computeIfAbsent(accountID,
+            id -> new AtomicReference<>(Usage.empty(today.get())));
+        while (true) {
+            Usage current = usage.get();
+            Usage rolled = current.rollTo(today.get());
+            if (!rolled.allows(cents, limits)) {
+                rejections.increment();
+                return null;
+            }
+            if (usage.compareAndSet(current, rolled.plus(1, cents))) {
+                reservations.increment();
+                dirty.add(accountID);
+                return new Reservation(accountID, cents, rolled.day(), rolled.month());
+            }
+        }
+    }
+
+    /**
+     * Takes back a reservation whose debit did not commit, from whichever of its day and month
+     * buckets are still current.
+     */
+    public void release(Reservation reservation) {
+        AtomicReference<Usage> usage = accounts.get(reservation.accountID());
+        if (usage == null) {
+            return;
+        }
+        while (true) {
+            Usage current = usage.get();
+            Usage rolled = current.rollTo(today.get());
+            boolean sameDay = rolled.day() == reservation.day();
+            boolean sameMonth = rolled.month() == reservation.month();
+            if (!sameDay && !sameMonth) {
+                return;
+            }
+            long cents = reservation.cents();
+            Usage released = new Usage(rolled.day(),
+                sameDay ? Math.max(0, rolled.dayDebits() - 1) : rolled.dayDebits(),
+                sameDay ? Math.max(0, rolled.dayCents() - cents) : rolled.dayCents(),
+                rolled.month(),
+                sameMonth ? Math.max(0, rolled.monthDebits() - 1) : rolled.monthDebits(),
+                sameMonth ? Math.max(0, rolled.monthCents() - cents) : rolled.monthCents());
+            if (usage.compareAndSet(current, released)) {
+                releases.increment();
+                dirty.add(reservation.accountID());
+                return;
+            }
+        }
+    }
+
+    /**
+     * Loads this month's counters and starts writing changes behind every
+     * {@code flushIntervalMillis}. If the table can't be read yet, the flusher retries the load
+     * before its first write.
+     */
+    public synchronized void start(Database database, long flushIntervalMillis) {
+        if (running) {
+            return;
+        }
+        this.database = database;
+        this.flushIntervalMillis = Math.max(1, flushIntervalMillis);
+        tryLoad();
+        running = true;
+        flusher = new Thread(this::flushLoop, "debit-counters");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * Stops the flusher after writing everything still dirty.
+     */
+    public synchronized void shutdown() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        flusher.interrupt();
+        try {
+            flusher.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void flushLoop() {
+        while (true) {
+            boolean stopping = !running;
+            if (!stopping) {
+                try {
+                    Thread.sleep(loaded ? flushIntervalMillis : RETRY_MILLIS);
+                } catch (InterruptedException e) {
+                    stopping = true;
+                }
+            }
+            if (!loaded) {
+                tryLoad();
+            }
+            // Until the stored counters are in, writing would overwrite them with partial ones
+            if (loaded) {
+                flush();
+            }
+            if (stopping) {
+                return;
+            }
+        }
+    }
+
+    private void tryLoad() {
+        try {
+            load();
+            loaded = true;
+        } catch (SQLException | RuntimeException e) {
+            Log.warn("limits", "Could not load debit counters, limits count from zero until they load: {}", e.getMessage());
+        }
+    }
+
+    // Adds the stored counters of today and this month to whatever was counted before the load
+    private void load() throws SQLException {
+        LocalDate date = today.get();
+        Map<String, long[]> stored = new LinkedHashMap<>();
+        try (Connection conn = database.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(LOAD_SQL)) {
+            stmt.setDate(1, Date.valueOf(date));
+            stmt.setDate(2, Date.valueOf(date.withDayOfMonth(1)));
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    long[] counts = stored.computeIfAbsent(rs.getString("account_id"), id -> new long[4]);
+                    int offset = DAY.equals(rs.getString("bucket")) ? 0 : 2;
+                    counts[offset] = rs.getInt("debits");
+                    counts[offset + 1] = Money.of(rs.getBigDecimal("amount")).getCents();
+                }
+            }
+        }
+        for (Map.Entry<String, long[]> entry : stored.entrySet()) {
+            long[] counts = entry.getValue();
+            AtomicReference<Usage> usage = accounts.computeIfAbsent(entry.getKey(),
+                id -> new AtomicReference<>(Usage.empty(date)));
+            usage.updateAndGet(current -> {
+                Usage rolled = current.rollTo(date);
+                return new Usage(rolled.day(), rolled.dayDebits() + (int) counts[0], rolled.dayCents() + counts[1],
+                    rolled.month(), rolled.monthDebits() + (int) counts[2], rolled.monthCents() + counts[3]);
+            });
+        }
+        Log.info("limits", "Loaded debit counters for {} account(s)", stored.size());
+    }
+
+    private record Row(String accountID, String bucket, LocalDate start, int debits, Money amount) {
+    }
+
+    void flush() {
+        if (dirty.isEmpty() || database == null) {
+            return;
+        }
+        List<String> flushing = new ArrayList<>(dirty);
+        List<Row> rows = new ArrayList<>(flushing.size() * 2);
+        for (String accountID : flushing) {
+            dirty.remove(accountID);
+            Usage usage = accounts.get(accountID).get();
+            LocalDate day = LocalDate.ofEpochDay(usage.day());
+            LocalDate month = YearMonth.of(usage.month() / 12, usage.month() % 12 + 1).atDay(1);
+            rows.add(new Row(accountID, DAY, day, usage.dayDebits(), Money.ofCents(usage.dayCents())));
+            rows.add(new Row(accountID, MONTH, month, usage.monthDebits(), Money.ofCents(usage.monthCents())));
+        }
+
+        long started = System.nanoTime();
+        try (Connection conn = database.getConnection()) {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(Database.SAVE_DEBIT_COUNTER_SQL)) {
+                for (Row row : rows) {
+                    Database.bindDebitCounter(stmt, row.accountID(), row.bucket(), row.start(), row.debits(), row.amount());
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+                conn.commit();
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+            flushes.increment();
+            flushedRows.add(rows.size());
+        } catch (SQLException | RuntimeException e) {
+            FLUSH_TIMER.recordFailure();
+            flushFailures.increment();
+            dirty.addAll(flushing);
+            Log.error("limits", "Writing {} debit counter(s) failed: {}", flushing.size(), e.getMessage());
+        } finally {
+            FLUSH_TIMER.record(System.nanoTime() - started);
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("trackedAccounts", accounts.size());
+        metrics.put("dirtyAccounts", dirty.size());
+        metrics.put("loaded", loaded);
+        metrics.put("reservations", reservations.sum());
+        metrics.put("rejections", rejections.sum());
+        metrics.put("releases", releases.sum());
+        metrics.put("flushes", flushes.sum());
+        metrics.put("flushedRows", flushedRows.sum());
+        metrics.put("flushFailures", flushFailures.sum());
+        return metrics;
+    }
+}
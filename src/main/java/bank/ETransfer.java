@@ -6,7 +6,7 @@ public class ETransfer extends Transaction {
     private Recipient recipient;
     private String notificationMethod; // SMS or Email
 
-    public ETransfer(Account sourceAccount, Recipient recipient, double amount, Customer customer, String notificationMethod) {
+    public ETransfer(Account sourceAccount, Recipient recipient, Money amount, Customer customer, String notificationMethod) {
         super(UUID.randomUUID().toString(), customer, amount, sourceAccount, null);
         this.recipient = recipient;
         this.notificationMethod = notificationMethod;
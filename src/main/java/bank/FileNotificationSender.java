@@ -0,0 +1,46 @@
+package bank;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Stand-in gateway that appends each message as a tab-separated line
+ * (time, notification ID, destination, message) to a per-channel file such as
+ * notifications/sms.log, one write and flush per batch.
+ */
+public class FileNotificationSender implements NotificationSender {
+    private final Path file;
+
+    public FileNotificationSender(Path directory, String channel) {
+        this.file = directory.resolve(channel.toLowerCase() + ".log");
+    }
+
+    @Override
+    public void send(List<Notification> batch) throws IOException {
+        Files.createDirectories(file.getParent());
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            String now = LocalDateTime.now().toString();
+            for (Notification notification : batch) {
+                out.write(now);
+                out.write('\t');
+                out.write(notification.getNotificationID());
+                out.write('\t');
+                out.write(notification.getDestination());
+                out.write('\t');
+                out.write(notification.getMessage().replace('\n', ' '));
+                out.newLine();
+            }
+        }
+    }
+
+    public Path getFile() {
+        return file;
+    }
+}
@@ -0,0 +1,309 @@
+package bank;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Idempotency-Key handling for the money-moving endpoints. Keys are scoped to the customer.
+ * The first request with a key claims it in an in-memory map (one ConcurrentHashMap
+ * putIfAbsent) and, on success, stores its response body in idempotency_keys inside the same
+ * commit as the transfer. A retry that finds the completed key gets the stored response back
+ * without the controller loading accounts or touching the database; a concurrent duplicate
+ * waits for the first request to finish and then replays it (or runs itself if the first
+ * failed). After a restart the memory is empty, but the table's primary key makes the
+ * duplicate's commit fail and {@link #recover} replays the persisted response instead.
+ */
+public class IdempotencyStore {
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    private static final int MAX_KEY_LENGTH = 100;
+
+    private static final ObjectMapper JSON = new ObjectMapper()
+        .enable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
+
+    private final Database database;
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final long waitTimeoutNanos;
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    private final LongAdder claims = new LongAdder();
+    private final LongAdder replays = new LongAdder();
+    private final LongAdder waits = new LongAdder();
+    private final LongAdder recovered = new LongAdder();
+    private final LongAdder conflicts = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public IdempotencyStore(Database database, int maxEntries, long ttlSeconds, long waitTimeoutMillis) {
+        this.database = database;
+        this.maxEntries = Math.max(1, maxEntries);
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(Math.max(0, ttlSeconds));
+        this.waitTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(waitTimeoutMillis);
+    }
+
+    /**
+     * Rejected use of a key; {@link #getStatus()} is the HTTP status to answer with.
+     */
+    public static class IdempotencyException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        private final int status;
+
+        public IdempotencyException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+
+        public int getStatus() {
+            return status;
+        }
+    }
+
+    /**
+     * A row of the idempotency_keys table.
+     */
+    public record Record(String customerID, String key, String endpoint, String fingerprint,
+                         String responseBody, LocalDateTime createdAt) {
+    }
+
+    /**
+     * Claims {@code key} for {@code customerID} or returns the finished request's response.
+     * Blocks while another request holds the key. Throws 422 when the key was used for a
+     * different request and 409 when the holder doesn't finish within the wait timeout.
+     */
+    public Claim claim(String customerID, String key, String endpoint, Map<String, ?> request)
+            throws IdempotencyException {
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new IdempotencyException(400, HEADER + " must be 1 to " + MAX_KEY_LENGTH + " characters");
+        }
+        String id = customerID + '\u0000' + key;
+        String fingerprint = fingerprint(endpoint, request);
+        long deadline = System.nanoTime() + waitTimeoutNanos;
+        while (true) {
+            Entry mine = new Entry(fingerprint);
+            Entry existing = entries.putIfAbsent(id, mine);
+            if (existing == null) {
+                claims.increment();
+                return new Claim(id, customerID, key, endpoint, mine, null);
+            }
+            if (existing.response != null && existing.expiresAt - System.nanoTime() <= 0) {
+                entries.remove(id, existing);
+                continue;
+            }
+            if (!existing.fingerprint.equals(fingerprint)) {
+                conflicts.increment();
+                throw new IdempotencyException(422, HEADER + " was already used for a different request");
+            }
+            if (existing.response != null) {
+                replays.increment();
+                return new Claim(id, customerID, key, endpoint, null, existing.response);
+            }
+            // Still in flight: wait for it to commit (replay) or fail (claim again)
+            waits.increment();
+            try {
+                existing.done.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                throw new IdempotencyException(409, "A request with this " + HEADER + " is still in progress");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IdempotencyException(409, "Interrupted while waiting for the original request");
+            } catch (ExecutionException e) {
+                // never completed exceptionally
+            }
+        }
+    }
+
+    /**
+     * After a failed commit: if the key was already persisted (by a request this process no
+     * longer remembers), completes the claim with the stored response and returns it;
+     * otherwise returns null and the failure stands.
+     */
+    public Map<String, Object> recover(Claim claim) throws IdempotencyException {
+        Record record = database.getIdempotencyRecord(claim.customerID, claim.key);
+        if (record == null) {
+            return null;
+        }
+        if (!record.fingerprint().equals(claim.entry.fingerprint)) {
+            conflicts.increment();
+            throw new IdempotencyException(422, HEADER + " was already used for a different request");
+        }
+        Map<String, Object> response = fromJson(record.responseBody());
+        claim.complete(response);
+        recovered.increment();
+        return claim.entry.response;
+    }
+
+    // SHA-256 of the endpoint and the request body with its keys sorted
+    private static String fingerprint(String endpoint, Map<String, ?> request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(endpoint.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(new TreeMap<>(request).toString().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toJson(Map<String, Object> response) {
+        try {
+            return JSON.writeValueAsString(response);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Response is not serializable: " + e.getMessage(), e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> fromJson(String body) {
+        try {
+            return JSON.readValue(body, LinkedHashMap.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Stored idempotent response is not valid JSON: " + e.getMessage(), e);
+        }
+    }
+
+    // Drops expired entries, then the oldest completed ones, down to 90% of capacity;
+    // in-flight claims are never evicted
+    private void evict() {
+        if (!evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            long now = System.nanoTime();
+            entries.values().removeIf(entry -> {
+                boolean expired = entry.response != null && entry.expiresAt - now <= 0;
+                if (expired) {
+                    evictions.increment();
+                }
+                return expired;
+            });
+            int target = maxEntries * 9 / 10;
+            int excess = entries.size() - target;
+            if (excess > 0) {
+                entries.entrySet().stream()
+                    .filter(e -> e.getValue().response != null)
+                    .sorted((a, b) -> Long.compare(a.getValue().expiresAt, b.getValue().expiresAt))
+                    .limit(excess)
+                    .toList()
+                    .forEach(e -> {
+                        if (entries.remove(e.getKey(), e.getValue())) {
+                            evictions.increment();
+                        }
+                    });
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("size", entries.size());
+        metrics.put("maxEntries", maxEntries);
+        metrics.put("ttlSeconds", TimeUnit.NANOSECONDS.toSeconds(ttlNanos));
+        metrics.put("claims", claims.sum());
+        metrics.put("replays", replays.sum());
+        metrics.put("waits", waits.sum());
+        metrics.put("recoveredFromDatabase", recovered.sum());
+        metrics.put("conflicts", conflicts.sum());
+        metrics.put("evictions", evictions.sum());
+        return metrics;
+    }
+
+    private static final class Entry {
+        final String fingerprint;
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+        volatile Map<String, Object> response;
+        volatile long expiresAt;
+
+        Entry(String fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+    }
+
+    /**
+     * Result of {@link #claim}: either a replay of a finished request, or ownership of the key,
+     * which must end in {@link #complete} (after the commit) or {@link #release}.
+     */
+    public final class Claim {
+        private final String id;
+        private final String customerID;
+        private final String key;
+        private final String endpoint;
+        private final Entry entry;
+        private final Map<String, Object> replayResponse;
+
+        private Claim(String id, String customerID, String key, String endpoint, Entry entry,
+                      Map<String, Object> replayResponse) {
+            this.id = id;
+            this.customerID = customerID;
+            this.key = key;
+            this.endpoint = endpoint;
+            this.entry = entry;
+            this.replayResponse = replayResponse;
+        }
+
+        public boolean isReplay() {
+            return replayResponse != null;
+        }
+
+        public Map<String, Object> getReplayResponse() {
+            return replayResponse;
+        }
+
+        /**
+         * The idempotency_keys row to write in the same commit as the operation.
+         */
+        public Record toRecord(Map<String, Object> response) {
+            return new Record(customerID, key, endpoint, entry.fingerprint, toJson(response), LocalDateTime.now());
+        }
+
+        /**
+         * Publishes the committed response to retries and waiting duplicates.
+         */
+        public void complete(Map<String, Object> response) {
+            if (entry == null || entry.response != null) {
+                return;
+            }
+            entry.expiresAt = System.nanoTime() + ttlNanos;
+            entry.response = Collections.unmodifiableMap(new LinkedHashMap<>(response));
+            entry.done.complete(null);
+            if (entries.size() > maxEntries) {
+                evict();
+            }
+        }
+
+        /**
+         * Gives the key up if the request didn't complete, so a retry runs it again.
+         * Safe to call from a finally block after {@link #complete}.
+         */
+        public void release() {
+            if (entry == null || entry.response != null) {
+                return;
+            }
+            entries.remove(id, entry);
+            entry.done.complete(null);
+        }
+    }
+}
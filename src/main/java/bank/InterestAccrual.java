@@ -0,0 +1,329 @@
+package bank;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Daily interest accrual for Saving accounts. A run for a date walks the Saving accounts in
+ * account_id order, {@code chunkSize} at a time, reading each account's balance at the end of
+ * that day from account_daily_balances in the same keyset query. Chunks are accrued in waves of
+ * {@code parallelism} on a fork-join pool; each chunk commits as one unit of work, crediting its
+ * accounts in a single ledger posting against GL-INTEREST-EXPENSE, so an account is locked only
+ * for its chunk's commit.
+ *
+ * A day's interest is balance * annual rate / days in the year. It is added exactly to the
+ * account's carried remainder in interest_accruals and only whole cents are credited, so no
+ * fraction of a cent is lost to rounding. That row also records the last accrued date and
+ * commits with the credit, which is what keeps a resumed run from crediting an account twice;
+ * interest_accrual_runs holds the scan position so a restart does not rescan finished waves.
+ */
+public class InterestAccrual {
+    // Balance at the end of the day: the day's row, else the balance before the account first
+    // moved after it, else the stored balance of an account that never moved
+    private static final String CHUNK_SQL =
+        "SELECT a.account_id, a.interest_rate, i.accrued, " +
+        "COALESCE((SELECT d.closing_balance FROM account_daily_balances d WHERE d.account_id = a.account_id " +
+        "AND d.balance_date <= ? ORDER BY d.balance_date DESC LIMIT 1), " +
+        "(SELECT d.closing_balance - d.net_change FROM account_daily_balances d WHERE d.account_id = a.account_id " +
+        "AND d.balance_date > ? ORDER BY d.balance_date LIMIT 1), a.balance) AS day_balance " +
+        "FROM accounts a LEFT JOIN interest_accruals i ON i.account_id = a.account_id " +
+        "WHERE a.account_type = 'Saving' AND a.account_id > ? AND a.interest_rate > 0 AND a.created_at < ? " +
+        "AND (i.last_accrued_on IS NULL OR i.last_accrued_on < ?) " +
+        "ORDER BY a.account_id LIMIT ?";
+    private static final String LOAD_RUN_SQL = "SELECT last_account_id, accounts_accrued, interest_credited, completed_at " +
+        "FROM interest_accrual_runs WHERE run_date = ?";
+    // Remainders are kept to this many places of a dollar
+    private static final int CARRY_SCALE = 10;
+    private static final BigDecimal HUNDRED = BigDecimal.valueOf(100);
+    private static final LatencyRecorder CHUNK_TIMER = Metrics.db("interest.chunk");
+
+    private final Database database;
+    private final int parallelism;
+    private final int chunkSize;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private ScheduledExecutorService scheduler;
+
+    private final LongAdder runs = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder chunks = new LongAdder();
+    private final LongAdder accountsAccrued = new LongAdder();
+    private final LongAdder centsCredited = new LongAdder();
+    private volatile Result lastResult;
+
+    public InterestAccrual(Database database, int parallelism, int chunkSize) {
+        this.database = database;
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    /**
+     * One account's accrual for a day: the remainder it carries afterwards and the credit.
+     */
+    public record Accrual(String accountID, LocalDate date, BigDecimal carried, Money credit) {
+    }
+
+    /**
+     * Scan position and totals of a run, as stored in interest_accrual_runs.
+     */
+    public record Checkpoint(LocalDate runDate, String lastAccountID, long accounts, Money credited, boolean completed) {
+    }
+
+    public record Result(LocalDate runDate, long accounts, Money credited, long elapsedMillis, boolean resumed) {
+    }
+
+    private record Candidate(String accountID, BigDecimal ratePercent, BigDecimal carried, BigDecimal balance) {
+    }
+
+    /**
+     * Accrues each day at {@code runAt} for the day before.
+     */
+    public void scheduleDaily(LocalTime runAt) {
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "interest-accrual");
+            thread.setDaemon(true);
+            return thread;
+        });
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime next = now.toLocalDate().atTime(runAt);
+        if (!next.isAfter(now)) {
+            next = next.plusDays(1);
+        }
+        scheduler.scheduleAtFixedRate(() -> {
+            if (!tryStart()) {
+                return;
+            }
+            try {
+                run(LocalDate.now().minusDays(1));
+            } catch (Exception e) {
+                // logged and counted by the run
+            }
+        }, Duration.between(now, next).toMillis(), TimeUnit.DAYS.toMillis(1), TimeUnit.MILLISECONDS);
+    }
+
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Claims the engine for one run; false if a run is already in progress.
+     */
+    public boolean tryStart() {
+        return running.compareAndSet(false, true);
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    /**
+     * Accrues one day of interest on every Saving account, resuming an interrupted run of the
+     * same date. The caller must have claimed the engine with {@link #tryStart}.
+     */
+    public Result run(LocalDate date) throws SQLException {
+        if (!running.get()) {
+            throw new IllegalStateException("Interest accrual was not started");
+        }
+        long started = System.nanoTime();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            Checkpoint checkpoint = loadCheckpoint(date);
+            if (checkpoint != null && checkpoint.completed()) {
+                Log.info("interest", "Interest for {} was already accrued", date);
+                return new Result(date, checkpoint.accounts(), checkpoint.credited(), 0, true);
+            }
+            String after = checkpoint != null ? checkpoint.lastAccountID() : "";
+            long accounts = checkpoint != null ? checkpoint.accounts() : 0;
+            long cents = checkpoint != null ? checkpoint.credited().getCents() : 0;
+            Log.info("interest", "Accruing interest for {}{} on {} workers", date,
+                checkpoint != null ? " from after " + after : "", parallelism);
+
+            boolean more = true;
+            while (more) {
+                // A wave: the next chunks in key order, accrued side by side
+                List<List<Candidate>> wave = new ArrayList<>(parallelism);
+                while (wave.size() < parallelism) {
+                    List<Candidate> chunk = readChunk(date, after);
+                    if (chunk.isEmpty()) {
+                        more = false;
+                        break;
+                    }
+                    wave.add(chunk);
+                    after = chunk.get(chunk.size() - 1).accountID();
+                    if (chunk.size() < chunkSize) {
+                        more = false;
+                        break;
+                    }
+                }
+                List<Callable<long[]>> tasks = new ArrayList<>(wave.size());
+                for (List<Candidate> chunk : wave) {
+                    tasks.add(() -> accrue(date, chunk));
+                }
+                for (Future<long[]> done : pool.invokeAll(tasks)) {
+                    long[] totals = done.get();
+                    accounts += totals[0];
+                    cents += totals[1];
+                }
+                saveCheckpoint(new Checkpoint(date, after, accounts, Money.ofCents(cents), !more));
+            }
+
+            long elapsedMillis = (System.nanoTime() - started) / 1_000_000;
+            Result result = new Result(date, accounts, Money.ofCents(cents), elapsedMillis, checkpoint != null);
+            lastResult = result;
+            runs.increment();
+            Log.info("interest", "Accrued interest for {}: {} account(s), ${} credited in {} ms",
+                date, accounts, result.credited(), elapsedMillis);
+            return result;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failures.increment();
+            throw new IllegalStateException("Interest accrual for " + date + " was interrupted", e);
+        } catch (ExecutionException e) {
+            failures.increment();
+            Throwable cause = e.getCause();
+            Log.error("interest", "Interest accrual for {} failed: {}", date, cause.getMessage());
+            if (cause instanceof SQLException sqlException) {
+                throw sqlException;
+            }
+            throw new IllegalStateException("Interest accrual for " + date + " failed: " + cause.getMessage(), cause);
+        } catch (SQLException | RuntimeException e) {
+            failures.increment();
+            Log.error("interest", "Interest accrual for {} failed: {}", date, e.getMessage());
+            throw e;
+        } finally {
+            pool.shutdown();
+            running.set(false);
+        }
+    }
+
+    private List<Candidate> readChunk(LocalDate date, String after) throws SQLException {
+        Date day = Date.valueOf(date);
+        try (Connection conn = database.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(CHUNK_SQL)) {
+            stmt.setDate(1, day);
+            stmt.setDate(2, day);
+            stmt.setString(3, after);
+            stmt.setTimestamp(4, Timestamp.valueOf(date.plusDays(1).atStartOfDay()));
+            stmt.setDate(5, day);
+            stmt.setInt(6, chunkSize);
+            List<Candidate> chunk = new ArrayList<>(chunkSize);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    BigDecimal carried = rs.getBigDecimal("accrued");
+                    BigDecimal balance = rs.getBigDecimal("day_balance");
+                    chunk.add(new Candidate(rs.getString("account_id"), rs.getBigDecimal("interest_rate"),
+                        carried != null ? carried : BigDecimal.ZERO, balance != null ? balance : BigDecimal.ZERO));
+                }
+            }
+            return chunk;
+        }
+    }
+
+    /**
+     * The day's accrual on {@code balance} at {@code ratePercent} a year, added to what the
+     * account already carried. Negative balances earn nothing.
+     */
+    static Accrual accrual(String accountID, LocalDate date, BigDecimal balance, BigDecimal ratePercent, BigDecimal carried) {
+        BigDecimal total = carried;
+        if (balance.signum() > 0) {
+            BigDecimal daily = balance.multiply(ratePercent)
+                .divide(HUNDRED.multiply(BigDecimal.valueOf(date.lengthOfYear())), CARRY_SCALE, RoundingMode.HALF_EVEN);
+            total = total.add(daily);
+        }
+        BigDecimal whole = total.setScale(2, RoundingMode.DOWN);
+        return new Accrual(accountID, date, total.subtract(whole).setScale(CARRY_SCALE), Money.of(whole));
+    }
+
+    // Returns {accounts accrued, cents credited}
+    private long[] accrue(LocalDate date, List<Candidate> chunk) throws SQLException {
+        long started = System.nanoTime();
+        try {
+            UnitOfWork unitOfWork = database.beginUnitOfWork();
+            long cents = 0;
+            for (Candidate candidate : chunk) {
+                Accrual accrual = accrual(candidate.accountID(), date, candidate.balance(), candidate.ratePercent(),
+                    candidate.carried());
+                if (accrual.credit().isPositive()) {
+                    unitOfWork.credit(candidate.accountID(), accrual.credit());
+                    cents += accrual.credit().getCents();
+                }
+                unitOfWork.saveInterestAccrual(accrual);
+            }
+            unitOfWork.describePosting(Ledger.INTEREST, "interest-" + date, Ledger.GL_INTEREST_EXPENSE);
+            unitOfWork.commit();
+
+            chunks.increment();
+            accountsAccrued.add(chunk.size());
+            centsCredited.add(cents);
+            return new long[] {chunk.size(), cents};
+        } catch (SQLException | RuntimeException e) {
+            CHUNK_TIMER.recordFailure();
+            throw e;
+        } finally {
+            CHUNK_TIMER.record(System.nanoTime() - started);
+        }
+    }
+
+    public Checkpoint loadCheckpoint(LocalDate date) throws SQLException {
+        try (Connection conn = database.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(LOAD_RUN_SQL)) {
+            stmt.setDate(1, Date.valueOf(date));
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
+                }
+                return new Checkpoint(date, rs.getString("last_account_id"), rs.getLong("accounts_accrued"),
+                    Money.of(rs.getBigDecimal("interest_credited")), rs.getTimestamp("completed_at") != null);
+            }
+        }
+    }
+
+    private void saveCheckpoint(Checkpoint checkpoint) throws SQLException {
+        try (Connection conn = database.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(Database.SAVE_INTEREST_RUN_SQL)) {
+            Database.bindInterestRun(stmt, checkpoint);
+            stmt.executeUpdate();
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("running", running.get());
+        metrics.put("parallelism", parallelism);
+        metrics.put("chunkSize", chunkSize);
+        metrics.put("runs", runs.sum());
+        metrics.put("failures", failures.sum());
+        metrics.put("chunks", chunks.sum());
+        metrics.put("accountsAccrued", accountsAccrued.sum());
+        metrics.put("credited", Money.ofCents(centsCredited.sum()));
+        Result result = lastResult;
+        if (result != null) {
+            metrics.put("lastRun", result);
+        }
+        return metrics;
+    }
+}
@@ -0,0 +1,76 @@
+package bank;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-size log-linear histogram of microsecond latencies in the spirit of HdrHistogram:
+ * exact buckets below 64 µs, then 32 sub-buckets per power of two (about 3% relative
+ * precision) up to roughly 19 hours. Recording is a couple of shifts and one atomic
+ * increment, with no allocation.
+ */
+final class LatencyHistogram {
+    static final int BUCKETS = 64 + 31 * 32;
+    private static final long MAX_MICROS = (64L << 31) - 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    void record(long micros) {
+        counts.incrementAndGet(bucketFor(micros));
+    }
+
+    void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+    }
+
+    /**
+     * Adds this histogram's counts into {@code into} (length {@link #BUCKETS}).
+     */
+    void addTo(long[] into) {
+        for (int i = 0; i < BUCKETS; i++) {
+            into[i] += counts.get(i);
+        }
+    }
+
+    static int bucketFor(long micros) {
+        long value = Math.max(0, Math.min(micros, MAX_MICROS));
+        if (value < 64) {
+            return (int) value;
+        }
+        // value >> shift lands in [32, 63]
+        int shift = 63 - Long.numberOfLeadingZeros(value) - 5;
+        return 64 + (shift - 1) * 32 + (int) (value >> shift) - 32;
+    }
+
+    /**
+     * Highest value that falls into {@code bucket}.
+     */
+    static long upperBound(int bucket) {
+        if (bucket < 64) {
+            return bucket;
+        }
+        int shift = (bucket - 64) / 32 + 1;
+        long subBucket = (bucket - 64) % 32 + 32;
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+    /**
+     * Value at {@code quantile} (0..1) of the given bucket counts, reported as the upper bound
+     * of the bucket it falls in; 0 when empty.
+     */
+    static long valueAtQuantile(long[] buckets, long total, double quantile) {
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            seen += buckets[i];
+            if (seen >= rank) {
+                return upperBound(i);
+            }
+        }
+        return upperBound(buckets.length - 1);
+    }
+}
@@ -0,0 +1,193 @@
+package bank;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency recorder for one endpoint or query: a cumulative histogram plus a ring of
+ * interval histograms that together cover a sliding window (by default the last minute in
+ * 10-second slices), and per-status counters. {@link #record} never allocates; snapshots
+ * merge the buckets on read.
+ */
+public final class LatencyRecorder {
+    private static final int WINDOW_SLICES = 6;
+    private static final long SLICE_NANOS = TimeUnit.SECONDS.toNanos(10);
+    private static final int MAX_STATUS = 600;
+    private static final long ORIGIN = System.nanoTime();
+
+    private final String name;
+    private final LatencyHistogram total = new LatencyHistogram();
+    private final LatencyHistogram[] slices = new LatencyHistogram[WINDOW_SLICES];
+    private final AtomicLongArray sliceEpochs = new AtomicLongArray(WINDOW_SLICES);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sumMicros = new LongAdder();
+    private final LongAccumulator maxMicros = new LongAccumulator(Math::max, 0);
+    private final AtomicLongArray statuses = new AtomicLongArray(MAX_STATUS);
+    private final LongAdder failures = new LongAdder();
+
+    LatencyRecorder(String name) {
+        this.name = name;
+        for (int i = 0; i < WINDOW_SLICES; i++) {
+            slices[i] = new LatencyHistogram();
+            sliceEpochs.set(i, -1);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void record(long nanos) {
+        long micros = nanos / 1_000;
+        total.record(micros);
+        count.increment();
+        sumMicros.add(micros);
+        maxMicros.accumulate(micros);
+
+        long epoch = (System.nanoTime() - ORIGIN) / SLICE_NANOS;
+        int slot = (int) (epoch % WINDOW_SLICES);
+        if (sliceEpochs.get(slot) != epoch) {
+            rotate(slot, epoch);
+        }
+        slices[slot].record(micros);
+    }
+
+    /**
+     * Records a request's latency together with its HTTP status; 4xx/5xx count as failures.
+     */
+    public void record(long nanos, int status) {
+        record(nanos);
+        if (status >= 0 && status < MAX_STATUS) {
+            statuses.incrementAndGet(status);
+        }
+        if (status >= 400) {
+            failures.increment();
+        }
+    }
+
+    public void recordFailure() {
+        failures.increment();
+    }
+
+    // First recorder of a new slice clears what's left from WINDOW_SLICES slices ago
+    private void rotate(int slot, long epoch) {
+        synchronized (slices[slot]) {
+            if (sliceEpochs.get(slot) != epoch) {
+                slices[slot].reset();
+                sliceEpochs.set(slot, epoch);
+            }
+        }
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    public double getSumSeconds() {
+        return sumMicros.sum() / 1_000_000.0;
+    }
+
+    /**
+     * Non-zero HTTP status counts, e.g. {200=120, 404=3}.
+     */
+    public Map<Integer, Long> getStatusCounts() {
+        Map<Integer, Long> counts = new LinkedHashMap<>();
+        for (int status = 0; status < MAX_STATUS; status++) {
+            long n = statuses.get(status);
+            if (n > 0) {
+                counts.put(status, n);
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Buckets of the slices still inside the sliding window.
+     */
+    public Snapshot windowSnapshot() {
+        long current = (System.nanoTime() - ORIGIN) / SLICE_NANOS;
+        long[] buckets = new long[LatencyHistogram.BUCKETS];
+        for (int i = 0; i < WINDOW_SLICES; i++) {
+            long epoch = sliceEpochs.get(i);
+            if (epoch >= 0 && current - epoch < WINDOW_SLICES) {
+                slices[i].addTo(buckets);
+            }
+        }
+        return new Snapshot(buckets);
+    }
+
+    /**
+     * Adds the cumulative bucket counts into {@code into}, e.g. to merge several recorders.
+     */
+    void addTotalTo(long[] into) {
+        total.addTo(into);
+    }
+
+    public Snapshot totalSnapshot() {
+        long[] buckets = new long[LatencyHistogram.BUCKETS];
+        total.addTo(buckets);
+        return new Snapshot(buckets);
+    }
+
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("count", getCount());
+        map.put("failures", getFailures());
+        map.put("meanMillis", getCount() == 0 ? 0.0 : sumMicros.sum() / 1_000.0 / getCount());
+        map.put("maxMillis", maxMicros.get() / 1_000.0);
+        map.put("total", totalSnapshot().toMap());
+        map.put("window", windowSnapshot().toMap());
+        Map<Integer, Long> statusCounts = getStatusCounts();
+        if (!statusCounts.isEmpty()) {
+            map.put("statuses", statusCounts);
+        }
+        return map;
+    }
+
+    public static long windowSeconds() {
+        return TimeUnit.NANOSECONDS.toSeconds(SLICE_NANOS * WINDOW_SLICES);
+    }
+
+    /**
+     * Merged bucket counts at one point in time.
+     */
+    public static final class Snapshot {
+        private final long[] buckets;
+        private final long count;
+
+        private Snapshot(long[] buckets) {
+            this.buckets = buckets;
+            long n = 0;
+            for (long bucket : buckets) {
+                n += bucket;
+            }
+            this.count = n;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public double quantileMillis(double quantile) {
+            return LatencyHistogram.valueAtQuantile(buckets, count, quantile) / 1_000.0;
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("count", count);
+            map.put("p50Millis", quantileMillis(0.50));
+            map.put("p90Millis", quantileMillis(0.90));
+            map.put("p99Millis", quantileMillis(0.99));
+            map.put("p999Millis", quantileMillis(0.999));
+            return map;
+        }
+    }
+}
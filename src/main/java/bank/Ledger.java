@@ -0,0 +1,549 @@
+package bank;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Double-entry ledger behind account balances. Every balance change is a posting: a set of
+ * signed ledger_entries rows (positive increases the account's balance) that sums to zero,
+ * written append-only in the unit of work's commit. Money leaving or entering the bank is
+ * balanced against the bank's own GL-* accounts.
+ *
+ * Current balances live in an in-memory position per account, loaded once from the latest
+ * ledger_snapshots row plus the entries after it and then kept up to date by the commits, so
+ * reads are a map lookup. The funds check runs against that position while the account's
+ * {@link AccountLockManager} stripe is held through the commit, instead of a row lock on
+ * accounts. A background thread snapshots changed accounts and copies their balance into
+ * accounts.balance, which is now a projection for SQL readers.
+ *
+ * Positions are only correct while this process is the sole writer of the ledger, as with the
+ * in-process locks they rely on.
+ */
+public final class Ledger {
+    public static final String TRANSFER = "TransferFunds";
+    public static final String ETRANSFER = "ETransfer";
+    public static final String LOAN_DISBURSEMENT = "LoanDisbursement";
+    public static final String OPENING_BALANCE = "OpeningBalance";
+    public static final String ADJUSTMENT = "Adjustment";
+    public static final String INTEREST = "Interest";
+
+    public static final String GL_EXTERNAL_TRANSFERS = "GL-EXTERNAL-TRANSFERS";
+    public static final String GL_LOANS = "GL-LOANS";
+    public static final String GL_OPENING_BALANCES = "GL-OPENING-BALANCES";
+    public static final String GL_INTEREST_EXPENSE = "GL-INTEREST-EXPENSE";
+    private static final String GL_PREFIX = "GL-";
+
+    private static final String LATEST_SNAPSHOT_SQL = "SELECT entry_sequence, balance FROM ledger_snapshots " +
+        "WHERE account_id = ? ORDER BY entry_sequence DESC LIMIT 1";
+    private static final String ENTRIES_SINCE_SQL = "SELECT COALESCE(SUM(amount), 0) AS total, COUNT(*) AS entries, " +
+        "COALESCE(MAX(entry_sequence), 0) AS last_sequence FROM ledger_entries WHERE account_id = ? AND entry_sequence > ?";
+    private static final String STORED_BALANCE_SQL = "SELECT balance FROM accounts WHERE account_id = ?";
+    private static final String MAX_SEQUENCE_SQL = "SELECT COALESCE(MAX(entry_sequence), 0) FROM ledger_entries";
+    private static final String TRIAL_BALANCE_SQL = "SELECT COALESCE(SUM(amount), 0) AS total, COUNT(*) AS entries FROM ledger_entries";
+
+    private static final LatencyRecorder LOAD_TIMER = Metrics.db("ledger.load");
+    private static final LatencyRecorder SNAPSHOT_TIMER = Metrics.db("ledger.snapshot");
+
+    private final Database database;
+    private final AccountLockManager locks;
+    private final long snapshotIntervalMillis;
+    private final int snapshotEveryEntries;
+
+    private final ConcurrentHashMap<String, Position> positions = new ConcurrentHashMap<>();
+    private final Set<String> dirty = ConcurrentHashMap.newKeySet();
+    private final AtomicLong sequence = new AtomicLong();
+    private volatile boolean sequenceLoaded;
+
+    private final Semaphore wakeUps = new Semaphore(0);
+    private final Thread snapshotter;
+    private volatile boolean running = true;
+
+    private final LongAdder postings = new LongAdder();
+    private final LongAdder entriesPosted = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder openings = new LongAdder();
+    private final LongAdder snapshots = new LongAdder();
+    private final LongAdder insufficientFunds = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    public Ledger(Database database, AccountLockManager locks, long snapshotIntervalMillis, int snapshotEveryEntries) {
+        this.database = database;
+        this.locks = locks;
+        this.snapshotIntervalMillis = Math.max(1, snapshotIntervalMillis);
+        this.snapshotEveryEntries = Math.max(1, snapshotEveryEntries);
+        this.snapshotter = new Thread(this::snapshotLoop, "ledger-snapshots");
+        this.snapshotter.setDaemon(true);
+    }
+
+    /**
+     * A ledger_entries row.
+     */
+    public record Entry(long sequence, String postingID, String accountID, Money amount, String postingType,
+                        String referenceID, LocalDateTime createdAt) {
+    }
+
+    /**
+     * Balanced entries prepared by {@link #prepare}, with the balances they lead to.
+     */
+    public static final class Posting {
+        private final List<Entry> entries;
+        private final Map<String, Money> balancesAfter;
+
+        private Posting(List<Entry> entries, Map<String, Money> balancesAfter) {
+            this.entries = entries;
+            this.balancesAfter = balancesAfter;
+        }
+
+        public List<Entry> getEntries() {
+            return entries;
+        }
+
+        public List<BalanceHistory.DailyBalance> getDailyBalances() {
+            return BalanceHistory.forEntries(entries, balancesAfter);
+        }
+    }
+
+    // Guarded by the account's stripe lock, except balance, which readers see without it
+    private static final class Position {
+        volatile Money balance;
+        long lastSequence;
+        long snapshotSequence;
+        int sinceSnapshot;
+
+        Position(Money balance, long lastSequence, long snapshotSequence, int sinceSnapshot) {
+            this.balance = balance;
+            this.lastSequence = lastSequence;
+            this.snapshotSequence = snapshotSequence;
+            this.sinceSnapshot = sinceSnapshot;
+        }
+    }
+
+    public static boolean isGeneralLedgerAccount(String accountID) {
+        return accountID.startsWith(GL_PREFIX);
+    }
+
+    public void start() {
+        snapshotter.start();
+    }
+
+    /**
+     * Stops the snapshot thread after a last snapshot of everything changed.
+     */
+    public void shutdown() {
+        running = false;
+        wakeUps.release();
+        try {
+            snapshotter.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Current balance of a customer account. {@code stored} is its accounts.balance if the
+     * caller already read it, used only to open an account the ledger has never seen.
+     * Must not be called while holding a connection.
+     */
+    @SuppressWarnings("try")
+    public Money balance(String accountID, Money stored) throws SQLException {
+        Position position = positions.get(accountID);
+        if (position != null) {
+            return position.balance;
+        }
+        try (AccountLockManager.Lease lease = locks.lock(accountID)) {
+            return position(accountID, stored).balance;
+        }
+    }
+
+    /**
+     * Locks the customer accounts of a posting, for {@link #prepare} through {@link #committed}.
+     */
+    public AccountLockManager.Lease lock(Collection<String> accountIDs) {
+        return locks.lock(accountIDs.stream().filter(id -> !isGeneralLedgerAccount(id)).toArray(String[]::new));
+    }
+
+    /**
+     * Builds the entries for {@code deltas} (signed, by account), balancing any remainder against
+     * {@code contraAccountID}, and checks that no debited account goes below zero. Caller holds
+     * {@link #lock} on the accounts.
+     */
+    public Posting prepare(Map<String, Money> deltas, String postingType, String referenceID, String contraAccountID)
+            throws SQLException {
+        ensureSequence();
+        Map<String, Money> balancesAfter = new LinkedHashMap<>();
+        Money net = null;
+        for (Map.Entry<String, Money> delta : deltas.entrySet()) {
+            Money amount = delta.getValue();
+            net = net == null ? amount : net.plus(amount);
+            if (isGeneralLedgerAccount(delta.getKey())) {
+                continue;
+            }
+            Money after = position(delta.getKey(), null).balance.plus(amount);
+            if (amount.isNegative() && after.isNegative()) {
+                insufficientFunds.increment();
+                throw new IllegalStateException("Insufficient funds in account " + delta.getKey());
+            }
+            balancesAfter.put(delta.getKey(), after);
+        }
+        return new Posting(entries(deltas, net, postingType, referenceID, contraAccountID), balancesAfter);
+    }
+
+    private List<Entry> entries(Map<String, Money> deltas, Money net, String postingType, String referenceID,
+                                String contraAccountID) {
+        String postingID = UUID.randomUUID().toString();
+        LocalDateTime now = LocalDateTime.now();
+        List<Entry> entries = new ArrayList<>(deltas.size() + 1);
+        for (Map.Entry<String, Money> delta : deltas.entrySet()) {
+            if (!delta.getValue().isZero()) {
+                entries.add(new Entry(sequence.incrementAndGet(), postingID, delta.getKey(), delta.getValue(),
+                    postingType, referenceID, now));
+            }
+        }
+        if (net != null && !net.isZero()) {
+            if (contraAccountID == null) {
+                throw new IllegalStateException("Unbalanced " + postingType + " posting: " + net + " has no contra account");
+            }
+            entries.add(new Entry(sequence.incrementAndGet(), postingID, contraAccountID, net.negate(),
+                postingType, referenceID, now));
+        }
+        return entries;
+    }
+
+    /**
+     * Moves the positions forward after the posting's commit. Caller still holds the locks.
+     */
+    public void committed(Posting posting) {
+        boolean wake = false;
+        for (Entry entry : posting.entries) {
+            Position position = positions.get(entry.accountID());
+            if (position == null) {
+                continue;
+            }
+            position.balance = posting.balancesAfter.get(entry.accountID());
+            position.lastSequence = entry.sequence();
+            position.sinceSnapshot++;
+            dirty.add(entry.accountID());
+            wake |= position.sinceSnapshot >= snapshotEveryEntries;
+        }
+        postings.increment();
+        entriesPosted.add(posting.entries.size());
+        if (wake && wakeUps.availablePermits() == 0) {
+            wakeUps.release();
+        }
+    }
+
+    /**
+     * Forgets the positions a failed posting touched, so they are reloaded from the tables
+     * (the commit may have failed after reaching MySQL). Caller still holds the locks.
+     */
+    public void invalidate(Posting posting) {
+        for (Entry entry : posting.entries) {
+            if (positions.remove(entry.accountID()) != null) {
+                invalidations.increment();
+            }
+        }
+    }
+
+    // Caller holds the account's lock
+    private Position position(String accountID, Money stored) throws SQLException {
+        Position position = positions.get(accountID);
+        if (position == null) {
+            position = load(accountID, stored);
+            positions.put(accountID, position);
+        }
+        return position;
+    }
+
+    // Latest snapshot + entries after it; an account with neither is opened from accounts.balance
+    private Position load(String accountID, Money stored) throws SQLException {
+        long started = System.nanoTime();
+        try (Connection conn = database.getConnection()) {
+            loads.increment();
+            long snapshotSequence = 0;
+            Money snapshotBalance = null;
+            try (PreparedStatement stmt = conn.prepareStatement(LATEST_SNAPSHOT_SQL)) {
+                stmt.setString(1, accountID);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (rs.next()) {
+                        snapshotSequence = rs.getLong("entry_sequence");
+                        snapshotBalance = Money.of(rs.getBigDecimal("balance"));
+                    }
+                }
+            }
+            Money since;
+            int count;
+            long lastSequence;
+            try (PreparedStatement stmt = conn.prepareStatement(ENTRIES_SINCE_SQL)) {
+                stmt.setString(1, accountID);
+                stmt.setLong(2, snapshotSequence);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    rs.next();
+                    since = Money.of(rs.getBigDecimal("total"));
+                    count = rs.getInt("entries");
+                    lastSequence = rs.getLong("last_sequence");
+                }
+            }
+            if (snapshotBalance != null || count > 0) {
+                Money balance = snapshotBalance != null ? snapshotBalance.plus(since) : since;
+                return new Position(balance, Math.max(lastSequence, snapshotSequence), snapshotSequence, count);
+            }
+            return open(conn, accountID, stored);
+        } catch (SQLException | RuntimeException e) {
+            LOAD_TIMER.recordFailure();
+            throw e;
+        } finally {
+            LOAD_TIMER.record(System.nanoTime() - started);
+        }
+    }
+
+    // Posts the balance the account had before the ledger existed against GL-OPENING-BALANCES
+    private Position open(Connection conn, String accountID, Money stored) throws SQLException {
+        Money opening = stored;
+        if (opening == null) {
+            try (PreparedStatement stmt = conn.prepareStatement(STORED_BALANCE_SQL)) {
+                stmt.setString(1, accountID);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    opening = rs.next() && rs.getBigDecimal("balance") != null ? Money.of(rs.getBigDecimal("balance")) : Money.ZERO;
+                }
+            }
+        }
+        if (opening.isZero()) {
+            return new Position(opening, 0, 0, 0);
+        }
+        ensureSequence();
+        List<Entry> entries = entries(Map.of(accountID, opening), opening, OPENING_BALANCE, accountID, GL_OPENING_BALANCES);
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try (PreparedStatement stmt = conn.prepareStatement(Database.SAVE_LEDGER_ENTRY_SQL);
+             PreparedStatement daily = conn.prepareStatement(Database.UPSERT_DAILY_BALANCE_SQL)) {
+            for (Entry entry : entries) {
+                Database.bindLedgerEntry(stmt, entry);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+            for (BalanceHistory.DailyBalance day : BalanceHistory.forEntries(entries, Map.of(accountID, opening))) {
+                Database.bindDailyBalance(daily, day);
+                daily.addBatch();
+            }
+            daily.executeBatch();
+            conn.commit();
+        } catch (SQLException | RuntimeException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+        openings.increment();
+        Log.info("ledger", "Opened ledger for account {} with balance ${}", accountID, opening);
+        return new Position(opening, entries.get(0).sequence(), 0, 1);
+    }
+
+    // Sequences continue from the highest one in ledger_entries; loaded on first use so the
+    // application still starts while MySQL is down
+    private void ensureSequence() throws SQLException {
+        if (sequenceLoaded) {
+            return;
+        }
+        synchronized (sequence) {
+            if (sequenceLoaded) {
+                return;
+            }
+            try (Connection conn = database.getConnection();
+                 PreparedStatement stmt = conn.prepareStatement(MAX_SEQUENCE_SQL);
+                 ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                sequence.set(rs.getLong(1));
+            }
+            sequenceLoaded = true;
+        }
+    }
+
+    private void snapshotLoop() {
+        while (true) {
+            try {
+                wakeUps.tryAcquire(snapshotIntervalMillis, TimeUnit.MILLISECONDS);
+                wakeUps.drainPermits();
+            } catch (InterruptedException e) {
+                running = false;
+            }
+            // Read before the pass: a shutdown() during it leaves commits made after the pass took
+            // its accounts, so one more pass has to follow
+            boolean last = !running;
+            snapshotDirty();
+            if (last) {
+                return;
+            }
+        }
+    }
+
+    private record Snapshot(String accountID, long sequence, Money balance) {
+    }
+
+    // Snapshots every account changed since its last snapshot and refreshes its accounts.balance
+    @SuppressWarnings("try")
+    void snapshotDirty() {
+        if (dirty.isEmpty()) {
+            return;
+        }
+        List<Snapshot> taken = new ArrayList<>();
+        for (String accountID : List.copyOf(dirty)) {
+            dirty.remove(accountID);
+            try (AccountLockManager.Lease lease = locks.lock(accountID)) {
+                Position position = positions.get(accountID);
+                if (position != null && position.lastSequence > position.snapshotSequence) {
+                    taken.add(new Snapshot(accountID, position.lastSequence, position.balance));
+                }
+            }
+        }
+        if (taken.isEmpty()) {
+            return;
+        }
+
+        long started = System.nanoTime();
+        try {
+            writeSnapshots(taken);
+        } catch (SQLException | RuntimeException e) {
+            SNAPSHOT_TIMER.recordFailure();
+            Log.error("ledger", "Writing {} ledger snapshot(s) failed: {}", taken.size(), e.getMessage());
+            taken.forEach(snapshot -> dirty.add(snapshot.accountID()));
+            return;
+        } finally {
+            SNAPSHOT_TIMER.record(System.nanoTime() - started);
+        }
+
+        for (Snapshot snapshot : taken) {
+            try (AccountLockManager.Lease lease = locks.lock(snapshot.accountID())) {
+                Position position = positions.get(snapshot.accountID());
+                if (position != null && position.snapshotSequence < snapshot.sequence()) {
+                    position.snapshotSequence = snapshot.sequence();
+                    position.sinceSnapshot = position.lastSequence == snapshot.sequence() ? 0 : position.sinceSnapshot;
+                }
+            }
+        }
+        snapshots.add(taken.size());
+    }
+
+    private void writeSnapshots(List<Snapshot> taken) throws SQLException {
+        LocalDateTime now = LocalDateTime.now();
+        try (Connection conn = database.getConnection()) {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try (PreparedStatement insert = conn.prepareStatement(Database.SAVE_LEDGER_SNAPSHOT_SQL);
+                 PreparedStatement projection = conn.prepareStatement(Database.UPDATE_BALANCE_PROJECTION_SQL)) {
+                for (Snapshot snapshot : taken) {
+                    Database.bindLedgerSnapshot(insert, snapshot.accountID(), snapshot.sequence(), snapshot.balance(), now);
+                    insert.addBatch();
+                    projection.setBigDecimal(1, snapshot.balance().toBigDecimal());
+                    projection.setString(2, snapshot.accountID());
+                    projection.addBatch();
+                }
+                insert.executeBatch();
+                projection.executeBatch();
+                conn.commit();
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        }
+    }
+
+    /**
+     * Rebuilds an account's balance from all of its ledger entries and compares it with the
+     * cached position and the latest snapshot. With {@code rebuild}, the replayed balance
+     * replaces the position, is written as a new snapshot and copied to accounts.balance.
+     */
+    @SuppressWarnings("try")
+    public Map<String, Object> replay(String accountID, boolean rebuild) throws SQLException {
+        boolean generalLedger = isGeneralLedgerAccount(accountID);
+        try (AccountLockManager.Lease lease = generalLedger ? null : locks.lock(accountID)) {
+            Money replayed;
+            int count;
+            long lastSequence;
+            Money snapshotBased = null;
+            try (Connection conn = database.getConnection()) {
+                try (PreparedStatement stmt = conn.prepareStatement(ENTRIES_SINCE_SQL)) {
+                    stmt.setString(1, accountID);
+                    stmt.setLong(2, 0);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        rs.next();
+                        replayed = Money.of(rs.getBigDecimal("total"));
+                        count = rs.getInt("entries");
+                        lastSequence = rs.getLong("last_sequence");
+                    }
+                }
+            }
+            if (!generalLedger && count > 0) {
+                snapshotBased = load(accountID, null).balance;
+            }
+
+            Position cached = positions.get(accountID);
+            Map<String, Object> report = new LinkedHashMap<>();
+            report.put("accountID", accountID);
+            report.put("entries", count);
+            report.put("lastSequence", lastSequence);
+            report.put("replayedBalance", replayed);
+            report.put("snapshotBalance", snapshotBased);
+            report.put("cachedBalance", cached != null ? cached.balance : null);
+            report.put("consistent", (snapshotBased == null || snapshotBased.equals(replayed))
+                && (cached == null || cached.balance.equals(replayed)));
+
+            if (rebuild && !generalLedger && count > 0) {
+                writeSnapshots(List.of(new Snapshot(accountID, lastSequence, replayed)));
+                positions.put(accountID, new Position(replayed, lastSequence, lastSequence, 0));
+                snapshots.increment();
+                report.put("rebuilt", true);
+                Log.warn("ledger", "Rebuilt ledger position of {} from {} entries: ${}", accountID, count, replayed);
+            }
+            return report;
+        }
+    }
+
+    /**
+     * Sum of every ledger entry; zero unless a posting was unbalanced.
+     */
+    public Map<String, Object> trialBalance() throws SQLException {
+        try (Connection conn = database.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(TRIAL_BALANCE_SQL);
+             ResultSet rs = stmt.executeQuery()) {
+            rs.next();
+            Money total = Money.of(rs.getBigDecimal("total"));
+            Map<String, Object> report = new LinkedHashMap<>();
+            report.put("entries", rs.getLong("entries"));
+            report.put("total", total);
+            report.put("balanced", total.isZero());
+            return report;
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("cachedPositions", positions.size());
+        metrics.put("dirtyPositions", dirty.size());
+        metrics.put("lastSequence", sequenceLoaded ? sequence.get() : null);
+        metrics.put("postings", postings.sum());
+        metrics.put("entries", entriesPosted.sum());
+        metrics.put("positionLoads", loads.sum());
+        metrics.put("openedAccounts", openings.sum());
+        metrics.put("snapshots", snapshots.sum());
+        metrics.put("insufficientFunds", insufficientFunds.sum());
+        metrics.put("invalidations", invalidations.sum());
+        return metrics;
+    }
+}
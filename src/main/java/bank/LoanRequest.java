@@ -10,7 +10,7 @@ import java.util.UUID;
 public class LoanRequest {
     private String loanID;
     private Customer customer;
-    private double amount;
+    private Money amount;
     private String purpose;
     private String proofOfIncome;
     private BankManager reviewedBy;
@@ -18,7 +18,7 @@ public class LoanRequest {
     private LocalDateTime dateSubmitted;
     private LocalDateTime lastUpdated;
 
-    public LoanRequest(Customer customer, double amount, String purpose, String proofOfIncome) {
+    public LoanRequest(Customer customer, Money amount, String purpose, String proofOfIncome) {
         this.loanID = UUID.randomUUID().toString();
         this.customer = customer;
         this.amount = amount;
@@ -33,7 +33,7 @@ public class LoanRequest {
         StringBuilder details = new StringBuilder();
         details.append("Loan ID: ").append(loanID).append("\n");
         details.append("Customer: ").append(customer.getUserName()).append("\n");
-        details.append("Amount: $").append(String.format("%.2f", amount)).append("\n");
+        details.append("Amount: $").append(amount).append("\n");
         details.append("Purpose: ").append(purpose).append("\n");
         details.append("Status: ").append(status).append("\n");
         details.append("Submitted: ").append(dateSubmitted).append("\n");
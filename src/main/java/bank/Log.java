@@ -0,0 +1,91 @@
+package bank;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.LoggerContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Application log on top of SLF4J. A category logs through the logger "bank.<category>", so its
+ * level is set like any other (logging.level.bank=INFO, logging.level.bank.db=DEBUG). Output is
+ * set up in logback-spring.xml: JSON lines written by an AsyncAppender, so request threads only
+ * enqueue the event.
+ *
+ * Messages use "{}" placeholders; a trailing Throwable is logged with its stack trace.
+ */
+public final class Log {
+    private static final String ROOT = "bank";
+    private static final String ASYNC_APPENDER = "ASYNC";
+
+    private static final Map<String, Logger> loggers = new ConcurrentHashMap<>();
+    // Copy-on-write: replaced wholesale by configure()
+    private static volatile Map<String, Double> sampleRates = Map.of();
+    private static final LongAdder sampledOut = new LongAdder();
+
+    private Log() {
+    }
+
+    /**
+     * @param sampleRates per-category fraction (0..1) of DEBUG/INFO events to keep;
+     *                    categories not listed keep everything. WARN and ERROR are never sampled.
+     */
+    public static void configure(Map<String, Double> sampleRates) {
+        Log.sampleRates = Map.copyOf(sampleRates);
+    }
+
+    public static void debug(String category, String template, Object... args) {
+        Logger logger = logger(category);
+        if (logger.isDebugEnabled() && sampled(category)) {
+            logger.debug(template, args);
+        }
+    }
+
+    public static void info(String category, String template, Object... args) {
+        Logger logger = logger(category);
+        if (logger.isInfoEnabled() && sampled(category)) {
+            logger.info(template, args);
+        }
+    }
+
+    public static void warn(String category, String template, Object... args) {
+        logger(category).warn(template, args);
+    }
+
+    public static void error(String category, String template, Object... args) {
+        logger(category).error(template, args);
+    }
+
+    private static Logger logger(String category) {
+        return loggers.computeIfAbsent(category, name -> LoggerFactory.getLogger(ROOT + "." + name));
+    }
+
+    private static boolean sampled(String category) {
+        Double rate = sampleRates.get(category);
+        if (rate == null || rate >= 1.0 || ThreadLocalRandom.current().nextDouble() < rate) {
+            return true;
+        }
+        sampledOut.increment();
+        return false;
+    }
+
+    public static Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("sampleRates", sampleRates);
+        metrics.put("sampledOut", sampledOut.sum());
+        if (LoggerFactory.getILoggerFactory() instanceof LoggerContext context) {
+            metrics.put("level", String.valueOf(context.getLogger(ROOT).getEffectiveLevel()));
+            if (context.getLogger(Logger.ROOT_LOGGER_NAME).getAppender(ASYNC_APPENDER) instanceof AsyncAppender async) {
+                metrics.put("queueSize", async.getQueueSize());
+                metrics.put("pending", async.getNumberOfElementsInQueue());
+                metrics.put("remainingCapacity", async.getRemainingCapacity());
+            }
+        }
+        return metrics;
+    }
+}
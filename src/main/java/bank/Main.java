@@ -1,5 +1,7 @@
 package bank;
 
+import java.math.BigDecimal;
+
 public class Main {
     public static void main(String[] args) {
         // New customer with proper User constructor
@@ -14,9 +16,9 @@ public class Main {
         System.out.println();
 
         // Making different accounts
-        Card card = new Card("CARD001", customer, 1000.0);
-        Check check = new Check("CHECK001", customer, 500.0);
-        Saving saving = new Saving("SAVING001", customer, 2000.0, 0.02);
+        Card card = new Card("CARD001", customer, Money.ofCents(100_000));
+        Check check = new Check("CHECK001", customer, Money.ofCents(50_000));
+        Saving saving = new Saving("SAVING001", customer, Money.ofCents(200_000), new BigDecimal("2.00"));
 
         // Test account operations
         System.out.println("Card balance: $" + card.getBalance());
@@ -39,7 +41,7 @@ public class Main {
 
         // Test transfer funds
         try {
-            customer.transferFunds(card, saving, 100.0);
+            customer.transferFunds(card, saving, Money.ofCents(10_000));
             System.out.println("Transfer completed!");
             System.out.println("Card balance: $" + card.getBalance());
             System.out.println("Saving balance: $" + saving.getBalance());
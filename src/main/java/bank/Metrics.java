@@ -0,0 +1,86 @@
+package bank;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of latency recorders, grouped as "http" (one per method + route, fed by
+ * MetricsFilter) and "db" (one per Database query method). Callers keep the recorder they
+ * get back, so the hot path is a field read plus {@link LatencyRecorder#record}.
+ */
+public final class Metrics {
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private static final ConcurrentHashMap<String, LatencyRecorder> http = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, LatencyRecorder> db = new ConcurrentHashMap<>();
+
+    private Metrics() {
+    }
+
+    public static LatencyRecorder http(String endpoint) {
+        return http.computeIfAbsent(endpoint, LatencyRecorder::new);
+    }
+
+    public static LatencyRecorder db(String query) {
+        return db.computeIfAbsent(query, LatencyRecorder::new);
+    }
+
+    public static Map<String, Object> toMap() {
+        Map<String, Object> map = new TreeMap<>();
+        map.put("windowSeconds", LatencyRecorder.windowSeconds());
+        map.put("http", toMap(http));
+        map.put("db", toMap(db));
+        return map;
+    }
+
+    private static Map<String, Object> toMap(Map<String, LatencyRecorder> recorders) {
+        Map<String, Object> map = new TreeMap<>();
+        recorders.forEach((name, recorder) -> map.put(name, recorder.toMap()));
+        return map;
+    }
+
+    /**
+     * Prometheus text exposition: summaries whose quantiles cover the sliding window and whose
+     * _count/_sum are cumulative, plus per-status request counters.
+     */
+    public static String toPrometheus() {
+        StringBuilder out = new StringBuilder(4096);
+        writeSummary(out, "bank_http_request_duration_seconds", "endpoint", http);
+        out.append("# HELP bank_http_requests_total HTTP requests by endpoint and status\n");
+        out.append("# TYPE bank_http_requests_total counter\n");
+        new TreeMap<>(http).forEach((name, recorder) ->
+            recorder.getStatusCounts().forEach((status, count) ->
+                out.append("bank_http_requests_total{endpoint=\"").append(escape(name))
+                   .append("\",status=\"").append(status).append("\"} ").append(count).append('\n')));
+        writeSummary(out, "bank_db_query_duration_seconds", "query", db);
+        out.append("# HELP bank_db_query_failures_total Database query methods that threw\n");
+        out.append("# TYPE bank_db_query_failures_total counter\n");
+        new TreeMap<>(db).forEach((name, recorder) ->
+            out.append("bank_db_query_failures_total{query=\"").append(escape(name)).append("\"} ")
+               .append(recorder.getFailures()).append('\n'));
+        return out.toString();
+    }
+
+    private static void writeSummary(StringBuilder out, String metric, String label, Map<String, LatencyRecorder> recorders) {
+        out.append("# HELP ").append(metric).append(" Latency; quantiles over the last ")
+           .append(LatencyRecorder.windowSeconds()).append(" s\n");
+        out.append("# TYPE ").append(metric).append(" summary\n");
+        new TreeMap<>(recorders).forEach((name, recorder) -> {
+            String labels = label + "=\"" + escape(name) + "\"";
+            LatencyRecorder.Snapshot window = recorder.windowSnapshot();
+            for (double quantile : QUANTILES) {
+                out.append(metric).append('{').append(labels).append(",quantile=\"").append(quantile).append("\"} ")
+                   .append(String.format(Locale.ROOT, "%.6f", window.quantileMillis(quantile) / 1_000.0)).append('\n');
+            }
+            out.append(metric).append("_count{").append(labels).append("} ").append(recorder.getCount()).append('\n');
+            out.append(metric).append("_sum{").append(labels).append("} ")
+               .append(String.format(Locale.ROOT, "%.6f", recorder.getSumSeconds())).append('\n');
+        });
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
@@ -0,0 +1,161 @@
+package bank;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Currency;
+
+/**
+ * Immutable amount of money: a long count of minor units (cents) plus a currency. Arithmetic
+ * and comparisons are exact long operations; BigDecimal only appears at the edges (JDBC
+ * DECIMAL columns, JSON numbers and request parsing). Serialized to JSON as a plain decimal
+ * number such as 12.50, so API payloads keep their shape.
+ */
+public final class Money implements Comparable<Money> {
+    public static final Currency DEFAULT_CURRENCY = Currency.getInstance("CAD");
+    public static final Money ZERO = new Money(0, DEFAULT_CURRENCY);
+
+    private final long cents;
+    private final Currency currency;
+
+    private Money(long cents, Currency currency) {
+        this.cents = cents;
+        this.currency = currency;
+    }
+
+    public static Money ofCents(long cents) {
+        return cents == 0 ? ZERO : new Money(cents, DEFAULT_CURRENCY);
+    }
+
+    public static Money ofCents(long cents, Currency currency) {
+        if (currency == null) {
+            throw new IllegalArgumentException("Currency is required");
+        }
+        return cents == 0 && currency == DEFAULT_CURRENCY ? ZERO : new Money(cents, currency);
+    }
+
+    /**
+     * Exact conversion; amounts with more decimals than the currency allows are rejected
+     * rather than rounded.
+     */
+    @JsonCreator
+    public static Money of(BigDecimal amount) {
+        return of(amount, DEFAULT_CURRENCY);
+    }
+
+    public static Money of(BigDecimal amount, Currency currency) {
+        if (amount == null) {
+            throw new IllegalArgumentException("Amount is required");
+        }
+        try {
+            BigDecimal scaled = amount.setScale(currency.getDefaultFractionDigits(), RoundingMode.UNNECESSARY);
+            return ofCents(scaled.unscaledValue().longValueExact(), currency);
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Invalid amount: " + amount.toPlainString());
+        }
+    }
+
+    /**
+     * Parses a request value: a JSON number (BigDecimal, Long, Integer) or its string form.
+     */
+    public static Money parse(Object value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Amount is required");
+        }
+        if (value instanceof BigDecimal decimal) {
+            return of(decimal);
+        }
+        if (value instanceof Long || value instanceof Integer) {
+            return of(BigDecimal.valueOf(((Number) value).longValue()));
+        }
+        String text = value.toString().trim();
+        try {
+            return of(new BigDecimal(text));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid amount: " + text);
+        }
+    }
+
+    public long getCents() {
+        return cents;
+    }
+
+    public Currency getCurrency() {
+        return currency;
+    }
+
+    public Money plus(Money other) {
+        requireSameCurrency(other);
+        return ofCents(Math.addExact(cents, other.cents), currency);
+    }
+
+    public Money minus(Money other) {
+        requireSameCurrency(other);
+        return ofCents(Math.subtractExact(cents, other.cents), currency);
+    }
+
+    public Money negate() {
+        return ofCents(Math.negateExact(cents), currency);
+    }
+
+    public boolean isPositive() {
+        return cents > 0;
+    }
+
+    public boolean isNegative() {
+        return cents < 0;
+    }
+
+    public boolean isZero() {
+        return cents == 0;
+    }
+
+    public boolean isGreaterThan(Money other) {
+        return compareTo(other) > 0;
+    }
+
+    public boolean isLessThan(Money other) {
+        return compareTo(other) < 0;
+    }
+
+    void requireSameCurrency(Money other) {
+        if (!currency.equals(other.currency)) {
+            throw new IllegalArgumentException("Currency mismatch: " + currency + " vs " + other.currency);
+        }
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        requireSameCurrency(other);
+        return Long.compare(cents, other.cents);
+    }
+
+    @JsonValue
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(cents, currency.getDefaultFractionDigits());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Money other)) {
+            return false;
+        }
+        return cents == other.cents && currency.equals(other.currency);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(cents) * 31 + currency.hashCode();
+    }
+
+    // "12.50", as the log lines and text receipts print it after a "$"
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString();
+    }
+}
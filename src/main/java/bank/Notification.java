@@ -0,0 +1,74 @@
+package bank;
+
+import lombok.Getter;
+import lombok.Setter;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * One outgoing customer message, stored in the notification_outbox table by the same commit
+ * as the transfer it describes and delivered later by {@link NotificationDispatcher}.
+ */
+@Getter
+@Setter
+public class Notification {
+    public static final String CHANNEL_SMS = "SMS";
+    public static final String CHANNEL_EMAIL = "Email";
+
+    private String notificationID;
+    private String channel;
+    private String destination;
+    private String transactionID;
+    private String referenceNumber;
+    private String message;
+    private int attempts;
+    private LocalDateTime createdAt;
+
+    public Notification(String channel, String destination, String transactionID, String referenceNumber, String message) {
+        this.notificationID = UUID.randomUUID().toString();
+        this.channel = channel;
+        this.destination = destination;
+        this.transactionID = transactionID;
+        this.referenceNumber = referenceNumber;
+        this.message = message;
+        this.createdAt = LocalDateTime.now();
+    }
+
+    /**
+     * Canonical channel name for a request's notificationMethod ("sms", "EMAIL", ...), or null
+     * if it names no supported channel.
+     */
+    public static String channelFor(String notificationMethod) {
+        if (notificationMethod == null) {
+            return null;
+        }
+        String method = notificationMethod.trim();
+        if (method.equalsIgnoreCase(CHANNEL_SMS)) {
+            return CHANNEL_SMS;
+        }
+        if (method.equalsIgnoreCase(CHANNEL_EMAIL)) {
+            return CHANNEL_EMAIL;
+        }
+        return null;
+    }
+
+    /**
+     * The recipient's notice for an e-transfer receipt, or null when the receipt asks for no
+     * notification or the recipient has no contact for the chosen channel.
+     */
+    public static Notification forReceipt(Receipt receipt, String transactionID) {
+        String channel = channelFor(receipt.getNotificationMethod());
+        Recipient recipient = receipt.getRecipient();
+        if (channel == null || recipient == null) {
+            return null;
+        }
+        String destination = CHANNEL_SMS.equals(channel) ? recipient.getPhoneNumber() : recipient.getEmail();
+        if (destination == null || destination.isBlank()) {
+            return null;
+        }
+        String sender = receipt.getInitiator() != null ? receipt.getInitiator().getUserName() : "MyBankUML";
+        String message = String.format("You received $%s from %s. Reference: %s",
+            receipt.getAmount(), sender, receipt.getReferenceNumber());
+        return new Notification(channel, destination, transactionID, receipt.getReferenceNumber(), message);
+    }
+}
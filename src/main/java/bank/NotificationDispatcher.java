@@ -0,0 +1,258 @@
+package bank;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Background delivery of the notification outbox. A single daemon thread takes due Pending
+ * rows one channel at a time, hands each channel's batch to its {@link NotificationSender}
+ * and then marks the batch Sent, or schedules a retry with exponential backoff (Failed once
+ * the attempts run out). Requests only insert outbox rows inside their own commit and nudge
+ * this thread, so they never wait on a gateway. The database connection is returned before
+ * a batch is sent. Run one dispatcher per database: rows are not claimed, so two would
+ * deliver the same batch twice.
+ */
+public class NotificationDispatcher {
+    private static final String FETCH_DUE_SQL = "SELECT notification_id, destination, transaction_id, reference_number, " +
+            "message, attempts, created_at FROM notification_outbox " +
+            "WHERE status = 'Pending' AND channel = ? AND next_attempt_at <= ? " +
+            "ORDER BY next_attempt_at, created_at LIMIT ?";
+    private static final String MARK_SENT_SQL = "UPDATE notification_outbox SET status = 'Sent', attempts = attempts + 1, " +
+            "sent_at = ?, last_error = NULL WHERE notification_id = ?";
+    private static final String MARK_RETRY_SQL = "UPDATE notification_outbox SET status = ?, attempts = ?, " +
+            "next_attempt_at = ?, last_error = ? WHERE notification_id = ?";
+    private static final int MAX_ERROR_LENGTH = 255;
+
+    private final Database database;
+    private final Map<String, NotificationSender> senders;
+    private final int batchSize;
+    private final long pollIntervalMillis;
+    private final int maxAttempts;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+
+    private final Semaphore wakeups = new Semaphore(0);
+    private volatile boolean running;
+    private Thread worker;
+
+    private final Map<String, LatencyRecorder> sendTimers = new LinkedHashMap<>();
+    private final LatencyRecorder deliveryLag = new LatencyRecorder("notifications.deliveryLag");
+    private final ConcurrentHashMap<String, LongAdder> sentByChannel = new ConcurrentHashMap<>();
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder retried = new LongAdder();
+    private final LongAdder abandoned = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder pollFailures = new LongAdder();
+
+    public NotificationDispatcher(Database database, Map<String, NotificationSender> senders, int batchSize,
+                                  long pollIntervalMillis, int maxAttempts, long initialBackoffMillis, long maxBackoffMillis) {
+        if (batchSize <= 0 || maxAttempts <= 0) {
+            throw new IllegalArgumentException("batchSize and maxAttempts must be positive");
+        }
+        this.database = database;
+        this.senders = new LinkedHashMap<>(senders);
+        this.batchSize = batchSize;
+        this.pollIntervalMillis = pollIntervalMillis;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffMillis = initialBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+        for (String channel : this.senders.keySet()) {
+            sendTimers.put(channel, new LatencyRecorder("notifications.send." + channel));
+            sentByChannel.put(channel, new LongAdder());
+        }
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        worker = new Thread(this::run, "notification-dispatcher");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Asks the dispatcher to look for due rows now instead of at its next poll. Cheap and
+     * non-blocking; called after a commit that wrote outbox rows.
+     */
+    public void wakeUp() {
+        if (wakeups.availablePermits() == 0) {
+            wakeups.release();
+        }
+    }
+
+    public synchronized void shutdown() {
+        running = false;
+        if (worker != null) {
+            worker.interrupt();
+            try {
+                worker.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            worker = null;
+        }
+    }
+
+    private void run() {
+        while (running) {
+            boolean backlog = false;
+            for (Map.Entry<String, NotificationSender> entry : senders.entrySet()) {
+                try {
+                    backlog |= dispatchBatch(entry.getKey(), entry.getValue());
+                } catch (SQLException | RuntimeException e) {
+                    pollFailures.increment();
+                    Log.warn("notification", "Outbox poll for {} failed: {}", entry.getKey(), e.getMessage());
+                }
+            }
+            if (backlog) {
+                continue; // a full batch came back; drain before sleeping
+            }
+            try {
+                wakeups.tryAcquire(pollIntervalMillis, TimeUnit.MILLISECONDS);
+                wakeups.drainPermits();
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    // Sends one batch for the channel; true if the batch was full and more may be due
+    private boolean dispatchBatch(String channel, NotificationSender sender) throws SQLException {
+        List<Notification> batch = fetchDue(channel);
+        if (batch.isEmpty()) {
+            return false;
+        }
+        batches.increment();
+
+        LatencyRecorder timer = sendTimers.get(channel);
+        long started = System.nanoTime();
+        try {
+            sender.send(batch);
+        } catch (Exception e) {
+            timer.recordFailure();
+            timer.record(System.nanoTime() - started);
+            Log.warn("notification", "{} batch of {} failed: {}", channel, batch.size(), e.getMessage());
+            scheduleRetries(batch, e);
+            return false;
+        }
+        timer.record(System.nanoTime() - started);
+
+        markSent(batch);
+        LocalDateTime now = LocalDateTime.now();
+        for (Notification notification : batch) {
+            deliveryLag.record(Duration.between(notification.getCreatedAt(), now).toNanos());
+        }
+        sent.add(batch.size());
+        sentByChannel.get(channel).add(batch.size());
+        Log.debug("notification", "Sent {} {} notification(s)", batch.size(), channel);
+        return batch.size() == batchSize;
+    }
+
+    private List<Notification> fetchDue(String channel) throws SQLException {
+        List<Notification> batch = new ArrayList<>();
+        try (Connection conn = database.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(FETCH_DUE_SQL)) {
+            stmt.setString(1, channel);
+            stmt.setTimestamp(2, Timestamp.valueOf(LocalDateTime.now()));
+            stmt.setInt(3, batchSize);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    Notification notification = new Notification(channel, rs.getString("destination"),
+                        rs.getString("transaction_id"), rs.getString("reference_number"), rs.getString("message"));
+                    notification.setNotificationID(rs.getString("notification_id"));
+                    notification.setAttempts(rs.getInt("attempts"));
+                    notification.setCreatedAt(rs.getTimestamp("created_at").toLocalDateTime());
+                    batch.add(notification);
+                }
+            }
+        }
+        return batch;
+    }
+
+    private void markSent(List<Notification> batch) throws SQLException {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        try (Connection conn = database.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(MARK_SENT_SQL)) {
+            for (Notification notification : batch) {
+                stmt.setTimestamp(1, now);
+                stmt.setString(2, notification.getNotificationID());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    private void scheduleRetries(List<Notification> batch, Exception cause) throws SQLException {
+        String error = String.valueOf(cause.getMessage());
+        if (error.length() > MAX_ERROR_LENGTH) {
+            error = error.substring(0, MAX_ERROR_LENGTH);
+        }
+        LocalDateTime now = LocalDateTime.now();
+        try (Connection conn = database.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(MARK_RETRY_SQL)) {
+            for (Notification notification : batch) {
+                int attempts = notification.getAttempts() + 1;
+                boolean giveUp = attempts >= maxAttempts;
+                stmt.setString(1, giveUp ? "Failed" : "Pending");
+                stmt.setInt(2, attempts);
+                stmt.setTimestamp(3, Timestamp.valueOf(now.plus(Duration.ofMillis(backoffMillis(attempts)))));
+                stmt.setString(4, error);
+                stmt.setString(5, notification.getNotificationID());
+                stmt.addBatch();
+                if (giveUp) {
+                    abandoned.increment();
+                } else {
+                    retried.increment();
+                }
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    // initial * 2^(attempts - 1), capped, with +/-20% jitter so failed batches spread out
+    long backoffMillis(int attempts) {
+        long delay = initialBackoffMillis << Math.min(attempts - 1, 30);
+        if (delay <= 0 || delay > maxBackoffMillis) {
+            delay = maxBackoffMillis;
+        }
+        double jitter = 0.8 + ThreadLocalRandom.current().nextDouble() * 0.4;
+        return (long) (delay * jitter);
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Long> byChannel = new LinkedHashMap<>();
+        sentByChannel.forEach((channel, count) -> byChannel.put(channel, count.sum()));
+        Map<String, Object> sendTimes = new LinkedHashMap<>();
+        sendTimers.forEach((channel, timer) -> sendTimes.put(channel, timer.toMap()));
+
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("running", running);
+        metrics.put("sent", sent.sum());
+        metrics.put("sentByChannel", byChannel);
+        // Messages per second over the sliding metrics window
+        metrics.put("sentPerSecond", deliveryLag.windowSnapshot().getCount() / (double) LatencyRecorder.windowSeconds());
+        metrics.put("batches", batches.sum());
+        metrics.put("retriesScheduled", retried.sum());
+        metrics.put("abandoned", abandoned.sum());
+        metrics.put("pollFailures", pollFailures.sum());
+        metrics.put("deliveryLag", deliveryLag.toMap());
+        metrics.put("sendTime", sendTimes);
+        return metrics;
+    }
+}
@@ -0,0 +1,17 @@
+package bank;
+
+import java.util.List;
+
+/**
+ * Delivers notifications for one channel (an SMS or email gateway). Called from the
+ * dispatcher thread only, with batches of up to the configured batch size.
+ */
+@FunctionalInterface
+public interface NotificationSender {
+
+    /**
+     * Sends the whole batch. Throwing marks every message in it for a retry, so delivery is
+     * at-least-once and gateways should de-duplicate on {@link Notification#getNotificationID()}.
+     */
+    void send(List<Notification> batch) throws Exception;
+}
@@ -0,0 +1,138 @@
+package bank;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Optional follow-up queries for suspicious query results (e.g. an empty transaction history).
+ * Off by default. When enabled, only a sampled fraction of events runs its probe, on a single
+ * background thread with its own pooled connection, so the request that saw the empty result
+ * never pays for the diagnosis. Findings are kept in a small ring of recent reports exposed
+ * through /api/admin/diagnostics.
+ */
+public class QueryDiagnostics {
+    private static final int MAX_REPORTS = 50;
+    private static final int MAX_PENDING_PROBES = 64;
+
+    private final DataSource dataSource;
+    private volatile boolean enabled;
+    private volatile double sampleRate;
+
+    private final ThreadPoolExecutor executor;
+    private final ConcurrentHashMap<String, LongAdder> emptyResults = new ConcurrentHashMap<>();
+    private final LongAdder probesRun = new LongAdder();
+    private final LongAdder probesDropped = new LongAdder();
+    private final LongAdder probesFailed = new LongAdder();
+    private final ConcurrentLinkedDeque<Map<String, Object>> reports = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger reportCount = new AtomicInteger();
+
+    @FunctionalInterface
+    public interface Probe {
+        Map<String, Object> run(Connection conn) throws SQLException;
+    }
+
+    public QueryDiagnostics(DataSource dataSource, boolean enabled, double sampleRate) {
+        this.dataSource = dataSource;
+        this.sampleRate = clampRate(sampleRate);
+        this.enabled = enabled;
+        // The worker thread is only started on the first submitted probe
+        this.executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(MAX_PENDING_PROBES),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "query-diagnostics");
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                (runnable, pool) -> probesDropped.increment());
+    }
+
+    /**
+     * A disabled instance; empty results are still counted but nothing is ever probed.
+     */
+    public static QueryDiagnostics disabled(DataSource dataSource) {
+        return new QueryDiagnostics(dataSource, false, 0.0);
+    }
+
+    public void configure(boolean enabled, double sampleRate) {
+        this.sampleRate = clampRate(sampleRate);
+        this.enabled = enabled;
+    }
+
+    private static double clampRate(double sampleRate) {
+        return Math.max(0.0, Math.min(1.0, sampleRate));
+    }
+
+    /**
+     * Records that {@code scope} (e.g. "transactionsForAccount") returned nothing for
+     * {@code key} and, if enabled and sampled, schedules {@code probe} in the background.
+     */
+    public void onEmptyResult(String scope, String key, Probe probe) {
+        emptyResults.computeIfAbsent(scope, s -> new LongAdder()).increment();
+        if (!enabled || ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            return;
+        }
+        executor.execute(() -> runProbe(scope, key, probe));
+    }
+
+    private void runProbe(String scope, String key, Probe probe) {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("scope", scope);
+        report.put("key", key);
+        report.put("at", LocalDateTime.now().toString());
+        try (Connection conn = dataSource.getConnection()) {
+            report.put("findings", probe.run(conn));
+            probesRun.increment();
+        } catch (SQLException | RuntimeException e) {
+            report.put("error", e.getMessage());
+            probesFailed.increment();
+        }
+        reports.addFirst(report);
+        if (reportCount.incrementAndGet() > MAX_REPORTS) {
+            reports.pollLast();
+            reportCount.decrementAndGet();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public double getSampleRate() {
+        return sampleRate;
+    }
+
+    public Map<String, Object> getReport() {
+        Map<String, Long> empty = new LinkedHashMap<>();
+        emptyResults.forEach((scope, count) -> empty.put(scope, count.sum()));
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("enabled", enabled);
+        report.put("sampleRate", sampleRate);
+        report.put("emptyResults", empty);
+        report.put("probesRun", probesRun.sum());
+        report.put("probesFailed", probesFailed.sum());
+        report.put("probesDropped", probesDropped.sum());
+        report.put("pendingProbes", executor.getQueue().size());
+        List<Map<String, Object>> recent = new ArrayList<>(reports);
+        report.put("recent", recent);
+        return report;
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -10,7 +10,7 @@ import java.util.UUID;
 public class Receipt {
     private String referenceNumber;
     private LocalDateTime dateTimeIssued;
-    private double amount;
+    private Money amount;
     private Customer initiator;
     private Customer recipientCustomer;
     private Recipient recipient;
@@ -19,7 +19,7 @@ public class Receipt {
     private Bank bank;
     private String notificationMethod;
 
-    public Receipt(Transaction transaction, Account sourceAccount, Account destinationAccount, double amount) {
+    public Receipt(Transaction transaction, Account sourceAccount, Account destinationAccount, Money amount) {
         this.referenceNumber = UUID.randomUUID().toString();
         this.dateTimeIssued = LocalDateTime.now();
         this.amount = amount;
@@ -42,7 +42,7 @@ public class Receipt {
         StringBuilder details = new StringBuilder();
         details.append("Receipt Reference: ").append(referenceNumber).append("\n");
         details.append("Date/Time: ").append(dateTimeIssued).append("\n");
-        details.append("Amount: $").append(String.format("%.2f", amount)).append("\n");
+        details.append("Amount: $").append(amount).append("\n");
         details.append("From: ").append(initiator != null ? initiator.getUserName() : "N/A").append("\n");
         if (recipientCustomer != null) {
             details.append("To: ").append(recipientCustomer.getUserName()).append("\n");
@@ -1,67 +1,45 @@
 package bank;
 
-import java.time.LocalDate;
-import java.time.Month;
-import java.util.HashMap;
-import java.util.Map;
+import java.math.BigDecimal;
 
 public class Saving extends Account {
     private String savingsAccountID;
-    private double interestRate;
-    private int monthlyWithdrawalCount;
+    private BigDecimal interestRate; // annual percent, as in accounts.interest_rate (2.00 = 2%)
     private static final int MAX_MONTHLY_WITHDRAWALS = 5;
-    private static final double MAX_TRANSACTION_LIMIT = 5000.0;
-    private Map<Month, Integer> withdrawalsByMonth;
+    private static final long MAX_TRANSACTION_LIMIT_CENTS = 500_000L; // $5,000.00
+    private static final DebitCounters.Limits LIMITS =
+        new DebitCounters.Limits(MAX_TRANSACTION_LIMIT_CENTS, 0, MAX_MONTHLY_WITHDRAWALS);
 
-    public Saving(String accountID, Customer owner, double initialBalance, double interestRate) {
+    public Saving(String accountID, Customer owner, Money initialBalance, BigDecimal interestRate) {
         super(accountID, owner, initialBalance);
         this.savingsAccountID = accountID;
         this.interestRate = interestRate;
-        this.monthlyWithdrawalCount = 0;
-        this.withdrawalsByMonth = new HashMap<>();
     }
 
     @Override
-    public boolean canDebit(double amount) {
-        if (amount <= 0) {
+    public boolean canDebit(Money amount) {
+        long cents = amount.getCents();
+        if (cents <= 0) {
             return false;
         }
-        if (amount > MAX_TRANSACTION_LIMIT) {
+        if (!currency.equals(amount.getCurrency()) || balanceCents < cents) {
             return false;
         }
-        if (accountBalance < amount) {
-            return false;
-        }
-
-        // Check monthly withdrawal limit
-        Month currentMonth = LocalDate.now().getMonth();
-        int currentMonthWithdrawals = withdrawalsByMonth.getOrDefault(currentMonth, 0);
-        if (currentMonthWithdrawals >= MAX_MONTHLY_WITHDRAWALS) {
-            return false;
-        }
-
-        return true;
+        // Per-withdrawal amount and monthly withdrawal count
+        return withinDebitLimits(amount);
     }
 
     @Override
-    public void debit(double amount) {
-        if (canDebit(amount)) {
-            super.debit(amount);
-            Month currentMonth = LocalDate.now().getMonth();
-            withdrawalsByMonth.put(currentMonth, withdrawalsByMonth.getOrDefault(currentMonth, 0) + 1);
-            monthlyWithdrawalCount = withdrawalsByMonth.get(currentMonth);
-        } else {
-            throw new IllegalStateException("Cannot debit: insufficient funds, limit exceeded, or monthly withdrawal limit reached");
-        }
+    public DebitCounters.Limits getDebitLimits() {
+        return LIMITS;
     }
 
-    public double getInterestRate() {
+    public BigDecimal getInterestRate() {
         return interestRate;
     }
 
     public int getMonthlyWithdrawalCount() {
-        Month currentMonth = LocalDate.now().getMonth();
-        return withdrawalsByMonth.getOrDefault(currentMonth, 0);
+        return DebitCounters.getDefault().usage(accountID).monthDebits();
     }
 
     public void pay() {
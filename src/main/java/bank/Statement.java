@@ -2,6 +2,8 @@ package bank;
 
 import lombok.Getter;
 import lombok.Setter;
+import java.sql.SQLException;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
@@ -15,8 +17,8 @@ public class Statement {
     private Customer customer;
     private List<Account> accounts;
     private List<Transaction> transactions;
-    private double startBalance;
-    private double endBalance;
+    private Money startBalance;
+    private Money endBalance;
     private Bank bank;
     private Branch branch;
     private int year;
@@ -34,11 +36,15 @@ public class Statement {
     }
 
     public void generateStatement() {
-        // Calculate start and end balances
-        startBalance = accounts.stream()
-            .mapToDouble(Account::getBalance)
-            .sum();
+        generateStatement(null);
+    }
 
+    /**
+     * Fills in the period's transactions and balances. With {@code history}, the start and end
+     * balances are the accounts' balances at the end of the previous month and of this one, read
+     * from their daily balance rows; without it both fall back to the current balances.
+     */
+    public void generateStatement(BalanceHistory history) {
         // Collect all transactions for the period
         transactions = accounts.stream()
             .flatMap(account -> account.getTransactions().stream())
@@ -48,10 +54,28 @@ public class Statement {
             })
             .collect(Collectors.toList());
 
-        // Calculate end balance (simplified - in real system would account for all transactions)
-        endBalance = accounts.stream()
-            .mapToDouble(Account::getBalance)
-            .sum();
+        if (history == null) {
+            startBalance = totalBalance();
+            endBalance = totalBalance();
+            return;
+        }
+        LocalDate from = LocalDate.of(year, month, 1);
+        List<String> accountIDs = accounts.stream().map(Account::getAccountID).collect(Collectors.toList());
+        try {
+            BalanceHistory.Period period = history.period(accountIDs, from, from.plusMonths(1).minusDays(1));
+            startBalance = period.openingBalance();
+            endBalance = period.closingBalance();
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not read balance history: " + e.getMessage(), e);
+        }
+    }
+
+    private Money totalBalance() {
+        Money total = Money.ZERO;
+        for (Account account : accounts) {
+            total = total.plus(account.getBalance());
+        }
+        return total;
     }
 
     public String getStatementDetails() {
@@ -65,8 +89,8 @@ public class Statement {
         if (branch != null) {
             details.append("Branch: ").append(branch.getBranchName()).append("\n");
         }
-        details.append("Start Balance: $").append(String.format("%.2f", startBalance)).append("\n");
-        details.append("End Balance: $").append(String.format("%.2f", endBalance)).append("\n");
+        details.append("Start Balance: $").append(startBalance).append("\n");
+        details.append("End Balance: $").append(endBalance).append("\n");
         details.append("Number of Transactions: ").append(transactions.size()).append("\n");
         details.append("Accounts: ").append(accounts.size()).append("\n");
         return details.toString();
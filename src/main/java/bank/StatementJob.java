@@ -0,0 +1,432 @@
+package bank;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Month-end statement run. Customers are split into contiguous user_id ranges and the ranges
+ * are worked on a fork-join pool; each one reads its customers' accounts and their
+ * account_daily_balances rows since the start of the month in a single range query, takes each
+ * account's month-end balance from the last of those days in the month and its opening balance
+ * from the month's net change, and writes the statements and statement_accounts rows in
+ * batches. The daily rows are written with every balance change, with or without the ledger. The rows and a statement_job_partitions
+ * checkpoint commit in one transaction, so a rerun of the same month skips finished ranges;
+ * statement IDs are derived from customer and period, so a range redone after a crash
+ * overwrites its own rows instead of duplicating them.
+ */
+public class StatementJob {
+    private static final String CUSTOMER_IDS_SQL =
+        "SELECT user_id FROM users WHERE user_role = 'customer' ORDER BY user_id";
+    private static final String COMPLETED_PARTITIONS_SQL =
+        "SELECT first_customer_id, last_customer_id FROM statement_job_partitions WHERE job_id = ?";
+    // Every customer in the range with the accounts opened by the end of the month and their
+    // daily balances from the start of the month on, oldest first
+    private static final String PARTITION_SQL =
+        "SELECT u.user_id, a.account_id, a.balance, d.balance_date, d.closing_balance, d.net_change, d.entry_count " +
+        "FROM users u " +
+        "LEFT JOIN accounts a ON a.customer_id = u.user_id AND a.created_at < ? " +
+        "LEFT JOIN account_daily_balances d ON d.account_id = a.account_id AND d.balance_date >= ? " +
+        "WHERE u.user_role = 'customer' AND u.user_id BETWEEN ? AND ? " +
+        "ORDER BY u.user_id, a.account_id, d.balance_date";
+    private static final LatencyRecorder PARTITION_TIMER = Metrics.db("statementJob.partition");
+
+    private final Database database;
+    private final int parallelism;
+    private final int partitionSize;
+    private final int batchSize;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    private final LongAdder runs = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private volatile Progress progress;
+    private volatile Result lastResult;
+
+    public StatementJob(Database database, int parallelism, int partitionSize, int batchSize) {
+        this.database = database;
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.partitionSize = Math.max(1, partitionSize);
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /** One statement as written by the job. */
+    public record MonthEndStatement(String statementID, String customerID, int year, int month, Money startBalance,
+                                    Money endBalance, int transactionCount, List<String> accountIDs,
+                                    LocalDateTime dateIssued) {
+    }
+
+    /** A contiguous range of customer IDs, inclusive at both ends. */
+    public record Partition(String firstCustomerID, String lastCustomerID, int customers) {
+    }
+
+    public record Result(String jobID, int partitions, int skippedPartitions, long statements,
+                         long elapsedMillis, double statementsPerSecond) {
+    }
+
+    private static final class Progress {
+        final String jobID;
+        final int partitions;
+        final long startedNanos = System.nanoTime();
+        final AtomicInteger completed = new AtomicInteger();
+        final AtomicInteger skipped = new AtomicInteger();
+        final LongAdder statements = new LongAdder();
+
+        Progress(String jobID, int partitions) {
+            this.jobID = jobID;
+            this.partitions = partitions;
+        }
+    }
+
+    public static String jobID(int year, int month) {
+        return String.format("statements-%04d-%02d", year, month);
+    }
+
+    /** The same customer and period always map to the same statement. */
+    public static String statementID(String customerID, int year, int month) {
+        String key = customerID + "/" + year + "/" + month;
+        return UUID.nameUUIDFromBytes(key.getBytes(StandardCharsets.UTF_8)).toString();
+    }
+
+    /**
+     * Claims the job for one run; false if a run is already in progress.
+     */
+    public boolean tryStart() {
+        return running.compareAndSet(false, true);
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    /**
+     * Generates every customer's statement for the month, resuming a previous run of the same
+     * month. The caller must have claimed the job with {@link #tryStart}.
+     */
+    public Result run(int year, int month) throws SQLException {
+        if (!running.get()) {
+            throw new IllegalStateException("Statement job was not started");
+        }
+        String jobID = jobID(year, month);
+        LocalDateTime monthStart = LocalDateTime.of(year, month, 1, 0, 0);
+        LocalDateTime monthEnd = monthStart.plusMonths(1);
+        long started = System.nanoTime();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            List<Partition> partitions = partitions();
+            Set<String> completed = completedPartitions(jobID);
+            Progress run = new Progress(jobID, partitions.size());
+            progress = run;
+            Log.info("statements", "Statement job {}: {} partitions on {} workers", jobID, partitions.size(), parallelism);
+
+            pool.invoke(new PartitionTask(partitions, 0, partitions.size(), run, completed, year, month, monthStart, monthEnd));
+
+            long elapsedMillis = Math.max(1, (System.nanoTime() - started) / 1_000_000);
+            long statements = run.statements.sum();
+            Result result = new Result(jobID, partitions.size(), run.skipped.get(), statements, elapsedMillis,
+                statements * 1000.0 / elapsedMillis);
+            lastResult = result;
+            runs.increment();
+            Log.info("statements", "Statement job {}: {} statements in {} ms ({} statements/s, {} partitions skipped)",
+                jobID, statements, elapsedMillis, String.format("%.1f", result.statementsPerSecond()), run.skipped.get());
+            return result;
+        } catch (SQLException | RuntimeException e) {
+            failures.increment();
+            Log.error("statements", "Statement job {} failed: {}", jobID, e.getMessage());
+            throw e;
+        } finally {
+            pool.shutdown();
+            running.set(false);
+        }
+    }
+
+    // One pass over the customer IDs, keeping only the range boundaries
+    private List<Partition> partitions() throws SQLException {
+        List<Partition> partitions = new ArrayList<>();
+        try (Connection conn = database.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(CUSTOMER_IDS_SQL)) {
+            stmt.setFetchSize(1000);
+            try (ResultSet rs = stmt.executeQuery()) {
+                String first = null;
+                String last = null;
+                int count = 0;
+                while (rs.next()) {
+                    last = rs.getString(1);
+                    if (count == 0) {
+                        first = last;
+                    }
+                    if (++count == partitionSize) {
+                        partitions.add(new Partition(first, last, count));
+                        count = 0;
+                    }
+                }
+                if (count > 0) {
+                    partitions.add(new Partition(first, last, count));
+                }
+            }
+        }
+        return partitions;
+    }
+
+    private Set<String> completedPartitions(String jobID) throws SQLException {
+        Set<String> completed = new HashSet<>();
+        try (Connection conn = database.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(COMPLETED_PARTITIONS_SQL)) {
+            stmt.setString(1, jobID);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    completed.add(rs.getString(1) + "\n" + rs.getString(2));
+                }
+            }
+        }
+        return completed;
+    }
+
+    // Serializable only through RecursiveTask; fork/join tasks are never actually serialized
+    private final class PartitionTask extends RecursiveTask<Void> {
+        private static final long serialVersionUID = 1L;
+
+        private final transient List<Partition> partitions;
+        private final int from;
+        private final int to;
+        private final transient Progress run;
+        private final transient Set<String> completed;
+        private final int year;
+        private final int month;
+        private final LocalDateTime monthStart;
+        private final LocalDateTime monthEnd;
+
+        PartitionTask(List<Partition> partitions, int from, int to, Progress run, Set<String> completed,
+                      int year, int month, LocalDateTime monthStart, LocalDateTime monthEnd) {
+            this.partitions = partitions;
+            this.from = from;
+            this.to = to;
+            this.run = run;
+            this.completed = completed;
+            this.year = year;
+            this.month = month;
+            this.monthStart = monthStart;
+            this.monthEnd = monthEnd;
+        }
+
+        @Override
+        protected Void compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new PartitionTask(partitions, from, middle, run, completed, year, month, monthStart, monthEnd),
+                          new PartitionTask(partitions, middle, to, run, completed, year, month, monthStart, monthEnd));
+                return null;
+            }
+            if (from == to) {
+                return null;
+            }
+            Partition partition = partitions.get(from);
+            if (completed.contains(partition.firstCustomerID() + "\n" + partition.lastCustomerID())) {
+                run.skipped.incrementAndGet();
+                run.completed.incrementAndGet();
+                return null;
+            }
+            try {
+                int written = generate(run.jobID, partition, year, month, monthStart, monthEnd);
+                run.statements.add(written);
+                run.completed.incrementAndGet();
+            } catch (SQLException e) {
+                throw new IllegalStateException("Partition " + partition.firstCustomerID() + ".."
+                    + partition.lastCustomerID() + " failed: " + e.getMessage(), e);
+            }
+            return null;
+        }
+    }
+
+    private static final class AccountTotals {
+        final String accountID;
+        final Money stored;
+        long inMonthCents;
+        int entries;
+        Money monthEnd;       // closing balance of the month's last day with a row
+        Money afterMonth;     // opening balance of the first day with a row after the month
+
+        AccountTotals(String accountID, Money stored) {
+            this.accountID = accountID;
+            this.stored = stored;
+        }
+    }
+
+    private int generate(String jobID, Partition partition, int year, int month,
+                         LocalDateTime monthStart, LocalDateTime monthEnd) throws SQLException {
+        long started = System.nanoTime();
+        try {
+            // Read the whole range first: current balances may have to come from the ledger,
+            // which must not be asked while a connection is held
+            Map<String, List<AccountTotals>> customers = new LinkedHashMap<>();
+            try (Connection conn = database.getConnection();
+                 PreparedStatement stmt = conn.prepareStatement(PARTITION_SQL)) {
+                stmt.setFetchSize(1000);
+                stmt.setTimestamp(1, Timestamp.valueOf(monthEnd));
+                stmt.setDate(2, Date.valueOf(monthStart.toLocalDate()));
+                stmt.setString(3, partition.firstCustomerID());
+                stmt.setString(4, partition.lastCustomerID());
+                try (ResultSet rs = stmt.executeQuery()) {
+                    AccountTotals current = null;
+                    while (rs.next()) {
+                        List<AccountTotals> accounts = customers.computeIfAbsent(rs.getString(1), id -> new ArrayList<>());
+                        String accountID = rs.getString(2);
+                        if (accountID == null) {
+                            continue;
+                        }
+                        if (current == null || !current.accountID.equals(accountID)) {
+                            BigDecimal balance = rs.getBigDecimal(3);
+                            current = new AccountTotals(accountID, balance != null ? Money.of(balance) : Money.ZERO);
+                            accounts.add(current);
+                        }
+                        Date day = rs.getDate(4);
+                        if (day == null) {
+                            continue;
+                        }
+                        Money closing = Money.of(rs.getBigDecimal(5));
+                        Money netChange = Money.of(rs.getBigDecimal(6));
+                        if (day.toLocalDate().isBefore(monthEnd.toLocalDate())) {
+                            current.monthEnd = closing;
+                            current.inMonthCents += netChange.getCents();
+                            current.entries += rs.getInt(7);
+                        } else if (current.afterMonth == null) {
+                            current.afterMonth = closing.minus(netChange);
+                        }
+                    }
+                }
+            }
+
+            Ledger ledger = database.getLedger();
+            LocalDateTime issued = LocalDateTime.now();
+            List<MonthEndStatement> statements = new ArrayList<>(customers.size());
+            for (Map.Entry<String, List<AccountTotals>> customer : customers.entrySet()) {
+                long startCents = 0;
+                long endCents = 0;
+                int transactionCount = 0;
+                List<String> accountIDs = new ArrayList<>(customer.getValue().size());
+                for (AccountTotals account : customer.getValue()) {
+                    // Without a row in or after the month, nothing has moved since it ended
+                    Money balance = account.monthEnd != null ? account.monthEnd
+                        : account.afterMonth != null ? account.afterMonth
+                        : ledger != null ? ledger.balance(account.accountID, account.stored) : account.stored;
+                    long end = balance.getCents();
+                    endCents += end;
+                    startCents += end - account.inMonthCents;
+                    transactionCount += account.entries;
+                    accountIDs.add(account.accountID);
+                }
+                statements.add(new MonthEndStatement(statementID(customer.getKey(), year, month), customer.getKey(),
+                    year, month, Money.ofCents(startCents), Money.ofCents(endCents), transactionCount, accountIDs, issued));
+            }
+
+            write(jobID, partition, statements);
+            return statements.size();
+        } catch (SQLException | RuntimeException e) {
+            PARTITION_TIMER.recordFailure();
+            throw e;
+        } finally {
+            PARTITION_TIMER.record(System.nanoTime() - started);
+        }
+    }
+
+    private void write(String jobID, Partition partition, List<MonthEndStatement> statements) throws SQLException {
+        try (Connection conn = database.getConnection()) {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try (PreparedStatement saveStatement = conn.prepareStatement(Database.SAVE_MONTH_END_STATEMENT_SQL);
+                 PreparedStatement saveAccount = conn.prepareStatement(Database.SAVE_STATEMENT_ACCOUNT_SQL);
+                 PreparedStatement checkpoint = conn.prepareStatement(Database.SAVE_STATEMENT_PARTITION_SQL)) {
+                int pendingStatements = 0;
+                int pendingAccounts = 0;
+                for (MonthEndStatement statement : statements) {
+                    Database.bindMonthEndStatement(saveStatement, statement);
+                    saveStatement.addBatch();
+                    if (++pendingStatements == batchSize) {
+                        saveStatement.executeBatch();
+                        pendingStatements = 0;
+                    }
+                }
+                if (pendingStatements > 0) {
+                    saveStatement.executeBatch();
+                }
+                // After all statements, so every account row's parent is already written
+                for (MonthEndStatement statement : statements) {
+                    for (String accountID : statement.accountIDs()) {
+                        Database.bindStatementAccount(saveAccount, statement.statementID(), accountID);
+                        saveAccount.addBatch();
+                        if (++pendingAccounts == batchSize) {
+                            saveAccount.executeBatch();
+                            pendingAccounts = 0;
+                        }
+                    }
+                }
+                if (pendingAccounts > 0) {
+                    saveAccount.executeBatch();
+                }
+                Database.bindStatementPartition(checkpoint, jobID, partition, statements.size());
+                checkpoint.executeUpdate();
+                conn.commit();
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        }
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("running", running.get());
+        Progress run = progress;
+        if (run != null && running.get()) {
+            long elapsedMillis = Math.max(1, (System.nanoTime() - run.startedNanos) / 1_000_000);
+            long statements = run.statements.sum();
+            Map<String, Object> current = new LinkedHashMap<>();
+            current.put("jobID", run.jobID);
+            current.put("partitions", run.partitions);
+            current.put("completedPartitions", run.completed.get());
+            current.put("skippedPartitions", run.skipped.get());
+            current.put("statements", statements);
+            current.put("statementsPerSecond", Math.round(statements * 1000.0 / elapsedMillis * 10) / 10.0);
+            status.put("current", current);
+        }
+        Result result = lastResult;
+        if (result != null) {
+            status.put("last", result);
+        }
+        return status;
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("parallelism", parallelism);
+        metrics.put("partitionSize", partitionSize);
+        metrics.put("runs", runs.sum());
+        metrics.put("failures", failures.sum());
+        Result result = lastResult;
+        if (result != null) {
+            metrics.put("lastJob", result.jobID());
+            metrics.put("lastStatements", result.statements());
+            metrics.put("lastStatementsPerSecond", Math.round(result.statementsPerSecond() * 10) / 10.0);
+        }
+        return metrics;
+    }
+}
@@ -11,11 +11,11 @@ public abstract class Transaction {
     protected String transactionStatus; // Completed, Failed, Pending
     protected Customer initiatedBy;
     protected LocalDateTime initiatedAt;
-    protected double transactionAmount;
+    protected Money transactionAmount;
     protected Account sourceAccount;
     protected Account destinationAccount;
 
-    public Transaction(String transactionID, Customer initiatedBy, double amount, Account sourceAccount, Account destinationAccount) {
+    public Transaction(String transactionID, Customer initiatedBy, Money amount, Account sourceAccount, Account destinationAccount) {
         this.transactionID = transactionID;
         this.initiatedBy = initiatedBy;
         this.transactionAmount = amount;
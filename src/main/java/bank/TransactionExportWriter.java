@@ -0,0 +1,164 @@
+package bank;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+
+/**
+ * Writes transaction rows straight from a JDBC cursor to an output stream as NDJSON or CSV.
+ * Nothing is buffered beyond the stream buffer, so an export of any size uses constant heap.
+ */
+public class TransactionExportWriter implements Database.RowHandler, AutoCloseable {
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final String CSV_HEADER = "transaction_id,customer_id,transaction_type,amount," +
+            "source_account_id,destination_account_id,status,initiated_at";
+
+    public enum Format {
+        NDJSON("application/x-ndjson", "ndjson"),
+        CSV("text/csv", "csv");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        public static Format parse(String value) {
+            if (value == null || value.isBlank()) {
+                return NDJSON;
+            }
+            for (Format format : values()) {
+                if (format.name().equalsIgnoreCase(value.trim())) {
+                    return format;
+                }
+            }
+            throw new IllegalArgumentException("Unsupported export format: " + value + " (use ndjson or csv)");
+        }
+    }
+
+    private final Format format;
+    private final JsonGenerator json;
+    private final BufferedWriter csv;
+    private long rows;
+
+    public TransactionExportWriter(OutputStream out, Format format) throws IOException {
+        this.format = format;
+        if (format == Format.NDJSON) {
+            this.json = JSON_FACTORY.createGenerator(out, JsonEncoding.UTF8);
+            // One object per line, separated by a bare newline
+            this.json.setPrettyPrinter(new MinimalPrettyPrinter("\n"));
+            this.csv = null;
+        } else {
+            this.json = null;
+            this.csv = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+            this.csv.write(CSV_HEADER);
+            this.csv.write('\n');
+        }
+    }
+
+    @Override
+    public void handle(ResultSet rs) throws SQLException, IOException {
+        rows++;
+        if (format == Format.NDJSON) {
+            writeJson(rs);
+        } else {
+            writeCsv(rs);
+        }
+    }
+
+    private void writeJson(ResultSet rs) throws SQLException, IOException {
+        json.writeStartObject();
+        json.writeStringField("transactionID", rs.getString("transaction_id"));
+        json.writeStringField("customerID", rs.getString("customer_id"));
+        json.writeStringField("transactionType", rs.getString("transaction_type"));
+        BigDecimal amount = rs.getBigDecimal("amount");
+        if (amount != null) {
+            json.writeNumberField("amount", amount);
+        } else {
+            json.writeNullField("amount");
+        }
+        json.writeStringField("sourceAccountID", rs.getString("source_account_id"));
+        json.writeStringField("destinationAccountID", rs.getString("destination_account_id"));
+        json.writeStringField("status", rs.getString("status"));
+        Timestamp initiatedAt = rs.getTimestamp("initiated_at");
+        json.writeStringField("initiatedAt", initiatedAt != null ? initiatedAt.toLocalDateTime().toString() : null);
+        json.writeEndObject();
+    }
+
+    private void writeCsv(ResultSet rs) throws SQLException, IOException {
+        writeCsvField(rs.getString("transaction_id"));
+        csv.write(',');
+        writeCsvField(rs.getString("customer_id"));
+        csv.write(',');
+        writeCsvField(rs.getString("transaction_type"));
+        csv.write(',');
+        BigDecimal amount = rs.getBigDecimal("amount");
+        if (amount != null) {
+            csv.write(amount.toPlainString());
+        }
+        csv.write(',');
+        writeCsvField(rs.getString("source_account_id"));
+        csv.write(',');
+        writeCsvField(rs.getString("destination_account_id"));
+        csv.write(',');
+        writeCsvField(rs.getString("status"));
+        csv.write(',');
+        Timestamp initiatedAt = rs.getTimestamp("initiated_at");
+        if (initiatedAt != null) {
+            csv.write(initiatedAt.toLocalDateTime().toString());
+        }
+        csv.write('\n');
+    }
+
+    // RFC 4180: quote fields containing separators, quotes or line breaks and double the quotes
+    private void writeCsvField(String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        boolean needsQuotes = false;
+        for (int i = 0; i < value.length() && !needsQuotes; i++) {
+            char c = value.charAt(i);
+            needsQuotes = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!needsQuotes) {
+            csv.write(value);
+            return;
+        }
+        csv.write('"');
+        csv.write(value.replace("\"", "\"\""));
+        csv.write('"');
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (json != null) {
+            if (rows > 0) {
+                json.writeRaw('\n');
+            }
+            json.close();
+        } else {
+            csv.close();
+        }
+    }
+}
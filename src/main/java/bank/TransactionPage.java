@@ -0,0 +1,62 @@
+package bank;
+
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One page of transaction history ordered newest first by (initiated_at, transaction_id).
+ * {@code nextCursor} is an opaque token for the following page, or null on the last page.
+ */
+@Getter
+public class TransactionPage {
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    public static final int MAX_PAGE_SIZE = 500;
+
+    private final List<Map<String, Object>> transactions;
+    private final String nextCursor;
+
+    public TransactionPage(List<Map<String, Object>> transactions, String nextCursor) {
+        this.transactions = transactions;
+        this.nextCursor = nextCursor;
+    }
+
+    public static int clampPageSize(Integer requested, int defaultSize) {
+        if (requested == null || requested <= 0) {
+            return defaultSize;
+        }
+        return Math.min(requested, MAX_PAGE_SIZE);
+    }
+
+    static String encodeCursor(Timestamp initiatedAt, String transactionID) {
+        String raw = initiatedAt.toString() + "|" + transactionID;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a cursor produced by {@link #encodeCursor}; returns null for a null/blank cursor
+     * (first page) and throws IllegalArgumentException for anything malformed.
+     */
+    static Cursor decodeCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf('|');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return new Cursor(Timestamp.valueOf(raw.substring(0, separator)), raw.substring(separator + 1));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+
+    record Cursor(Timestamp initiatedAt, String transactionID) {
+    }
+}
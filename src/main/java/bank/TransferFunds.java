@@ -4,7 +4,7 @@ import java.util.UUID;
 
 public class TransferFunds extends Transaction {
 
-    public TransferFunds(Account sourceAccount, Account destinationAccount, double amount, Customer customer) {
+    public TransferFunds(Account sourceAccount, Account destinationAccount, Money amount, Customer customer) {
         super(UUID.randomUUID().toString(), customer, amount, sourceAccount, destinationAccount);
     }
 
@@ -0,0 +1,336 @@
+package bank;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Collects the writes of one business operation (a transfer, an e-transfer, a loan approval)
+ * and persists them as a single JDBC transaction: one borrowed connection, one batch per
+ * statement type and one commit. Nothing touches the database until {@link #commit()}.
+ * Notifications go into the outbox in the same commit, so a message exists exactly when its
+ * transfer does.
+ *
+ * With a {@link Ledger} configured, balance changes become one balanced posting of append-only
+ * ledger_entries rows instead of in-place updates of accounts.balance; the funds check runs
+ * against the ledger's positions under the accounts' in-process locks, held until the commit.
+ * Either way, each changed account's account_daily_balances row for the day is upserted in the
+ * same commit. Debits count against their accounts' daily and monthly limits in
+ * {@link DebitCounters} before anything is written, and are given back if the commit fails.
+ */
+public class UnitOfWork {
+    private static final LatencyRecorder COMMIT_TIMER = Metrics.db("unitOfWork.commit");
+
+    private final Database database;
+    private final List<User> users = new ArrayList<>();
+    private final List<Account> accounts = new ArrayList<>();
+    private final List<BalanceChange> balanceChanges = new ArrayList<>();
+    private final List<Transaction> transactions = new ArrayList<>();
+    private final List<Receipt> receipts = new ArrayList<>();
+    private final List<LoanRequest> loanRequests = new ArrayList<>();
+    private final List<Notification> notifications = new ArrayList<>();
+    private final List<IdempotencyStore.Record> idempotencyKeys = new ArrayList<>();
+    private final List<InterestAccrual.Accrual> interestAccruals = new ArrayList<>();
+    private final List<LimitedDebit> limitedDebits = new ArrayList<>();
+    private String postingType = Ledger.ADJUSTMENT;
+    private String postingReference;
+    private String contraAccountID;
+    private boolean committed;
+
+    UnitOfWork(Database database) {
+        this.database = database;
+    }
+
+    public void saveUser(User user) {
+        users.add(user);
+    }
+
+    public void saveAccount(Account account) {
+        accounts.add(account);
+    }
+
+    /**
+     * Queues a guarded in-database debit. The commit fails (and rolls back) if the stored
+     * balance is lower than the amount at commit time, whatever this request read earlier.
+     */
+    public void debit(Account account, Money amount) {
+        if (!amount.isPositive()) {
+            throw new IllegalArgumentException("Debit amount must be positive");
+        }
+        balanceChanges.add(new BalanceChange(account.getAccountID(), amount.negate()));
+        if (account.getDebitLimits() != DebitCounters.Limits.NONE) {
+            limitedDebits.add(new LimitedDebit(account.getAccountID(), amount.getCents(), account.getDebitLimits()));
+        }
+    }
+
+    /**
+     * Queues an in-database credit applied as a delta, so concurrent writers don't overwrite
+     * each other's balance changes.
+     */
+    public void credit(Account account, Money amount) {
+        credit(account.getAccountID(), amount);
+    }
+
+    /**
+     * {@link #credit(Account, Money)} for callers that only have the account ID, such as batch jobs.
+     */
+    public void credit(String accountID, Money amount) {
+        if (!amount.isPositive()) {
+            throw new IllegalArgumentException("Credit amount must be positive");
+        }
+        balanceChanges.add(new BalanceChange(accountID, amount));
+    }
+
+    /**
+     * Describes the balance changes for the ledger: what they are, the transaction or loan they
+     * belong to, and the GL account that balances money entering or leaving the bank.
+     */
+    public void describePosting(String postingType, String referenceID, String contraAccountID) {
+        this.postingType = postingType;
+        this.postingReference = referenceID;
+        this.contraAccountID = contraAccountID;
+    }
+
+    public void saveTransaction(Transaction transaction) {
+        transactions.add(transaction);
+    }
+
+    public void saveReceipt(Receipt receipt) {
+        receipts.add(receipt);
+    }
+
+    public void saveLoanRequest(LoanRequest loanRequest) {
+        loanRequests.add(loanRequest);
+    }
+
+    public void saveNotification(Notification notification) {
+        notifications.add(notification);
+    }
+
+    /**
+     * Records the request's Idempotency-Key and response. It is inserted first, so a
+     * duplicate key fails the commit before any balance moves.
+     */
+    public void saveIdempotencyKey(IdempotencyStore.Record record) {
+        idempotencyKeys.add(record);
+    }
+
+    /**
+     * Records an account's interest remainder and accrual date, committed with its credit.
+     */
+    public void saveInterestAccrual(InterestAccrual.Accrual accrual) {
+        interestAccruals.add(accrual);
+    }
+
+    /**
+     * Writes everything gathered so far atomically. On any failure the whole unit is rolled
+     * back and the exception is rethrown, so balances and history never drift apart.
+     */
+    @SuppressWarnings("try")
+    public void commit() throws SQLException {
+        long started = System.nanoTime();
+        try {
+            if (committed) {
+                throw new IllegalStateException("Unit of work has already been committed");
+            }
+            committed = true;
+
+            Ledger ledger = balanceChanges.isEmpty() ? null : database.getLedger();
+            Map<String, Money> deltas = ledger != null ? netBalanceChanges() : Map.of();
+            long start = System.nanoTime();
+            List<DebitCounters.Reservation> reserved = reserveDebitLimits();
+            try (AccountLockManager.Lease lease = ledger != null ? ledger.lock(deltas.keySet()) : null) {
+                Ledger.Posting posting = null;
+                if (ledger != null) {
+                    try {
+                        posting = ledger.prepare(deltas, postingType, postingReference, contraAccountID);
+                    } catch (SQLException | RuntimeException e) {
+                        COMMIT_TIMER.recordFailure();
+                        Log.error("uow", "Unit of work rejected: {}", e.getMessage());
+                        throw e;
+                    }
+                }
+                try (Connection conn = database.getConnection()) {
+                    boolean autoCommit = conn.getAutoCommit();
+                    conn.setAutoCommit(false);
+                    try {
+                        executeBatch(conn, Database.SAVE_IDEMPOTENCY_KEY_SQL, idempotencyKeys, Database::bindIdempotencyKey);
+                        // Parents before children so foreign keys resolve:
+                        // users -> accounts -> balance changes -> transactions -> receipts, loan requests, notifications
+                        executeBatch(conn, Database.SAVE_USER_SQL, users, Database::bindUser);
+                        executeBatch(conn, Database.SAVE_ACCOUNT_SQL, accounts, Database::bindAccount);
+                        if (posting != null) {
+                            executeBatch(conn, Database.SAVE_LEDGER_ENTRY_SQL, posting.getEntries(), Database::bindLedgerEntry);
+                            executeBatch(conn, Database.UPSERT_DAILY_BALANCE_SQL, posting.getDailyBalances(), Database::bindDailyBalance);
+                        } else {
+                            applyBalanceChanges(conn);
+                        }
+                        executeBatch(conn, Database.SAVE_TRANSACTION_SQL, transactions, Database::bindTransaction);
+                        executeBatch(conn, Database.SAVE_RECEIPT_SQL, receipts, Database::bindReceipt);
+                        executeBatch(conn, Database.SAVE_LOAN_REQUEST_SQL, loanRequests, Database::bindLoanRequest);
+                        executeBatch(conn, Database.SAVE_NOTIFICATION_SQL, notifications, Database::bindNotification);
+                        executeBatch(conn, Database.SAVE_INTEREST_ACCRUAL_SQL, interestAccruals, Database::bindInterestAccrual);
+                        conn.commit();
+                    } catch (SQLException | RuntimeException e) {
+                        COMMIT_TIMER.recordFailure();
+                        conn.rollback();
+                        Log.error("uow", "Unit of work rolled back: {}", e.getMessage());
+                        throw e;
+                    } finally {
+                        conn.setAutoCommit(autoCommit);
+                    }
+                } catch (SQLException | RuntimeException e) {
+                    if (posting != null) {
+                        ledger.invalidate(posting);
+                    }
+                    throw e;
+                }
+                if (posting != null) {
+                    ledger.committed(posting);
+                }
+            } catch (SQLException | RuntimeException e) {
+                releaseDebitLimits(reserved);
+                throw e;
+            }
+
+            // Saved users may have changed role/email; make the next read and search see the stored rows
+            for (User user : users) {
+                database.invalidateUser(user);
+                database.getSearchIndex().putUser(user);
+            }
+            for (Account account : accounts) {
+                database.getSearchIndex().putAccount(account.getAccountID(), account.getCustomerID());
+            }
+            if (!notifications.isEmpty()) {
+                database.outboxWritten();
+            }
+
+            long elapsedMicros = (System.nanoTime() - start) / 1_000;
+            Log.info("uow", "Unit of work committed ({} row(s)) in {} µs", size(), elapsedMicros);
+        } finally {
+            COMMIT_TIMER.record(System.nanoTime() - started);
+        }
+    }
+
+    public int size() {
+        return users.size() + accounts.size() + balanceChanges.size() + transactions.size() + receipts.size() + loanRequests.size()
+            + notifications.size() + idempotencyKeys.size() + interestAccruals.size();
+    }
+
+    private record LimitedDebit(String accountID, long cents, DebitCounters.Limits limits) {
+    }
+
+    // All or nothing: a debit over its limit gives back the ones reserved before it
+    private List<DebitCounters.Reservation> reserveDebitLimits() {
+        DebitCounters counters = DebitCounters.getDefault();
+        List<DebitCounters.Reservation> reserved = new ArrayList<>(limitedDebits.size());
+        for (LimitedDebit debit : limitedDebits) {
+            DebitCounters.Reservation reservation = counters.reserve(debit.accountID(), debit.cents(), debit.limits());
+            if (reservation == null) {
+                releaseDebitLimits(reserved);
+                COMMIT_TIMER.recordFailure();
+                Log.error("uow", "Unit of work rejected: debit limit exceeded for account {}", debit.accountID());
+                throw new IllegalStateException("Debit limit exceeded for account " + debit.accountID());
+            }
+            reserved.add(reservation);
+        }
+        return reserved;
+    }
+
+    private void releaseDebitLimits(List<DebitCounters.Reservation> reserved) {
+        for (DebitCounters.Reservation reservation : reserved) {
+            DebitCounters.getDefault().release(reservation);
+        }
+    }
+
+    // One signed delta per account, in account ID order
+    private Map<String, Money> netBalanceChanges() {
+        Map<String, Money> deltas = new TreeMap<>();
+        for (BalanceChange change : balanceChanges) {
+            deltas.merge(change.accountID(), change.delta(), Money::plus);
+        }
+        return deltas;
+    }
+
+    private void applyBalanceChanges(Connection conn) throws SQLException {
+        if (balanceChanges.isEmpty()) {
+            return;
+        }
+        // Lock rows in account ID order so two transfers between the same accounts in
+        // opposite directions can't deadlock each other inside MySQL
+        List<BalanceChange> ordered = new ArrayList<>(balanceChanges);
+        ordered.sort(Comparator.comparing(BalanceChange::accountID));
+
+        int[] counts;
+        try (PreparedStatement stmt = conn.prepareStatement(Database.APPLY_BALANCE_DELTA_SQL)) {
+            for (BalanceChange change : ordered) {
+                Database.bindBalanceDelta(stmt, change.accountID(), change.delta());
+                stmt.addBatch();
+            }
+            counts = stmt.executeBatch();
+        }
+
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0) {
+                BalanceChange change = ordered.get(i);
+                if (change.delta().isNegative()) {
+                    throw new IllegalStateException("Insufficient funds in account " + change.accountID());
+                }
+                throw new IllegalStateException("Account not found: " + change.accountID());
+            }
+        }
+        executeBatch(conn, Database.UPSERT_DAILY_BALANCE_SQL, dailyBalances(conn), Database::bindDailyBalance);
+    }
+
+    // The rows just updated stay locked until the commit, so their balances are this unit's
+    // closing balances for the day
+    private List<BalanceHistory.DailyBalance> dailyBalances(Connection conn) throws SQLException {
+        Map<String, Money> deltas = netBalanceChanges();
+        String placeholders = String.join(", ", Collections.nCopies(deltas.size(), "?"));
+        LocalDate today = LocalDate.now();
+        List<BalanceHistory.DailyBalance> days = new ArrayList<>(deltas.size());
+        try (PreparedStatement stmt = conn.prepareStatement(Database.CURRENT_BALANCES_SQL + "(" + placeholders + ")")) {
+            int index = 1;
+            for (String accountID : deltas.keySet()) {
+                stmt.setString(index++, accountID);
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    String accountID = rs.getString("account_id");
+                    days.add(new BalanceHistory.DailyBalance(accountID, today, Money.of(rs.getBigDecimal("balance")),
+                        deltas.get(accountID), 1));
+                }
+            }
+        }
+        return days;
+    }
+
+    private static <T> void executeBatch(Connection conn, String sql, List<T> items, Binder<T> binder) throws SQLException {
+        if (items.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (T item : items) {
+                binder.bind(stmt, item);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    private record BalanceChange(String accountID, Money delta) {
+    }
+
+    @FunctionalInterface
+    private interface Binder<T> {
+        void bind(PreparedStatement stmt, T item) throws SQLException;
+    }
+}
@@ -0,0 +1,212 @@
+package bank;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * Bounded, TTL-based read-through cache of users rows, indexed by user ID and by
+ * normalized (lower-case) email. It caches immutable row snapshots rather than User
+ * objects, because controllers mutate the User/Customer they get back (owned accounts,
+ * roles); every hit builds a fresh object, so requests never share state.
+ *
+ * Concurrent misses for the same key are coalesced into a single database load.
+ */
+public class UserCache {
+    private final long ttlNanos;
+    private final int maxSize;
+
+    private final ConcurrentHashMap<String, Entry> byId = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Entry> byEmail = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, CompletableFuture<CachedUser>> inFlight = new ConcurrentHashMap<>();
+
+    // Bumped by every invalidation; a load that started before an invalidation must not
+    // repopulate the cache with the row it read
+    private final AtomicLong generation = new AtomicLong();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder coalescedLoads = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    public UserCache(int maxSize, long ttlSeconds) {
+        this.maxSize = Math.max(1, maxSize);
+        this.ttlNanos = Math.max(0, ttlSeconds) * 1_000_000_000L;
+    }
+
+    @FunctionalInterface
+    public interface Loader {
+        CachedUser load(String key) throws Exception;
+    }
+
+    /**
+     * Returns the cached row for a user ID or email, loading it through {@code loader} on a
+     * miss. Returns null when the user does not exist (misses are not cached).
+     */
+    public CachedUser get(String key, Loader loader) throws Exception {
+        if (key == null) {
+            return null;
+        }
+        long now = System.nanoTime();
+        Entry entry = byId.get(key);
+        if (entry == null) {
+            entry = byEmail.get(normalize(key));
+        }
+        if (entry != null && entry.expiresAt - now > 0) {
+            hits.increment();
+            return entry.user;
+        }
+        misses.increment();
+
+        CompletableFuture<CachedUser> mine = new CompletableFuture<>();
+        CompletableFuture<CachedUser> existing = inFlight.putIfAbsent(normalize(key), mine);
+        if (existing != null) {
+            coalescedLoads.increment();
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+            }
+        }
+
+        long startGeneration = generation.get();
+        try {
+            CachedUser loaded = loader.load(key);
+            if (loaded != null && generation.get() == startGeneration) {
+                put(loaded);
+            }
+            mine.complete(loaded);
+            return loaded;
+        } catch (Exception | Error e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(normalize(key), mine);
+        }
+    }
+
+    /**
+     * Drops a user by ID (including the email key it was cached under) and by email.
+     */
+    public void invalidate(String userID, String email) {
+        generation.incrementAndGet();
+        invalidations.increment();
+        if (userID != null) {
+            Entry entry = byId.remove(userID);
+            if (entry != null && entry.user.userEmail() != null) {
+                byEmail.remove(normalize(entry.user.userEmail()), entry);
+            }
+        }
+        if (email != null) {
+            Entry entry = byEmail.remove(normalize(email));
+            if (entry != null) {
+                byId.remove(entry.user.userID(), entry);
+            }
+        }
+    }
+
+    public void clear() {
+        generation.incrementAndGet();
+        byId.clear();
+        byEmail.clear();
+    }
+
+    private void put(CachedUser user) {
+        Entry entry = new Entry(user, System.nanoTime() + ttlNanos);
+        byId.put(user.userID(), entry);
+        if (user.userEmail() != null) {
+            byEmail.put(normalize(user.userEmail()), entry);
+        }
+        if (byId.size() > maxSize) {
+            evict();
+        }
+    }
+
+    // Drops expired entries, then the oldest ones, down to 90% of capacity so eviction
+    // runs once per batch of inserts rather than on every insert
+    private void evict() {
+        if (!evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            long now = System.nanoTime();
+            byId.values().removeIf(entry -> {
+                if (entry.expiresAt - now <= 0) {
+                    removeEmailKey(entry);
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            });
+            int target = maxSize - maxSize / 10;
+            int excess = byId.size() - target;
+            if (excess > 0) {
+                List<Entry> oldest = byId.values().stream()
+                    .sorted(Comparator.comparingLong(entry -> entry.expiresAt))
+                    .limit(excess)
+                    .collect(Collectors.toList());
+                for (Entry entry : oldest) {
+                    if (byId.remove(entry.user.userID(), entry)) {
+                        removeEmailKey(entry);
+                        evictions.increment();
+                    }
+                }
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private void removeEmailKey(Entry entry) {
+        if (entry.user.userEmail() != null) {
+            byEmail.remove(normalize(entry.user.userEmail()), entry);
+        }
+    }
+
+    private static String normalize(String key) {
+        return key.trim().toLowerCase(Locale.ROOT);
+    }
+
+    public Map<String, Object> getMetrics() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("size", byId.size());
+        metrics.put("maxSize", maxSize);
+        metrics.put("hits", hitCount);
+        metrics.put("misses", missCount);
+        metrics.put("hitRatio", hitCount + missCount == 0 ? 0.0 : (double) hitCount / (hitCount + missCount));
+        metrics.put("coalescedLoads", coalescedLoads.sum());
+        metrics.put("evictions", evictions.sum());
+        metrics.put("invalidations", invalidations.sum());
+        return metrics;
+    }
+
+    /**
+     * Immutable snapshot of the users columns needed to build a User.
+     */
+    public record CachedUser(String userID, String userPassword, String userName,
+                             String userEmail, String userPhone, String userRole) {
+    }
+
+    private static final class Entry {
+        private final CachedUser user;
+        private final long expiresAt;
+
+        private Entry(CachedUser user, long expiresAt) {
+            this.user = user;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
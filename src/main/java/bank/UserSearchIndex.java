@@ -0,0 +1,501 @@
+package bank;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * In-memory search index over users and their account IDs, backing the admin and banker
+ * user search. Each searchable field keeps trigram postings (for "contains" queries of three
+ * or more characters) and postings keyed by the first one and two characters of every word
+ * (for short prefix typeahead). Postings are sorted int arrays of document IDs, so a query
+ * intersects the shortest lists first and only verifies the surviving candidates.
+ *
+ * The index is built from the database on first use and then maintained incrementally by
+ * Database.saveUser/saveAccount and UnitOfWork commits. Reads share a read lock; updates
+ * take the write lock.
+ */
+public class UserSearchIndex {
+    public static final int DEFAULT_LIMIT = 100;
+    public static final int MAX_LIMIT = 500;
+
+    private enum Field { NAME, ACCOUNT, PHONE }
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final List<Doc> docs = new ArrayList<>();
+    private final Map<String, Doc> docsByUserID = new HashMap<>();
+    private final Map<Field, FieldIndex> fields = new EnumMap<>(Field.class);
+    private volatile boolean loaded;
+
+    private final LongAdder searches = new LongAdder();
+    private final LongAdder searchNanos = new LongAdder();
+
+    public UserSearchIndex() {
+        for (Field field : Field.values()) {
+            fields.put(field, new FieldIndex());
+        }
+    }
+
+    /**
+     * Reads every user and account into the index.
+     */
+    @FunctionalInterface
+    public interface Source {
+        void read(Consumer<UserCache.CachedUser> users, BiConsumer<String, String> accounts) throws SQLException;
+    }
+
+    public static int clampLimit(Integer requested) {
+        if (requested == null || requested <= 0) {
+            return DEFAULT_LIMIT;
+        }
+        return Math.min(requested, MAX_LIMIT);
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Builds the index from {@code source} unless it is already loaded. The source is read
+     * under the write lock so no concurrent update can slip in between the read and the swap.
+     */
+    public void load(Source source) throws SQLException {
+        lock.writeLock().lock();
+        try {
+            if (loaded) {
+                return;
+            }
+            clearLocked();
+            source.read(this::putUserLocked, this::addAccountLocked);
+            loaded = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Forces a rebuild on the next search.
+     */
+    public void invalidate() {
+        loaded = false;
+    }
+
+    // Updates check "loaded" under the write lock: one racing a load waits for it and is
+    // applied afterwards; one arriving before any load is picked up by that load
+    public void putUser(User user) {
+        UserCache.CachedUser row = new UserCache.CachedUser(user.getUserID(), user.getUserPassword(),
+                user.getUserName(), user.getUserEmail(), user.getUserPhone(), user.getUserRole());
+        lock.writeLock().lock();
+        try {
+            if (loaded) {
+                putUserLocked(row);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void putAccount(String accountID, String customerID) {
+        if (accountID == null || customerID == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (!loaded) {
+                return;
+            }
+            if (!docsByUserID.containsKey(customerID)) {
+                // Owner not indexed yet (saved outside saveUser); rebuild rather than lose it
+                loaded = false;
+                return;
+            }
+            addAccountLocked(accountID, customerID);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Ranked top-{@code limit} users matching every given criterion, with the same semantics
+     * as the SQL search: {@code name} matches name or email, {@code accountNumber} any owned
+     * account ID, {@code phoneNumber} the phone, all case-insensitively as substrings, and
+     * {@code userType} the role exactly ("all" or blank means any). Criteria shorter than three
+     * characters match as prefixes of words (typeahead). Exact and prefix matches rank above
+     * infix matches, then results are ordered by name.
+     */
+    public List<UserCache.CachedUser> search(String name, String accountNumber, String phoneNumber,
+                                             String userType, int limit) {
+        long start = System.nanoTime();
+        String nameQuery = normalize(name);
+        String accountQuery = normalize(accountNumber);
+        String phoneQuery = normalize(phoneNumber);
+        String role = userType == null || userType.isBlank() || userType.trim().equalsIgnoreCase("all")
+                ? null : userType.trim().toLowerCase(Locale.ROOT);
+
+        lock.readLock().lock();
+        try {
+            int[] candidates = null;
+            if (nameQuery != null) {
+                candidates = narrow(candidates, Field.NAME, nameQuery);
+            }
+            if (accountQuery != null) {
+                candidates = narrow(candidates, Field.ACCOUNT, accountQuery);
+            }
+            if (phoneQuery != null) {
+                candidates = narrow(candidates, Field.PHONE, phoneQuery);
+            }
+
+            // Bounded heap whose head is the worst of the current top K
+            PriorityQueue<Ranked> top = new PriorityQueue<>(limit + 1, (x, y) -> y.compareTo(x));
+            int count = candidates != null ? candidates.length : docs.size();
+            for (int i = 0; i < count; i++) {
+                Doc doc = docs.get(candidates != null ? candidates[i] : i);
+                if (role != null && !role.equals(doc.role)) {
+                    continue;
+                }
+                int score = 0;
+                if (nameQuery != null) {
+                    int s = doc.score(Field.NAME, nameQuery);
+                    if (s < 0) {
+                        continue;
+                    }
+                    score += s;
+                }
+                if (accountQuery != null) {
+                    int s = doc.score(Field.ACCOUNT, accountQuery);
+                    if (s < 0) {
+                        continue;
+                    }
+                    score += s;
+                }
+                if (phoneQuery != null) {
+                    int s = doc.score(Field.PHONE, phoneQuery);
+                    if (s < 0) {
+                        continue;
+                    }
+                    score += s;
+                }
+                if (top.size() == limit && Ranked.compare(score, doc, top.peek().score, top.peek().doc) >= 0) {
+                    continue; // not better than the worst of the current top K
+                }
+                top.add(new Ranked(doc, score));
+                if (top.size() > limit) {
+                    top.poll();
+                }
+            }
+
+            List<Ranked> ranked = new ArrayList<>(top);
+            ranked.sort(null);
+            List<UserCache.CachedUser> results = new ArrayList<>(ranked.size());
+            for (Ranked r : ranked) {
+                results.add(r.doc.row);
+            }
+            return results;
+        } finally {
+            lock.readLock().unlock();
+            searches.increment();
+            searchNanos.add(System.nanoTime() - start);
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        long count = searches.sum();
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("loaded", loaded);
+        lock.readLock().lock();
+        try {
+            metrics.put("users", docs.size());
+            for (Map.Entry<Field, FieldIndex> entry : fields.entrySet()) {
+                String prefix = entry.getKey().name().toLowerCase(Locale.ROOT);
+                metrics.put(prefix + "Trigrams", entry.getValue().grams.size());
+                metrics.put(prefix + "Prefixes", entry.getValue().prefixes.size());
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        metrics.put("searches", count);
+        metrics.put("avgSearchMicros", count == 0 ? 0.0 : searchNanos.sum() / 1_000.0 / count);
+        return metrics;
+    }
+
+    // Candidate doc IDs for one criterion, intersected with what earlier criteria left
+    private int[] narrow(int[] candidates, Field field, String query) {
+        if (candidates != null && candidates.length == 0) {
+            return candidates;
+        }
+        FieldIndex index = fields.get(field);
+        int[] matches = query.length() >= 3 ? index.trigramCandidates(query) : index.prefixCandidates(query);
+        return candidates == null ? matches : intersect(candidates, candidates.length, matches, matches.length);
+    }
+
+    private void clearLocked() {
+        docs.clear();
+        docsByUserID.clear();
+        for (FieldIndex index : fields.values()) {
+            index.grams.clear();
+            index.prefixes.clear();
+        }
+    }
+
+    private void putUserLocked(UserCache.CachedUser row) {
+        Doc previous = docsByUserID.get(row.userID());
+        int docID = previous != null ? previous.id : docs.size();
+        Doc doc = new Doc(docID, row, previous != null ? previous.accounts : List.of());
+        if (previous != null) {
+            fields.get(Field.NAME).remove(docID, previous.values(Field.NAME));
+            fields.get(Field.PHONE).remove(docID, previous.values(Field.PHONE));
+            docs.set(docID, doc);
+        } else {
+            docs.add(doc);
+        }
+        docsByUserID.put(row.userID(), doc);
+        fields.get(Field.NAME).add(docID, doc.values(Field.NAME));
+        fields.get(Field.PHONE).add(docID, doc.values(Field.PHONE));
+    }
+
+    private void addAccountLocked(String accountID, String customerID) {
+        Doc doc = docsByUserID.get(customerID);
+        String value = normalize(accountID);
+        if (doc == null || value == null || doc.accounts.contains(value)) {
+            return;
+        }
+        List<String> accounts = new ArrayList<>(doc.accounts);
+        accounts.add(value);
+        Doc updated = new Doc(doc.id, doc.row, List.copyOf(accounts));
+        docs.set(doc.id, updated);
+        docsByUserID.put(customerID, updated);
+        fields.get(Field.ACCOUNT).add(doc.id, new String[] {value});
+    }
+
+    private static String normalize(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return null;
+        }
+        return value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    // Three UTF-16 chars packed into one long
+    private static long trigram(String s, int i) {
+        return ((long) s.charAt(i) << 32) | ((long) s.charAt(i + 1) << 16) | s.charAt(i + 2);
+    }
+
+    // Keys for short typeahead: the first one and two characters of the value and of every word
+    private static List<String> prefixKeys(String value) {
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < value.length(); i++) {
+            if (i == 0 || isWordStart(value, i)) {
+                keys.add(value.substring(i, i + 1));
+                if (i + 2 <= value.length()) {
+                    keys.add(value.substring(i, i + 2));
+                }
+            }
+        }
+        return keys;
+    }
+
+    private static boolean isWordStart(String value, int i) {
+        return i == 0 || (Character.isLetterOrDigit(value.charAt(i)) && !Character.isLetterOrDigit(value.charAt(i - 1)));
+    }
+
+    private static boolean containsWordPrefix(String value, String query) {
+        for (int at = value.indexOf(query); at >= 0; at = value.indexOf(query, at + 1)) {
+            if (isWordStart(value, at)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int[] intersect(int[] a, int aLength, int[] b, int bLength) {
+        int[] out = new int[Math.min(aLength, bLength)];
+        int i = 0, j = 0, n = 0;
+        while (i < aLength && j < bLength) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                out[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    private static final class FieldIndex {
+        private final Map<Long, Postings> grams = new HashMap<>();
+        private final Map<String, Postings> prefixes = new HashMap<>();
+
+        void add(int docID, String[] values) {
+            for (String value : values) {
+                for (int i = 0; i + 3 <= value.length(); i++) {
+                    grams.computeIfAbsent(trigram(value, i), g -> new Postings()).add(docID);
+                }
+                for (String key : prefixKeys(value)) {
+                    prefixes.computeIfAbsent(key, k -> new Postings()).add(docID);
+                }
+            }
+        }
+
+        void remove(int docID, String[] values) {
+            for (String value : values) {
+                for (int i = 0; i + 3 <= value.length(); i++) {
+                    long gram = trigram(value, i);
+                    Postings postings = grams.get(gram);
+                    if (postings != null && postings.remove(docID) && postings.size == 0) {
+                        grams.remove(gram);
+                    }
+                }
+                for (String key : prefixKeys(value)) {
+                    Postings postings = prefixes.get(key);
+                    if (postings != null && postings.remove(docID) && postings.size == 0) {
+                        prefixes.remove(key);
+                    }
+                }
+            }
+        }
+
+        // Docs containing every trigram of the query, shortest posting list first
+        int[] trigramCandidates(String query) {
+            List<Postings> lists = new ArrayList<>();
+            for (int i = 0; i + 3 <= query.length(); i++) {
+                Postings postings = grams.get(trigram(query, i));
+                if (postings == null) {
+                    return new int[0];
+                }
+                lists.add(postings);
+            }
+            lists.sort(Comparator.comparingInt(postings -> postings.size));
+            Postings smallest = lists.get(0);
+            int[] result = Arrays.copyOf(smallest.ids, smallest.size);
+            for (int i = 1; i < lists.size() && result.length > 0; i++) {
+                Postings next = lists.get(i);
+                result = intersect(result, result.length, next.ids, next.size);
+            }
+            return result;
+        }
+
+        // Docs with a word starting with the (one- or two-character) query
+        int[] prefixCandidates(String prefix) {
+            Postings postings = prefixes.get(prefix);
+            return postings != null ? Arrays.copyOf(postings.ids, postings.size) : new int[0];
+        }
+    }
+
+    // Sorted, duplicate-free list of doc IDs
+    private static final class Postings {
+        private int[] ids = new int[4];
+        private int size;
+
+        void add(int docID) {
+            int at = Arrays.binarySearch(ids, 0, size, docID);
+            if (at >= 0) {
+                return;
+            }
+            at = -at - 1;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            System.arraycopy(ids, at, ids, at + 1, size - at);
+            ids[at] = docID;
+            size++;
+        }
+
+        boolean remove(int docID) {
+            int at = Arrays.binarySearch(ids, 0, size, docID);
+            if (at < 0) {
+                return false;
+            }
+            System.arraycopy(ids, at + 1, ids, at, size - at - 1);
+            size--;
+            return true;
+        }
+    }
+
+    private static final class Doc {
+        private static final String[] NONE = new String[0];
+
+        private final int id;
+        private final UserCache.CachedUser row;
+        private final List<String> accounts;
+        private final String nameKey;
+        private final String role;
+        private final String[] nameValues;
+        private final String[] phoneValues;
+        private final String[] accountValues;
+
+        private Doc(int id, UserCache.CachedUser row, List<String> accounts) {
+            this.id = id;
+            this.row = row;
+            this.accounts = accounts;
+            this.nameKey = row.userName() != null ? row.userName().toLowerCase(Locale.ROOT) : "";
+            this.role = normalize(row.userRole());
+            String email = normalize(row.userEmail());
+            String phone = normalize(row.userPhone());
+            if (nameKey.isEmpty()) {
+                this.nameValues = email != null ? new String[] {email} : NONE;
+            } else {
+                this.nameValues = email != null ? new String[] {nameKey, email} : new String[] {nameKey};
+            }
+            this.phoneValues = phone != null ? new String[] {phone} : NONE;
+            this.accountValues = accounts.toArray(NONE);
+        }
+
+        String[] values(Field field) {
+            switch (field) {
+                case NAME:
+                    return nameValues;
+                case PHONE:
+                    return phoneValues;
+                default:
+                    return accountValues;
+            }
+        }
+
+        // -1 no match, 0 infix, 1 word prefix, 2 value prefix, 3 exact
+        int score(Field field, String query) {
+            int best = -1;
+            for (String value : values(field)) {
+                if (value.equals(query)) {
+                    return 3;
+                }
+                if (value.startsWith(query)) {
+                    best = 2;
+                } else if (best < 1 && value.contains(query)) {
+                    best = containsWordPrefix(value, query) ? 1 : 0;
+                }
+            }
+            // Short queries are word-prefix only, matching the candidate lookup
+            return query.length() < 3 && best == 0 ? -1 : best;
+        }
+    }
+
+    // Higher score first, then by name, then by user ID
+    private record Ranked(Doc doc, int score) implements Comparable<Ranked> {
+        static int compare(int scoreA, Doc a, int scoreB, Doc b) {
+            if (scoreA != scoreB) {
+                return Integer.compare(scoreB, scoreA);
+            }
+            int byName = a.nameKey.compareTo(b.nameKey);
+            return byName != 0 ? byName : a.row.userID().compareTo(b.row.userID());
+        }
+
+        @Override
+        public int compareTo(Ranked other) {
+            return compare(score, doc, other.score, other.doc);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package bank.config;
+
+import bank.AuditLog;
+import bank.Database;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class AuditConfig {
+
+    @Bean(destroyMethod = "shutdown")
+    public AuditLog auditLog(Database database,
+                             @Value("${bank.audit.queue-capacity:10000}") int capacity,
+                             @Value("${bank.audit.batch-size:200}") int batchSize,
+                             @Value("${bank.audit.flush-interval-ms:500}") long flushIntervalMillis,
+                             @Value("${bank.audit.offer-timeout-ms:100}") long offerTimeoutMillis) {
+        // Destroyed before the Database bean it depends on, so the final drain still has connections
+        AuditLog auditLog = new AuditLog(database, capacity, batchSize, flushIntervalMillis, offerTimeoutMillis);
+        auditLog.start();
+        return auditLog;
+    }
+}
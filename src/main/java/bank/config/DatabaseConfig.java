@@ -1,42 +1,64 @@
 package bank.config;
 
+import bank.BoundedDataSource;
 import bank.Database;
+import bank.Log;
+import bank.QueryDiagnostics;
+import bank.UserCache;
+import com.zaxxer.hikari.HikariDataSource;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import javax.sql.DataSource;
+import java.util.concurrent.CompletableFuture;
+
 @Configuration
 public class DatabaseConfig {
     
-    @Value("${spring.datasource.url}")
-    private String url;
-    
-    @Value("${spring.datasource.username}")
-    private String username;
-    
-    @Value("${spring.datasource.password}")
-    private String password;
-    
     @Bean
-    public Database database() {
-        // Extract database name from URL
-        String dbName = "mybankuml";
-        String baseUrl = url.replace("/" + dbName, "").replace("?useSSL=false&serverTimezone=UTC", "");
-        
-        Database db = new Database(baseUrl, username, password, dbName);
+    public Database database(DataSource dataSource,
+                             @Value("${bank.cache.users.max-size:10000}") int userCacheSize,
+                             @Value("${bank.cache.users.ttl-seconds:60}") long userCacheTtlSeconds,
+                             @Value("${bank.diagnostics.enabled:false}") boolean diagnosticsEnabled,
+                             @Value("${bank.diagnostics.sample-rate:0.01}") double diagnosticsSampleRate,
+                             @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        // The DataSource is the HikariCP pool Spring Boot builds from spring.datasource.* and
+        // spring.datasource.hikari.* in application.properties. Database borrows a connection
+        // per operation, so request threads no longer share a single socket.
+        // getUser reads go through a bounded TTL cache; saveUser invalidates it
+        // Empty-result diagnostics are off unless bank.diagnostics.enabled=true
+        DataSource source = virtualThreads ? bounded(dataSource) : dataSource;
+        Database db = new Database(source,
+            new UserCache(userCacheSize, userCacheTtlSeconds),
+            new QueryDiagnostics(source, diagnosticsEnabled, diagnosticsSampleRate));
         
         // Try to connect, but don't fail if it doesn't work immediately
-        // Connection will be retried on each request
+        // The pool keeps retrying as requests borrow connections
         if (!db.connect()) {
-            System.err.println("WARNING: Initial database connection failed. Will retry on first request.");
-            System.err.println("Please ensure:");
-            System.err.println("  1. MySQL server is running");
-            System.err.println("  2. Database 'mybankuml' exists (run: mysql -u root -p < database/schema.sql)");
-            System.err.println("  3. Username and password are correct in application.properties");
+            Log.warn("config", "WARNING: Initial database connection failed. Will retry on first request.");
+            Log.warn("config", "Please ensure:");
+            Log.warn("config", "  1. MySQL server is running");
+            Log.warn("config", "  2. Database 'mybankuml' exists (run: mysql -u root -p < database/schema.sql)");
+            Log.warn("config", "  3. Username and password are correct in application.properties");
+        } else {
+            // Build the user search index in the background so the first search doesn't pay for it
+            CompletableFuture.runAsync(db::loadSearchIndex);
         }
         
         return db;
     }
+
+    // With virtual threads Tomcat no longer caps concurrent requests at its thread pool, so
+    // database access is capped at the connection pool size instead
+    private static DataSource bounded(DataSource dataSource) {
+        if (!(dataSource instanceof HikariDataSource pool)) {
+            return dataSource;
+        }
+        Log.info("config", "Virtual threads enabled: database access limited to {} concurrent connection(s)",
+            pool.getMaximumPoolSize());
+        return new BoundedDataSource(pool, pool.getMaximumPoolSize(), pool.getConnectionTimeout());
+    }
 }
 
 
@@ -0,0 +1,19 @@
+package bank.config;
+
+import bank.Database;
+import bank.DebitCounters;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class DebitCounterConfig {
+
+    @Bean(destroyMethod = "shutdown")
+    public DebitCounters debitCounters(Database database,
+                                       @Value("${bank.debit-counters.flush-interval-ms:1000}") long flushIntervalMillis) {
+        DebitCounters counters = DebitCounters.getDefault();
+        counters.start(database, flushIntervalMillis);
+        return counters;
+    }
+}
@@ -0,0 +1,19 @@
+package bank.config;
+
+import bank.Database;
+import bank.IdempotencyStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class IdempotencyConfig {
+
+    @Bean
+    public IdempotencyStore idempotencyStore(Database database,
+                                             @Value("${bank.idempotency.max-entries:100000}") int maxEntries,
+                                             @Value("${bank.idempotency.ttl-seconds:86400}") long ttlSeconds,
+                                             @Value("${bank.idempotency.wait-timeout-ms:10000}") long waitTimeoutMillis) {
+        return new IdempotencyStore(database, maxEntries, ttlSeconds, waitTimeoutMillis);
+    }
+}
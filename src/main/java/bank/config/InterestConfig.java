@@ -0,0 +1,26 @@
+package bank.config;
+
+import bank.Database;
+import bank.InterestAccrual;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.LocalTime;
+
+@Configuration
+public class InterestConfig {
+
+    @Bean(destroyMethod = "shutdown")
+    public InterestAccrual interestAccrual(Database database,
+                                           @Value("${bank.interest.parallelism:0}") int parallelism,
+                                           @Value("${bank.interest.chunk-size:1000}") int chunkSize,
+                                           @Value("${bank.interest.schedule-enabled:true}") boolean scheduleEnabled,
+                                           @Value("${bank.interest.run-at:01:00}") String runAt) {
+        InterestAccrual accrual = new InterestAccrual(database, parallelism, chunkSize);
+        if (scheduleEnabled) {
+            accrual.scheduleDaily(LocalTime.parse(runAt));
+        }
+        return accrual;
+    }
+}
@@ -0,0 +1,26 @@
+package bank.config;
+
+import bank.AccountLockManager;
+import bank.Database;
+import bank.Ledger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConditionalOnProperty(name = "bank.ledger.enabled", havingValue = "true")
+public class LedgerConfig {
+
+    @Bean(destroyMethod = "shutdown")
+    public Ledger ledger(Database database,
+                         @Value("${bank.ledger.snapshot-interval-ms:5000}") long snapshotIntervalMillis,
+                         @Value("${bank.ledger.snapshot-every-entries:100}") int snapshotEveryEntries) {
+        // Shares the domain transactions' stripes, so a posting and an in-memory transfer on the
+        // same account serialize on one lock
+        Ledger ledger = new Ledger(database, AccountLockManager.getDefault(), snapshotIntervalMillis, snapshotEveryEntries);
+        database.setLedger(ledger);
+        ledger.start();
+        return ledger;
+    }
+}
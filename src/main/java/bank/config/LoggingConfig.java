@@ -0,0 +1,21 @@
+package bank.config;
+
+import bank.Log;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.util.Map;
+
+@Configuration
+public class LoggingConfig {
+
+    public LoggingConfig(Environment environment) {
+        // Levels are plain logging.level.bank[.<category>]; bank.log.sample.<category>=<0..1>
+        Map<String, Double> sampleRates = Binder.get(environment)
+            .bind("bank.log.sample", Bindable.mapOf(String.class, Double.class))
+            .orElse(Map.of());
+        Log.configure(sampleRates);
+    }
+}
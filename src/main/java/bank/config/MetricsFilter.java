@@ -0,0 +1,57 @@
+package bank.config;
+
+import bank.LatencyRecorder;
+import bank.Metrics;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Times every /api request and records it against its controller route
+ * (e.g. "POST /api/transactions/transfer") with the response status.
+ */
+@Component
+public class MetricsFilter extends OncePerRequestFilter {
+    // route pattern -> HTTP method -> recorder; both keys are strings Spring reuses per
+    // request, so steady-state lookups don't allocate
+    private final ConcurrentHashMap<String, ConcurrentHashMap<String, LatencyRecorder>> recorders = new ConcurrentHashMap<>();
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith("/api/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long start = System.nanoTime();
+        int status = 500;
+        try {
+            chain.doFilter(request, response);
+            status = response.getStatus();
+        } finally {
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            String route = pattern != null ? pattern.toString() : "unmatched";
+            recorderFor(request.getMethod(), route).record(System.nanoTime() - start, status);
+        }
+    }
+
+    private LatencyRecorder recorderFor(String method, String route) {
+        ConcurrentHashMap<String, LatencyRecorder> byMethod = recorders.get(route);
+        if (byMethod == null) {
+            byMethod = recorders.computeIfAbsent(route, r -> new ConcurrentHashMap<>());
+        }
+        LatencyRecorder recorder = byMethod.get(method);
+        if (recorder == null) {
+            recorder = byMethod.computeIfAbsent(method, m -> Metrics.http(m + " " + route));
+        }
+        return recorder;
+    }
+}
@@ -0,0 +1,49 @@
+package bank.config;
+
+import bank.Database;
+import bank.FileNotificationSender;
+import bank.Log;
+import bank.Notification;
+import bank.NotificationDispatcher;
+import bank.NotificationSender;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Configuration
+public class NotificationConfig {
+
+    @Bean(destroyMethod = "shutdown")
+    public NotificationDispatcher notificationDispatcher(Database database,
+                                                         @Value("${bank.notifications.enabled:true}") boolean enabled,
+                                                         @Value("${bank.notifications.directory:notifications}") String directory,
+                                                         @Value("${bank.notifications.batch-size:100}") int batchSize,
+                                                         @Value("${bank.notifications.poll-interval-ms:1000}") long pollIntervalMillis,
+                                                         @Value("${bank.notifications.max-attempts:8}") int maxAttempts,
+                                                         @Value("${bank.notifications.initial-backoff-ms:1000}") long initialBackoffMillis,
+                                                         @Value("${bank.notifications.max-backoff-ms:600000}") long maxBackoffMillis) {
+        // File senders stand in for the SMS and email gateways; swap in real NotificationSender
+        // implementations per channel here
+        Path outputDirectory = Path.of(directory);
+        Map<String, NotificationSender> senders = new LinkedHashMap<>();
+        senders.put(Notification.CHANNEL_SMS, new FileNotificationSender(outputDirectory, Notification.CHANNEL_SMS));
+        senders.put(Notification.CHANNEL_EMAIL, new FileNotificationSender(outputDirectory, Notification.CHANNEL_EMAIL));
+
+        NotificationDispatcher dispatcher = new NotificationDispatcher(database, senders, batchSize,
+            pollIntervalMillis, maxAttempts, initialBackoffMillis, maxBackoffMillis);
+        if (enabled) {
+            // Commits that write outbox rows wake the dispatcher instead of waiting for the next poll
+            database.setOutboxListener(dispatcher::wakeUp);
+            dispatcher.start();
+            Log.info("config", "Notification dispatcher started (batch size {}, files in {})",
+                batchSize, outputDirectory.toAbsolutePath());
+        } else {
+            Log.info("config", "Notification dispatcher disabled; outbox rows stay Pending");
+        }
+        return dispatcher;
+    }
+}
@@ -0,0 +1,19 @@
+package bank.config;
+
+import bank.Database;
+import bank.StatementJob;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class StatementJobConfig {
+
+    @Bean
+    public StatementJob statementJob(Database database,
+                                     @Value("${bank.statements.job.parallelism:0}") int parallelism,
+                                     @Value("${bank.statements.job.partition-size:500}") int partitionSize,
+                                     @Value("${bank.statements.job.batch-size:1000}") int batchSize) {
+        return new StatementJob(database, parallelism, partitionSize, batchSize);
+    }
+}
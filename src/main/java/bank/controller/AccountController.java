@@ -5,10 +5,12 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -81,9 +83,9 @@ public class AccountController {
             String customerID = (String) accountData.get("customerID");
             String accountType = (String) accountData.get("accountType"); // "Checking" or "Saving"
             String accountID = (String) accountData.get("accountID");
-            Double initialBalance = accountData.get("initialBalance") != null 
-                ? Double.parseDouble(accountData.get("initialBalance").toString()) 
-                : 0.0;
+            Money initialBalance = accountData.get("initialBalance") != null
+                ? Money.parse(accountData.get("initialBalance"))
+                : Money.ZERO;
             
             User user = database.getUser(customerID);
             if (!(user instanceof Customer)) {
@@ -98,9 +100,10 @@ public class AccountController {
             if ("Checking".equalsIgnoreCase(accountType) || "Check".equalsIgnoreCase(accountType)) {
                 account = new Checking(accountID, customer, initialBalance);
             } else if ("Saving".equalsIgnoreCase(accountType) || "Savings".equalsIgnoreCase(accountType)) {
-                double interestRate = accountData.get("interestRate") != null 
-                    ? Double.parseDouble(accountData.get("interestRate").toString()) 
-                    : 0.02; // Default 2% interest
+                // Given as a fraction (0.02 = 2%); stored as an annual percent
+                BigDecimal interestRate = accountData.get("interestRate") != null
+                    ? new BigDecimal(accountData.get("interestRate").toString()).movePointRight(2)
+                    : new BigDecimal("2.00"); // Default 2% interest
                 account = new Saving(accountID, customer, initialBalance, interestRate);
             } else {
                 response.put("success", false);
@@ -117,7 +120,7 @@ public class AccountController {
             // Also update the user in database to persist the account relationship
             database.saveUser(customer);
             
-            System.out.println("✓ Account created: " + accountID + " for customer: " + customerID);
+            Log.info("account", "Account created: {} for customer: {}", accountID, customerID);
             
             Map<String, Object> accountInfo = new HashMap<>();
             accountInfo.put("accountID", account.getAccountID());
@@ -132,14 +135,15 @@ public class AccountController {
         } catch (Exception e) {
             response.put("success", false);
             response.put("message", "Error creating account: " + e.getMessage());
-            System.err.println("Error creating account: " + e.getMessage());
-            e.printStackTrace();
+            Log.error("account", "Error creating account: {}", e.getMessage(), e);
             return ResponseEntity.status(500).body(response);
         }
     }
 
     @GetMapping("/details/{accountID}")
-    public ResponseEntity<Map<String, Object>> getAccountDetails(@PathVariable String accountID) {
+    public ResponseEntity<Map<String, Object>> getAccountDetails(@PathVariable String accountID,
+                                                                 @RequestParam(required = false) String cursor,
+                                                                 @RequestParam(required = false) Integer limit) {
         Map<String, Object> response = new HashMap<>();
         
         try {
@@ -149,36 +153,10 @@ public class AccountController {
                 return ResponseEntity.status(500).body(response);
             }
             
-            // Get account from database - use getAccountsForCustomer approach
-            Account account = null;
-            String customerID = null;
-            
-            // First, find which customer owns this account
-            String findCustomerSQL = "SELECT customer_id FROM accounts WHERE account_id = ?";
-            try (PreparedStatement stmt = database.getConnection().prepareStatement(findCustomerSQL)) {
-                stmt.setString(1, accountID);
-                ResultSet rs = stmt.executeQuery();
-                if (rs.next()) {
-                    customerID = rs.getString("customer_id");
-                } else {
-                    response.put("success", false);
-                    response.put("message", "Account not found");
-                    return ResponseEntity.status(404).body(response);
-                }
-            }
-            
-            // Get customer and load accounts
-            User user = database.getUser(customerID);
-            if (user instanceof Customer) {
-                Customer customer = (Customer) user;
-                List<Account> accounts = database.getAccountsForCustomer(customerID, customer);
-                account = accounts.stream()
-                    .filter(acc -> acc.getAccountID().equals(accountID))
-                    .findFirst()
-                    .orElse(null);
-            }
-            
-            if (account == null) {
+            // Account, owner and first transaction page in one read path (two queries)
+            AccountDetails details = database.getAccountDetails(accountID, cursor,
+                TransactionPage.clampPageSize(limit, TransactionPage.DEFAULT_PAGE_SIZE));
+            if (details == null) {
                 response.put("success", false);
                 response.put("message", "Account not found");
                 return ResponseEntity.status(404).body(response);
@@ -186,29 +164,88 @@ public class AccountController {
             
             // Get account info
             Map<String, Object> accountInfo = new HashMap<>();
-            accountInfo.put("accountID", account.getAccountID());
-            accountInfo.put("accountType", account.getClass().getSimpleName());
-            accountInfo.put("balance", account.getBalance());
-            accountInfo.put("customerID", account.getCustomerID());
+            accountInfo.put("accountID", details.getAccountID());
+            accountInfo.put("accountType", details.getAccountType());
+            accountInfo.put("balance", details.getBalance());
+            accountInfo.put("customerID", details.getCustomerID());
+            accountInfo.put("ownerName", details.getOwnerName());
+            accountInfo.put("ownerEmail", details.getOwnerEmail());
             
-            // Get transactions for this account
-            System.out.println("📋 Calling getTransactionsForAccount for account: " + accountID);
-            List<Map<String, Object>> transactions = database.getTransactionsForAccount(accountID);
-            System.out.println("📋 Retrieved " + transactions.size() + " transaction(s) from database");
-            accountInfo.put("transactions", transactions);
+            TransactionPage page = details.getTransactionPage();
+            accountInfo.put("transactions", page.getTransactions());
+            accountInfo.put("nextCursor", page.getNextCursor());
             
             response.put("success", true);
             response.put("account", accountInfo);
             return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            response.put("success", false);
+            response.put("message", "Invalid request: " + e.getMessage());
+            return ResponseEntity.status(400).body(response);
         } catch (Exception e) {
             response.put("success", false);
             response.put("message", "Error fetching account details: " + e.getMessage());
-            System.err.println("Error fetching account details: " + e.getMessage());
-            e.printStackTrace();
+            Log.error("account", "Error fetching account details: {}", e.getMessage(), e);
             return ResponseEntity.status(500).body(response);
         }
     }
-}
 
+    /**
+     * Opening and closing balance of the period (two point lookups) and the closing balance of
+     * each day in it that had activity. Dates are ISO (yyyy-MM-dd); the default is the last 30 days.
+     */
+    @GetMapping("/balance-history/{accountID}")
+    public ResponseEntity<Map<String, Object>> getBalanceHistory(@PathVariable String accountID,
+                                                                 @RequestParam(required = false) String from,
+                                                                 @RequestParam(required = false) String to) {
+        Map<String, Object> response = new HashMap<>();
+        LocalDate toDate;
+        LocalDate fromDate;
+        try {
+            toDate = to != null ? LocalDate.parse(to) : LocalDate.now();
+            fromDate = from != null ? LocalDate.parse(from) : toDate.minusDays(29);
+        } catch (DateTimeParseException e) {
+            response.put("success", false);
+            response.put("message", "Invalid date: " + e.getParsedString());
+            return ResponseEntity.status(400).body(response);
+        }
+        if (fromDate.isAfter(toDate)) {
+            response.put("success", false);
+            response.put("message", "from must not be after to");
+            return ResponseEntity.status(400).body(response);
+        }
 
+        try {
+            BalanceHistory history = database.getBalanceHistory();
+            if (history.openedOn(accountID) == null) {
+                response.put("success", false);
+                response.put("message", "Account not found");
+                return ResponseEntity.status(404).body(response);
+            }
+            BalanceHistory.Period period = history.period(List.of(accountID), fromDate, toDate);
+            List<Map<String, Object>> days = new ArrayList<>();
+            for (BalanceHistory.DailyBalance day : history.history(accountID, fromDate, toDate)) {
+                Map<String, Object> row = new LinkedHashMap<>();
+                row.put("date", day.date().toString());
+                row.put("closingBalance", day.closingBalance());
+                row.put("netChange", day.netChange());
+                row.put("entries", day.entries());
+                days.add(row);
+            }
 
+            response.put("success", true);
+            response.put("accountID", accountID);
+            response.put("from", fromDate.toString());
+            response.put("to", toDate.toString());
+            response.put("openingBalance", period.openingBalance());
+            response.put("closingBalance", period.closingBalance());
+            response.put("days", days);
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("message", "Error fetching balance history: " + e.getMessage());
+            Log.error("account", "Error fetching balance history: {}", e.getMessage(), e);
+            return ResponseEntity.status(500).body(response);
+        }
+    }
+}
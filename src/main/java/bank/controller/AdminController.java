@@ -2,9 +2,12 @@ package bank.controller;
 
 import bank.*;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -18,12 +21,33 @@ public class AdminController {
     @Autowired
     private Database database;
 
+    @Autowired
+    private AuditLog auditLog;
+
+    @Autowired
+    private IdempotencyStore idempotencyStore;
+
+    @Autowired
+    private NotificationDispatcher notificationDispatcher;
+
+    @Autowired(required = false)
+    private Ledger ledger;
+
+    @Autowired
+    private StatementJob statementJob;
+
+    @Autowired
+    private InterestAccrual interestAccrual;
+
+    @Autowired
+    private DebitCounters debitCounters;
+
     @GetMapping("/test")
     public ResponseEntity<Map<String, Object>> test() {
         Map<String, Object> response = new HashMap<>();
         response.put("success", true);
         response.put("message", "Admin controller is working!");
-        System.out.println("✓ Test endpoint called");
+        Log.info("admin", "Test endpoint called");
         return ResponseEntity.ok(response);
     }
 
@@ -41,6 +65,23 @@ public class AdminController {
 
             response.put("success", true);
             response.put("totalUsers", totalUsers);
+            response.put("accountLocks", AccountLockManager.getDefault().getMetrics());
+            response.put("userCache", database.getUserCache().getMetrics());
+            response.put("searchIndex", database.getSearchIndex().getMetrics());
+            response.put("log", Log.getMetrics());
+            response.put("notifications", notificationDispatcher.getMetrics());
+            response.put("audit", auditLog.getMetrics());
+            response.put("idempotency", idempotencyStore.getMetrics());
+            response.put("statementJob", statementJob.getMetrics());
+            response.put("balanceHistory", database.getBalanceHistory().getMetrics());
+            response.put("interest", interestAccrual.getMetrics());
+            response.put("debitCounters", debitCounters.getMetrics());
+            if (ledger != null) {
+                response.put("ledger", ledger.getMetrics());
+            }
+            if (database.getDataSource() instanceof BoundedDataSource bounded) {
+                response.put("dbPermits", bounded.getMetrics());
+            }
             return ResponseEntity.ok(response);
         } catch (Exception e) {
             response.put("success", false);
@@ -49,35 +90,194 @@ public class AdminController {
         }
     }
 
+    @GetMapping("/diagnostics")
+    public ResponseEntity<Map<String, Object>> getDiagnostics() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("diagnostics", database.getDiagnostics().getReport());
+        return ResponseEntity.ok(response);
+    }
+
+    @PostMapping("/diagnostics")
+    public ResponseEntity<Map<String, Object>> configureDiagnostics(@RequestBody Map<String, Object> data) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            QueryDiagnostics diagnostics = database.getDiagnostics();
+            boolean enabled = data.containsKey("enabled")
+                ? Boolean.parseBoolean(String.valueOf(data.get("enabled")))
+                : diagnostics.isEnabled();
+            double sampleRate = data.containsKey("sampleRate")
+                ? Double.parseDouble(String.valueOf(data.get("sampleRate")))
+                : diagnostics.getSampleRate();
+            diagnostics.configure(enabled, sampleRate);
+            
+            response.put("success", true);
+            response.put("enabled", diagnostics.isEnabled());
+            response.put("sampleRate", diagnostics.getSampleRate());
+            return ResponseEntity.ok(response);
+        } catch (NumberFormatException e) {
+            response.put("success", false);
+            response.put("message", "Invalid sampleRate: " + e.getMessage());
+            return ResponseEntity.status(400).body(response);
+        }
+    }
+
+    /**
+     * Replays an account's ledger entries from the start and compares the result with its cached
+     * and snapshot balances; ?rebuild=true makes the replayed balance the current one.
+     */
+    @PostMapping("/ledger/replay/{accountID}")
+    public ResponseEntity<Map<String, Object>> replayLedger(@PathVariable String accountID,
+                                                            @RequestParam(defaultValue = "false") boolean rebuild) {
+        Map<String, Object> response = new HashMap<>();
+        if (ledger == null) {
+            response.put("success", false);
+            response.put("message", "Ledger is disabled");
+            return ResponseEntity.status(404).body(response);
+        }
+        try {
+            response.put("success", true);
+            response.put("replay", ledger.replay(accountID, rebuild));
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("message", "Replay failed: " + e.getMessage());
+            return ResponseEntity.status(500).body(response);
+        }
+    }
+
+    @GetMapping("/ledger/trial-balance")
+    public ResponseEntity<Map<String, Object>> trialBalance() {
+        Map<String, Object> response = new HashMap<>();
+        if (ledger == null) {
+            response.put("success", false);
+            response.put("message", "Ledger is disabled");
+            return ResponseEntity.status(404).body(response);
+        }
+        try {
+            response.put("success", true);
+            response.put("trialBalance", ledger.trialBalance());
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("message", "Trial balance failed: " + e.getMessage());
+            return ResponseEntity.status(500).body(response);
+        }
+    }
+
+    /**
+     * Rebuilds account_daily_balances from the ledger in the background, chunkSize accounts at a
+     * time; progress is under "balanceHistory" in /stats.
+     */
+    @PostMapping("/balance-history/backfill")
+    public ResponseEntity<Map<String, Object>> backfillBalanceHistory(@RequestParam(defaultValue = "500") int chunkSize) {
+        Map<String, Object> response = new HashMap<>();
+        BalanceHistory history = database.getBalanceHistory();
+        if (!history.tryStartBackfill()) {
+            response.put("success", false);
+            response.put("message", "A backfill is already running");
+            return ResponseEntity.status(409).body(response);
+        }
+        Thread runner = new Thread(() -> {
+            try {
+                history.backfill(chunkSize);
+            } catch (Exception e) {
+                // logged by the backfill
+            }
+        }, "balance-backfill");
+        runner.setDaemon(true);
+        runner.start();
+        response.put("success", true);
+        response.put("message", "Backfill started");
+        return ResponseEntity.accepted().body(response);
+    }
+
+    /**
+     * Accrues one day of interest on all Saving accounts in the background (default: yesterday);
+     * a date that was interrupted resumes, a finished one is not accrued again.
+     */
+    @PostMapping("/interest/accrue")
+    public ResponseEntity<Map<String, Object>> accrueInterest(@RequestParam(required = false) String date) {
+        Map<String, Object> response = new HashMap<>();
+        LocalDate runDate;
+        try {
+            runDate = date != null ? LocalDate.parse(date) : LocalDate.now().minusDays(1);
+        } catch (DateTimeParseException e) {
+            response.put("success", false);
+            response.put("message", "Invalid date: " + date);
+            return ResponseEntity.status(400).body(response);
+        }
+        if (runDate.isAfter(LocalDate.now())) {
+            response.put("success", false);
+            response.put("message", "Cannot accrue interest for a future date");
+            return ResponseEntity.status(400).body(response);
+        }
+        if (!interestAccrual.tryStart()) {
+            response.put("success", false);
+            response.put("message", "An interest accrual run is already in progress");
+            return ResponseEntity.status(409).body(response);
+        }
+        Thread runner = new Thread(() -> {
+            try {
+                interestAccrual.run(runDate);
+            } catch (Exception e) {
+                // logged and counted by the run
+            }
+        }, "interest-accrual-manual");
+        runner.setDaemon(true);
+        runner.start();
+        response.put("success", true);
+        response.put("date", runDate.toString());
+        return ResponseEntity.accepted().body(response);
+    }
+
+    /**
+     * Latency histograms per endpoint and per database query; ?format=prometheus returns the
+     * Prometheus text exposition instead of JSON.
+     */
+    @GetMapping("/metrics")
+    public ResponseEntity<?> getMetrics(@RequestParam(required = false) String format) {
+        if ("prometheus".equalsIgnoreCase(format)) {
+            return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("text/plain; version=0.0.4; charset=utf-8"))
+                .body(Metrics.toPrometheus());
+        }
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("metrics", Metrics.toMap());
+        return ResponseEntity.ok(response);
+    }
+
     @GetMapping("/users/search")
     public ResponseEntity<Map<String, Object>> searchUsers(@RequestParam(required = false) String name,
                                                           @RequestParam(required = false) String accountNumber,
                                                           @RequestParam(required = false) String phoneNumber,
-                                                          @RequestParam(required = false) String userType) {
-        System.out.println("========================================");
-        System.out.println("🔍 SEARCH REQUEST RECEIVED");
-        System.out.println("  name: " + (name != null ? name : "null"));
-        System.out.println("  accountNumber: " + (accountNumber != null ? accountNumber : "null"));
-        System.out.println("  phoneNumber: " + (phoneNumber != null ? phoneNumber : "null"));
-        System.out.println("  userType: " + (userType != null ? userType : "null"));
-        System.out.println("========================================");
+                                                          @RequestParam(required = false) String userType,
+                                                          @RequestParam(required = false) Integer limit) {
+        Log.debug("admin", "========================================");
+        Log.info("admin", "SEARCH REQUEST RECEIVED");
+        Log.info("admin", "  name: {}", name);
+        Log.info("admin", "  accountNumber: {}", accountNumber);
+        Log.info("admin", "  phoneNumber: {}", phoneNumber);
+        Log.info("admin", "  userType: {}", userType);
+        Log.debug("admin", "========================================");
         
         Map<String, Object> response = new HashMap<>();
         
         try {
-            System.out.println("🔍 Attempting database connection...");
+            Log.info("admin", "Attempting database connection...");
             if (!database.connect()) {
-                System.err.println("✗ Database connection failed!");
+                Log.error("admin", "Database connection failed!");
                 response.put("success", false);
                 response.put("message", "Database connection failed");
                 return ResponseEntity.status(500).body(response);
             }
-            System.out.println("✓ Database connected");
+            Log.info("admin", "Database connected");
             
             // Build search query based on provided parameters
-            System.out.println("🔍 Calling database.searchUsers...");
-            List<User> foundUsers = database.searchUsers(name, accountNumber, phoneNumber, userType);
-            System.out.println("✓ Database returned " + foundUsers.size() + " user(s)");
+            Log.info("admin", "Calling database.searchUsers...");
+            List<User> foundUsers = database.searchUsers(name, accountNumber, phoneNumber, userType, UserSearchIndex.clampLimit(limit));
+            Log.info("admin", "Database returned {} user(s)", foundUsers.size());
             
             // Convert users to response format
             List<Map<String, Object>> userList = new ArrayList<>();
@@ -91,14 +291,13 @@ public class AdminController {
                 userList.add(userMap);
             }
             
-            System.out.println("✓ Search found " + userList.size() + " user(s)");
-            System.out.println("========================================");
+            Log.info("admin", "Search found {} user(s)", userList.size());
+            Log.debug("admin", "========================================");
             response.put("success", true);
             response.put("users", userList);
             return ResponseEntity.ok(response);
         } catch (Exception e) {
-            System.err.println("✗ SEARCH ERROR: " + e.getMessage());
-            e.printStackTrace();
+            Log.error("admin", "SEARCH ERROR: {}", e.getMessage(), e);
             response.put("success", false);
             response.put("message", "Search failed: " + e.getMessage());
             return ResponseEntity.status(500).body(response);
@@ -118,6 +317,8 @@ public class AdminController {
             }
             
             String newRole = data.get("role");
+            // Read the stored row, not a cached copy, before changing the role
+            database.invalidateUser(userID);
             User user = database.getUser(userID);
             
             if (user == null) {
@@ -126,8 +327,10 @@ public class AdminController {
                 return ResponseEntity.status(404).body(response);
             }
             
+            String previousRole = user.getUserRole();
             user.setUserRole(newRole);
             database.saveUser(user);
+            auditLog.record(userID, AuditLog.ROLE_CHANGE, "Role changed from " + previousRole + " to " + newRole);
             
             response.put("success", true);
             response.put("message", "Role assigned successfully");
@@ -17,6 +17,9 @@ public class AuthController {
     @Autowired
     private Database database;
 
+    @Autowired
+    private AuditLog auditLog;
+
     @PostMapping("/login")
     public ResponseEntity<Map<String, Object>> login(@RequestBody Map<String, String> credentials) {
         String userID = credentials.get("username");
@@ -36,24 +39,28 @@ public class AuthController {
             if (user == null) {
                 response.put("success", false);
                 response.put("message", "User not found. Please check your User ID or email.");
-                System.out.println("Login failed: User not found - " + userID);
+                Log.info("auth", "Login failed: User not found - {}", userID);
+                auditLog.record(null, AuditLog.LOGIN_FAILED, "Unknown user: " + userID);
                 return ResponseEntity.status(401).body(response);
             }
             
             if (!user.login(password)) {
                 response.put("success", false);
                 response.put("message", "Invalid password");
-                System.out.println("Login failed: Invalid password for user - " + userID);
+                Log.info("auth", "Login failed: Invalid password for user - {}", userID);
+                auditLog.record(user.getUserID(), AuditLog.LOGIN_FAILED, "Invalid password");
                 return ResponseEntity.status(401).body(response);
             }
             
             if (!user.isActive()) {
+                auditLog.record(user.getUserID(), AuditLog.LOGIN_FAILED, "Account is inactive");
                 response.put("success", false);
                 response.put("message", "Account is inactive");
                 return ResponseEntity.status(403).body(response);
             }
             
-            System.out.println("✓ Login successful: " + user.getUserID());
+            Log.info("auth", "Login successful: {}", user.getUserID());
+            auditLog.record(user.getUserID(), AuditLog.LOGIN, "Login successful");
             response.put("success", true);
             response.put("user", Map.of(
                 "userID", user.getUserID(),
@@ -108,7 +115,7 @@ public class AuthController {
                 requestedRole = "customer";
             }
 
-            System.out.println("Requested role from client: '" + requestedRole + "'");
+            Log.info("auth", "Requested role from client: '{}'", requestedRole);
             String normalizedRole = requestedRole.toLowerCase();
 
             User newUser;
@@ -155,7 +162,7 @@ public class AuthController {
             }
             
             database.saveUser(newUser);
-            System.out.println("✓ User registered: " + newUser.getUserID() + " (role: " + newUser.getUserRole() + ")");
+            Log.info("auth", "User registered: {} (role: {})", newUser.getUserID(), newUser.getUserRole());
             
             response.put("success", true);
             response.put("message", "User registered successfully");
@@ -169,14 +176,12 @@ public class AuthController {
         } catch (SQLException e) {
             response.put("success", false);
             response.put("message", "Registration failed: " + e.getMessage());
-            System.err.println("Registration error: " + e.getMessage());
-            e.printStackTrace();
+            Log.error("auth", "Registration error: {}", e.getMessage(), e);
             return ResponseEntity.status(500).body(response);
         } catch (Exception e) {
             response.put("success", false);
             response.put("message", "Registration failed: " + e.getMessage());
-            System.err.println("Registration error: " + e.getMessage());
-            e.printStackTrace();
+            Log.error("auth", "Registration error: {}", e.getMessage(), e);
             return ResponseEntity.status(500).body(response);
         }
     }
@@ -2,9 +2,18 @@ package bank.controller;
 
 import bank.*;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -22,31 +31,32 @@ public class BankerController {
     public ResponseEntity<Map<String, Object>> searchCustomers(
             @RequestParam(required = false) String name,
             @RequestParam(required = false) String accountNumber,
-            @RequestParam(required = false) String phoneNumber) {
-        System.out.println("========================================");
-        System.out.println("🔍 BANKER/MANAGER CUSTOMER SEARCH REQUEST");
-        System.out.println("  name: " + (name != null ? name : "null"));
-        System.out.println("  accountNumber: " + (accountNumber != null ? accountNumber : "null"));
-        System.out.println("  phoneNumber: " + (phoneNumber != null ? phoneNumber : "null"));
-        System.out.println("  userType: customer (hardcoded)");
-        System.out.println("========================================");
+            @RequestParam(required = false) String phoneNumber,
+            @RequestParam(required = false) Integer limit) {
+        Log.debug("banker", "========================================");
+        Log.info("banker", "BANKER/MANAGER CUSTOMER SEARCH REQUEST");
+        Log.info("banker", "  name: {}", name);
+        Log.info("banker", "  accountNumber: {}", accountNumber);
+        Log.info("banker", "  phoneNumber: {}", phoneNumber);
+        Log.info("banker", "  userType: customer (hardcoded)");
+        Log.debug("banker", "========================================");
         
         Map<String, Object> response = new HashMap<>();
         
         try {
-            System.out.println("🔍 Attempting database connection...");
+            Log.info("banker", "Attempting database connection...");
             if (!database.connect()) {
-                System.err.println("✗ Database connection failed!");
+                Log.error("banker", "Database connection failed!");
                 response.put("success", false);
                 response.put("message", "Database connection failed");
                 return ResponseEntity.status(500).body(response);
             }
-            System.out.println("✓ Database connected");
+            Log.info("banker", "Database connected");
             
             // Search with userType hardcoded to "customer" - bankers/managers can only search customers
-            System.out.println("🔍 Calling database.searchUsers with userType='customer'...");
-            List<User> foundUsers = database.searchUsers(name, accountNumber, phoneNumber, "customer");
-            System.out.println("✓ Database returned " + foundUsers.size() + " customer(s)");
+            Log.info("banker", "Calling database.searchUsers with userType='customer'...");
+            List<User> foundUsers = database.searchUsers(name, accountNumber, phoneNumber, "customer", UserSearchIndex.clampLimit(limit));
+            Log.info("banker", "Database returned {} customer(s)", foundUsers.size());
             
             // Convert users to response format
             List<Map<String, Object>> userList = new ArrayList<>();
@@ -63,14 +73,13 @@ public class BankerController {
                 }
             }
             
-            System.out.println("✓ Search found " + userList.size() + " customer(s)");
-            System.out.println("========================================");
+            Log.info("banker", "Search found {} customer(s)", userList.size());
+            Log.debug("banker", "========================================");
             response.put("success", true);
             response.put("users", userList);
             return ResponseEntity.ok(response);
         } catch (Exception e) {
-            System.err.println("✗ SEARCH ERROR: " + e.getMessage());
-            e.printStackTrace();
+            Log.error("banker", "SEARCH ERROR: {}", e.getMessage(), e);
             response.put("success", false);
             response.put("message", "Search failed: " + e.getMessage());
             return ResponseEntity.status(500).body(response);
@@ -78,11 +87,13 @@ public class BankerController {
     }
 
     @GetMapping("/customers/{customerID}")
-    public ResponseEntity<Map<String, Object>> getCustomerDetails(@PathVariable String customerID) {
-        System.out.println("========================================");
-        System.out.println("👤 BANKER/MANAGER CUSTOMER DETAILS REQUEST");
-        System.out.println("  customerID: " + customerID);
-        System.out.println("========================================");
+    public ResponseEntity<Map<String, Object>> getCustomerDetails(@PathVariable String customerID,
+                                                                  @RequestParam(required = false) String cursor,
+                                                                  @RequestParam(required = false) Integer limit) {
+        Log.debug("banker", "========================================");
+        Log.info("banker", "BANKER/MANAGER CUSTOMER DETAILS REQUEST");
+        Log.info("banker", "  customerID: {}", customerID);
+        Log.debug("banker", "========================================");
         
         Map<String, Object> response = new HashMap<>();
         
@@ -128,21 +139,27 @@ public class BankerController {
             }
             customerMap.put("accounts", accountList);
             
-            // Load transactions
-            List<Map<String, Object>> transactions = database.getTransactionsForCustomer(customer.getCustomerID());
+            // Load one page of transactions (pass nextCursor back as ?cursor= for the next page)
+            TransactionPage page = database.getTransactionsForCustomer(customer.getCustomerID(), cursor,
+                TransactionPage.clampPageSize(limit, TransactionPage.DEFAULT_PAGE_SIZE));
+            List<Map<String, Object>> transactions = page.getTransactions();
             customerMap.put("transactions", transactions);
+            customerMap.put("nextCursor", page.getNextCursor());
             
-            System.out.println("✓ Loaded customer details: " + customer.getUserID());
-            System.out.println("  Accounts: " + accountList.size());
-            System.out.println("  Transactions: " + transactions.size());
-            System.out.println("========================================");
+            Log.info("banker", "Loaded customer details: {}", customer.getUserID());
+            Log.info("banker", "  Accounts: {}", accountList.size());
+            Log.info("banker", "  Transactions: {}", transactions.size());
+            Log.debug("banker", "========================================");
             
             response.put("success", true);
             response.put("customer", customerMap);
             return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            response.put("success", false);
+            response.put("message", "Invalid request: " + e.getMessage());
+            return ResponseEntity.status(400).body(response);
         } catch (Exception e) {
-            System.err.println("✗ ERROR loading customer details: " + e.getMessage());
-            e.printStackTrace();
+            Log.error("banker", "ERROR loading customer details: {}", e.getMessage(), e);
             response.put("success", false);
             response.put("message", "Failed to load customer details: " + e.getMessage());
             return ResponseEntity.status(500).body(response);
@@ -151,11 +168,13 @@ public class BankerController {
 
     @GetMapping("/transactions")
     public ResponseEntity<Map<String, Object>> getTransactions(
-            @RequestParam(required = false) String customerID) {
-        System.out.println("========================================");
-        System.out.println("📋 BANKER TRANSACTIONS REQUEST");
-        System.out.println("  customerID filter: " + (customerID != null ? customerID : "all"));
-        System.out.println("========================================");
+            @RequestParam(required = false) String customerID,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        Log.debug("banker", "========================================");
+        Log.info("banker", "BANKER TRANSACTIONS REQUEST");
+        Log.info("banker", "  customerID filter: {}", customerID != null ? customerID : "all");
+        Log.debug("banker", "========================================");
         
         Map<String, Object> response = new HashMap<>();
         
@@ -166,24 +185,89 @@ public class BankerController {
                 return ResponseEntity.status(500).body(response);
             }
             
-            List<Map<String, Object>> transactions = database.getAllTransactions(customerID);
+            TransactionPage page = database.getAllTransactions(customerID, cursor,
+                TransactionPage.clampPageSize(limit, TransactionPage.MAX_PAGE_SIZE));
+            List<Map<String, Object>> transactions = page.getTransactions();
             
-            System.out.println("✓ Loaded " + transactions.size() + " transaction(s)");
+            Log.info("banker", "Loaded {} transaction(s)", transactions.size());
             if (transactions.size() == 0) {
-                System.out.println("⚠️  No transactions found in database");
+                Log.warn("banker", "No transactions found in database");
             }
-            System.out.println("========================================");
+            Log.debug("banker", "========================================");
             
             response.put("success", true);
             response.put("transactions", transactions);
+            response.put("nextCursor", page.getNextCursor());
             return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            response.put("success", false);
+            response.put("message", "Invalid request: " + e.getMessage());
+            return ResponseEntity.status(400).body(response);
         } catch (Exception e) {
-            System.err.println("✗ ERROR loading transactions: " + e.getMessage());
-            e.printStackTrace();
+            Log.error("banker", "ERROR loading transactions: {}", e.getMessage(), e);
             response.put("success", false);
             response.put("message", "Failed to load transactions: " + e.getMessage());
             return ResponseEntity.status(500).body(response);
         }
     }
-}
 
+    /**
+     * Full transaction dump for bankers and auditors, streamed row by row from a forward-only
+     * cursor. {@code from} is inclusive and {@code to} exclusive; both accept a date
+     * (2024-01-31) or a date-time (2024-01-31T12:00:00).
+     */
+    @GetMapping("/transactions/export")
+    public ResponseEntity<?> exportTransactions(
+            @RequestParam(required = false) String format,
+            @RequestParam(required = false) String customerID,
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to) {
+        TransactionExportWriter.Format exportFormat;
+        Timestamp fromTs;
+        Timestamp toTs;
+        try {
+            exportFormat = TransactionExportWriter.Format.parse(format);
+            fromTs = parseTimestamp(from);
+            toTs = parseTimestamp(to);
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", "Invalid export request: " + e.getMessage());
+            return ResponseEntity.status(400).body(response);
+        }
+
+        Log.info("banker", "BANKER TRANSACTION EXPORT ({}, customerID: {}, from: {}, to: {})",
+            exportFormat.getExtension(), customerID != null ? customerID : "all", from, to);
+
+        StreamingResponseBody body = out -> {
+            long start = System.nanoTime();
+            long rows;
+            try (TransactionExportWriter writer = new TransactionExportWriter(out, exportFormat)) {
+                rows = database.streamTransactions(customerID, fromTs, toTs, writer);
+            } catch (SQLException e) {
+                Log.error("banker", "Transaction export failed: {}", e.getMessage());
+                throw new IOException("Transaction export failed", e);
+            }
+            double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+            Log.info("banker", "Exported {} transaction(s) in {} s ({} rows/sec)",
+                rows, String.format("%.2f", seconds), String.format("%.0f", seconds > 0 ? rows / seconds : rows));
+        };
+
+        return ResponseEntity.ok()
+            .contentType(MediaType.parseMediaType(exportFormat.getContentType()))
+            .header(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"transactions." + exportFormat.getExtension() + "\"")
+            .body(body);
+    }
+
+    private static Timestamp parseTimestamp(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        String trimmed = value.trim();
+        if (trimmed.length() == 10) {
+            return Timestamp.valueOf(LocalDate.parse(trimmed).atStartOfDay());
+        }
+        return Timestamp.valueOf(LocalDateTime.parse(trimmed));
+    }
+}
@@ -17,6 +17,9 @@ public class LoanController {
     @Autowired
     private Database database;
 
+    @Autowired
+    private AuditLog auditLog;
+
     @PostMapping("/request")
     public ResponseEntity<Map<String, Object>> requestLoan(@RequestBody Map<String, Object> loanData) {
         Map<String, Object> response = new HashMap<>();
@@ -29,7 +32,7 @@ public class LoanController {
             }
             
             String customerID = (String) loanData.get("customerID");
-            Double amount = Double.parseDouble(loanData.get("amount").toString());
+            Money amount = Money.parse(loanData.get("amount"));
             String purpose = (String) loanData.get("purpose");
             String proofOfIncome = (String) loanData.get("proofOfIncome");
             
@@ -111,7 +114,10 @@ public class LoanController {
             
             BankManager manager = (BankManager) user;
             manager.approveLoan(loanRequest);
-            database.saveLoanRequest(loanRequest);
+
+            // The approval and the disbursement are committed together
+            UnitOfWork unitOfWork = database.beginUnitOfWork();
+            unitOfWork.saveLoanRequest(loanRequest);
 
             // Credit approved amount to customer's checking account
             Customer customer = loanRequest.getCustomer();
@@ -123,6 +129,7 @@ public class LoanController {
             customer.getOwnedAccounts().addAll(accounts);
 
             Account targetAccount = null;
+            boolean targetAccountCreated = false;
             // Prefer an existing checking account
             for (Account acc : accounts) {
                 if (acc instanceof Checking) {
@@ -137,20 +144,28 @@ public class LoanController {
                     targetAccount = accounts.get(0);
                 } else {
                     String newAccountID = "LOAN" + customerID + System.currentTimeMillis();
-                    targetAccount = new Checking(newAccountID, customer, 0.0);
+                    targetAccount = new Checking(newAccountID, customer, Money.ZERO);
                     customer.getOwnedAccounts().add(targetAccount);
-                    database.saveAccount(targetAccount);
+                    targetAccountCreated = true;
                 }
             }
 
-            double amount = loanRequest.getAmount();
-            double before = targetAccount.getBalance();
-            targetAccount.credit(amount);
-            double after = targetAccount.getBalance();
+            // The disbursement is balanced against the loans GL account. A new account is
+            // inserted with a zero balance, then credited like any other
+            Money amount = loanRequest.getAmount();
+            unitOfWork.describePosting(Ledger.LOAN_DISBURSEMENT, loanID, Ledger.GL_LOANS);
+            if (targetAccountCreated) {
+                unitOfWork.saveAccount(targetAccount);
+            }
+            unitOfWork.credit(targetAccount, amount);
+            unitOfWork.commit();
 
-            System.out.println("💰 Loan approved: crediting $" + amount + " to account " + targetAccount.getAccountID()
-                + " (balance " + before + " -> " + after + ")");
-            database.saveAccount(targetAccount);
+            Money before = targetAccount.getBalance();
+            targetAccount.credit(amount);
+            Log.info("loan", "Loan approved: credited ${} to account {} (balance {} -> {})",
+                amount, targetAccount.getAccountID(), before, targetAccount.getBalance());
+            auditLog.record(managerID, AuditLog.LOAN_APPROVED, "Loan " + loanID + " for " + customerID
+                + ": $" + amount + " credited to " + targetAccount.getAccountID());
 
             response.put("success", true);
             response.put("message", "Loan approved and funds credited");
@@ -196,6 +211,8 @@ public class LoanController {
             BankManager manager = (BankManager) user;
             manager.rejectLoan(loanRequest);
             database.saveLoanRequest(loanRequest);
+            auditLog.record(managerID, AuditLog.LOAN_REJECTED, "Loan " + loanID + " for "
+                + loanRequest.getCustomer().getCustomerID() + ": $" + loanRequest.getAmount());
             
             response.put("success", true);
             response.put("message", "Loan rejected");
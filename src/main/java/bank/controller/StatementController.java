@@ -18,6 +18,9 @@ public class StatementController {
     @Autowired
     private Database database;
 
+    @Autowired
+    private StatementJob statementJob;
+
     @PostMapping("/generate")
     public ResponseEntity<Map<String, Object>> generateStatement(@RequestBody Map<String, Object> statementData) {
         Map<String, Object> response = new HashMap<>();
@@ -44,14 +47,13 @@ public class StatementController {
             
             Customer customer = (Customer) user;
             List<Account> accounts = new ArrayList<>();
-            for (String accountID : accountIDs) {
-                Account account = database.getAccount(accountID);
-                if (account != null) {
+            for (Account account : database.getAccountsForCustomer(customerID, customer)) {
+                if (accountIDs.contains(account.getAccountID())) {
                     accounts.add(account);
                 }
             }
             
-            Statement statement = customer.generateStatement(accounts, year, month);
+            Statement statement = customer.generateStatement(accounts, year, month, database.getBalanceHistory());
             database.saveStatement(statement);
             
             response.put("success", true);
@@ -70,8 +72,53 @@ public class StatementController {
             return ResponseEntity.status(500).body(response);
         }
     }
-}
 
+    /**
+     * Starts the month-end run for every customer in the background; rerunning a month resumes it.
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<Map<String, Object>> startBatch(@RequestBody Map<String, Object> batchData) {
+        Map<String, Object> response = new HashMap<>();
+        int year;
+        int month;
+        try {
+            year = Integer.parseInt(batchData.get("year").toString());
+            month = Integer.parseInt(batchData.get("month").toString());
+        } catch (RuntimeException e) {
+            response.put("success", false);
+            response.put("message", "year and month are required");
+            return ResponseEntity.status(400).body(response);
+        }
+        if (month < 1 || month > 12) {
+            response.put("success", false);
+            response.put("message", "month must be between 1 and 12");
+            return ResponseEntity.status(400).body(response);
+        }
+        if (!statementJob.tryStart()) {
+            response.put("success", false);
+            response.put("message", "A statement job is already running");
+            return ResponseEntity.status(409).body(response);
+        }
 
+        Thread runner = new Thread(() -> {
+            try {
+                statementJob.run(year, month);
+            } catch (Exception e) {
+                // logged and counted by the job
+            }
+        }, "statement-job");
+        runner.setDaemon(true);
+        runner.start();
 
+        response.put("success", true);
+        response.put("jobID", StatementJob.jobID(year, month));
+        return ResponseEntity.accepted().body(response);
+    }
 
+    @GetMapping("/batch")
+    public ResponseEntity<Map<String, Object>> getBatchStatus() {
+        Map<String, Object> response = new HashMap<>(statementJob.getStatus());
+        response.put("success", true);
+        return ResponseEntity.ok(response);
+    }
+}
@@ -17,11 +17,27 @@ public class TransactionController {
     @Autowired
     private Database database;
 
+    @Autowired
+    private AuditLog auditLog;
+
+    @Autowired
+    private IdempotencyStore idempotencyStore;
+
     @PostMapping("/transfer")
-    public ResponseEntity<Map<String, Object>> transferFunds(@RequestBody Map<String, Object> transferData) {
+    public ResponseEntity<Map<String, Object>> transferFunds(@RequestBody Map<String, Object> transferData,
+                                                             @RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey) {
         Map<String, Object> response = new HashMap<>();
+        IdempotencyStore.Claim claim = null;
         
         try {
+            // A retry is answered from the idempotency store before any account is loaded or debited
+            if (idempotencyKey != null) {
+                claim = idempotencyStore.claim(String.valueOf(transferData.get("customerID")), idempotencyKey, "transfer", transferData);
+                if (claim.isReplay()) {
+                    return replay(claim.getReplayResponse());
+                }
+            }
+            
             if (!database.connect()) {
                 response.put("success", false);
                 response.put("message", "Database connection failed");
@@ -31,7 +47,7 @@ public class TransactionController {
             String customerID = (String) transferData.get("customerID");
             String sourceAccountID = (String) transferData.get("sourceAccountID");
             String destinationAccountID = (String) transferData.get("destinationAccountID");
-            Double amount = Double.parseDouble(transferData.get("amount").toString());
+            Money amount = Money.parse(transferData.get("amount"));
             
             User user = database.getUser(customerID);
             if (!(user instanceof Customer)) {
@@ -76,12 +92,14 @@ public class TransactionController {
             TransferFunds transfer = new TransferFunds(sourceAccount, destinationAccount, amount, customer);
             Receipt receipt = transfer.execute();
             
-            // Save the transaction to database
-            database.saveTransaction(transfer);
-            
-            database.saveReceipt(receipt);
-            database.saveAccount(sourceAccount);
-            database.saveAccount(destinationAccount);
+            // Persist history and both balances atomically in one commit. The debit fails if a
+            // concurrent transfer drained the account.
+            UnitOfWork unitOfWork = database.beginUnitOfWork();
+            unitOfWork.describePosting(Ledger.TRANSFER, transfer.getTransactionID(), null);
+            unitOfWork.debit(sourceAccount, amount);
+            unitOfWork.credit(destinationAccount, amount);
+            unitOfWork.saveTransaction(transfer);
+            unitOfWork.saveReceipt(receipt);
             
             response.put("success", true);
             response.put("receipt", Map.of(
@@ -89,19 +107,50 @@ public class TransactionController {
                 "amount", receipt.getAmount(),
                 "dateTimeIssued", receipt.getDateTimeIssued().toString()
             ));
+            if (claim != null) {
+                unitOfWork.saveIdempotencyKey(claim.toRecord(response));
+            }
+            unitOfWork.commit();
+            if (claim != null) {
+                claim.complete(response);
+            }
+            auditLog.record(customerID, AuditLog.TRANSFER, "$" + amount + " from " + sourceAccountID
+                + " to " + destinationAccountID + " (receipt " + receipt.getReferenceNumber() + ")");
             return ResponseEntity.ok(response);
+        } catch (IdempotencyStore.IdempotencyException e) {
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.status(e.getStatus()).body(response);
         } catch (Exception e) {
+            ResponseEntity<Map<String, Object>> recovered = recoverReplay(claim);
+            if (recovered != null) {
+                return recovered;
+            }
             response.put("success", false);
             response.put("message", "Transfer failed: " + e.getMessage());
             return ResponseEntity.status(500).body(response);
+        } finally {
+            if (claim != null) {
+                claim.release();
+            }
         }
     }
 
     @PostMapping("/etransfer")
-    public ResponseEntity<Map<String, Object>> eTransfer(@RequestBody Map<String, Object> etransferData) {
+    public ResponseEntity<Map<String, Object>> eTransfer(@RequestBody Map<String, Object> etransferData,
+                                                             @RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey) {
         Map<String, Object> response = new HashMap<>();
+        IdempotencyStore.Claim claim = null;
         
         try {
+            // A retry is answered from the idempotency store before any account is loaded or debited
+            if (idempotencyKey != null) {
+                claim = idempotencyStore.claim(String.valueOf(etransferData.get("customerID")), idempotencyKey, "etransfer", etransferData);
+                if (claim.isReplay()) {
+                    return replay(claim.getReplayResponse());
+                }
+            }
+            
             if (!database.connect()) {
                 response.put("success", false);
                 response.put("message", "Database connection failed");
@@ -113,7 +162,7 @@ public class TransactionController {
             String recipientEmail = (String) etransferData.get("recipientEmail");
             String recipientName = (String) etransferData.get("recipientName");
             String recipientPhone = (String) etransferData.get("recipientPhone");
-            Double amount = Double.parseDouble(etransferData.get("amount").toString());
+            Money amount = Money.parse(etransferData.get("amount"));
             String notificationMethod = (String) etransferData.get("notificationMethod");
             
             User user = database.getUser(customerID);
@@ -152,60 +201,71 @@ public class TransactionController {
             ETransfer eTransfer = new ETransfer(sourceAccount, recipient, amount, customer, notificationMethod);
             Receipt receipt = eTransfer.execute();
             
+            // Everything below is written in one commit at the end. Money sent outside the bank
+            // is balanced against the external transfers GL account
+            UnitOfWork unitOfWork = database.beginUnitOfWork();
+            unitOfWork.describePosting(Ledger.ETRANSFER, eTransfer.getTransactionID(), Ledger.GL_EXTERNAL_TRANSFERS);
+            
             // Try to find recipient user by email and credit their account
-            System.out.println("🔍 Looking for recipient with email: " + recipientEmail);
+            Log.info("transaction", "Looking for recipient with email: {}", recipientEmail);
             User recipientUser = database.getUser(recipientEmail);
             Account recipientAccount = null;
+            boolean recipientAccountCreated = false;
             
             if (recipientUser == null) {
-                System.out.println("⚠ Recipient email not found in system: " + recipientEmail + ". Money debited from source but recipient account not credited (external recipient).");
+                Log.warn("transaction", "Recipient email not found in system: {}. Money debited from source but recipient account not credited (external recipient).", recipientEmail);
             } else if (recipientUser instanceof Customer) {
                 Customer recipientCustomer = (Customer) recipientUser;
-                System.out.println("✓ Found recipient: " + recipientCustomer.getUserName() + " (ID: " + recipientCustomer.getCustomerID() + ")");
+                Log.info("transaction", "Found recipient: {} (ID: {})", recipientCustomer.getUserName(), recipientCustomer.getCustomerID());
                 
                 // Load recipient's accounts
                 List<Account> recipientAccounts = database.getAccountsForCustomer(recipientCustomer.getCustomerID(), recipientCustomer);
                 recipientCustomer.getOwnedAccounts().clear();
                 recipientCustomer.getOwnedAccounts().addAll(recipientAccounts);
-                System.out.println("✓ Loaded " + recipientAccounts.size() + " account(s) for recipient");
+                Log.info("transaction", "Loaded {} account(s) for recipient", recipientAccounts.size());
                 
                 // Use first account if available, or create a default checking account
                 if (!recipientCustomer.getOwnedAccounts().isEmpty()) {
                     recipientAccount = recipientCustomer.getOwnedAccounts().get(0);
-                    System.out.println("✓ Using existing account: " + recipientAccount.getAccountID() + " (Balance before: $" + recipientAccount.getBalance() + ")");
+                    Log.info("transaction", "Using existing account: {} (Balance before: ${})", recipientAccount.getAccountID(), recipientAccount.getBalance());
                 } else {
                     // Create a default checking account for recipient if they don't have one
                     String defaultAccountID = "CHK" + recipientCustomer.getCustomerID() + System.currentTimeMillis();
-                    recipientAccount = new Checking(defaultAccountID, recipientCustomer, 0.0);
+                    recipientAccount = new Checking(defaultAccountID, recipientCustomer, Money.ZERO);
                     recipientCustomer.getOwnedAccounts().add(recipientAccount);
-                    database.saveAccount(recipientAccount);
-                    database.saveUser(recipientCustomer);
-                    System.out.println("✓ Created default account for recipient: " + defaultAccountID);
+                    recipientAccountCreated = true;
+                    unitOfWork.saveUser(recipientCustomer);
+                    Log.info("transaction", "Created default account for recipient: {}", defaultAccountID);
                 }
                 
                 // Credit the recipient's account
-                double balanceBefore = recipientAccount.getBalance();
-                recipientAccount.credit(amount);
-                double balanceAfter = recipientAccount.getBalance();
-                
-                System.out.println("💰 Crediting $" + amount + " to recipient account: " + recipientAccount.getAccountID());
-                System.out.println("   Balance: $" + balanceBefore + " → $" + balanceAfter);
+                Log.info("transaction", "Crediting ${} to recipient account: {} (balance before: ${})",
+                    amount, recipientAccount.getAccountID(), recipientAccount.getBalance());
                 
                 // Update the transaction with the destination account
                 eTransfer.setDestinationAccount(recipientAccount);
                 
-                // Save the updated account to database
-                database.saveAccount(recipientAccount);
-                System.out.println("✓ Saved recipient account to database");
+                if (recipientAccountCreated) {
+                    // New account is inserted with a zero balance, then credited like any other
+                    unitOfWork.saveAccount(recipientAccount);
+                }
+                unitOfWork.credit(recipientAccount, amount);
             } else {
-                System.out.println("⚠ Recipient found but is not a customer (role: " + recipientUser.getUserRole() + ")");
+                Log.warn("transaction", "Recipient found but is not a customer (role: {})", recipientUser.getUserRole());
             }
             
-            // Save the transaction to database (after setting destination account if found)
-            database.saveTransaction(eTransfer);
+            // Save the transaction (after setting destination account if found) with the receipt and balances
+            unitOfWork.debit(sourceAccount, amount);
+            unitOfWork.saveTransaction(eTransfer);
+            unitOfWork.saveReceipt(receipt);
             
-            database.saveReceipt(receipt);
-            database.saveAccount(sourceAccount);
+            // The recipient's SMS/email goes into the outbox with the transfer and is sent in the background
+            Notification notification = Notification.forReceipt(receipt, eTransfer.getTransactionID());
+            if (notification != null) {
+                unitOfWork.saveNotification(notification);
+            } else if (notificationMethod != null && !notificationMethod.isBlank()) {
+                Log.warn("transaction", "No {} notification queued: unsupported method or missing contact", notificationMethod);
+            }
             
             response.put("success", true);
             response.put("receipt", Map.of(
@@ -213,12 +273,54 @@ public class TransactionController {
                 "amount", receipt.getAmount(),
                 "dateTimeIssued", receipt.getDateTimeIssued().toString()
             ));
+            if (claim != null) {
+                unitOfWork.saveIdempotencyKey(claim.toRecord(response));
+            }
+            unitOfWork.commit();
+            if (claim != null) {
+                claim.complete(response);
+            }
+            auditLog.record(customerID, AuditLog.ETRANSFER, "$" + amount + " from " + sourceAccountID + " to "
+                + recipientEmail + (recipientAccount != null ? " (account " + recipientAccount.getAccountID() + ")" : " (external)")
+                + " (receipt " + receipt.getReferenceNumber() + ")");
             return ResponseEntity.ok(response);
+        } catch (IdempotencyStore.IdempotencyException e) {
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.status(e.getStatus()).body(response);
         } catch (Exception e) {
+            ResponseEntity<Map<String, Object>> recovered = recoverReplay(claim);
+            if (recovered != null) {
+                return recovered;
+            }
             response.put("success", false);
             response.put("message", "E-transfer failed: " + e.getMessage());
             return ResponseEntity.status(500).body(response);
+        } finally {
+            if (claim != null) {
+                claim.release();
+            }
         }
     }
-}
 
+    private static ResponseEntity<Map<String, Object>> replay(Map<String, Object> response) {
+        return ResponseEntity.ok().header(IdempotencyStore.REPLAYED_HEADER, "true").body(response);
+    }
+
+    // A failed commit may mean the key was already stored by a request this instance no longer
+    // remembers (e.g. before a restart); answer with that request's response instead
+    private ResponseEntity<Map<String, Object>> recoverReplay(IdempotencyStore.Claim claim) {
+        if (claim == null || claim.isReplay()) {
+            return null;
+        }
+        try {
+            Map<String, Object> stored = idempotencyStore.recover(claim);
+            return stored != null ? replay(stored) : null;
+        } catch (IdempotencyStore.IdempotencyException e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.status(e.getStatus()).body(response);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package bank;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Each commit upserts the day's account_daily_balances row: the closing balance is the latest,
+ * the net change and entry count add up. Balances at the end of a day and over a period are
+ * read back from those rows, with the guarded UPDATE and with the ledger.
+ */
+class BalanceHistoryTest {
+    private TestDatabase db;
+    private Ledger ledger;
+    private BalanceHistory history;
+    private Account a1;
+    private Account a2;
+    private LocalDate today;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        db = TestDatabase.create();
+        db.addCustomer("C1");
+        db.addAccount("A1", "C1", "Check", "100.00");
+        db.addAccount("A2", "C1", "Check", "50.00");
+        Customer owner = new Customer("C1", "secret", "Customer C1", "c1@example.com", null);
+        a1 = new Check("A1", owner, Money.ofCents(10_000));
+        a2 = new Check("A2", owner, Money.ofCents(5_000));
+        history = db.database().getBalanceHistory();
+        today = LocalDate.now();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (ledger != null) {
+            ledger.shutdown();
+        }
+        db.close();
+    }
+
+    private void enableLedger(boolean enabled) {
+        if (enabled) {
+            ledger = new Ledger(db.database(), AccountLockManager.getDefault(), 60_000, 1_000);
+            db.database().setLedger(ledger);
+            ledger.start();
+        }
+    }
+
+    private void transfer(Account from, Account to, long cents) throws SQLException {
+        UnitOfWork unitOfWork = db.database().beginUnitOfWork();
+        unitOfWork.describePosting(Ledger.TRANSFER, "T" + cents, null);
+        unitOfWork.debit(from, Money.ofCents(cents));
+        unitOfWork.credit(to, Money.ofCents(cents));
+        unitOfWork.commit();
+    }
+
+    private BalanceHistory.DailyBalance day(String accountID) throws SQLException {
+        List<BalanceHistory.DailyBalance> days = history.history(accountID, today, today);
+        assertEquals(1, days.size());
+        return days.get(0);
+    }
+
+    @ParameterizedTest(name = "ledger={0}")
+    @ValueSource(booleans = {false, true})
+    void commitsOnTheSameDayAccumulateInOneRow(boolean withLedger) throws Exception {
+        enableLedger(withLedger);
+        transfer(a1, a2, 2_500);
+        transfer(a2, a1, 1_000);
+        transfer(a1, a2, 500);
+
+        BalanceHistory.DailyBalance a1Day = day("A1");
+        assertEquals(Money.ofCents(8_000), a1Day.closingBalance());
+        assertEquals(Money.ofCents(-2_000), a1Day.netChange());
+        assertEquals(3, a1Day.entries());
+        BalanceHistory.DailyBalance a2Day = day("A2");
+        assertEquals(Money.ofCents(7_000), a2Day.closingBalance());
+        assertEquals(Money.ofCents(2_000), a2Day.netChange());
+        assertEquals(3, a2Day.entries());
+        assertEquals(2L, db.queryLong("SELECT COUNT(*) FROM account_daily_balances"));
+    }
+
+    @ParameterizedTest(name = "ledger={0}")
+    @ValueSource(booleans = {false, true})
+    void balancesAtTheEndOfADayComeFromTheRows(boolean withLedger) throws Exception {
+        enableLedger(withLedger);
+        transfer(a1, a2, 2_500);
+
+        // Yesterday is the day's closing balance less its movement
+        assertEquals(Money.ofCents(10_000), history.balanceAt("A1", today.minusDays(1)));
+        assertEquals(Money.ofCents(7_500), history.balanceAt("A1", today));
+        // Before the account was opened it had nothing
+        assertEquals(Money.ZERO, history.balanceAt("A1", today.minusDays(31)));
+
+        BalanceHistory.Period period = history.period(List.of("A1", "A2"), today.minusDays(7), today);
+        assertEquals(Money.ofCents(15_000), period.openingBalance());
+        assertEquals(Money.ofCents(15_000), period.closingBalance());
+    }
+
+    @Test
+    void accountWithoutMovementsKeepsItsStoredBalance() throws Exception {
+        assertEquals(Money.ofCents(5_000), history.balanceAt("A2", today.minusDays(1)));
+        assertTrue(history.history("A2", today.minusDays(30), today).isEmpty());
+    }
+
+    @Test
+    void backfillRebuildsTheRowsFromTheLedger() throws Exception {
+        enableLedger(true);
+        transfer(a1, a2, 2_500);
+        transfer(a2, a1, 1_000);
+        db.update("DELETE FROM account_daily_balances");
+
+        assertTrue(history.tryStartBackfill());
+        assertEquals(2L, history.backfill(1));
+        BalanceHistory.DailyBalance a1Day = day("A1");
+        assertEquals(Money.ofCents(8_500), a1Day.closingBalance());
+        assertEquals(Money.ofCents(-1_500), a1Day.netChange());
+        assertEquals(2, a1Day.entries());
+    }
+}
@@ -0,0 +1,78 @@
+package bank;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class DatabasePoolTest {
+    private static final int THREADS = 8;
+
+    private TestDatabase db;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        db = TestDatabase.create(THREADS);
+        db.addCustomer("C1");
+        db.addCustomer("C2");
+    }
+
+    @AfterEach
+    void tearDown() {
+        db.close();
+    }
+
+    @Test
+    void concurrentOperationsEachBorrowTheirOwnConnection() throws Exception {
+        AtomicInteger activeAtBarrier = new AtomicInteger();
+        CyclicBarrier barrier = new CyclicBarrier(THREADS,
+            () -> activeAtBarrier.set(db.pool().getHikariPoolMXBean().getActiveConnections()));
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<Integer>> counts = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                counts.add(executor.submit(() -> {
+                    try (Connection ignored = db.database().getConnection()) {
+                        // Every thread holds a connection at once; a single shared one would never get here
+                        barrier.await(10, TimeUnit.SECONDS);
+                    }
+                    return db.database().getTotalUserCount();
+                }));
+            }
+            for (Future<Integer> count : counts) {
+                assertEquals(2, count.get(30, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(THREADS, activeAtBarrier.get());
+    }
+
+    @Test
+    void oneCallerLosingItsConnectionDoesNotAffectOthers() throws Exception {
+        try (Connection other = db.database().getConnection()) {
+            // What the pool does with a connection that failed fatally: close it for good
+            Connection failed = db.database().getConnection();
+            db.pool().evictConnection(failed);
+
+            try (Statement stmt = other.createStatement(); ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM users")) {
+                rs.next();
+                assertEquals(2, rs.getInt(1));
+            }
+        }
+        assertEquals(2, db.database().getTotalUserCount());
+    }
+}
@@ -0,0 +1,188 @@
+package bank;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Debit limits are reserved atomically with their check, given back when the debit does not
+ * commit, and survive a restart through account_debit_counters.
+ */
+class DebitCountersTest {
+    private static final DebitCounters.Limits SAVING = new DebitCounters.Limits(500_000, 0, 5);
+    private static final DebitCounters.Limits CHECKING = new DebitCounters.Limits(0, 1_000_000, 0);
+
+    private TestDatabase db;
+    private Customer owner;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        db = TestDatabase.create();
+        db.addCustomer("C1");
+        owner = new Customer("C1", "secret", "Customer C1", "c1@example.com", null);
+    }
+
+    @AfterEach
+    void tearDown() {
+        db.close();
+    }
+
+    // The unit of work counts against the shared counters, so each test gets accounts of its own
+    private Saving savingAccount(String balance) throws Exception {
+        String accountID = "S-" + UUID.randomUUID();
+        db.addAccount(accountID, "C1", "Saving", balance);
+        return new Saving(accountID, owner, Money.of(new BigDecimal(balance)), new BigDecimal("2.00"));
+    }
+
+    @Test
+    void monthlyWithdrawalsStopAtTheLimitAndReleaseFreesASlot() {
+        DebitCounters counters = new DebitCounters();
+        DebitCounters.Reservation first = counters.reserve("S1", 10_000, SAVING);
+        assertNotNull(first);
+        for (int i = 1; i < 5; i++) {
+            assertTrue(counters.tryReserve("S1", 10_000, SAVING));
+        }
+        assertNull(counters.reserve("S1", 10_000, SAVING));
+        assertEquals(5, counters.usage("S1").monthDebits());
+
+        counters.release(first);
+        assertEquals(4, counters.usage("S1").monthDebits());
+        assertTrue(counters.tryReserve("S1", 10_000, SAVING));
+        // Other accounts count on their own
+        assertTrue(counters.tryReserve("S2", 10_000, SAVING));
+    }
+
+    @Test
+    void amountLimitsApplyPerDebitAndPerDay() {
+        DebitCounters counters = new DebitCounters();
+        assertFalse(counters.tryReserve("S1", 500_001, SAVING));
+        assertTrue(counters.tryReserve("S1", 500_000, SAVING));
+
+        assertTrue(counters.tryReserve("K1", 600_000, CHECKING));
+        assertFalse(counters.tryReserve("K1", 400_001, CHECKING));
+        assertTrue(counters.tryReserve("K1", 400_000, CHECKING));
+        assertEquals(1_000_000, counters.usage("K1").dayCents());
+    }
+
+    @Test
+    void releaseAfterMidnightOnlyFreesTheMonth() {
+        LocalDate[] today = {LocalDate.of(2025, 11, 10)};
+        DebitCounters counters = new DebitCounters(() -> today[0]);
+        DebitCounters.Reservation yesterday = counters.reserve("K1", 300_000, CHECKING);
+        today[0] = today[0].plusDays(1);
+        counters.reserve("K1", 200_000, CHECKING);
+
+        counters.release(yesterday);
+        DebitCounters.Usage usage = counters.usage("K1");
+        assertEquals(1, usage.dayDebits());
+        assertEquals(200_000, usage.dayCents());
+        assertEquals(1, usage.monthDebits());
+        assertEquals(200_000, usage.monthCents());
+
+        // Once its month has ended too, a reservation counts against nothing
+        DebitCounters.Reservation lastMonth = counters.reserve("K1", 100_000, CHECKING);
+        today[0] = LocalDate.of(2025, 12, 1);
+        counters.tryReserve("K1", 100_000, CHECKING);
+        counters.release(lastMonth);
+        assertEquals(1, counters.usage("K1").monthDebits());
+        assertEquals(100_000, counters.usage("K1").dayCents());
+    }
+
+    @Test
+    void concurrentReservationsNeverPassTheLimit() throws Exception {
+        DebitCounters counters = new DebitCounters();
+        int threads = 16;
+        CyclicBarrier start = new CyclicBarrier(threads);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Boolean>> attempts = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                attempts.add(executor.submit(() -> {
+                    start.await();
+                    return counters.tryReserve("S1", 10_000, SAVING);
+                }));
+            }
+            int reserved = 0;
+            for (Future<Boolean> attempt : attempts) {
+                if (attempt.get(10, TimeUnit.SECONDS)) {
+                    reserved++;
+                }
+            }
+            assertEquals(5, reserved);
+            assertEquals(5, counters.usage("S1").monthDebits());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void failedCommitGivesItsReservationBack() throws Exception {
+        Saving saving = savingAccount("100.00");
+        UnitOfWork overdraft = db.database().beginUnitOfWork();
+        overdraft.debit(saving, Money.ofCents(15_000));
+        assertThrows(IllegalStateException.class, overdraft::commit);
+        assertEquals(0, DebitCounters.getDefault().usage(saving.getAccountID()).monthDebits());
+
+        for (int i = 0; i < 5; i++) {
+            UnitOfWork withdrawal = db.database().beginUnitOfWork();
+            withdrawal.debit(saving, Money.ofCents(100));
+            withdrawal.commit();
+        }
+        UnitOfWork sixth = db.database().beginUnitOfWork();
+        sixth.debit(saving, Money.ofCents(100));
+        IllegalStateException e = assertThrows(IllegalStateException.class, sixth::commit);
+        assertEquals("Debit limit exceeded for account " + saving.getAccountID(), e.getMessage());
+        assertEquals(0, new BigDecimal("95.00").compareTo(
+            db.queryDecimal("SELECT balance FROM accounts WHERE account_id = ?", saving.getAccountID())));
+        assertEquals(5, DebitCounters.getDefault().usage(saving.getAccountID()).monthDebits());
+    }
+
+    @Test
+    void checkingALimitDoesNotUseItUp() throws Exception {
+        Saving saving = savingAccount("100.00");
+        assertTrue(saving.canDebit(Money.ofCents(100)));
+        assertEquals(0, DebitCounters.getDefault().usage(saving.getAccountID()).monthDebits());
+    }
+
+    @Test
+    void countersAreWrittenBehindAndLoadedOnStart() {
+        DebitCounters counters = new DebitCounters();
+        counters.start(db.database(), 60_000);
+        try {
+            counters.tryReserve("S1", 10_000, SAVING);
+            counters.tryReserve("S1", 20_000, SAVING);
+            counters.flush();
+        } finally {
+            counters.shutdown();
+        }
+
+        DebitCounters restarted = new DebitCounters();
+        restarted.start(db.database(), 60_000);
+        try {
+            DebitCounters.Usage usage = restarted.usage("S1");
+            assertEquals(2, usage.monthDebits());
+            assertEquals(30_000, usage.monthCents());
+            assertEquals(2, usage.dayDebits());
+        } finally {
+            restarted.shutdown();
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package bank;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * A retried transfer with the same Idempotency-Key moves the money once and answers with the
+ * first response, from memory and, after a restart, from idempotency_keys.
+ */
+class IdempotencyStoreTest {
+    private static final Map<String, Object> REQUEST = Map.of("customerID", "C1", "from", "A1", "to", "A2", "amount", "25.00");
+    private static final Map<String, Object> RESPONSE = Map.of("success", true, "transactionID", "T1", "amount", "25.00");
+
+    private TestDatabase db;
+    private Account source;
+    private Account destination;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        db = TestDatabase.create();
+        db.addCustomer("C1");
+        db.addAccount("A1", "C1", "Check", "100.00");
+        db.addAccount("A2", "C1", "Check", "100.00");
+        Customer owner = new Customer("C1", "secret", "Customer C1", "c1@example.com", null);
+        source = new Check("A1", owner, Money.ofCents(10_000));
+        destination = new Check("A2", owner, Money.ofCents(10_000));
+    }
+
+    @AfterEach
+    void tearDown() {
+        db.close();
+    }
+
+    private IdempotencyStore newStore() {
+        return new IdempotencyStore(db.database(), 100, 3600, 2_000);
+    }
+
+    // What the transfer endpoint does with a claim it owns: move the money and store the key
+    // and response in the same commit
+    private void transfer(IdempotencyStore.Claim claim) throws SQLException {
+        UnitOfWork unitOfWork = db.database().beginUnitOfWork();
+        unitOfWork.debit(source, Money.ofCents(2_500));
+        unitOfWork.credit(destination, Money.ofCents(2_500));
+        unitOfWork.saveIdempotencyKey(claim.toRecord(RESPONSE));
+        unitOfWork.commit();
+        claim.complete(RESPONSE);
+    }
+
+    private BigDecimal balance(String accountID) throws SQLException {
+        return db.queryDecimal("SELECT balance FROM accounts WHERE account_id = ?", accountID);
+    }
+
+    @Test
+    void retryReplaysTheFirstResponse() throws Exception {
+        IdempotencyStore store = newStore();
+        IdempotencyStore.Claim first = store.claim("C1", "key-1", "transfer", REQUEST);
+        assertFalse(first.isReplay());
+        transfer(first);
+
+        IdempotencyStore.Claim retry = store.claim("C1", "key-1", "transfer", REQUEST);
+        assertTrue(retry.isReplay());
+        assertEquals(RESPONSE, retry.getReplayResponse());
+        assertEquals(0, new BigDecimal("75.00").compareTo(balance("A1")));
+        assertEquals(1L, db.queryLong("SELECT COUNT(*) FROM idempotency_keys"));
+    }
+
+    @Test
+    void sameKeyForADifferentRequestIsRejected() throws Exception {
+        IdempotencyStore store = newStore();
+        transfer(store.claim("C1", "key-1", "transfer", REQUEST));
+
+        IdempotencyStore.IdempotencyException e = assertThrows(IdempotencyStore.IdempotencyException.class,
+            () -> store.claim("C1", "key-1", "transfer", Map.of("customerID", "C1", "from", "A1", "to", "A2", "amount", "99.00")));
+        assertEquals(422, e.getStatus());
+        // Keys are per customer, so another customer may use the same one
+        assertFalse(store.claim("C2", "key-1", "transfer", REQUEST).isReplay());
+    }
+
+    @Test
+    void afterARestartTheStoredResponseIsRecovered() throws Exception {
+        transfer(newStore().claim("C1", "key-1", "transfer", REQUEST));
+
+        // A new process has nothing in memory, so the retry runs until its commit hits the key
+        IdempotencyStore restarted = newStore();
+        IdempotencyStore.Claim retry = restarted.claim("C1", "key-1", "transfer", REQUEST);
+        assertFalse(retry.isReplay());
+        assertThrows(SQLException.class, () -> transfer(retry));
+        assertEquals(0, new BigDecimal("75.00").compareTo(balance("A1")));
+        assertEquals(0, new BigDecimal("125.00").compareTo(balance("A2")));
+
+        assertEquals(RESPONSE, restarted.recover(retry));
+        assertTrue(restarted.claim("C1", "key-1", "transfer", REQUEST).isReplay());
+    }
+
+    @Test
+    void concurrentDuplicateWaitsAndReplays() throws Exception {
+        IdempotencyStore store = newStore();
+        IdempotencyStore.Claim first = store.claim("C1", "key-1", "transfer", REQUEST);
+        CompletableFuture<IdempotencyStore.Claim> duplicate = CompletableFuture.supplyAsync(() -> {
+            try {
+                return store.claim("C1", "key-1", "transfer", REQUEST);
+            } catch (IdempotencyStore.IdempotencyException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        Thread.sleep(100);
+        assertFalse(duplicate.isDone(), "the duplicate waits while the first request is in flight");
+
+        transfer(first);
+        IdempotencyStore.Claim replay = duplicate.get(5, TimeUnit.SECONDS);
+        assertTrue(replay.isReplay());
+        assertEquals(RESPONSE, replay.getReplayResponse());
+    }
+
+    @Test
+    void releasedKeyRunsAgain() throws Exception {
+        IdempotencyStore store = newStore();
+        IdempotencyStore.Claim failed = store.claim("C1", "key-1", "transfer", REQUEST);
+        failed.release();
+        assertNull(db.database().getIdempotencyRecord("C1", "key-1"));
+
+        IdempotencyStore.Claim retry = store.claim("C1", "key-1", "transfer", REQUEST);
+        assertFalse(retry.isReplay());
+        transfer(retry);
+        assertEquals(0, new BigDecimal("75.00").compareTo(balance("A1")));
+    }
+}
@@ -0,0 +1,144 @@
+package bank;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Daily interest is credited in whole cents with the exact remainder carried to the next day,
+ * and a date is never accrued twice for the same account.
+ */
+class InterestAccrualTest {
+    private static final BigDecimal BALANCE = new BigDecimal("1000.00");
+    private static final BigDecimal RATE = new BigDecimal("2.00");
+
+    private TestDatabase db;
+    private LocalDate day;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        db = TestDatabase.create();
+        db.addCustomer("C1");
+        db.addAccount("S1", "C1", "Saving", BALANCE.toPlainString());
+        db.addAccount("S2", "C1", "Saving", BALANCE.toPlainString());
+        db.addAccount("S0", "C1", "Saving", BALANCE.toPlainString());
+        db.addAccount("K1", "C1", "Checking", BALANCE.toPlainString());
+        db.update("UPDATE accounts SET interest_rate = ? WHERE account_id IN ('S1', 'S2', 'K1')", RATE);
+        // Accounts are opened 30 days back
+        day = LocalDate.now().minusDays(1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        db.close();
+    }
+
+    // balance * rate / 100 / days in the year, to the carry's ten places
+    private static BigDecimal daily(BigDecimal balance, LocalDate date) {
+        return balance.multiply(RATE)
+            .divide(BigDecimal.valueOf(100L * date.lengthOfYear()), 10, RoundingMode.HALF_EVEN);
+    }
+
+    private InterestAccrual.Result run(LocalDate date) throws SQLException {
+        InterestAccrual accrual = new InterestAccrual(db.database(), 2, 1);
+        assertTrue(accrual.tryStart());
+        return accrual.run(date);
+    }
+
+    private BigDecimal balance(String accountID) throws SQLException {
+        return db.queryDecimal("SELECT balance FROM accounts WHERE account_id = ?", accountID);
+    }
+
+    private BigDecimal carried(String accountID) throws SQLException {
+        return db.queryDecimal("SELECT accrued FROM interest_accruals WHERE account_id = ?", accountID);
+    }
+
+    @Test
+    void centsAndCarryAddUpToTheExactInterest() {
+        LocalDate date = LocalDate.of(2025, 1, 1);
+        BigDecimal carried = BigDecimal.ZERO;
+        BigDecimal credited = BigDecimal.ZERO;
+        BigDecimal exact = BigDecimal.ZERO;
+        for (int i = 0; i < 365; i++, date = date.plusDays(1)) {
+            InterestAccrual.Accrual accrual = InterestAccrual.accrual("S1", date, BALANCE, RATE, carried);
+            assertTrue(accrual.carried().compareTo(new BigDecimal("0.01")) < 0, "less than a cent is carried");
+            carried = accrual.carried();
+            credited = credited.add(accrual.credit().toBigDecimal());
+            exact = exact.add(daily(BALANCE, date));
+        }
+        assertEquals(0, exact.compareTo(credited.add(carried)));
+        // 2% of $1,000 for a year, less what is still carried
+        assertEquals(0, new BigDecimal("19.99").compareTo(credited));
+    }
+
+    @Test
+    void savedRateReadsBackExactly() throws Exception {
+        Customer owner = new Customer("C1", "secret", "Customer C1", "c1@example.com", null);
+        UnitOfWork unitOfWork = db.database().beginUnitOfWork();
+        unitOfWork.saveAccount(new Saving("S3", owner, Money.ZERO, new BigDecimal("1.15")));
+        unitOfWork.commit();
+
+        assertEquals(0, new BigDecimal("1.15").compareTo(
+            db.queryDecimal("SELECT interest_rate FROM accounts WHERE account_id = 'S3'")));
+        Saving saving = (Saving) db.database().getAccountsForCustomer("C1", owner).stream()
+            .filter(account -> account.getAccountID().equals("S3")).findFirst().orElseThrow();
+        assertEquals(0, new BigDecimal("1.15").compareTo(saving.getInterestRate()));
+    }
+
+    @Test
+    void negativeBalanceEarnsNothing() {
+        InterestAccrual.Accrual accrual = InterestAccrual.accrual("S1", day, new BigDecimal("-50.00"), RATE,
+            new BigDecimal("0.0040000000"));
+        assertTrue(accrual.credit().isZero());
+        assertEquals(0, new BigDecimal("0.004").compareTo(accrual.carried()));
+    }
+
+    @Test
+    void runCreditsWholeCentsAndCarriesTheRest() throws Exception {
+        // S2 carries 0.6 of a cent from the day before
+        db.update("INSERT INTO interest_accruals (account_id, accrued, last_accrued_on) VALUES ('S2', 0.006, ?)",
+            Date.valueOf(day.minusDays(1)));
+
+        InterestAccrual.Result result = run(day);
+        assertEquals(2, result.accounts());
+
+        BigDecimal s1 = daily(BALANCE, day);
+        BigDecimal s2 = daily(BALANCE, day).add(new BigDecimal("0.006"));
+        BigDecimal s1Credit = s1.setScale(2, RoundingMode.DOWN);
+        BigDecimal s2Credit = s2.setScale(2, RoundingMode.DOWN);
+        assertEquals(0, BALANCE.add(s1Credit).compareTo(balance("S1")));
+        assertEquals(0, BALANCE.add(s2Credit).compareTo(balance("S2")));
+        assertEquals(0, s1.subtract(s1Credit).compareTo(carried("S1")));
+        assertEquals(0, s2.subtract(s2Credit).compareTo(carried("S2")));
+        assertEquals(Money.of(s1Credit.add(s2Credit)), result.credited());
+
+        // A 0% Saving account and a Checking account accrue nothing
+        assertEquals(0, BALANCE.compareTo(balance("S0")));
+        assertEquals(0, BALANCE.compareTo(balance("K1")));
+        assertEquals(0L, db.queryLong("SELECT COUNT(*) FROM interest_accruals WHERE account_id IN ('S0', 'K1')"));
+    }
+
+    @Test
+    void rerunOfTheSameDateCreditsNothing() throws Exception {
+        run(day);
+        BigDecimal s1 = balance("S1");
+        BigDecimal carry = carried("S1");
+
+        assertTrue(run(day).resumed());
+        // Without its run checkpoint, as after a crash, each account's last accrued date still holds
+        db.update("DELETE FROM interest_accrual_runs");
+        assertEquals(0, run(day).accounts());
+
+        assertEquals(0, s1.compareTo(balance("S1")));
+        assertEquals(0, carry.compareTo(carried("S1")));
+    }
+}
@@ -0,0 +1,138 @@
+package bank;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Replaying an account's ledger entries agrees with its cached position and its snapshots,
+ * postings keep the trial balance at zero, and a replay with rebuild repairs a position that
+ * drifted from the entries.
+ */
+class LedgerReplayTest {
+    private TestDatabase db;
+    private Ledger ledger;
+    private Account a1;
+    private Account a2;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        db = TestDatabase.create();
+        db.addCustomer("C1");
+        db.addAccount("A1", "C1", "Check", "100.00");
+        db.addAccount("A2", "C1", "Check", "50.00");
+        Customer owner = new Customer("C1", "secret", "Customer C1", "c1@example.com", null);
+        a1 = new Check("A1", owner, Money.ofCents(10_000));
+        a2 = new Check("A2", owner, Money.ofCents(5_000));
+        // Snapshots only when a test asks for them
+        ledger = new Ledger(db.database(), AccountLockManager.getDefault(), 60_000, 1_000);
+        db.database().setLedger(ledger);
+        ledger.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        ledger.shutdown();
+        db.close();
+    }
+
+    private void transfer(Account from, Account to, long cents) throws SQLException {
+        UnitOfWork unitOfWork = db.database().beginUnitOfWork();
+        unitOfWork.describePosting(Ledger.TRANSFER, "T" + cents, null);
+        unitOfWork.debit(from, Money.ofCents(cents));
+        unitOfWork.credit(to, Money.ofCents(cents));
+        unitOfWork.commit();
+    }
+
+    private BigDecimal stored(String accountID) throws SQLException {
+        return db.queryDecimal("SELECT balance FROM accounts WHERE account_id = ?", accountID);
+    }
+
+    @Test
+    void replayAgreesWithPositionsAndSnapshots() throws Exception {
+        transfer(a1, a2, 2_500);
+        transfer(a2, a1, 1_000);
+        ledger.snapshotDirty();
+        transfer(a1, a2, 500);
+
+        Map<String, Object> report = ledger.replay("A1", false);
+        // Opening balance plus three transfers
+        assertEquals(4, report.get("entries"));
+        assertEquals(Money.ofCents(8_000), report.get("replayedBalance"));
+        assertEquals(Money.ofCents(8_000), report.get("snapshotBalance"));
+        assertEquals(Money.ofCents(8_000), report.get("cachedBalance"));
+        assertEquals(true, report.get("consistent"));
+        assertEquals(Money.ofCents(7_000), ledger.balance("A2", null));
+        // The projection was refreshed by the snapshot, before the last transfer
+        assertEquals(0, new BigDecimal("85.00").compareTo(stored("A1")));
+
+        // The opening balances were posted against the bank's own account
+        Map<String, Object> openings = ledger.replay(Ledger.GL_OPENING_BALANCES, false);
+        assertEquals(Money.ofCents(-15_000), openings.get("replayedBalance"));
+
+        Map<String, Object> trial = ledger.trialBalance();
+        assertEquals(10L, trial.get("entries"));
+        assertEquals(Money.ZERO, trial.get("total"));
+        assertEquals(true, trial.get("balanced"));
+    }
+
+    @Test
+    void moneyEnteringTheBankIsBalancedByItsContraAccount() throws Exception {
+        UnitOfWork interest = db.database().beginUnitOfWork();
+        interest.describePosting(Ledger.INTEREST, "2025-01-31", Ledger.GL_INTEREST_EXPENSE);
+        interest.credit("A1", Money.ofCents(42));
+        interest.commit();
+        assertEquals(Money.ofCents(10_042), ledger.balance("A1", null));
+        assertEquals(Money.ofCents(-42), ledger.replay(Ledger.GL_INTEREST_EXPENSE, false).get("replayedBalance"));
+        assertEquals(true, ledger.trialBalance().get("balanced"));
+
+        UnitOfWork unbalanced = db.database().beginUnitOfWork();
+        unbalanced.credit("A1", Money.ofCents(42));
+        assertThrows(IllegalStateException.class, unbalanced::commit);
+        assertEquals(Money.ofCents(10_042), ledger.balance("A1", null));
+    }
+
+    @Test
+    void rebuildReplacesADriftedPosition() throws Exception {
+        transfer(a1, a2, 2_500);
+        // An entry written behind the ledger's back: the position no longer matches, and the
+        // ledger as a whole no longer balances
+        db.update("INSERT INTO ledger_entries (entry_sequence, posting_id, account_id, amount, posting_type, " +
+            "reference_id, created_at) VALUES (1000, 'P-STRAY', 'A1', 1.00, ?, NULL, ?)",
+            Ledger.ADJUSTMENT, Timestamp.valueOf(LocalDateTime.now()));
+        assertEquals(false, ledger.trialBalance().get("balanced"));
+
+        Map<String, Object> report = ledger.replay("A1", false);
+        assertEquals(false, report.get("consistent"));
+        assertEquals(Money.ofCents(7_600), report.get("replayedBalance"));
+        assertEquals(Money.ofCents(7_500), report.get("cachedBalance"));
+
+        assertEquals(true, ledger.replay("A1", true).get("rebuilt"));
+        assertEquals(Money.ofCents(7_600), ledger.balance("A1", null));
+        assertEquals(0, new BigDecimal("76.00").compareTo(stored("A1")));
+        assertEquals(1000L, db.queryLong("SELECT MAX(entry_sequence) FROM ledger_snapshots WHERE account_id = 'A1'"));
+        assertEquals(true, ledger.replay("A1", false).get("consistent"));
+    }
+
+    @Test
+    void shutdownProjectsEveryCommittedBalance() throws Exception {
+        for (int i = 1; i <= 20; i++) {
+            transfer(i % 2 == 0 ? a1 : a2, i % 2 == 0 ? a2 : a1, i * 100L);
+        }
+        Money a1Balance = ledger.balance("A1", null);
+        ledger.shutdown();
+
+        assertEquals(0, a1Balance.toBigDecimal().compareTo(stored("A1")));
+        assertEquals(0, new BigDecimal("150.00").compareTo(
+            db.queryDecimal("SELECT SUM(balance) FROM accounts")));
+    }
+}
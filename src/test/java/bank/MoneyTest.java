@@ -0,0 +1,90 @@
+package bank;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Amounts are exact cents: parsing never rounds, arithmetic never overflows silently, and
+ * amounts in different currencies don't mix.
+ */
+class MoneyTest {
+    private static final Currency JPY = Currency.getInstance("JPY");
+
+    @Test
+    void decimalsBecomeExactCents() {
+        assertEquals(1250, Money.of(new BigDecimal("12.5")).getCents());
+        assertEquals(1234, Money.of(new BigDecimal("12.3400")).getCents());
+        assertEquals(-5, Money.of(new BigDecimal("-0.05")).getCents());
+        assertEquals(Money.of(new BigDecimal("1.5")), Money.of(new BigDecimal("1.50")));
+        assertSame(Money.ZERO, Money.of(new BigDecimal("0.000")));
+        assertEquals("12.50", Money.ofCents(1250).toString());
+        assertEquals(new BigDecimal("12.50"), Money.ofCents(1250).toBigDecimal());
+    }
+
+    @Test
+    void fractionsOfACentAreRejectedNotRounded() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+            () -> Money.of(new BigDecimal("12.345")));
+        assertEquals("Invalid amount: 12.345", e.getMessage());
+        assertThrows(IllegalArgumentException.class, () -> Money.of(new BigDecimal("0.005")));
+        // Whole-unit currencies have no cents at all
+        assertEquals(100, Money.of(new BigDecimal("100"), JPY).getCents());
+        assertThrows(IllegalArgumentException.class, () -> Money.of(new BigDecimal("1.5"), JPY));
+        // Beyond a long's worth of cents
+        assertThrows(IllegalArgumentException.class, () -> Money.of(new BigDecimal("1e20")));
+    }
+
+    @Test
+    void parseAcceptsJsonNumbersAndStrings() {
+        assertEquals(Money.ofCents(1999), Money.parse(new BigDecimal("19.99")));
+        assertEquals(Money.ofCents(2000), Money.parse(20));
+        assertEquals(Money.ofCents(2000), Money.parse(20L));
+        assertEquals(Money.ofCents(705), Money.parse(" 7.05 "));
+        // A double goes through its shortest decimal form, not its binary value
+        assertEquals(Money.ofCents(10), Money.parse(0.1));
+
+        assertEquals("Invalid amount: abc", assertThrows(IllegalArgumentException.class,
+            () -> Money.parse("abc")).getMessage());
+        assertEquals("Amount is required", assertThrows(IllegalArgumentException.class,
+            () -> Money.parse(null)).getMessage());
+        assertThrows(IllegalArgumentException.class, () -> Money.parse("7.055"));
+    }
+
+    @Test
+    void arithmeticIsExact() {
+        Money a = Money.ofCents(1_000);
+        Money b = Money.ofCents(1);
+        assertEquals(Money.ofCents(1_001), a.plus(b));
+        assertEquals(Money.ofCents(999), a.minus(b));
+        assertEquals(Money.ofCents(-1_000), a.negate());
+        assertSame(Money.ZERO, a.minus(a));
+        // 0.1 + 0.2 is exactly 0.3 in cents
+        assertEquals(Money.parse("0.30"), Money.parse("0.10").plus(Money.parse("0.20")));
+
+        assertTrue(a.isGreaterThan(b));
+        assertTrue(b.isLessThan(a));
+        assertTrue(a.negate().isNegative());
+
+        assertThrows(ArithmeticException.class, () -> Money.ofCents(Long.MAX_VALUE).plus(b));
+        assertThrows(ArithmeticException.class, () -> Money.ofCents(Long.MIN_VALUE).negate());
+    }
+
+    @Test
+    void currenciesDoNotMix() {
+        Money cad = Money.ofCents(100);
+        Money yen = Money.ofCents(100, JPY);
+        assertNotEquals(cad, yen);
+        assertEquals("Currency mismatch: CAD vs JPY",
+            assertThrows(IllegalArgumentException.class, () -> cad.plus(yen)).getMessage());
+        assertThrows(IllegalArgumentException.class, () -> cad.compareTo(yen));
+        assertEquals("100", yen.toString());
+    }
+}
@@ -0,0 +1,145 @@
+package bank;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Rerunning a month-end statement job: ranges with a checkpoint are skipped, and a range
+ * redone after a crash overwrites its statements instead of adding more. Balances and counts
+ * come from the month's movements, without the ledger.
+ */
+class StatementJobResumeTest {
+    private static final int CUSTOMERS = 10;
+    private static final int PARTITION_SIZE = 3;
+
+    private TestDatabase db;
+    private StatementJob job;
+    private int year;
+    private int month;
+    private String jobID;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        db = TestDatabase.create();
+        for (int i = 1; i <= CUSTOMERS; i++) {
+            String customerID = String.format("C%02d", i);
+            db.addCustomer(customerID);
+            db.addAccount("A" + customerID, customerID, "Checking", "100.00");
+        }
+        job = new StatementJob(db.database(), 2, PARTITION_SIZE, 2);
+        // Accounts are opened 30 days back, so they all exist by the end of the current month
+        YearMonth current = YearMonth.now();
+        year = current.getYear();
+        month = current.getMonthValue();
+        jobID = StatementJob.jobID(year, month);
+    }
+
+    @AfterEach
+    void tearDown() {
+        db.close();
+    }
+
+    private StatementJob.Result run() throws SQLException {
+        assertTrue(job.tryStart());
+        return job.run(year, month);
+    }
+
+    private long count(String sql, Object... params) throws SQLException {
+        return db.queryLong(sql, params);
+    }
+
+    private void transfer(Account from, Account to, long cents) throws SQLException {
+        UnitOfWork unitOfWork = db.database().beginUnitOfWork();
+        unitOfWork.debit(from, Money.ofCents(cents));
+        unitOfWork.credit(to, Money.ofCents(cents));
+        unitOfWork.commit();
+    }
+
+    private void assertStatement(String customerID, int year, int month, String start, String end, int transactions)
+            throws SQLException {
+        String statementID = StatementJob.statementID(customerID, year, month);
+        assertEquals(0, new BigDecimal(start).compareTo(
+            db.queryDecimal("SELECT start_balance FROM statements WHERE statement_id = ?", statementID)));
+        assertEquals(0, new BigDecimal(end).compareTo(
+            db.queryDecimal("SELECT end_balance FROM statements WHERE statement_id = ?", statementID)));
+        assertEquals((long) transactions,
+            count("SELECT transaction_count FROM statements WHERE statement_id = ?", statementID));
+    }
+
+    @Test
+    void checkpointedRangeIsSkipped() throws Exception {
+        // An interrupted run that had committed the C04..C06 range
+        db.update("INSERT INTO statement_job_partitions (job_id, first_customer_id, last_customer_id, statements) " +
+            "VALUES (?, 'C04', 'C06', 3)", jobID);
+
+        StatementJob.Result result = run();
+        assertEquals(4, result.partitions());
+        assertEquals(1, result.skippedPartitions());
+        assertEquals(CUSTOMERS - 3, result.statements());
+        assertEquals(0L, count("SELECT COUNT(*) FROM statements WHERE customer_id BETWEEN 'C04' AND 'C06'"));
+        assertEquals(CUSTOMERS - 3L, count("SELECT COUNT(*) FROM statements"));
+        assertEquals(4L, count("SELECT COUNT(*) FROM statement_job_partitions WHERE job_id = ?", jobID));
+    }
+
+    @Test
+    void finishedRunIsNotRepeated() throws Exception {
+        assertEquals(CUSTOMERS, run().statements());
+
+        StatementJob.Result rerun = run();
+        assertEquals(4, rerun.skippedPartitions());
+        assertEquals(0, rerun.statements());
+        assertEquals((long) CUSTOMERS, count("SELECT COUNT(*) FROM statements"));
+    }
+
+    @Test
+    void rangeRedoneAfterACrashDoesNotDuplicate() throws Exception {
+        run();
+        long accountRows = count("SELECT COUNT(*) FROM statement_accounts");
+        // As if the process died after writing C07..C09's statements but before its checkpoint
+        db.update("DELETE FROM statement_job_partitions WHERE job_id = ? AND first_customer_id = 'C07'", jobID);
+
+        StatementJob.Result rerun = run();
+        assertEquals(3, rerun.skippedPartitions());
+        assertEquals(3, rerun.statements());
+        assertEquals((long) CUSTOMERS, count("SELECT COUNT(*) FROM statements"));
+        assertEquals(accountRows, count("SELECT COUNT(*) FROM statement_accounts"));
+        assertEquals(1L, count("SELECT COUNT(*) FROM statements WHERE statement_id = ?",
+            StatementJob.statementID("C08", year, month)));
+        assertEquals(0, new BigDecimal("100.00").compareTo(
+            db.queryDecimal("SELECT end_balance FROM statements WHERE customer_id = 'C08'")));
+    }
+
+    @Test
+    void statementsShowTheMonthsMovements() throws Exception {
+        // Opened well before last month, so they have a statement for it too
+        db.update("UPDATE accounts SET created_at = ?", Timestamp.valueOf(LocalDateTime.now().minusMonths(3)));
+        Customer c01 = new Customer("C01", "secret", "Customer C01", "c01@example.com", null);
+        Customer c02 = new Customer("C02", "secret", "Customer C02", "c02@example.com", null);
+        Account a01 = new Checking("AC01", c01, Money.ofCents(10_000));
+        Account a02 = new Checking("AC02", c02, Money.ofCents(10_000));
+        transfer(a01, a02, 3_000);
+        transfer(a01, a02, 500);
+
+        run();
+        assertStatement("C01", year, month, "100.00", "65.00", 2);
+        assertStatement("C02", year, month, "100.00", "135.00", 2);
+        assertStatement("C03", year, month, "100.00", "100.00", 0);
+
+        // Last month ended before the transfers
+        YearMonth previous = YearMonth.of(year, month).minusMonths(1);
+        assertTrue(job.tryStart());
+        job.run(previous.getYear(), previous.getMonthValue());
+        assertStatement("C01", previous.getYear(), previous.getMonthValue(), "100.00", "100.00", 0);
+        assertStatement("C02", previous.getYear(), previous.getMonthValue(), "100.00", "100.00", 0);
+    }
+}
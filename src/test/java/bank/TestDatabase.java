@@ -0,0 +1,137 @@
+package bank;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A private in-memory H2 database in MySQL mode with database/schema.sql loaded, behind a
+ * {@link Database} on its own small pool.
+ */
+final class TestDatabase implements AutoCloseable {
+    private static final AtomicInteger NEXT_ID = new AtomicInteger();
+    // Inline "INDEX name (" clauses; H2 index names are per schema, MySQL's are per table
+    private static final Pattern INLINE_INDEX = Pattern.compile("\\bINDEX\\s+(\\w+)\\s*\\(");
+    private static final Pattern CREATE_TABLE = Pattern.compile("CREATE TABLE IF NOT EXISTS (\\w+)");
+    private static final Pattern MYSQL_ONLY = Pattern.compile("\\s*(SET @|PREPARE |EXECUTE |DEALLOCATE )");
+
+    private final HikariDataSource pool;
+    private final Database database;
+
+    private TestDatabase(HikariDataSource pool) {
+        this.pool = pool;
+        this.database = new Database(pool);
+    }
+
+    static TestDatabase create() throws IOException, SQLException {
+        return create(8);
+    }
+
+    static TestDatabase create(int poolSize) throws IOException, SQLException {
+        int id = NEXT_ID.incrementAndGet();
+        HikariDataSource pool = new HikariDataSource();
+        pool.setPoolName("test-" + id);
+        pool.setJdbcUrl("jdbc:h2:mem:test" + id + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;" +
+            "NON_KEYWORDS=YEAR,MONTH,VALUE;IGNORE_UNKNOWN_SETTINGS=TRUE;DB_CLOSE_DELAY=-1");
+        pool.setUsername("sa");
+        pool.setPassword("");
+        pool.setMaximumPoolSize(poolSize);
+        TestDatabase db = new TestDatabase(pool);
+        db.createSchema(Path.of("database", "schema.sql"));
+        return db;
+    }
+
+    Database database() {
+        return database;
+    }
+
+    HikariDataSource pool() {
+        return pool;
+    }
+
+    private void createSchema(Path schema) throws IOException, SQLException {
+        StringBuilder sql = new StringBuilder();
+        for (String line : Files.readAllLines(schema)) {
+            String trimmed = line.trim();
+            if (trimmed.startsWith("--") || trimmed.startsWith("CREATE DATABASE") || trimmed.startsWith("USE ")) {
+                continue;
+            }
+            sql.append(line).append('\n');
+        }
+        try (Connection conn = pool.getConnection(); Statement stmt = conn.createStatement()) {
+            for (String statement : sql.toString().split(";")) {
+                // The guarded ALTERs run as server-side prepared statements, which H2 doesn't have;
+                // their columns are already in the CREATE TABLEs
+                if (statement.isBlank() || MYSQL_ONLY.matcher(statement).lookingAt()) {
+                    continue;
+                }
+                Matcher table = CREATE_TABLE.matcher(statement);
+                if (table.find()) {
+                    statement = INLINE_INDEX.matcher(statement).replaceAll("INDEX " + table.group(1) + "_$1 (");
+                }
+                stmt.execute(statement);
+            }
+        }
+    }
+
+    void addCustomer(String customerID) throws SQLException {
+        update("INSERT INTO users (user_id, user_password, user_name, user_email, user_role, created_at, is_active) " +
+            "VALUES (?, 'secret', ?, ?, 'customer', ?, TRUE)",
+            customerID, "Customer " + customerID, customerID.toLowerCase() + "@example.com", Timestamp.valueOf(LocalDateTime.now()));
+    }
+
+    void addAccount(String accountID, String customerID, String accountType, String balance) throws SQLException {
+        update("INSERT INTO accounts (account_id, customer_id, account_type, balance, created_at) VALUES (?, ?, ?, ?, ?)",
+            accountID, customerID, accountType, new BigDecimal(balance), Timestamp.valueOf(LocalDateTime.now().minusDays(30)));
+    }
+
+    int update(String sql, Object... params) throws SQLException {
+        try (Connection conn = pool.getConnection(); PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (int i = 0; i < params.length; i++) {
+                stmt.setObject(i + 1, params[i]);
+            }
+            return stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * First column of the first row, or null if there is none.
+     */
+    Object queryValue(String sql, Object... params) throws SQLException {
+        try (Connection conn = pool.getConnection(); PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (int i = 0; i < params.length; i++) {
+                stmt.setObject(i + 1, params[i]);
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getObject(1) : null;
+            }
+        }
+    }
+
+    long queryLong(String sql, Object... params) throws SQLException {
+        return ((Number) queryValue(sql, params)).longValue();
+    }
+
+    BigDecimal queryDecimal(String sql, Object... params) throws SQLException {
+        Object value = queryValue(sql, params);
+        return value == null ? BigDecimal.ZERO : new BigDecimal(value.toString());
+    }
+
+    @Override
+    public void close() {
+        pool.close();
+    }
+}
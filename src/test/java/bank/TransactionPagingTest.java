@@ -0,0 +1,140 @@
+package bank;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Keyset paging of transaction history: following the cursors visits every matching
+ * transaction exactly once, newest first, including runs of rows with the same initiated_at.
+ */
+class TransactionPagingTest {
+    private static final int PAGE_SIZE = 4;
+    private static final LocalDateTime START = LocalDateTime.of(2025, 11, 1, 9, 0);
+
+    private TestDatabase db;
+    private final List<Row> rows = new ArrayList<>();
+
+    private record Row(String transactionID, String customerID, String source, String destination, Timestamp initiatedAt) {
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+        db = TestDatabase.create();
+        db.addCustomer("C1");
+        db.addCustomer("C2");
+        db.addAccount("A1", "C1", "Checking", "100.00");
+        db.addAccount("A2", "C1", "Checking", "100.00");
+        db.addAccount("B1", "C2", "Checking", "100.00");
+        for (int i = 0; i < 30; i++) {
+            // Three rows per minute, so every page boundary has to break initiated_at ties
+            Timestamp at = Timestamp.valueOf(START.plusMinutes(i / 3));
+            String id = String.format("T%03d", i);
+            switch (i % 3) {
+                case 0 -> insert(new Row(id, "C1", "A1", "A2", at));
+                case 1 -> insert(new Row(id, "C1", "A2", "B1", at));
+                default -> insert(new Row(id, "C2", "B1", "A1", at));
+            }
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        db.close();
+    }
+
+    private void insert(Row row) throws SQLException {
+        db.update("INSERT INTO transactions (transaction_id, customer_id, transaction_type, amount, " +
+            "source_account_id, destination_account_id, status, initiated_at) VALUES (?, ?, 'TransferFunds', 1.00, ?, ?, 'Completed', ?)",
+            row.transactionID(), row.customerID(), row.source(), row.destination(), row.initiatedAt());
+        rows.add(row);
+    }
+
+    // Newest first, transaction_id breaking ties: the order the pages are read in
+    private List<String> expected(Predicate<Row> filter) {
+        return rows.stream()
+            .filter(filter)
+            .sorted(Comparator.comparing(Row::initiatedAt).thenComparing(Row::transactionID).reversed())
+            .map(Row::transactionID)
+            .toList();
+    }
+
+    private static List<String> readAllPages(Function<String, TransactionPage> fetch) {
+        List<String> seen = new ArrayList<>();
+        String cursor = null;
+        do {
+            TransactionPage page = fetch.apply(cursor);
+            for (Map<String, Object> tx : page.getTransactions()) {
+                seen.add((String) tx.get("transactionID"));
+            }
+            cursor = page.getNextCursor();
+            if (cursor != null) {
+                assertEquals(PAGE_SIZE, page.getTransactions().size(), "only the last page is short");
+            }
+        } while (cursor != null);
+        return seen;
+    }
+
+    @Test
+    void customerPagesCoverEveryTransactionOnce() {
+        Database database = db.database();
+        assertEquals(expected(row -> row.customerID().equals("C1")),
+            readAllPages(cursor -> database.getTransactionsForCustomer("C1", cursor, PAGE_SIZE)));
+    }
+
+    @Test
+    void accountPagesMergeBothSides() {
+        Database database = db.database();
+        assertEquals(expected(row -> row.source().equals("A1") || row.destination().equals("A1")),
+            readAllPages(cursor -> database.getTransactionsForAccount("A1", cursor, PAGE_SIZE)));
+    }
+
+    @Test
+    void allTransactionPagesWithAndWithoutFilter() {
+        Database database = db.database();
+        assertEquals(expected(row -> true),
+            readAllPages(cursor -> database.getAllTransactions(null, cursor, PAGE_SIZE)));
+        assertEquals(expected(row -> row.customerID().equals("C2")),
+            readAllPages(cursor -> database.getAllTransactions("C2", cursor, PAGE_SIZE)));
+    }
+
+    @Test
+    void newerRowsDoNotShiftLaterPages() throws Exception {
+        Database database = db.database();
+        TransactionPage first = database.getTransactionsForCustomer("C1", null, PAGE_SIZE);
+        assertNotNull(first.getNextCursor());
+        List<String> before = readAllPages(cursor -> cursor == null
+            ? first : database.getTransactionsForCustomer("C1", cursor, PAGE_SIZE));
+
+        // An offset would now skip a row; the cursor still starts after the last row shown
+        insert(new Row("T999", "C1", "A1", "A2", Timestamp.valueOf(START.plusDays(1))));
+        List<String> after = readAllPages(cursor -> cursor == null
+            ? first : database.getTransactionsForCustomer("C1", cursor, PAGE_SIZE));
+        assertEquals(before, after);
+    }
+
+    @Test
+    void lastPageHasNoCursorAndBadCursorsAreRejected() {
+        Database database = db.database();
+        TransactionPage everything = database.getTransactionsForCustomer("C1", null, 100);
+        assertEquals(20, everything.getTransactions().size());
+        assertNull(everything.getNextCursor());
+        assertThrows(IllegalArgumentException.class,
+            () -> database.getTransactionsForCustomer("C1", "not-a-cursor", PAGE_SIZE));
+    }
+}
@@ -0,0 +1,188 @@
+package bank;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Concurrent transfers through {@link UnitOfWork} on a few hot accounts, with the guarded
+ * UPDATE and with the ledger: money is neither created nor destroyed, and no balance goes
+ * below zero. A rejected debit rolls back everything else in its unit.
+ */
+class TransferConservationTest {
+    private static final int ACCOUNTS = 6;
+    private static final int THREADS = 8;
+    private static final int TRANSFERS_PER_THREAD = 250;
+    private static final BigDecimal OPENING_BALANCE = new BigDecimal("1000.00");
+
+    private TestDatabase db;
+    private Ledger ledger;
+    private final List<Account> accounts = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        db = TestDatabase.create(THREADS);
+        db.addCustomer("C1");
+        Customer owner = new Customer("C1", "secret", "Customer C1", "c1@example.com", null);
+        for (int i = 0; i < ACCOUNTS; i++) {
+            String accountID = "A" + i;
+            db.addAccount(accountID, "C1", "Check", OPENING_BALANCE.toPlainString());
+            // Check accounts have no debit limits, so only the funds check can reject a transfer
+            accounts.add(new Check(accountID, owner, Money.of(OPENING_BALANCE)));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (ledger != null) {
+            ledger.shutdown();
+        }
+        db.close();
+    }
+
+    private void enableLedger(boolean enabled) {
+        if (enabled) {
+            ledger = new Ledger(db.database(), AccountLockManager.getDefault(), 50, 10);
+            db.database().setLedger(ledger);
+            ledger.start();
+        }
+    }
+
+    @ParameterizedTest(name = "ledger={0}")
+    @ValueSource(booleans = {false, true})
+    void concurrentTransfersConserveMoney(boolean withLedger) throws Exception {
+        enableLedger(withLedger);
+        AtomicInteger committed = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                workers.add(executor.submit(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < TRANSFERS_PER_THREAD; i++) {
+                        Account source = accounts.get(random.nextInt(ACCOUNTS));
+                        Account destination = accounts.get(random.nextInt(ACCOUNTS));
+                        if (source == destination) {
+                            continue;
+                        }
+                        // Up to $400 on $1,000 balances, so plenty of debits find the money gone
+                        Money amount = Money.ofCents(random.nextLong(1, 40_000));
+                        UnitOfWork unitOfWork = db.database().beginUnitOfWork();
+                        unitOfWork.describePosting(Ledger.TRANSFER, "T" + random.nextLong(), null);
+                        unitOfWork.debit(source, amount);
+                        unitOfWork.credit(destination, amount);
+                        try {
+                            unitOfWork.commit();
+                            committed.incrementAndGet();
+                        } catch (SQLException | IllegalStateException e) {
+                            rejected.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get(120, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        if (ledger != null) {
+            // The last snapshot copies the positions into accounts.balance
+            ledger.shutdown();
+            assertEquals(0, BigDecimal.ZERO.compareTo(db.queryDecimal("SELECT SUM(amount) FROM ledger_entries")));
+            for (Account account : accounts) {
+                assertEquals(ledger.balance(account.getAccountID(), null),
+                    Money.of(db.queryDecimal("SELECT SUM(amount) FROM ledger_entries WHERE account_id = ?", account.getAccountID())));
+            }
+            ledger = null;
+        }
+
+        assertTrue(committed.get() > 0, "some transfers commit");
+        assertTrue(rejected.get() > 0, "some transfers find the money gone");
+        assertEquals(0, OPENING_BALANCE.multiply(BigDecimal.valueOf(ACCOUNTS))
+            .compareTo(db.queryDecimal("SELECT SUM(balance) FROM accounts")));
+        assertEquals(0L, db.queryLong("SELECT COUNT(*) FROM accounts WHERE balance < 0"));
+    }
+
+    @ParameterizedTest(name = "ledger={0}")
+    @ValueSource(booleans = {false, true})
+    void debitAboveTheBalanceRollsBackTheWholeUnit(boolean withLedger) throws Exception {
+        enableLedger(withLedger);
+        Money amount = Money.of(new BigDecimal("1000.01"));
+        UnitOfWork unitOfWork = transferWithHistory(accounts.get(0), accounts.get(1), amount);
+        unitOfWork.credit(accounts.get(1), amount);
+        unitOfWork.debit(accounts.get(0), amount);
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, unitOfWork::commit);
+        assertEquals("Insufficient funds in account A0", e.getMessage());
+        assertEquals(0, OPENING_BALANCE.compareTo(db.queryDecimal("SELECT balance FROM accounts WHERE account_id = 'A0'")));
+        assertEquals(0, OPENING_BALANCE.compareTo(db.queryDecimal("SELECT balance FROM accounts WHERE account_id = 'A1'")));
+        assertEquals(0L, db.queryLong("SELECT COUNT(*) FROM ledger_entries WHERE posting_type = 'TransferFunds'"));
+        assertNoHistory();
+    }
+
+    @Test
+    void guardedDebitChecksTheStoredBalanceAtCommit() throws Exception {
+        // Another request has spent most of A0 since this one read it at $1,000
+        db.update("UPDATE accounts SET balance = 10.00 WHERE account_id = 'A0'");
+        Account stale = accounts.get(0);
+        Money amount = Money.of(new BigDecimal("10.01"));
+        UnitOfWork overdraft = transferWithHistory(stale, accounts.get(1), amount);
+        overdraft.debit(stale, amount);
+        overdraft.credit(accounts.get(1), amount);
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, overdraft::commit);
+        assertEquals("Insufficient funds in account A0", e.getMessage());
+        assertEquals(0, new BigDecimal("10.00").compareTo(db.queryDecimal("SELECT balance FROM accounts WHERE account_id = 'A0'")));
+        assertEquals(0, OPENING_BALANCE.compareTo(db.queryDecimal("SELECT balance FROM accounts WHERE account_id = 'A1'")));
+        assertNoHistory();
+
+        // Exactly the stored balance still goes through, as a delta on what is stored
+        UnitOfWork exact = db.database().beginUnitOfWork();
+        exact.debit(stale, Money.of(new BigDecimal("10.00")));
+        exact.credit(accounts.get(1), Money.of(new BigDecimal("10.00")));
+        exact.commit();
+        assertEquals(0, BigDecimal.ZERO.compareTo(db.queryDecimal("SELECT balance FROM accounts WHERE account_id = 'A0'")));
+        assertEquals(0, new BigDecimal("1010.00").compareTo(db.queryDecimal("SELECT balance FROM accounts WHERE account_id = 'A1'")));
+    }
+
+    // A unit already holding the transfer's transaction, receipt and notification
+    private UnitOfWork transferWithHistory(Account source, Account destination, Money amount) {
+        TransferFunds transfer = new TransferFunds(source, destination, amount, source.getAccountOwner());
+        Receipt receipt = new Receipt(transfer, source, destination, amount);
+        UnitOfWork unitOfWork = db.database().beginUnitOfWork();
+        unitOfWork.describePosting(Ledger.TRANSFER, transfer.getTransactionID(), null);
+        unitOfWork.saveTransaction(transfer);
+        unitOfWork.saveReceipt(receipt);
+        unitOfWork.saveNotification(new Notification(Notification.CHANNEL_EMAIL, "c1@example.com",
+            transfer.getTransactionID(), receipt.getReferenceNumber(), "You sent $" + amount));
+        return unitOfWork;
+    }
+
+    private void assertNoHistory() throws SQLException {
+        assertEquals(0L, db.queryLong("SELECT COUNT(*) FROM transactions"));
+        assertEquals(0L, db.queryLong("SELECT COUNT(*) FROM receipts"));
+        assertEquals(0L, db.queryLong("SELECT COUNT(*) FROM notification_outbox"));
+        // The ledger's opening postings write rows of their own, without entries
+        assertEquals(0L, db.queryLong("SELECT COUNT(*) FROM account_daily_balances WHERE entry_count > 0"));
+    }
+}